@@ -0,0 +1,112 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks {@link RgbColor} parsing, moving and formatting, as done for each relative color in the replace values,
+ * and {@link Palette} generation.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RgbColorBenchmark
+{
+
+	/**
+	 * Color to parse. Not final, so it is not constant folded.
+	 */
+	private String hex = "#086CA2";
+
+	/**
+	 * Parsed color.
+	 */
+	private RgbColor color = new RgbColor(hex);
+
+	/**
+	 * Output of the batch palette generation.
+	 */
+	private final int[] palette = new int[5];
+
+	/**
+	 * Steps of the batch palette generation.
+	 */
+	private final int[] steps = {0, 67, 33, -33, -67};
+
+
+	/**
+	 * Parses a color.
+	 *
+	 * @return Color.
+	 */
+	@Benchmark
+	public RgbColor parse()
+	{
+		return new RgbColor(hex);
+	}
+
+
+	/**
+	 * Moves a color.
+	 *
+	 * @return Moved color.
+	 */
+	@Benchmark
+	public RgbColor move()
+	{
+		return color.move(33);
+	}
+
+
+	/**
+	 * Parses, moves and formats a color, like a relative color in the replace values.
+	 *
+	 * @return Formatted moved color.
+	 */
+	@Benchmark
+	public String parseMoveFormat()
+	{
+		return new RgbColor(hex).move(-33).toString();
+	}
+
+
+	/**
+	 * Parses, moves and formats a packed color, without allocating a color object.
+	 *
+	 * @return Formatted moved color.
+	 */
+	@Benchmark
+	public String parseMoveFormatPacked()
+	{
+		return RgbColor.toHex(RgbColor.move(RgbColor.tryParse(hex), -33));
+	}
+
+
+	/**
+	 * Generates a palette in the OKLab color space.
+	 *
+	 * @return Palette.
+	 */
+	@Benchmark
+	public int[] paletteOklab()
+	{
+		Palette.generate(new int[]{color.getRgb()}, steps, Palette.Space.OKLAB, palette);
+		return palette;
+	}
+
+}
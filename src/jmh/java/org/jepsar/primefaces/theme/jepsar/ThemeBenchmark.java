@@ -0,0 +1,218 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks the theme transformation hot paths on community themes of different sizes, read from the
+ * {@code all-themes} JAR on the class path.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThemeBenchmark
+{
+
+	/**
+	 * Theme resource path, formatted with the theme name.
+	 */
+	private static final String THEME_PATH = "META-INF/resources/primefaces-%s/theme.css";
+
+	/**
+	 * Hex colors in a theme.
+	 */
+	private static final Pattern HEX_COLOR = Pattern.compile("#[0-9a-fA-F]{6}\\b");
+
+	/**
+	 * Maximum number of theme colors to replace.
+	 */
+	private static final int REPLACED_COLORS = 16;
+
+	/**
+	 * Percentage the replaced colors are moved.
+	 */
+	private static final int MOVE = 20;
+
+	/**
+	 * Theme name, from small to large.
+	 */
+	@Param({"smoothness", "aristo", "bootstrap"})
+	private String theme;
+
+	/**
+	 * Theme source.
+	 */
+	private String css;
+
+	/**
+	 * UTF-8 encoded theme source.
+	 */
+	private byte[] bytes;
+
+	/**
+	 * Plan replacing the first {@link #REPLACED_COLORS} colors of the theme with lighter colors.
+	 */
+	private ReplacementPlan plan;
+
+	/**
+	 * Same as the {@link #plan}, but matching the colors in any notation.
+	 */
+	private ReplacementPlan colorPlan;
+
+
+	/**
+	 * Reads the theme and compiles the {@link #plan} and the {@link #colorPlan}.
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		String path = String.format(THEME_PATH, theme);
+		try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+			if (in == null) {
+				throw new IllegalStateException(path + " not found on class path");
+			}
+			css = AbstractResource.read(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+		bytes = css.getBytes(StandardCharsets.UTF_8);
+		Set<String> colors = new LinkedHashSet<>();
+		Matcher matcher = HEX_COLOR.matcher(css);
+		while (matcher.find() && colors.size() < REPLACED_COLORS) {
+			colors.add(matcher.group());
+		}
+		StringJoiner find = new StringJoiner(ReplaceResource.SEPARATOR);
+		StringJoiner replace = new StringJoiner(ReplaceResource.SEPARATOR);
+		for (String color : colors) {
+			find.add(color);
+			replace.add(new RgbColor(color).move(MOVE).toString());
+		}
+		plan = new ReplacementPlan(find.toString(), replace.toString());
+		colorPlan = new ReplacementPlan(find.toString(), replace.toString(), true);
+	}
+
+
+	/**
+	 * Decodes the theme like {@link AbstractResource#readInputStream(java.io.InputStream)}.
+	 *
+	 * @return Theme.
+	 *
+	 * @throws IOException
+	 */
+	@Benchmark
+	public String read() throws IOException
+	{
+		try (Reader in = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+			return AbstractResource.read(in);
+		}
+	}
+
+
+	/**
+	 * Replaces the theme colors like the {@link ReplaceResource} does.
+	 *
+	 * @return Transformed theme.
+	 */
+	@Benchmark
+	public String replace()
+	{
+		return plan.apply(css);
+	}
+
+
+	/**
+	 * Reads, replaces and encodes the theme like the {@link ReplaceResource} does.
+	 *
+	 * @return Encoded transformed theme.
+	 *
+	 * @throws IOException
+	 */
+	@Benchmark
+	public byte[] replaceDecoded() throws IOException
+	{
+		return plan.apply(read()).getBytes(StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Replaces the theme colors in any notation like the {@link ReplaceResource} does when
+	 * {@link ReplaceResource#PARAM_NAME_MATCH_COLORS} is set.
+	 *
+	 * @return Transformed theme.
+	 */
+	@Benchmark
+	public String replaceColors()
+	{
+		return colorPlan.apply(css);
+	}
+
+
+	/**
+	 * Strips the icons like the {@link FontAwesomeResource} does.
+	 *
+	 * @return Transformed theme.
+	 */
+	@Benchmark
+	public String strip()
+	{
+		return IconStripper.strip(css);
+	}
+
+
+	/**
+	 * Strips the icons and replaces the colors in a single scan, like the {@link PipelineResourceHandler} does.
+	 *
+	 * @return Transformed theme.
+	 *
+	 * @throws IOException
+	 */
+	@Benchmark
+	public String stripAndReplace() throws IOException
+	{
+		StringBuilder sb = new StringBuilder(css.length());
+		CssScanner.scan(css, new IconStripper(plan.newListener(new CssWriter(sb))));
+		return sb.toString();
+	}
+
+
+	/**
+	 * Minifies the theme.
+	 *
+	 * @return Minified theme.
+	 */
+	@Benchmark
+	public String minify()
+	{
+		return CssMinifier.minify(css);
+	}
+
+}
+
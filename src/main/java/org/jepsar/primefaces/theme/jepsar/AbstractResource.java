@@ -5,15 +5,44 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
+import javax.faces.application.ResourceHandlerWrapper;
 import javax.faces.application.ResourceWrapper;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 
 
 /**
- * Abstract resource. Handles wrapping and reading data.
+ * Abstract resource. Handles wrapping and reading data. Subclasses which {@link #createCss() create CSS} have their
+ * charset encoded result {@link #getContent() cached} and served without copying. If
+ * {@link AbstractResourceHandler#PARAM_NAME_COMPRESSION compression} is enabled, a pre-compressed variant is served to
+ * clients which accept it.
+ *
+ * <p>
+ * The {@link #getRequestPath() request path} is versioned with the {@link ThemeContent#getHash() content hash} once
+ * the content is cached, so browsers can cache the content forever. Responses carry a strong ETag based on the same
+ * hash, which is used to {@link #userAgentNeedsUpdate(javax.faces.context.FacesContext) answer conditional requests}.
+ * The handler {@link #handleResourceRequest(javax.faces.context.FacesContext) serves the cached content} directly.
+ * </p>
+ *
+ * <p>
+ * A resource may be shared by concurrent requests, see {@link AbstractResourceHandler#createThemeResource(
+ * javax.faces.context.FacesContext, java.lang.String, java.lang.String, java.lang.String,
+ * java.util.function.BiFunction)}, so it only holds state which is the same for all requests. The transformed content
+ * is shared between resources, see {@link #getContent()}.
+ * </p>
  *
  * @author Jasper de Vries <jepsar@gmail.com>
  */
@@ -25,11 +54,66 @@ public abstract class AbstractResource extends ResourceWrapper
 	 */
 	public static final String PARAM_NAME_APPEND_CSS_RESOURCE = "org.jepsar.primefaces.theme.APPEND_CSS_RESOURCE";
 
+	/**
+	 * Request parameter holding the {@link ThemeContent#getHash() content hash}.
+	 */
+	public static final String HASH_PARAMETER = "hash";
+
 	/**
 	 * Input stream reader buffer size.
 	 */
 	private static final int BUFFER_SIZE = 1024;
 
+	/**
+	 * ETag response header.
+	 */
+	private static final String HEADER_ETAG = "ETag";
+
+	/**
+	 * Cache control response header.
+	 */
+	private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+
+	/**
+	 * Last modified response header. Removed, as it describes the wrapped resource.
+	 */
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+
+	/**
+	 * Expires response header. Removed in favor of {@link #HEADER_CACHE_CONTROL}.
+	 */
+	private static final String HEADER_EXPIRES = "Expires";
+
+	/**
+	 * If none match request header.
+	 */
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
+	/**
+	 * Status of a "not modified" response.
+	 */
+	private static final int STATUS_NOT_MODIFIED = 304;
+
+	/**
+	 * Cache control for requests with a matching {@link #HASH_PARAMETER}.
+	 */
+	private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+
+	/**
+	 * Cache control for requests without a matching {@link #HASH_PARAMETER}.
+	 */
+	private static final String CACHE_CONTROL_REVALIDATE = "public, no-cache";
+
+	/**
+	 * Exception thrown if a handler is not and does not wrap an {@link AbstractResourceHandler}.
+	 */
+	private static final String IAE_NO_THEME_HANDLER = "Handler %s is not and does not wrap an AbstractResourceHandler";
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(AbstractResource.class.getName());
+
 	/**
 	 * Wrapped resource.
 	 */
@@ -38,7 +122,7 @@ public abstract class AbstractResource extends ResourceWrapper
 	/**
 	 * Handler that created this resource.
 	 */
-	private final ResourceHandler handler;
+	private final AbstractResourceHandler handler;
 
 	/**
 	 * Response encoding charset.
@@ -46,30 +130,737 @@ public abstract class AbstractResource extends ResourceWrapper
 	private final Charset charset;
 
 	/**
-	 * Name of the CSS resource to append.
+	 * URL of the wrapped resource, {@code null} if it has none.
 	 */
-	private final String appendCssResource;
+	private final URL url;
 
+	/**
+	 * Identity of the content of the wrapped resource, see {@link #getSource()}.
+	 */
+	private final String source;
 
 	/**
-	 * Wraps the resource and sets {@link #charset} and {@link #appendCssResource}.
+	 * Metrics of the library of the wrapped resource.
+	 */
+	private final ThemeMetrics metrics;
+
+	/**
+	 * Content created for this resource only, used if the {@link #source} is unknown.
+	 */
+	private volatile ThemeContent unsharedContent;
+
+
+	/**
+	 * Wraps the resource and sets {@link #charset} to the
+	 * {@link AbstractResourceHandler#getResponseCharset(javax.faces.context.FacesContext) response charset} of the
+	 * current request.
 	 *
 	 * @param wrapped Wrapped resource.
 	 * @param handler Handler that created this resource.
 	 */
+	public AbstractResource(Resource wrapped, AbstractResourceHandler handler)
+	{
+		this(wrapped, handler, handler.getResponseCharset(FacesContext.getCurrentInstance()));
+	}
+
+
+	/**
+	 * Wraps the resource, using the {@link AbstractResourceHandler} which is or is wrapped by the handler.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 *
+	 * @throws IllegalArgumentException If the handler is not and does not wrap an {@link AbstractResourceHandler}.
+	 *
+	 * @deprecated Use {@link #AbstractResource(javax.faces.application.Resource, AbstractResourceHandler)}.
+	 */
+	@Deprecated
 	public AbstractResource(Resource wrapped, ResourceHandler handler)
+	{
+		this(wrapped, toThemeHandler(handler));
+	}
+
+
+	/**
+	 * Wraps the resource. The URL and the {@link #getSource() source} of the wrapped resource are resolved only once.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 * @param charset Response encoding charset.
+	 */
+	public AbstractResource(Resource wrapped, AbstractResourceHandler handler, Charset charset)
 	{
 		this.wrapped = wrapped;
 		this.handler = handler;
-		String charEncoding = FacesContext.getCurrentInstance().getExternalContext().getResponseCharacterEncoding();
-		this.charset = Charset.forName(charEncoding);
-		this.appendCssResource = getInitParameter(FacesContext.getCurrentInstance(), PARAM_NAME_APPEND_CSS_RESOURCE);
+		this.charset = charset;
+		this.url = wrapped.getURL();
+		this.source = getSource(wrapped, url);
+		this.metrics = handler.getMetrics().get(wrapped.getLibraryName());
+	}
+
+
+	/**
+	 * Returns an input stream reading the {@link #getContent() cached content} without copying it. The content is
+	 * encoded using the {@link #getContentEncoding() negotiated encoding}. If
+	 * {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming} is enabled, the returned stream transforms the
+	 * {@link #addCss(org.jepsar.primefaces.theme.jepsar.TransformingInputStream) CSS sources} while it is read instead.
+	 *
+	 * @return Input stream reading the cached or streamed content.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public InputStream getInputStream() throws IOException
+	{
+		if (handler.isStreaming()) {
+			return newInputStream(getContentEncoding());
+		}
+		ThemeContent content = getContent();
+		ThemeContent variant = content.getVariant(getContentEncoding());
+		metrics.recordServed(variant.length(), content.length());
+		return variant.newInputStream();
+	}
+
+
+	/**
+	 * Returns an input stream reading the {@link #getContent() cached} or, if
+	 * {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming}, streamed content, encoded with the content
+	 * encoding. Nothing is recorded in the metrics, as the content is not served.
+	 *
+	 * @param encoding Content encoding.
+	 *
+	 * @return Input stream reading the content.
+	 *
+	 * @throws IOException
+	 */
+	InputStream newInputStream(ContentEncoding encoding) throws IOException
+	{
+		if (handler.isStreaming()) {
+			TransformingInputStream css = handler.isMinify()
+					? new TransformingInputStream(charset, encoding, CssMinifier::newWriter)
+					: new TransformingInputStream(charset, encoding);
+			addCss(css);
+			return css;
+		}
+		return getContent().getVariant(encoding).newInputStream();
+	}
+
+
+	/**
+	 * Serves the {@link #getContent() cached content} as the response to a resource request. The response headers are
+	 * set and a conditional request is answered with "not modified" if the
+	 * {@link #userAgentNeedsUpdate(javax.faces.context.FacesContext) user agent has the current content}. Otherwise the
+	 * content, in the {@link #getContentEncoding() negotiated encoding}, is written to the response in a single call
+	 * with its {@code Content-Length}, without creating an input stream.
+	 *
+	 * <p>
+	 * Should not be used when {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming}, as there is no cached
+	 * content then.
+	 * </p>
+	 *
+	 * @param context Faces context of the resource request.
+	 *
+	 * @throws IOException
+	 */
+	public void handleResourceRequest(FacesContext context) throws IOException
+	{
+		ExternalContext externalContext = context.getExternalContext();
+		for (Map.Entry<String, String> header : getResponseHeaders().entrySet()) {
+			externalContext.setResponseHeader(header.getKey(), header.getValue());
+		}
+		if (!userAgentNeedsUpdate(context)) {
+			externalContext.setResponseStatus(STATUS_NOT_MODIFIED);
+			return;
+		}
+		ThemeContent content = getContent();
+		ThemeContent variant = content.getVariant(getContentEncoding());
+		externalContext.setResponseContentType(getContentType());
+		externalContext.setResponseContentLength(variant.length());
+		metrics.recordServed(variant.length(), content.length());
+		variant.writeTo(externalContext.getResponseOutputStream());
+	}
+
+
+	/**
+	 * Returns the response headers of the wrapped resource, with a strong {@link #HEADER_ETAG} and
+	 * {@link #HEADER_CACHE_CONTROL} describing the transformed content. Requests with a matching {@link #HASH_PARAMETER}
+	 * may be cached forever. If {@link AbstractResourceHandler#PARAM_NAME_COMPRESSION compression} is enabled, the
+	 * {@link ContentEncoding#HEADER_VARY} header is added and, if the content is encoded, the
+	 * {@link ContentEncoding#HEADER_CONTENT_ENCODING} header. When
+	 * {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming}, the content is not known up front, so only the
+	 * encoding headers are changed. The headers of the wrapped resource are copied under its lock, as it may be shared.
+	 *
+	 * @return Response headers.
+	 */
+	@Override
+	public Map<String, String> getResponseHeaders()
+	{
+		Map<String, String> headers;
+		synchronized (wrapped) {
+			headers = new HashMap<>(wrapped.getResponseHeaders());
+		}
+		if (!handler.isStreaming()) {
+			putCacheHeaders(headers);
+		}
+		if (handler.isCompression()) {
+			headers.put(ContentEncoding.HEADER_VARY, ContentEncoding.HEADER_ACCEPT_ENCODING);
+			ContentEncoding encoding = getContentEncoding();
+			if (encoding != ContentEncoding.IDENTITY) {
+				headers.put(ContentEncoding.HEADER_CONTENT_ENCODING, encoding.getToken());
+			}
+		}
+		return headers;
+	}
+
+
+	/**
+	 * Replaces the caching headers of the wrapped resource by a strong {@link #HEADER_ETAG} and
+	 * {@link #HEADER_CACHE_CONTROL} describing the transformed content.
+	 *
+	 * @param headers Response headers.
+	 */
+	private void putCacheHeaders(Map<String, String> headers)
+	{
+		headers.remove(HEADER_LAST_MODIFIED);
+		headers.remove(HEADER_EXPIRES);
+		try {
+			ThemeContent content = getContent();
+			headers.put(HEADER_ETAG, getETag(content));
+			boolean versioned = isVersionedRequest(content);
+			headers.put(HEADER_CACHE_CONTROL, versioned ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL_REVALIDATE);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Could not create content for " + getSource(), ex);
+		}
+	}
+
+
+	/**
+	 * Returns the request path of the wrapped resource with a version added as {@link #HASH_PARAMETER}, so the URL
+	 * changes whenever the transformed content changes. Rendering the path never transforms the theme: if the content
+	 * is cached, the version is the {@link ThemeContent#getHash() content hash}, else it is the
+	 * {@link #getSourceVersion() source version}. Only requests with the content hash may be cached forever. When
+	 * {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming}, the request path is not versioned.
+	 *
+	 * @return Versioned request path.
+	 */
+	@Override
+	public String getRequestPath()
+	{
+		String path = wrapped.getRequestPath();
+		if (handler.isStreaming()) {
+			return path;
+		}
+		ThemeContent content = getCachedContent();
+		String version = content == null ? getSourceVersion() : content.getHash();
+		return path + (path.indexOf('?') < 0 ? '?' : '&') + HASH_PARAMETER + '=' + version;
+	}
+
+
+	/**
+	 * Returns the {@link #getContent() content} if it is already cached, without creating it.
+	 *
+	 * @return Cached content, {@code null} if not cached.
+	 */
+	private ThemeContent getCachedContent()
+	{
+		if (source == null) {
+			return unsharedContent;
+		}
+		return handler.getCache().getIfPresent(new CacheKey(source, getFingerprint(), charset));
+	}
+
+
+	/**
+	 * Returns a version identifying the inputs of the content without transforming it: the {@link #getSource() source},
+	 * the {@link AbstractResourceHandler#getLastModified(java.net.URL) last modification} of the wrapped resource, the
+	 * {@link #getFingerprint() fingerprint}, the charset and the {@link AbstractResourceHandler#PARAM_NAME_MINIFY minify}
+	 * setting.
+	 *
+	 * @return Source version.
+	 */
+	protected String getSourceVersion()
+	{
+		long modified = url == null ? 0 : handler.getLastModified(url);
+		String inputs = source + '\n' + modified + '\n' + getFingerprint() + '\n' + charset.name() + '\n'
+										+ handler.isMinify();
+		return Integer.toHexString(inputs.hashCode());
+	}
+
+
+	/**
+	 * Returns {@code false} if the {@link #HEADER_IF_NONE_MATCH} request header contains the current
+	 * {@link #HEADER_ETAG}, so a "not modified" response can be sent. The modification date of the wrapped resource is
+	 * not used, as the transformed content can change without the wrapped resource changing. When
+	 * {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming}, the wrapped resource decides.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return {@code false} if the user agent has the current content.
+	 */
+	@Override
+	public boolean userAgentNeedsUpdate(FacesContext context)
+	{
+		if (handler.isStreaming()) {
+			return wrapped.userAgentNeedsUpdate(context);
+		}
+		String ifNoneMatch = context.getExternalContext().getRequestHeaderMap().get(HEADER_IF_NONE_MATCH);
+		if (ifNoneMatch == null) {
+			return true;
+		}
+		try {
+			return !matchesETag(ifNoneMatch, getETag(getContent()));
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Could not create content for " + getSource(), ex);
+			return true;
+		}
+	}
+
+
+	/**
+	 * Returns the strong ETag for the content in the {@link #getContentEncoding() negotiated encoding}.
+	 *
+	 * @param content Content.
+	 *
+	 * @return Quoted ETag.
+	 */
+	private String getETag(ThemeContent content)
+	{
+		ContentEncoding encoding = getContentEncoding();
+		return '"' + content.getHash() + (encoding == ContentEncoding.IDENTITY ? "" : "-" + encoding.getToken()) + '"';
+	}
+
+
+	/**
+	 * Returns {@code true} if the request has a {@link #HASH_PARAMETER} matching the content hash.
+	 *
+	 * @param content Content.
+	 *
+	 * @return {@code true} if the request has a matching {@link #HASH_PARAMETER}.
+	 */
+	private boolean isVersionedRequest(ThemeContent content)
+	{
+		FacesContext context = FacesContext.getCurrentInstance();
+		return context != null &&
+					 content.getHash().equals(context.getExternalContext().getRequestParameterMap().get(HASH_PARAMETER));
+	}
+
+
+	/**
+	 * Returns {@code true} if an {@link #HEADER_IF_NONE_MATCH} header value matches the ETag.
+	 *
+	 * @param ifNoneMatch Header value, a list of (possibly weak) ETags or {@code *}.
+	 * @param eTag        Quoted ETag.
+	 *
+	 * @return {@code true} if the header value matches the ETag.
+	 */
+	static boolean matchesETag(String ifNoneMatch, String eTag)
+	{
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals("*") || candidate.equals(eTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns the encoding to serve the content with. This is {@link ContentEncoding#IDENTITY} unless
+	 * {@link AbstractResourceHandler#PARAM_NAME_COMPRESSION compression} is enabled, in which case it is
+	 * {@link ContentEncoding#negotiate(java.lang.String) negotiated} using the request headers.
+	 *
+	 * @return Encoding to serve the content with.
+	 */
+	protected ContentEncoding getContentEncoding()
+	{
+		FacesContext context = FacesContext.getCurrentInstance();
+		if (!handler.isCompression() || context == null) {
+			return ContentEncoding.IDENTITY;
+		}
+		Map<String, String> requestHeaders = context.getExternalContext().getRequestHeaderMap();
+		return ContentEncoding.negotiate(requestHeaders.get(ContentEncoding.HEADER_ACCEPT_ENCODING));
+	}
+
+
+	/**
+	 * Returns the charset encoded content from the {@link AbstractResourceHandler#getCache() handler cache}. If it is
+	 * not cached, the content is mapped from the {@link AbstractResourceHandler#PARAM_NAME_CACHE_DIRECTORY disk cache}
+	 * if it was stored before, else it is {@link #createContent() created} and stored once. If
+	 * {@link AbstractResourceHandler#PARAM_NAME_OFF_HEAP_MEMORY enabled}, the content and its compressed variants are
+	 * kept outside the Java heap. Lookups and transformations are recorded in the {@link ThemeMetrics} of the library.
+	 *
+	 * <p>
+	 * If the {@link #getSource() source} is unknown, the content is created once for this resource only.
+	 * </p>
+	 *
+	 * @return Cached content.
+	 *
+	 * @throws IOException
+	 */
+	public ThemeContent getContent() throws IOException
+	{
+		metrics.recordLookup();
+		if (source == null) {
+			ThemeContent content = unsharedContent;
+			if (content == null) {
+				content = createContent();
+				unsharedContent = content;
+			}
+			return content;
+		}
+		CacheKey key = new CacheKey(source, getFingerprint(), charset);
+		SlabStore<CacheKey> offHeapStore = handler.getOffHeapStore();
+		if (offHeapStore != null) {
+			offHeapStore.touch(key);
+		}
+		return handler.getCache().get(key, () -> {
+			DiskCache diskCache = handler.getDiskCache();
+			boolean stored = diskCache != null && url != null && isContainerResource(wrapped);
+			String diskKey = stored ? getDiskKey(diskCache) : null;
+			ThemeContent content = diskKey == null ? null : diskCache.get(diskKey);
+			if (content == null) {
+				content = createContent();
+				if (diskKey != null) {
+					content = diskCache.put(diskKey, content);
+				}
+			}
+			if (offHeapStore != null) {
+				content = offHeapStore.store(key, content);
+			}
+			handler.getMetrics().putSource(key.getSource(), metrics);
+			return content;
+		});
+	}
+
+
+	/**
+	 * Creates the content: the {@link #createCss() created CSS}, {@link AbstractResourceHandler#PARAM_NAME_MINIFY
+	 * minified} if enabled and encoded. The transformation is recorded in the {@link ThemeMetrics} of the library.
+	 *
+	 * @return Content.
+	 *
+	 * @throws IOException
+	 */
+	private ThemeContent createContent() throws IOException
+	{
+		long start = System.nanoTime();
+		String css = createCss();
+		css = handler.isMinify() ? CssMinifier.minify(css) : css;
+		ThemeContent content = new ThemeContent(css.getBytes(charset));
+		metrics.recordTransform(System.nanoTime() - start, getSourceLength(), content.length());
+		return content;
+	}
+
+
+	/**
+	 * Returns the key of the content in the disk cache: a hash of the versions of all inputs of the content, being the
+	 * wrapped resource and the {@link #getAdditionalSources() additional sources} (see
+	 * {@link #getDiskKeyPart(javax.faces.application.Resource)}), the appended CSS, the resource type, the
+	 * {@link #getFingerprint() fingerprint}, the {@link #charset} and whether it is minified. The theme itself is not
+	 * read.
+	 *
+	 * @param diskCache Disk cache.
+	 *
+	 * @return Key.
+	 *
+	 * @throws IOException
+	 */
+	private String getDiskKey(DiskCache diskCache) throws IOException
+	{
+		List<String> parts = new ArrayList<>();
+		parts.add(getClass().getName());
+		parts.add(getFingerprint());
+		parts.add(charset.name());
+		parts.add(String.valueOf(handler.isMinify()));
+		parts.add(handler.getAppendedCss(charset));
+		parts.add(getDiskKeyPart(wrapped));
+		for (Resource resource : getAdditionalSources()) {
+			parts.add(getDiskKeyPart(resource));
+		}
+		return diskCache.key(parts.toArray(new String[parts.size()]));
+	}
+
+
+	/**
+	 * Returns the version of a source in the disk cache key: its library, name and
+	 * {@link AbstractResourceHandler#getLastModified(java.net.URL) last modification}. Only if the modification is
+	 * unknown, the source is read and its content is used.
+	 *
+	 * @param resource Source.
+	 *
+	 * @return Version of the source.
+	 *
+	 * @throws IOException
+	 */
+	private String getDiskKeyPart(Resource resource) throws IOException
+	{
+		URL resourceUrl = resource.getURL();
+		long modified = resourceUrl == null ? 0 : handler.getLastModified(resourceUrl);
+		if (modified == 0) {
+			return readInputStream(resource.getInputStream());
+		}
+		return resource.getLibraryName() + '/' + resource.getResourceName() + '@' + modified;
+	}
+
+
+	/**
+	 * Returns the resources {@link #createCss()} adds to the theme, apart from the wrapped resource and the appended
+	 * CSS. Used to {@link #getContent() identify stored content}. This implementation returns none.
+	 *
+	 * @return Additional sources.
+	 */
+	protected List<Resource> getAdditionalSources()
+	{
+		return Collections.emptyList();
+	}
+
+
+	/**
+	 * Reads the CSS {@link #createCss()} adds to the theme, apart from the wrapped resource, into the handler caches,
+	 * so the content can be created without a faces context during the
+	 * {@link AbstractResourceHandler#PARAM_NAME_WARM_UP warm-up}. This implementation reads the appended CSS.
+	 *
+	 * @throws IOException
+	 */
+	protected void readSources() throws IOException
+	{
+		handler.getAppendedCss(charset);
+	}
+
+
+	/**
+	 * Creates the content from the theme source read ahead by the {@link AbstractResourceHandler#PARAM_NAME_WARM_UP
+	 * warm-up}, and its compressed variants if {@link AbstractResourceHandler#PARAM_NAME_COMPRESSION enabled}. Called
+	 * without a faces context, after {@link #readSources()}.
+	 *
+	 * @param css Theme source, with its expression language evaluated.
+	 *
+	 * @return Content.
+	 *
+	 * @throws IOException
+	 */
+	ThemeContent warmUp(final String css) throws IOException
+	{
+		if (source != null) {
+			CacheKey key = new CacheKey(source, getFingerprint(), AbstractResourceHandler.SOURCE_CHARSET);
+			handler.getTransformedTheme(key, url, () -> transformTheme(css));
+		}
+		ThemeContent content = getContent();
+		if (handler.isCompression()) {
+			for (ContentEncoding encoding : ContentEncoding.values()) {
+				content.getVariant(encoding);
+			}
+		}
+		return content;
+	}
+
+
+	/**
+	 * Returns the size of the wrapped resource before transformation, without reading it.
+	 *
+	 * @return Size in bytes, {@code -1} if unknown.
+	 */
+	protected long getSourceLength()
+	{
+		if (url == null) {
+			return -1;
+		}
+		try {
+			return url.openConnection().getContentLengthLong();
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.FINE, "Could not determine size of " + url, ex);
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Creates the complete CSS for this resource, including the {@link #appendCss(java.lang.StringBuilder) appended CSS}.
+	 *
+	 * @return Complete CSS.
+	 *
+	 * @throws IOException
+	 */
+	protected abstract String createCss() throws IOException;
+
+
+	/**
+	 * Returns a fingerprint of the configuration used by {@link #createCss()}. Resources with the same
+	 * {@link #getSource() source} and fingerprint share their cached content. This implementation returns the
+	 * {@link AbstractResourceHandler#getFingerprint() handler fingerprint}.
+	 *
+	 * @return Fingerprint of the configuration.
+	 */
+	protected String getFingerprint()
+	{
+		return handler.getFingerprint();
+	}
+
+
+	/**
+	 * Transforms the theme source. This implementation uses the
+	 * {@link AbstractResourceHandler#transformTheme(java.lang.String) handler transformation}. Subclasses overriding
+	 * this should also override {@link #newThemeWriter(java.io.Writer)} and {@link #getFingerprint()}.
+	 *
+	 * @param css Theme source.
+	 *
+	 * @return Transformed theme source.
+	 */
+	protected String transformTheme(String css)
+	{
+		return handler.transformTheme(css);
+	}
+
+
+	/**
+	 * Returns a writer applying the same transformation as {@link #transformTheme(java.lang.String)}. This
+	 * implementation uses the {@link AbstractResourceHandler#newThemeWriter(java.io.Writer) handler transformation}.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Transforming writer.
+	 */
+	protected Writer newThemeWriter(Writer out)
+	{
+		return handler.newThemeWriter(out);
+	}
+
+
+	/**
+	 * Returns the wrapped theme, read through {@link #getWrappedInputStream()}, {@link #transformTheme(java.lang.String)
+	 * transformed}. If the {@link #getSource() source} is known, the transformation is taken from the
+	 * {@link AbstractResourceHandler#getTransformedTheme(org.jepsar.primefaces.theme.jepsar.CacheKey, java.net.URL,
+	 * java.util.concurrent.Callable) handler cache}.
+	 *
+	 * @return Transformed theme.
+	 *
+	 * @throws IOException
+	 */
+	protected String readTransformedTheme() throws IOException
+	{
+		if (source == null) {
+			return transformWrappedTheme();
+		}
+		CacheKey key = new CacheKey(source, getFingerprint(), AbstractResourceHandler.SOURCE_CHARSET);
+		return handler.getTransformedTheme(key, url, this::transformWrappedTheme);
+	}
+
+
+	/**
+	 * Reads the wrapped theme and transforms it.
+	 *
+	 * @return Transformed theme.
+	 *
+	 * @throws IOException
+	 */
+	private String transformWrappedTheme() throws IOException
+	{
+		try (Reader in = new InputStreamReader(getWrappedInputStream(), getWrappedCharset())) {
+			return transformTheme(read(in));
+		}
+	}
+
+
+	/**
+	 * Returns an input stream reading the wrapped resource, with its expression language evaluated by JSF. If the
+	 * wrapped resource is another theme resource, for example when handlers are stacked, its content is read without
+	 * content encoding.
+	 *
+	 * @return Input stream reading the wrapped resource.
+	 *
+	 * @throws IOException
+	 */
+	protected InputStream getWrappedInputStream() throws IOException
+	{
+		if (wrapped instanceof AbstractResource) {
+			return ((AbstractResource) wrapped).newInputStream(ContentEncoding.IDENTITY);
+		}
+		return wrapped.getInputStream();
+	}
+
+
+	/**
+	 * Returns the charset of the {@link #getWrappedInputStream() wrapped resource}: the charset of the wrapped theme
+	 * resource, or the {@link AbstractResourceHandler#SOURCE_CHARSET source charset} all themes are encoded with.
+	 *
+	 * @return Charset of the wrapped resource.
+	 */
+	protected Charset getWrappedCharset()
+	{
+		if (wrapped instanceof AbstractResource) {
+			return ((AbstractResource) wrapped).getCharset();
+		}
+		return AbstractResourceHandler.SOURCE_CHARSET;
+	}
+
+
+	/**
+	 * Adds the sources of the complete CSS for this resource to a stream, in the same order and with the same
+	 * transformations as {@link #createCss()}. Used when {@link AbstractResourceHandler#PARAM_NAME_STREAMING streaming}.
+	 *
+	 * @param css Stream to add the sources to.
+	 *
+	 * @throws IOException
+	 */
+	protected abstract void addCss(TransformingInputStream css) throws IOException;
+
+
+	/**
+	 * Adds the wrapped theme, read through {@link #getWrappedInputStream()}, to a stream, filtered by the
+	 * {@link #newThemeWriter(java.io.Writer) theme transformation}.
+	 *
+	 * @param css Stream to add the theme to.
+	 *
+	 * @throws IOException
+	 */
+	protected void addTransformedTheme(TransformingInputStream css) throws IOException
+	{
+		css.add(new InputStreamReader(getWrappedInputStream(), getWrappedCharset()), this::newThemeWriter);
+	}
+
+
+	/**
+	 * If the {@link #PARAM_NAME_APPEND_CSS_RESOURCE} context parameter is set, the
+	 * {@link AbstractResourceHandler#getAppendedCss(java.nio.charset.Charset) cached contents} of that CSS resource are
+	 * added to the stream.
+	 *
+	 * @param css Stream to add the CSS to.
+	 *
+	 * @throws IOException
+	 */
+	protected void addAppendedCss(TransformingInputStream css) throws IOException
+	{
+		String appendedCss = handler.getAppendedCss(charset);
+		if (!appendedCss.isEmpty()) {
+			css.add(new StringReader(appendedCss));
+		}
+	}
+
+
+	/**
+	 * Returns a reader decoding the input stream with the {@link #charset}.
+	 *
+	 * @param inputStream Input stream.
+	 *
+	 * @return Reader.
+	 */
+	protected Reader newReader(final InputStream inputStream)
+	{
+		return new InputStreamReader(inputStream, charset);
 	}
 
 
 	/**
 	 * If the {@link #PARAM_NAME_APPEND_CSS_RESOURCE} context parameter is set, the contents of that CSS resource
-	 * will be appended to the {@code StringBuilder}.
+	 * will be appended to the {@code StringBuilder}. The resource is only read once, see
+	 * {@link AbstractResourceHandler#getAppendedCss(java.nio.charset.Charset)}.
 	 *
 	 * @param sb
 	 *
@@ -79,11 +870,7 @@ public abstract class AbstractResource extends ResourceWrapper
 	 */
 	protected StringBuilder appendCss(StringBuilder sb) throws IOException
 	{
-		if (appendCssResource != null) {
-			Resource resource = handler.createResource(appendCssResource);
-			sb.append(readInputStream(resource.getInputStream()));
-		}
-		return sb;
+		return sb.append(handler.getAppendedCss(charset));
 	}
 
 
@@ -97,19 +884,107 @@ public abstract class AbstractResource extends ResourceWrapper
 	 * @throws IOException
 	 */
 	protected String readInputStream(final InputStream inputStream) throws IOException
+	{
+		try (Reader in = newReader(inputStream)) {
+			return read(in);
+		}
+	}
+
+
+	/**
+	 * Reads all data from a reader and returns it as a string. The reader is not closed.
+	 *
+	 * @param in Reader to read from.
+	 *
+	 * @return Data read from the reader.
+	 *
+	 * @throws IOException
+	 */
+	static String read(final Reader in) throws IOException
 	{
 		final char[] buffer = new char[BUFFER_SIZE];
 		final StringBuilder sb = new StringBuilder(BUFFER_SIZE);
-		try (Reader in = new InputStreamReader(inputStream, charset)) {
-			int read;
-			while ((read = in.read(buffer, 0, buffer.length)) > -1) {
-				sb.append(buffer, 0, read);
-			}
+		int read;
+		while ((read = in.read(buffer, 0, buffer.length)) > -1) {
+			sb.append(buffer, 0, read);
 		}
 		return sb.toString();
 	}
 
 
+	/**
+	 * Returns the source of the wrapped resource to be used in a {@link CacheKey}, identifying the content read from
+	 * it. See {@link #getSource(javax.faces.application.Resource, java.net.URL)}.
+	 *
+	 * @return Source of the wrapped resource, {@code null} if unknown.
+	 */
+	protected String getSource()
+	{
+		return source;
+	}
+
+
+	/**
+	 * Returns the source of a wrapped resource. For a {@link #isContainerResource(javax.faces.application.Resource)
+	 * container resource} this is its URL, or its library and resource name if there is no URL. For another theme
+	 * resource it is the source of that resource with its {@link #getFingerprint() fingerprint}, as its content
+	 * depends on both. Other resource wrappers may transform their content in any way, so their source is unknown.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param url     URL of the wrapped resource, may be {@code null}.
+	 *
+	 * @return Source of the wrapped resource, {@code null} if unknown.
+	 */
+	private static String getSource(Resource wrapped, URL url)
+	{
+		if (wrapped instanceof AbstractResource) {
+			AbstractResource theme = (AbstractResource) wrapped;
+			return theme.source == null ? null : theme.source + " [" + theme.getFingerprint() + "]";
+		}
+		if (!isContainerResource(wrapped)) {
+			return null;
+		}
+		return url == null ? wrapped.getLibraryName() + "/" + wrapped.getResourceName() : url.toExternalForm();
+	}
+
+
+	/**
+	 * Returns {@code true} if the resource is created by the container (the JSF implementation) instead of being a
+	 * {@link ResourceWrapper} which might transform the content of the resource it wraps. The content of a container
+	 * resource is the content behind its URL, with its expression language evaluated.
+	 *
+	 * @param resource Resource.
+	 *
+	 * @return {@code true} if the resource is created by the container.
+	 */
+	static boolean isContainerResource(Resource resource)
+	{
+		return !(resource instanceof ResourceWrapper);
+	}
+
+
+	/**
+	 * Returns the handler if it is an {@link AbstractResourceHandler}, else the first one it wraps.
+	 *
+	 * @param handler Resource handler.
+	 *
+	 * @return Theme handler.
+	 *
+	 * @throws IllegalArgumentException If the handler is not and does not wrap an {@link AbstractResourceHandler}.
+	 */
+	static AbstractResourceHandler toThemeHandler(ResourceHandler handler)
+	{
+		ResourceHandler current = handler;
+		while (!(current instanceof AbstractResourceHandler)) {
+			if (!(current instanceof ResourceHandlerWrapper)) {
+				throw new IllegalArgumentException(String.format(IAE_NO_THEME_HANDLER, handler));
+			}
+			current = ((ResourceHandlerWrapper) current).getWrapped();
+		}
+		return (AbstractResourceHandler) current;
+	}
+
+
 	/**
 	 * Return the value of the specified application initialization parameter (if any).
 	 *
@@ -141,7 +1016,7 @@ public abstract class AbstractResource extends ResourceWrapper
 	 *
 	 * @return {@link #handler}.
 	 */
-	public ResourceHandler getHandler()
+	public AbstractResourceHandler getHandler()
 	{
 		return handler;
 	}
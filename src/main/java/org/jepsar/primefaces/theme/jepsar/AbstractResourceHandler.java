@@ -1,18 +1,229 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.faces.application.ProjectStage;
+import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
 import javax.faces.application.ResourceHandlerWrapper;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.event.PostConstructApplicationEvent;
+import javax.faces.event.PreDestroyApplicationEvent;
+import javax.faces.event.SystemEvent;
+import javax.faces.event.SystemEventListener;
+import static org.jepsar.primefaces.theme.jepsar.AbstractResource.getInitParameter;
 
 
 /**
- * Abstract resource handler. Handles wrapping.
+ * Abstract resource handler. Handles wrapping and holds the {@link #cache} for transformed resources.
+ *
+ * <p>
+ * Transforming a theme is done in two steps. First the {@link #transformTheme(java.lang.String) theme transformation}
+ * is applied to the theme read through the wrapped resource, with its expression language evaluated by JSF, and kept in
+ * the {@link #themeCache}. Then a resource appends any custom CSS. Both steps can be done in the background when the
+ * application has started, see {@link #PARAM_NAME_WARM_UP}.
+ * </p>
+ *
+ * <p>
+ * In the {@link ProjectStage#Development development} project stage, the files behind the theme sources and the
+ * appended CSS are watched using a {@link ResourceWatcher}, and only the cache entries depending on a changed file are
+ * evicted. In other project stages cached entries are never checked.
+ * </p>
  *
  * @author Jasper de Vries <jepsar@gmail.com>
  */
 public abstract class AbstractResourceHandler extends ResourceHandlerWrapper
 {
 
+	/**
+	 * The context parameter name for the maximum number of transformed resources to cache. Setting it is optional, if
+	 * not set it will default to {@link #DEFAULT_CACHE_SIZE} or, if {@link #PARAM_NAME_OFF_HEAP_MEMORY} is set, to the
+	 * number of themes that memory holds (assuming {@link #OFF_HEAP_THEME_SIZE} per theme) if that is more.
+	 */
+	public static final String PARAM_NAME_CACHE_SIZE = "org.jepsar.primefaces.theme.CACHE_SIZE";
+
+	/**
+	 * Default maximum number of transformed resources to cache.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 16;
+
+	/**
+	 * Assumed size in bytes of a theme and its compressed variants kept outside the Java heap, used to derive the
+	 * default cache size from {@link #PARAM_NAME_OFF_HEAP_MEMORY}.
+	 */
+	public static final int OFF_HEAP_THEME_SIZE = 128 << 10;
+
+	/**
+	 * The context parameter name for the maximum memory used by cached themes, in bytes or with a {@code K}, {@code M} or
+	 * {@code G} suffix, for example {@code 64M}. It applies to the transformed themes and, separately, to the transformed
+	 * theme sources. Themes kept outside the Java heap (see {@link #PARAM_NAME_OFF_HEAP_MEMORY} and
+	 * {@link #PARAM_NAME_CACHE_DIRECTORY}) are not counted. Setting it is optional, if not set the caches are only
+	 * bounded by {@link #PARAM_NAME_CACHE_SIZE}.
+	 */
+	public static final String PARAM_NAME_CACHE_MEMORY = "org.jepsar.primefaces.theme.CACHE_MEMORY";
+
+	/**
+	 * The context parameter name for the maximum memory used to keep transformed themes outside the Java heap, in the
+	 * same format as {@link #PARAM_NAME_CACHE_MEMORY}, see {@link SlabStore}. Useful when caching many themes, for
+	 * example one per tenant palette. Setting it is optional, if not set cached themes are kept on the heap.
+	 */
+	public static final String PARAM_NAME_OFF_HEAP_MEMORY = "org.jepsar.primefaces.theme.OFF_HEAP_MEMORY";
+
+	/**
+	 * The context parameter name for a directory in which transformed themes are stored, so they are not transformed
+	 * again after a restart or by other nodes sharing the directory. Stored themes are memory-mapped, see
+	 * {@link DiskCache}. Setting it is optional, if not set themes are only cached in memory.
+	 */
+	public static final String PARAM_NAME_CACHE_DIRECTORY = "org.jepsar.primefaces.theme.CACHE_DIRECTORY";
+
+	/**
+	 * The context parameter name for the number of days a theme stored in the {@link #PARAM_NAME_CACHE_DIRECTORY cache
+	 * directory} may go unused before it is removed when an application starts. Setting it is optional, if not set it
+	 * will default to {@link #DEFAULT_CACHE_DIRECTORY_MAX_AGE}.
+	 */
+	public static final String PARAM_NAME_CACHE_DIRECTORY_MAX_AGE = "org.jepsar.primefaces.theme.CACHE_DIRECTORY_MAX_AGE";
+
+	/**
+	 * Default number of days a stored theme may go unused.
+	 */
+	public static final int DEFAULT_CACHE_DIRECTORY_MAX_AGE = 30;
+
+	/**
+	 * The context parameter name to enable serving pre-compressed (gzip or deflate) themes to clients which accept them.
+	 * Setting it is optional, it defaults to {@code false}.
+	 */
+	public static final String PARAM_NAME_COMPRESSION = "org.jepsar.primefaces.theme.COMPRESSION";
+
+	/**
+	 * The context parameter name to enable serving themes pre-generated by the {@link ThemeGenerator}. Setting it is
+	 * optional, it defaults to {@code false}. Themes which were not pre-generated are transformed at runtime.
+	 */
+	public static final String PARAM_NAME_PRECOMPILED = "org.jepsar.primefaces.theme.PRECOMPILED";
+
+	/**
+	 * Library holding themes pre-generated by the {@link ThemeGenerator}. Resource names are the original library name
+	 * and resource name separated by a slash, for example {@code primefaces-aristo/theme.css}.
+	 */
+	public static final String PRECOMPILED_LIBRARY = "jepsar-precompiled";
+
+	/**
+	 * The context parameter name for a comma separated list of themes to transform in the background when the
+	 * application has started, for example {@code aristo, bootstrap}. Library names like {@code primefaces-aristo} are
+	 * accepted as well. Setting it is optional, if not set themes are transformed when they are first requested.
+	 */
+	public static final String PARAM_NAME_WARM_UP = "org.jepsar.primefaces.theme.WARM_UP";
+
+	/**
+	 * The context parameter name for a comma separated list of response charsets to {@link #PARAM_NAME_WARM_UP warm up}
+	 * the themes for, for example {@code UTF-8, ISO-8859-1}. Setting it is optional, it defaults to {@code UTF-8}.
+	 */
+	public static final String PARAM_NAME_WARM_UP_CHARSETS = "org.jepsar.primefaces.theme.WARM_UP_CHARSETS";
+
+	/**
+	 * The context parameter name to enable streaming. Themes are then transformed while they are sent, using writer
+	 * filters, instead of being transformed completely and cached. This keeps memory use bounded for large themes, but
+	 * transforms the theme on each request. As there is no cached content, resource requests are not
+	 * {@link #handleResourceRequest(javax.faces.context.FacesContext) served by the handler} but by the wrapped handler,
+	 * reading the {@link AbstractResource#getInputStream() transforming stream}. Setting it is optional, it defaults to
+	 * {@code false}.
+	 */
+	public static final String PARAM_NAME_STREAMING = "org.jepsar.primefaces.theme.STREAMING";
+
+	/**
+	 * The context parameter name to minify the transformed themes, including the appended CSS, using the
+	 * {@link CssMinifier}. Themes are minified once, before they are cached. Setting it is optional, it defaults to
+	 * {@code false}.
+	 */
+	public static final String PARAM_NAME_MINIFY = "org.jepsar.primefaces.theme.MINIFY";
+
+	/**
+	 * The context parameter name to publish the {@link ThemeMetrics} per theme library as JMX MBeans and, if Micrometer
+	 * is on the class path, as Micrometer meters. Setting it is optional, it defaults to {@code false}.
+	 */
+	public static final String PARAM_NAME_METRICS = "org.jepsar.primefaces.theme.METRICS";
+
+	/**
+	 * Application attribute holding {@link Boolean#TRUE} once the {@link #PARAM_NAME_WARM_UP warm-up} has finished. It
+	 * can be checked by health checks to delay traffic until the themes are transformed.
+	 */
+	public static final String ATTRIBUTE_WARMED_UP = "org.jepsar.primefaces.theme.WARMED_UP";
+
+	/**
+	 * Charset theme sources are read with.
+	 */
+	protected static final Charset SOURCE_CHARSET = StandardCharsets.UTF_8;
+
+	/**
+	 * Source reader buffer size.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Name of the warm-up thread.
+	 */
+	private static final String WARM_UP_THREAD_NAME = "jepsar-theme-warm-up";
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(AbstractResourceHandler.class.getName());
+
+	/**
+	 * Exception thrown if the cache size is invalid.
+	 */
+	private static final String ISE_INVALID_CACHE_SIZE = "Invalid cache size %s set using context parameter %s";
+
+	/**
+	 * Exception thrown if the cache memory is invalid.
+	 */
+	private static final String ISE_INVALID_CACHE_MEMORY = "Invalid cache memory %s set using context parameter %s";
+
+	/**
+	 * Exception thrown if the cache directory cannot be used.
+	 */
+	private static final String ISE_INVALID_CACHE_DIRECTORY = "Invalid cache directory %s set using context parameter %s";
+
+	/**
+	 * Exception thrown if the maximum age of stored themes is invalid.
+	 */
+	private static final String ISE_INVALID_MAX_AGE = "Invalid maximum age %s set using context parameter %s";
+
+	/**
+	 * Exception thrown if a warm-up charset is not supported.
+	 */
+	private static final String ISE_INVALID_WARM_UP_CHARSET = "Invalid charset %s set using context parameter %s";
+
+	/**
+	 * Memory size suffixes, each a factor 1024 larger than the previous one.
+	 */
+	private static final String MEMORY_SUFFIXES = "KMG";
+
 	/**
 	 * PrimeFaces theme name.
 	 */
@@ -23,20 +234,452 @@ public abstract class AbstractResourceHandler extends ResourceHandlerWrapper
 	 */
 	protected static final String PRIMEFACES_LIBRARY_PREFIX = "primefaces-";
 
+	/**
+	 * Request parameter holding the library name of a resource request.
+	 */
+	private static final String LIBRARY_PARAMETER = "ln";
+
 	/**
 	 * Wrapped resource handler.
 	 */
 	private final ResourceHandler wrapped;
 
+	/**
+	 * Cache for transformed resources.
+	 */
+	private final TransformCache<CacheKey, ThemeContent> cache;
+
+	/**
+	 * Cache for {@link #transformTheme(java.lang.String) transformed theme sources}.
+	 */
+	private final TransformCache<CacheKey, String> themeCache;
+
+	/**
+	 * Cache for the {@link #getCss(java.lang.String, java.nio.charset.Charset) contents of CSS resources} by resource
+	 * name and charset, using an empty fingerprint.
+	 */
+	private final TransformCache<CacheKey, String> cssCache;
+
+	/**
+	 * Resources read by {@link #getCss(java.lang.String, java.nio.charset.Charset)}, by resource name.
+	 */
+	private final Map<String, Resource> cssResources = new ConcurrentHashMap<>();
+
+	/**
+	 * Whether the {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} matches
+	 * the theme and configuration, by library name and charset name.
+	 */
+	private final Map<String, Boolean> precompiledMatches = new ConcurrentHashMap<>();
+
+	/**
+	 * Theme resources using the {@link #getFingerprint() handler fingerprint}, by library name and charset name. They
+	 * are shared by all requests, see {@link #createThemeResource(javax.faces.context.FacesContext, java.lang.String,
+	 * java.lang.String, java.lang.String, java.util.function.BiFunction)}.
+	 */
+	private final Map<String, Resource> themeResources = new ConcurrentHashMap<>();
+
+	/**
+	 * Response charsets by name.
+	 */
+	private final Map<String, Charset> charsets = new ConcurrentHashMap<>();
+
+	/**
+	 * Last modification times of the theme sources by URL, see {@link #getLastModified(java.net.URL)}.
+	 */
+	private final Map<String, Long> lastModified = new ConcurrentHashMap<>();
+
+	/**
+	 * Name of the CSS resource to append, {@code null} if not set.
+	 */
+	private final String appendCssResource;
+
+	/**
+	 * {@code true} if pre-compressed themes should be served, see {@link #PARAM_NAME_COMPRESSION}.
+	 */
+	private final boolean compression;
+
+	/**
+	 * {@code true} if pre-generated themes should be served, see {@link #PARAM_NAME_PRECOMPILED}.
+	 */
+	private final boolean precompiled;
+
+	/**
+	 * {@code true} if themes should be streamed, see {@link #PARAM_NAME_STREAMING}.
+	 */
+	private final boolean streaming;
+
+	/**
+	 * {@code true} if themes should be minified, see {@link #PARAM_NAME_MINIFY}.
+	 */
+	private final boolean minify;
+
+	/**
+	 * Metrics per theme library, published if {@link #PARAM_NAME_METRICS} is enabled.
+	 */
+	private final ThemeMetricsRegistry metrics;
+
+	/**
+	 * Off-heap storage for the {@link #cache}, {@code null} if {@link #PARAM_NAME_OFF_HEAP_MEMORY} is not set.
+	 */
+	private final SlabStore<CacheKey> offHeapStore;
+
+	/**
+	 * Directory storing transformed themes, {@code null} if {@link #PARAM_NAME_CACHE_DIRECTORY} is not set.
+	 */
+	private final DiskCache diskCache;
+
+	/**
+	 * Libraries to {@link #PARAM_NAME_WARM_UP warm up}.
+	 */
+	private final List<String> warmUpLibraries;
+
+	/**
+	 * Response charsets to {@link #PARAM_NAME_WARM_UP_CHARSETS warm up} the libraries for.
+	 */
+	private final List<Charset> warmUpCharsets;
 
 	/**
-	 * Wraps the resource handler.
+	 * Watcher for changed sources in the development project stage, {@code null} otherwise.
+	 */
+	private final ResourceWatcher watcher;
+
+	/**
+	 * {@code true} once the {@link #PARAM_NAME_WARM_UP warm-up} has finished, or if there is nothing to warm up.
+	 */
+	private volatile boolean warmedUp;
+
+
+	/**
+	 * Wraps the resource handler, creates the caches (including the {@link #PARAM_NAME_CACHE_DIRECTORY disk cache}) and
+	 * reads {@link #PARAM_NAME_COMPRESSION},
+	 * {@link #PARAM_NAME_PRECOMPILED}, {@link #PARAM_NAME_STREAMING}, {@link #PARAM_NAME_MINIFY},
+	 * {@link #PARAM_NAME_METRICS}, {@link #PARAM_NAME_WARM_UP}, {@link #PARAM_NAME_WARM_UP_CHARSETS} and
+	 * {@link AbstractResource#PARAM_NAME_APPEND_CSS_RESOURCE}. If there are themes to warm up, the warm-up is started
+	 * when the application has started. In the development project stage, the {@link #watcher} is started.
 	 *
 	 * @param wrapped Wrapped resource handler.
+	 *
+	 * @throws IllegalStateException If the cache size, memory or directory or a warm-up charset is invalid.
 	 */
 	public AbstractResourceHandler(ResourceHandler wrapped)
 	{
 		this.wrapped = wrapped;
+		FacesContext context = FacesContext.getCurrentInstance();
+		int cacheSize = getCacheSize(context);
+		long cacheMemory = getMemory(context, PARAM_NAME_CACHE_MEMORY);
+		long offHeapMemory = getMemory(context, PARAM_NAME_OFF_HEAP_MEMORY);
+		int contentCacheSize = getContentCacheSize(context, cacheSize, offHeapMemory);
+		this.cache = new TransformCache<>(contentCacheSize, cacheMemory,
+																			content -> content.isDirect() ? 0 : content.length());
+		this.themeCache = new TransformCache<>(cacheSize, cacheMemory, css -> 2L * css.length());
+		this.cssCache = new TransformCache<>(cacheSize);
+		this.appendCssResource = getInitParameter(context, AbstractResource.PARAM_NAME_APPEND_CSS_RESOURCE);
+		this.compression = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_COMPRESSION));
+		this.precompiled = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_PRECOMPILED));
+		this.streaming = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_STREAMING));
+		this.minify = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_MINIFY));
+		boolean publishMetrics = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_METRICS));
+		this.metrics = new ThemeMetricsRegistry(getClass().getSimpleName(), getApplicationName(context), publishMetrics);
+		cache.setEvictionListener(metrics::evicted);
+		this.diskCache = createDiskCache(context);
+		this.offHeapStore = offHeapMemory == Long.MAX_VALUE ? null : new SlabStore<>(offHeapMemory, cache::invalidate);
+		if (offHeapStore != null) {
+			cache.setRemovalListener(offHeapStore::release);
+		}
+		this.warmUpLibraries = getWarmUpLibraries(context);
+		this.warmUpCharsets = getWarmUpCharsets(context);
+		this.warmedUp = warmUpLibraries.isEmpty();
+		this.watcher = createWatcher(context);
+		context.getExternalContext().getApplicationMap().put(ATTRIBUTE_WARMED_UP, warmedUp);
+		ApplicationListener listener = new ApplicationListener();
+		if (!warmedUp) {
+			context.getApplication().subscribeToEvent(PostConstructApplicationEvent.class, listener);
+		}
+		if (watcher != null || publishMetrics) {
+			context.getApplication().subscribeToEvent(PreDestroyApplicationEvent.class, listener);
+		}
+	}
+
+
+	/**
+	 * Returns the application name used to publish the {@link #metrics}, which is the context path.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Application name.
+	 */
+	private static String getApplicationName(FacesContext context)
+	{
+		String contextPath = context.getExternalContext().getApplicationContextPath();
+		return contextPath == null || contextPath.isEmpty() ? "/" : contextPath;
+	}
+
+
+	/**
+	 * Returns the memory set using a context parameter like {@link #PARAM_NAME_CACHE_MEMORY} in bytes, or
+	 * {@link Long#MAX_VALUE}.
+	 *
+	 * @param context Faces context.
+	 * @param name    Context parameter name.
+	 *
+	 * @return Memory in bytes.
+	 *
+	 * @throws IllegalStateException If the memory is invalid.
+	 */
+	private static long getMemory(FacesContext context, String name)
+	{
+		String value = getInitParameter(context, name);
+		if (value == null) {
+			return Long.MAX_VALUE;
+		}
+		String number = value.trim().toUpperCase(Locale.ROOT);
+		long factor = 1;
+		int suffix = number.isEmpty() ? -1 : MEMORY_SUFFIXES.indexOf(number.charAt(number.length() - 1));
+		if (suffix > -1) {
+			factor = 1L << (10 * (suffix + 1));
+			number = number.substring(0, number.length() - 1).trim();
+		}
+		try {
+			long memory = Long.parseLong(number);
+			if (memory > 0 && memory <= Long.MAX_VALUE / factor) {
+				return memory * factor;
+			}
+		}
+		catch (NumberFormatException ex) {
+		}
+		throw new IllegalStateException(String.format(ISE_INVALID_CACHE_MEMORY, value, name));
+	}
+
+
+	/**
+	 * Creates the {@link DiskCache} for the directory set using {@link #PARAM_NAME_CACHE_DIRECTORY}, removing themes
+	 * not used for {@link #PARAM_NAME_CACHE_DIRECTORY_MAX_AGE}. Keys include the
+	 * {@link #getApplicationName(javax.faces.context.FacesContext) application name}, as themes contain URLs.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Disk cache, or {@code null} if not set.
+	 *
+	 * @throws IllegalStateException If the directory cannot be created or the maximum age is invalid.
+	 */
+	private static DiskCache createDiskCache(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_CACHE_DIRECTORY);
+		if (value == null || value.trim().isEmpty()) {
+			return null;
+		}
+		try {
+			return new DiskCache(Paths.get(value.trim()), getApplicationName(context), getCacheDirectoryMaxAge(context));
+		}
+		catch (IOException | InvalidPathException ex) {
+			String message = String.format(ISE_INVALID_CACHE_DIRECTORY, value, PARAM_NAME_CACHE_DIRECTORY);
+			throw new IllegalStateException(message, ex);
+		}
+	}
+
+
+	/**
+	 * Returns the maximum age set using {@link #PARAM_NAME_CACHE_DIRECTORY_MAX_AGE} or
+	 * {@link #DEFAULT_CACHE_DIRECTORY_MAX_AGE}, in milliseconds.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Maximum age of unused stored themes in milliseconds.
+	 *
+	 * @throws IllegalStateException If the maximum age is invalid.
+	 */
+	private static long getCacheDirectoryMaxAge(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_CACHE_DIRECTORY_MAX_AGE);
+		if (value == null) {
+			return TimeUnit.DAYS.toMillis(DEFAULT_CACHE_DIRECTORY_MAX_AGE);
+		}
+		try {
+			int days = Integer.parseInt(value.trim());
+			if (days > 0) {
+				return TimeUnit.DAYS.toMillis(days);
+			}
+		}
+		catch (NumberFormatException ex) {
+		}
+		throw new IllegalStateException(String.format(ISE_INVALID_MAX_AGE, value, PARAM_NAME_CACHE_DIRECTORY_MAX_AGE));
+	}
+
+
+	/**
+	 * Creates a {@link ResourceWatcher} if the application is in the development project stage.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Watcher, or {@code null} if not in development or watching is not supported.
+	 */
+	private static ResourceWatcher createWatcher(FacesContext context)
+	{
+		if (!context.isProjectStage(ProjectStage.Development)) {
+			return null;
+		}
+		try {
+			return new ResourceWatcher();
+		}
+		catch (IOException | UnsupportedOperationException ex) {
+			LOGGER.log(Level.WARNING, "Could not watch theme sources", ex);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Returns the cache size set using {@link #PARAM_NAME_CACHE_SIZE} or {@link #DEFAULT_CACHE_SIZE}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Cache size.
+	 *
+	 * @throws IllegalStateException If the cache size is invalid.
+	 */
+	private static int getCacheSize(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_CACHE_SIZE);
+		if (value == null) {
+			return DEFAULT_CACHE_SIZE;
+		}
+		try {
+			int size = Integer.parseInt(value.trim());
+			if (size > 0) {
+				return size;
+			}
+		}
+		catch (NumberFormatException ex) {
+		}
+		throw new IllegalStateException(String.format(ISE_INVALID_CACHE_SIZE, value, PARAM_NAME_CACHE_SIZE));
+	}
+
+
+	/**
+	 * Returns the maximum number of transformed resources to cache. If {@link #PARAM_NAME_CACHE_SIZE} is not set and
+	 * {@link #PARAM_NAME_OFF_HEAP_MEMORY} is, the cache size scales with the off-heap memory, so the count bound does not
+	 * evict themes long before that memory is used.
+	 *
+	 * @param context       Faces context.
+	 * @param cacheSize     Cache size, see {@link #getCacheSize(javax.faces.context.FacesContext)}.
+	 * @param offHeapMemory Off-heap memory, {@link Long#MAX_VALUE} if not set.
+	 *
+	 * @return Maximum number of transformed resources to cache.
+	 */
+	private static int getContentCacheSize(FacesContext context, int cacheSize, long offHeapMemory)
+	{
+		if (offHeapMemory == Long.MAX_VALUE || getInitParameter(context, PARAM_NAME_CACHE_SIZE) != null) {
+			return cacheSize;
+		}
+		return (int) Math.max(cacheSize, Math.min(Integer.MAX_VALUE, offHeapMemory / OFF_HEAP_THEME_SIZE));
+	}
+
+
+	/**
+	 * Returns the libraries set using {@link #PARAM_NAME_WARM_UP}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Libraries to warm up, empty if not set.
+	 */
+	private static List<String> getWarmUpLibraries(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_WARM_UP);
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		List<String> libraries = new ArrayList<>();
+		for (String theme : value.split(",")) {
+			theme = theme.trim();
+			if (!theme.isEmpty()) {
+				libraries.add(theme.startsWith(PRIMEFACES_LIBRARY_PREFIX) ? theme : PRIMEFACES_LIBRARY_PREFIX + theme);
+			}
+		}
+		return libraries;
+	}
+
+
+	/**
+	 * Returns the charsets set using {@link #PARAM_NAME_WARM_UP_CHARSETS}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Charsets to warm up, {@code UTF-8} if not set.
+	 *
+	 * @throws IllegalStateException If a charset is not supported.
+	 */
+	private static List<Charset> getWarmUpCharsets(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_WARM_UP_CHARSETS);
+		if (value == null) {
+			return Collections.singletonList(StandardCharsets.UTF_8);
+		}
+		List<Charset> warmUpCharsets = new ArrayList<>();
+		for (String name : value.split(",")) {
+			name = name.trim();
+			if (!name.isEmpty()) {
+				try {
+					warmUpCharsets.add(Charset.forName(name));
+				}
+				catch (IllegalArgumentException ex) {
+					throw new IllegalStateException(String.format(ISE_INVALID_WARM_UP_CHARSET, name,
+																												PARAM_NAME_WARM_UP_CHARSETS), ex);
+				}
+			}
+		}
+		return warmUpCharsets;
+	}
+
+
+	/**
+	 * Serves requests for theme resources created by this handler directly from their cached content, see
+	 * {@link AbstractResource#handleResourceRequest(javax.faces.context.FacesContext)}. Other requests, pre-generated
+	 * themes and, when {@link #PARAM_NAME_STREAMING streaming}, all requests are handled by the wrapped handler.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void handleResourceRequest(FacesContext context) throws IOException
+	{
+		Resource resource = streaming ? null : createRequestedTheme(context);
+		if (resource instanceof AbstractResource) {
+			((AbstractResource) resource).handleResourceRequest(context);
+		}
+		else {
+			getWrapped().handleResourceRequest(context);
+		}
+	}
+
+
+	/**
+	 * Returns the resource for the PrimeFaces theme requested by a resource request. The resource name is taken from
+	 * the path info if the faces servlet is prefix mapped, or from the servlet path without its extension if it is
+	 * extension mapped.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Resource, {@code null} if no PrimeFaces theme is requested.
+	 */
+	private Resource createRequestedTheme(FacesContext context)
+	{
+		ExternalContext externalContext = context.getExternalContext();
+		String libraryName = externalContext.getRequestParameterMap().get(LIBRARY_PARAMETER);
+		if (!isPrimeFacesTheme(PRIMEFACES_THEME, libraryName)) {
+			return null;
+		}
+		String prefix = ResourceHandler.RESOURCE_IDENTIFIER + '/' + PRIMEFACES_THEME;
+		String path = externalContext.getRequestPathInfo();
+		if (path == null || !path.startsWith(ResourceHandler.RESOURCE_IDENTIFIER)) {
+			path = externalContext.getRequestServletPath();
+			int extension = path == null ? -1 : path.lastIndexOf('.');
+			if (extension != prefix.length()) {
+				return null;
+			}
+			path = path.substring(0, extension);
+		}
+		return prefix.equals(path) ? createResource(PRIMEFACES_THEME, libraryName) : null;
 	}
 
 
@@ -56,6 +699,499 @@ public abstract class AbstractResourceHandler extends ResourceHandlerWrapper
 	}
 
 
+	/**
+	 * Returns the theme pre-generated by the {@link ThemeGenerator} from the {@link #PRECOMPILED_LIBRARY} if
+	 * {@link #PARAM_NAME_PRECOMPILED} is enabled. The returned resource is served by the wrapped handler without any
+	 * processing.
+	 *
+	 * @param resourceName Resource name.
+	 * @param libraryName  Library name.
+	 *
+	 * @return Pre-generated theme, or {@code null} if disabled or not available.
+	 */
+	protected Resource createPrecompiledResource(final String resourceName, final String libraryName)
+	{
+		if (!precompiled) {
+			return null;
+		}
+		return getWrapped().createResource(libraryName + "/" + resourceName, PRECOMPILED_LIBRARY);
+	}
+
+
+	/**
+	 * Returns a theme resource. Resources using the {@link #getFingerprint() handler fingerprint} are created once per
+	 * library and response charset and shared by all requests, so rendering a page only looks up the response charset.
+	 * The shared resources wrap a resource of the wrapped handler which computes its request path for the current
+	 * request, so the mapping of each request applies. Resources are created per request if resource library contracts
+	 * are active or the fingerprint differs, like for a palette of a single request, so only the transformed content is
+	 * shared then, see {@link AbstractResource#getContent()}. Localized theme variants are not supported.
+	 *
+	 * @param context      Faces context.
+	 * @param resourceName Resource name.
+	 * @param libraryName  Library name.
+	 * @param fingerprint  Fingerprint of the configuration used by the resource.
+	 * @param factory      Function wrapping the resource of the wrapped handler, using the response charset.
+	 *
+	 * @return Theme resource, {@code null} if the wrapped handler has no such resource.
+	 */
+	protected Resource createThemeResource(FacesContext context, String resourceName, String libraryName,
+																				 String fingerprint, BiFunction<Resource, Charset, Resource> factory)
+	{
+		Charset charset = getResponseCharset(context);
+		if (!fingerprint.equals(getFingerprint()) || !context.getResourceLibraryContracts().isEmpty()) {
+			return newThemeResource(resourceName, libraryName, fingerprint, charset, factory);
+		}
+		String key = libraryName + '\n' + charset.name();
+		Resource resource = themeResources.get(key);
+		if (resource == null) {
+			resource = newThemeResource(resourceName, libraryName, fingerprint, charset, factory);
+			if (resource != null) {
+				Resource shared = themeResources.putIfAbsent(key, resource);
+				resource = shared == null ? resource : shared;
+			}
+		}
+		return resource;
+	}
+
+
+	/**
+	 * Creates a theme resource wrapping a new resource of the wrapped handler. If the fingerprint is the
+	 * {@link #getFingerprint() handler fingerprint} and a
+	 * {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} matching the theme and
+	 * configuration is available, it is returned instead.
+	 *
+	 * @param resourceName Resource name.
+	 * @param libraryName  Library name.
+	 * @param fingerprint  Fingerprint of the configuration used by the resource.
+	 * @param charset      Response charset.
+	 * @param factory      Function wrapping the resource of the wrapped handler, using the response charset.
+	 *
+	 * @return Theme resource, {@code null} if the wrapped handler has no such resource.
+	 */
+	private Resource newThemeResource(String resourceName, String libraryName, String fingerprint, Charset charset,
+																		BiFunction<Resource, Charset, Resource> factory)
+	{
+		Resource resource = getWrapped().createResource(resourceName, libraryName);
+		if (resource == null) {
+			return null;
+		}
+		if (fingerprint.equals(getFingerprint())) {
+			Resource precompiledResource = createPrecompiledResource(resourceName, libraryName);
+			if (precompiledResource != null && isPrecompiledMatch(precompiledResource, resource, charset)) {
+				return precompiledResource;
+			}
+		}
+		return factory.apply(resource, charset);
+	}
+
+
+	/**
+	 * Returns {@code true} if the fingerprint embedded in a pre-generated theme by the {@link ThemeGenerator} matches
+	 * the theme source, the {@link #getFingerprint() handler fingerprint}, the appended CSS, minifying and the charset.
+	 * The result is kept per library and charset. Mismatches are logged once, as the theme is then transformed at
+	 * runtime.
+	 *
+	 * @param precompiledResource Pre-generated theme.
+	 * @param resource            Theme source.
+	 * @param charset             Response charset.
+	 *
+	 * @return {@code true} if the pre-generated theme can be served.
+	 */
+	private boolean isPrecompiledMatch(Resource precompiledResource, Resource resource, Charset charset)
+	{
+		String library = resource.getLibraryName();
+		return precompiledMatches.computeIfAbsent(library + '\n' + charset.name(), key -> {
+			try {
+				String expected;
+				try (InputStream in = openRaw(resource)) {
+					expected = ThemeGenerator.getFingerprint(getFingerprint(), ThemeGenerator.readFully(in),
+																									 getAppendedCss(charset), minify, charset);
+				}
+				String actual;
+				try (InputStream in = openRaw(precompiledResource)) {
+					actual = ThemeGenerator.readFingerprint(in);
+				}
+				if (expected.equals(actual)) {
+					return true;
+				}
+				LOGGER.log(Level.WARNING, "Pre-generated theme {0} does not match the theme or configuration, transforming"
+																	+ " it at runtime", library);
+			}
+			catch (IOException ex) {
+				LOGGER.log(Level.WARNING, "Could not verify pre-generated theme " + library + ", transforming it at runtime",
+									 ex);
+			}
+			return false;
+		});
+	}
+
+
+	/**
+	 * Opens a resource without evaluating its expression language, through its URL if it has one.
+	 *
+	 * @param resource Resource.
+	 *
+	 * @return Input stream.
+	 *
+	 * @throws IOException
+	 */
+	private static InputStream openRaw(Resource resource) throws IOException
+	{
+		URL url = resource.getURL();
+		return url == null ? resource.getInputStream() : url.openStream();
+	}
+
+
+	/**
+	 * Returns the charset of the response encoding of the current request. Charsets are looked up by name only once.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Response charset.
+	 */
+	protected Charset getResponseCharset(FacesContext context)
+	{
+		return charsets.computeIfAbsent(context.getExternalContext().getResponseCharacterEncoding(), Charset::forName);
+	}
+
+
+	/**
+	 * Transforms a theme source. The transformation should only depend on the handler configuration, as it is not
+	 * applied for each request and may run without a faces context. The expression language in the source is already
+	 * evaluated. Calls are made for PrimeFaces themes only. This implementation returns the source unchanged.
+	 *
+	 * @param css Theme source.
+	 *
+	 * @return Transformed theme source.
+	 */
+	protected String transformTheme(String css)
+	{
+		return css;
+	}
+
+
+	/**
+	 * Returns a writer which applies the same transformation as {@link #transformTheme(java.lang.String)} to the theme
+	 * source written to it, used when {@link #PARAM_NAME_STREAMING streaming}. The writer should hold back as little as
+	 * possible and close the output when it is closed. This implementation returns the output.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Transforming writer.
+	 */
+	protected Writer newThemeWriter(Writer out)
+	{
+		return out;
+	}
+
+
+	/**
+	 * Wraps a theme of the wrapped handler in a theme resource of this handler using the handler configuration. Used to
+	 * create the theme resources and to {@link #PARAM_NAME_WARM_UP warm up} their content. This implementation returns
+	 * {@code null}, so only the {@link #transformTheme(java.lang.String) theme transformation} is warmed up.
+	 *
+	 * @param theme   Theme of the wrapped handler.
+	 * @param charset Response charset.
+	 *
+	 * @return Theme resource, {@code null} if not supported.
+	 */
+	protected AbstractResource wrapTheme(Resource theme, Charset charset)
+	{
+		return null;
+	}
+
+
+	/**
+	 * Returns a fingerprint of the handler configuration used to transform themes. Resources with the same source and
+	 * fingerprint share their cached content.
+	 *
+	 * @return Fingerprint of the configuration.
+	 */
+	protected String getFingerprint()
+	{
+		return getClass().getName();
+	}
+
+
+	/**
+	 * Returns a transformed theme from the {@link #themeCache}. If it is not cached, the loader reads and transforms
+	 * the theme once. The file behind the URL is {@link #watcher watched}.
+	 *
+	 * @param key    Key of the transformed theme: its source, the fingerprint of the transformation and the
+	 *               {@link #SOURCE_CHARSET}.
+	 * @param url    URL of the theme, may be {@code null}.
+	 * @param loader Loader reading and transforming the theme.
+	 *
+	 * @return Transformed theme.
+	 *
+	 * @throws IOException
+	 */
+	String getTransformedTheme(final CacheKey key, final URL url, final Callable<String> loader) throws IOException
+	{
+		return themeCache.get(key, () -> {
+			watch(url, () -> invalidateSource(url.toExternalForm()));
+			return loader.call();
+		});
+	}
+
+
+	/**
+	 * Returns the last modification time of the file behind a theme source URL, used to version its request path. The
+	 * time is determined once per URL, unless the files are {@link #watcher watched}, so rendering a page does not
+	 * access the file system. For files and JAR entries the file is inspected without opening it.
+	 *
+	 * @param url URL of the theme source.
+	 *
+	 * @return Last modification time, {@code 0} if unknown.
+	 */
+	long getLastModified(final URL url)
+	{
+		if (watcher != null) {
+			return readLastModified(url);
+		}
+		return lastModified.computeIfAbsent(url.toExternalForm(), key -> readLastModified(url));
+	}
+
+
+	/**
+	 * Reads the last modification time of the file behind a URL. If there is no file behind the URL, the URL
+	 * connection is asked.
+	 *
+	 * @param url URL.
+	 *
+	 * @return Last modification time, {@code 0} if unknown.
+	 */
+	private static long readLastModified(final URL url)
+	{
+		try {
+			Path file = ResourceWatcher.toPath(url);
+			return file == null ? url.openConnection().getLastModified() : Files.getLastModifiedTime(file).toMillis();
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.FINE, "Could not determine modification of " + url, ex);
+			return 0;
+		}
+	}
+
+
+	/**
+	 * Reads an input stream completely and closes it.
+	 *
+	 * @param inputStream Input stream.
+	 * @param charset     Charset to decode the input stream with.
+	 *
+	 * @return Data read from the input stream.
+	 *
+	 * @throws IOException
+	 */
+	private static String read(InputStream inputStream, Charset charset) throws IOException
+	{
+		final char[] buffer = new char[BUFFER_SIZE];
+		final StringBuilder sb = new StringBuilder(BUFFER_SIZE);
+		try (Reader in = new InputStreamReader(inputStream, charset)) {
+			int read;
+			while ((read = in.read(buffer, 0, buffer.length)) > -1) {
+				sb.append(buffer, 0, read);
+			}
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns the contents of the {@link AbstractResource#PARAM_NAME_APPEND_CSS_RESOURCE CSS resource to append}, see
+	 * {@link #getCss(java.lang.String, java.nio.charset.Charset)}.
+	 *
+	 * @param charset Charset to decode the resource with.
+	 *
+	 * @return CSS to append, empty if not set.
+	 *
+	 * @throws IOException
+	 */
+	public String getAppendedCss(final Charset charset) throws IOException
+	{
+		return appendCssResource == null ? "" : getCss(appendCssResource, charset);
+	}
+
+
+	/**
+	 * Returns the contents of a CSS resource without library added to themes, like the Font Awesome patch. The resource
+	 * is read through its input stream, so its expression language is evaluated, once per charset and then kept. The
+	 * file behind it is {@link #watcher watched}.
+	 *
+	 * @param resourceName Resource name.
+	 * @param charset      Charset to decode the resource with.
+	 *
+	 * @return CSS.
+	 *
+	 * @throws IOException
+	 */
+	public String getCss(final String resourceName, final Charset charset) throws IOException
+	{
+		return cssCache.get(new CacheKey(resourceName, "", charset), () -> {
+			Resource resource = getCssResource(resourceName);
+			watch(resource.getURL(), this::invalidateCss);
+			return read(resource.getInputStream(), charset);
+		});
+	}
+
+
+	/**
+	 * Returns a CSS resource without library added to themes. The resource is created once, so it can be
+	 * {@link AbstractResource#getAdditionalSources() identified} without a faces context, for example during the
+	 * {@link #PARAM_NAME_WARM_UP warm-up}.
+	 *
+	 * @param resourceName Resource name.
+	 *
+	 * @return Resource, {@code null} if the wrapped handler has no such resource.
+	 */
+	Resource getCssResource(final String resourceName)
+	{
+		return cssResources.computeIfAbsent(resourceName, this::createResource);
+	}
+
+
+	/**
+	 * Runs the callback when the file behind the URL changes, if {@link #watcher watching}.
+	 *
+	 * @param url      Resource URL, may be {@code null}.
+	 * @param callback Callback.
+	 */
+	private void watch(URL url, Runnable callback)
+	{
+		if (watcher != null && url != null) {
+			watcher.watch(url, callback);
+		}
+	}
+
+
+	/**
+	 * Evicts the transformed theme source and all resources created from it, including those created from a theme
+	 * resource of a wrapped handler reading the source, see {@link AbstractResource#getSource()}.
+	 *
+	 * @param source Source URL.
+	 */
+	private void invalidateSource(String source)
+	{
+		String wrappedSource = source + " [";
+		themeCache.invalidateIf(key -> key.getSource().equals(source) || key.getSource().startsWith(wrappedSource));
+		cache.invalidateIf(key -> key.getSource().equals(source) || key.getSource().startsWith(wrappedSource));
+		precompiledMatches.clear();
+		themeResources.clear();
+	}
+
+
+	/**
+	 * Evicts the CSS resources and all resources, as they may contain them.
+	 */
+	private void invalidateCss()
+	{
+		cssCache.invalidateAll();
+		cssResources.clear();
+		cache.invalidateAll();
+		precompiledMatches.clear();
+		themeResources.clear();
+	}
+
+
+	/**
+	 * Reads the {@link #warmUpLibraries} through their resources, so their expression language is evaluated, and
+	 * creates their theme resources for each of the {@link #warmUpCharsets}. The CSS added to the themes is read as
+	 * well, as it needs a faces context. Their content is then created, and compressed if
+	 * {@link #PARAM_NAME_COMPRESSION enabled}, on a background thread. If this handler does not
+	 * {@link #wrapTheme(javax.faces.application.Resource, java.nio.charset.Charset) wrap themes}, only the theme
+	 * transformation is done. Only themes read from the container's own resources are warmed up, as only those are
+	 * cached by URL, see {@link AbstractResource#getSource()}. Themes which cannot be read or transformed are logged and
+	 * skipped, they will be transformed when first requested.
+	 *
+	 * @param context Faces context of the application start.
+	 */
+	private void warmUp(FacesContext context)
+	{
+		final Map<String, Callable<?>> tasks = new LinkedHashMap<>();
+		for (String library : warmUpLibraries) {
+			try {
+				addWarmUpTasks(tasks, library);
+			}
+			catch (IOException | RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Could not read theme " + library + ", skipping warm-up", ex);
+			}
+		}
+		final Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+		ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, WARM_UP_THREAD_NAME);
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.execute(() -> {
+			for (Map.Entry<String, Callable<?>> task : tasks.entrySet()) {
+				try {
+					task.getValue().call();
+				}
+				catch (Exception ex) {
+					LOGGER.log(Level.WARNING, "Could not warm up theme " + task.getKey(), ex);
+				}
+			}
+			warmedUp = true;
+			applicationMap.put(ATTRIBUTE_WARMED_UP, Boolean.TRUE);
+		});
+		executor.shutdown();
+	}
+
+
+	/**
+	 * Reads a theme to warm up and adds the tasks transforming it, by library and charset. The theme resources are
+	 * shared with later requests, see {@link #createThemeResource(javax.faces.context.FacesContext, java.lang.String,
+	 * java.lang.String, java.lang.String, java.util.function.BiFunction)}. Themes for which a matching
+	 * {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} is available are not
+	 * transformed.
+	 *
+	 * @param tasks   Tasks by theme description.
+	 * @param library Library name.
+	 *
+	 * @throws IOException
+	 */
+	private void addWarmUpTasks(Map<String, Callable<?>> tasks, String library) throws IOException
+	{
+		Resource resource = getWrapped().createResource(PRIMEFACES_THEME, library);
+		if (resource == null || resource.getURL() == null) {
+			LOGGER.log(Level.WARNING, "Theme {0} not found, skipping warm-up", library);
+			return;
+		}
+		if (!AbstractResource.isContainerResource(resource)) {
+			LOGGER.log(Level.INFO, "Theme {0} is wrapped by another handler, skipping warm-up", library);
+			return;
+		}
+		final URL url = resource.getURL();
+		final String css = read(resource.getInputStream(), SOURCE_CHARSET);
+		for (Charset charset : warmUpCharsets) {
+			Resource theme = newThemeResource(PRIMEFACES_THEME, library, getFingerprint(), charset, this::wrapTheme);
+			if (theme instanceof AbstractResource) {
+				AbstractResource warmUpTheme = (AbstractResource) theme;
+				warmUpTheme.readSources();
+				themeResources.putIfAbsent(library + '\n' + charset.name(), theme);
+				tasks.put(library + " (" + charset.name() + ")", () -> warmUpTheme.warmUp(css));
+			}
+			else if (theme == null && !tasks.containsKey(library)) {
+				CacheKey key = new CacheKey(url.toExternalForm(), getFingerprint(), SOURCE_CHARSET);
+				tasks.put(library, () -> getTransformedTheme(key, url, () -> transformTheme(css)));
+			}
+		}
+	}
+
+
+	/**
+	 * Returns {@code true} once the {@link #PARAM_NAME_WARM_UP warm-up} has finished, or if there is nothing to warm
+	 * up. The same value is available as the {@link #ATTRIBUTE_WARMED_UP} application attribute.
+	 *
+	 * @return {@link #warmedUp}.
+	 */
+	public boolean isWarmedUp()
+	{
+		return warmedUp;
+	}
+
+
 	/**
 	 * Returns the {@link #wrapped wrapped resource handler}.
 	 *
@@ -67,5 +1203,119 @@ public abstract class AbstractResourceHandler extends ResourceHandlerWrapper
 		return wrapped;
 	}
 
+
+	/**
+	 * Returns the {@link #cache} for transformed resources.
+	 *
+	 * @return {@link #cache}.
+	 */
+	public TransformCache<CacheKey, ThemeContent> getCache()
+	{
+		return cache;
+	}
+
+
+	/**
+	 * Returns the {@link #diskCache} for transformed resources.
+	 *
+	 * @return {@link #diskCache}, {@code null} if {@link #PARAM_NAME_CACHE_DIRECTORY} is not set.
+	 */
+	DiskCache getDiskCache()
+	{
+		return diskCache;
+	}
+
+
+	/**
+	 * Returns the {@link #offHeapStore} for transformed resources.
+	 *
+	 * @return {@link #offHeapStore}, {@code null} if {@link #PARAM_NAME_OFF_HEAP_MEMORY} is not set.
+	 */
+	SlabStore<CacheKey> getOffHeapStore()
+	{
+		return offHeapStore;
+	}
+
+
+	/**
+	 * Returns the {@link #metrics} per theme library.
+	 *
+	 * @return {@link #metrics}.
+	 */
+	public ThemeMetricsRegistry getMetrics()
+	{
+		return metrics;
+	}
+
+
+	/**
+	 * Returns {@code true} if pre-compressed themes should be served, see {@link #PARAM_NAME_COMPRESSION}.
+	 *
+	 * @return {@link #compression}.
+	 */
+	public boolean isCompression()
+	{
+		return compression;
+	}
+
+
+	/**
+	 * Returns {@code true} if themes should be streamed, see {@link #PARAM_NAME_STREAMING}.
+	 *
+	 * @return {@link #streaming}.
+	 */
+	public boolean isStreaming()
+	{
+		return streaming;
+	}
+
+
+	/**
+	 * Returns {@code true} if themes should be minified, see {@link #PARAM_NAME_MINIFY}.
+	 *
+	 * @return {@link #minify}.
+	 */
+	public boolean isMinify()
+	{
+		return minify;
+	}
+
+
+
+	/**
+	 * Starts the {@link #warmUp(javax.faces.context.FacesContext) warm-up} when the application has started, and stops
+	 * the {@link #watcher} and unregisters the {@link #metrics} when the application is destroyed.
+	 */
+	private final class ApplicationListener implements SystemEventListener
+	{
+
+		@Override
+		public void processEvent(SystemEvent event)
+		{
+			if (event instanceof PostConstructApplicationEvent) {
+				warmUp(FacesContext.getCurrentInstance());
+			}
+			else if (event instanceof PreDestroyApplicationEvent) {
+				metrics.close();
+				if (watcher != null) {
+					try {
+						watcher.close();
+					}
+					catch (IOException ex) {
+						LOGGER.log(Level.WARNING, "Could not stop watching theme sources", ex);
+					}
+				}
+			}
+		}
+
+
+		@Override
+		public boolean isListenerForSource(Object source)
+		{
+			return true;
+		}
+
+	}
+
 }
 
@@ -0,0 +1,108 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+
+/**
+ * Key for {@link TransformCache cached} transformation results. Consists of the source of the transformed resource,
+ * the fingerprint of the configuration used to transform it and the charset of the result.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public final class CacheKey
+{
+
+	/**
+	 * Source of the transformed resource, for example its URL.
+	 */
+	private final String source;
+
+	/**
+	 * Fingerprint of the configuration used for the transformation.
+	 */
+	private final String fingerprint;
+
+	/**
+	 * Charset of the result.
+	 */
+	private final Charset charset;
+
+
+	/**
+	 * Creates a key.
+	 *
+	 * @param source      Source of the transformed resource, for example its URL.
+	 * @param fingerprint Fingerprint of the configuration used for the transformation.
+	 * @param charset     Charset of the result.
+	 */
+	public CacheKey(String source, String fingerprint, Charset charset)
+	{
+		this.source = Objects.requireNonNull(source);
+		this.fingerprint = Objects.requireNonNull(fingerprint);
+		this.charset = Objects.requireNonNull(charset);
+	}
+
+
+	/**
+	 * Returns the {@link #source}.
+	 *
+	 * @return {@link #source}.
+	 */
+	public String getSource()
+	{
+		return source;
+	}
+
+
+	/**
+	 * Returns the {@link #fingerprint}.
+	 *
+	 * @return {@link #fingerprint}.
+	 */
+	public String getFingerprint()
+	{
+		return fingerprint;
+	}
+
+
+	/**
+	 * Returns the {@link #charset}.
+	 *
+	 * @return {@link #charset}.
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CacheKey)) {
+			return false;
+		}
+		CacheKey other = (CacheKey) obj;
+		return source.equals(other.source) && fingerprint.equals(other.fingerprint) && charset.equals(other.charset);
+	}
+
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(source, fingerprint, charset);
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return source + " [" + fingerprint + ", " + charset + "]";
+	}
+
+}
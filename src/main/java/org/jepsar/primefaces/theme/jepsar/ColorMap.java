@@ -0,0 +1,138 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Open addressing hash map from packed {@code 0xRRGGBB} colors to non-negative int values, without boxing. Used by the
+ * {@link ColorReplacer} to look up each color found in a style sheet.
+ *
+ * <p>
+ * Instances are not thread-safe while they are filled, but can be shared between threads once filled.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class ColorMap
+{
+
+	/**
+	 * Value returned for colors which are not in the map, and marker of empty slots.
+	 */
+	static final int ABSENT = -1;
+
+	/**
+	 * Multiplier spreading the colors over the slots (golden ratio).
+	 */
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+	/**
+	 * Keys, {@link #ABSENT} for empty slots.
+	 */
+	private final int[] keys;
+
+	/**
+	 * Values at the same slot as their key.
+	 */
+	private final int[] values;
+
+	/**
+	 * Number of bits to shift the hash to get a slot.
+	 */
+	private final int shift;
+
+	/**
+	 * Number of colors in the map.
+	 */
+	private int size;
+
+
+	/**
+	 * Creates an empty map.
+	 *
+	 * @param expectedSize Maximum number of colors which will be put. The map is never resized.
+	 */
+	ColorMap(int expectedSize)
+	{
+		int bits = 1;
+		while (1 << bits < expectedSize * 2) {
+			bits++;
+		}
+		this.keys = new int[1 << bits];
+		this.values = new int[1 << bits];
+		this.shift = Integer.SIZE - bits;
+		Arrays.fill(keys, ABSENT);
+	}
+
+
+	/**
+	 * Puts a value for a color, unless the map already contains the color.
+	 *
+	 * @param rgb   Packed color.
+	 * @param value Value, not negative.
+	 *
+	 * @return {@code true} if the value was put.
+	 */
+	boolean putIfAbsent(int rgb, int value)
+	{
+		int slot = slot(rgb);
+		while (keys[slot] != ABSENT) {
+			if (keys[slot] == rgb) {
+				return false;
+			}
+			slot = (slot + 1) & (keys.length - 1);
+		}
+		keys[slot] = rgb;
+		values[slot] = value;
+		size++;
+		return true;
+	}
+
+
+	/**
+	 * Returns the value for a color.
+	 *
+	 * @param rgb Packed color.
+	 *
+	 * @return Value, or {@link #ABSENT} if the map does not contain the color.
+	 */
+	int get(int rgb)
+	{
+		int slot = slot(rgb);
+		int key;
+		while ((key = keys[slot]) != ABSENT) {
+			if (key == rgb) {
+				return values[slot];
+			}
+			slot = (slot + 1) & (keys.length - 1);
+		}
+		return ABSENT;
+	}
+
+
+	/**
+	 * Returns the number of colors in the map.
+	 *
+	 * @return Number of colors.
+	 */
+	int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Returns the first slot to probe for a color.
+	 *
+	 * @param rgb Packed color.
+	 *
+	 * @return Slot.
+	 */
+	private int slot(int rgb)
+	{
+		return (rgb * HASH_MULTIPLIER) >>> shift;
+	}
+
+}
+
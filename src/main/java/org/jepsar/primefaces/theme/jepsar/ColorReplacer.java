@@ -0,0 +1,773 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Replaces colors regardless of their notation in a single linear scan. The style sheet is scanned by a
+ * {@link CssScanner} and colors are only matched in declaration values, outside comments, strings and {@code url(...)},
+ * so selectors like {@code #abc} and fragment URLs like {@code url(#abc)} are left alone. Each color literal
+ * ({@code #abc}, {@code #aabbcc}, their variants with alpha, {@code rgb(...)} and {@code rgba(...)}) found there is
+ * normalized to a packed {@code 0xRRGGBB} int and looked up in a {@link ColorMap}. A replacement is written in the
+ * notation of the original: the same number of hex digits (if the replacement can be shortened) and letter case, or the
+ * same function and separators. The alpha of the original is kept. Colors with an alpha are not replaced by a replace
+ * value which is not a color, as that would drop the alpha.
+ *
+ * <p>
+ * Find values which are a single opaque color match that color in any notation. Other find values are replaced
+ * literally by a {@link StringReplacer} sharing the scan, in all parts of the style sheet. They should not contain
+ * colors, as literal matches never span a color.
+ * </p>
+ *
+ * <p>
+ * If multiple find values match the same color, the value which comes first in the find list wins. Instances are
+ * immutable and can be shared between threads.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ColorReplacer
+{
+
+	/**
+	 * Exception thrown if find and replace list differ in size.
+	 */
+	private static final String IAE_SIZE_DIFFERS = "Find and replace list differ in length";
+
+	/**
+	 * Exception thrown if a find value which is not a single color contains a color.
+	 */
+	private static final String IAE_FIND_VALUE_WITH_COLOR = "Find value %s should be a single color or contain no color";
+
+	/**
+	 * Result of {@link #match(java.lang.CharSequence, int, int, int[])} if no color starts at the index.
+	 */
+	private static final int NO_MATCH = -1;
+
+	/**
+	 * Start of the URL function, in which colors are not matched.
+	 */
+	private static final String URL_FUNCTION = "url(";
+
+	/**
+	 * Maximum length of a color function, longer ones (with lots of white space) are not matched.
+	 */
+	private static final int MAX_FUNCTION_LENGTH = 64;
+
+	/**
+	 * Name of the color functions, without the optional {@code a}.
+	 */
+	private static final String FUNCTION_NAME = "rgb";
+
+	/**
+	 * Lower case hex digits.
+	 */
+	private static final char[] LOWER_HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Upper case hex digits.
+	 */
+	private static final char[] UPPER_HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Index in {@link #replaceColors} and {@link #replaceValues} by find color.
+	 */
+	private final ColorMap colors;
+
+	/**
+	 * Packed replacement colors, {@link RgbColor#INVALID} if the replace value is not an opaque color.
+	 */
+	private final int[] replaceColors;
+
+	/**
+	 * Replace values for the find colors.
+	 */
+	private final String[] replaceValues;
+
+	/**
+	 * Replacer for the find values which are no color, {@code null} if there are none.
+	 */
+	private final StringReplacer literals;
+
+
+	/**
+	 * Builds the color map and the literal replacer.
+	 *
+	 * @param findValues    Values to search for.
+	 * @param replaceValues Values to replace with, at the same position as the find value.
+	 *
+	 * @throws IllegalArgumentException If find and replace list differ in size, if a find value is empty or if a find
+	 *                                  value which is not a single color contains a color.
+	 */
+	public ColorReplacer(List<String> findValues, List<String> replaceValues)
+	{
+		if (findValues.size() != replaceValues.size()) {
+			throw new IllegalArgumentException(IAE_SIZE_DIFFERS);
+		}
+		List<Integer> colorEntries = new ArrayList<>();
+		List<String> literalFindValues = new ArrayList<>();
+		List<String> literalReplaceValues = new ArrayList<>();
+		for (int i = 0; i < findValues.size(); i++) {
+			String findValue = findValues.get(i);
+			if (parseColor(findValue) != RgbColor.INVALID) {
+				colorEntries.add(i);
+			}
+			else if (containsColor(findValue)) {
+				throw new IllegalArgumentException(String.format(IAE_FIND_VALUE_WITH_COLOR, findValue));
+			}
+			else {
+				literalFindValues.add(findValue);
+				literalReplaceValues.add(replaceValues.get(i));
+			}
+		}
+		this.colors = new ColorMap(colorEntries.size());
+		this.replaceColors = new int[colorEntries.size()];
+		this.replaceValues = new String[colorEntries.size()];
+		for (int index = 0; index < colorEntries.size(); index++) {
+			int entry = colorEntries.get(index);
+			this.replaceValues[index] = replaceValues.get(entry);
+			this.replaceColors[index] = parseColor(replaceValues.get(entry));
+			colors.putIfAbsent(parseColor(findValues.get(entry)), index);
+		}
+		this.literals = literalFindValues.isEmpty() ? null : new StringReplacer(literalFindValues, literalReplaceValues);
+	}
+
+
+	/**
+	 * Replaces the colors in the declaration values and the other find values in the style sheet in a single scan.
+	 *
+	 * @param input Style sheet to perform the replacements on.
+	 *
+	 * @return Style sheet with replaced values.
+	 */
+	public String replace(String input)
+	{
+		StringBuilder sb = new StringBuilder(input.length());
+		try {
+			CssScanner.scan(input, newListener(new CssWriter(sb)));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns a writer which performs the replacements on the style sheet written to it and writes the result to the
+	 * output. At most the current declaration, statement or prelude is held back. Closing the writer writes the
+	 * remaining characters and closes the output.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Replacing writer.
+	 */
+	public Writer newWriter(Writer out)
+	{
+		return new ScanningWriter(newListener(new CssWriter(out)), out);
+	}
+
+
+	/**
+	 * Returns a {@link CssFilter} which performs the replacements on each part of the style sheet before passing it on,
+	 * so replacing can share a single scan with other filters.
+	 *
+	 * @param next Next listener.
+	 *
+	 * @return Replacing filter.
+	 */
+	public CssListener newListener(CssListener next)
+	{
+		return new ReplacingFilter(next);
+	}
+
+
+	/**
+	 * Replaces the other find values in a part of the style sheet which is no declaration.
+	 *
+	 * @param part Part of the style sheet.
+	 *
+	 * @return Part with replaced values.
+	 */
+	private String replaceLiterals(String part)
+	{
+		return literals == null ? part : literals.replace(part);
+	}
+
+
+	/**
+	 * Replaces the colors in the value and the other find values in a declaration.
+	 *
+	 * @param declaration Raw declaration text.
+	 *
+	 * @return Declaration with replaced values.
+	 */
+	private String replaceDeclaration(String declaration)
+	{
+		StringBuilder sb = new StringBuilder(declaration.length());
+		Scan scan = new Scan(sb);
+		int i = 0;
+		while (i < declaration.length() && declaration.charAt(i) != ':') {
+			i = Math.max(i + 1, skipOpaque(declaration, i));
+		}
+		int segment = Math.min(i + 1, declaration.length());
+		scan.process(declaration, 0, segment, false);
+		i = segment;
+		while (i < declaration.length()) {
+			int end = skipOpaque(declaration, i);
+			if (end > i) {
+				scan.process(declaration, segment, i, true);
+				scan.process(declaration, i, end, false);
+				segment = end;
+				i = end;
+			}
+			else {
+				i++;
+			}
+		}
+		scan.process(declaration, segment, declaration.length(), true);
+		scan.finish();
+		return sb.toString();
+	}
+
+
+	/**
+	 * Skips a comment, string or {@code url(...)} starting at the index, in which colors should not be matched.
+	 *
+	 * @param in    Input.
+	 * @param index Index.
+	 *
+	 * @return Index after the comment, string or URL, the end of the input if it is not closed, or the index itself if
+	 *         none starts there.
+	 */
+	private static int skipOpaque(CharSequence in, int index)
+	{
+		char c = in.charAt(index);
+		if (c == '/' && index + 1 < in.length() && in.charAt(index + 1) == '*') {
+			for (int i = index + 2; i + 1 < in.length(); i++) {
+				if (in.charAt(i) == '*' && in.charAt(i + 1) == '/') {
+					return i + 2;
+				}
+			}
+			return in.length();
+		}
+		if (c == '"' || c == '\'') {
+			return skipString(in, index);
+		}
+		if ((c == 'u' || c == 'U') && (index == 0 || !isNameChar(in.charAt(index - 1)))
+				&& in.toString().regionMatches(true, index, URL_FUNCTION, 0, URL_FUNCTION.length())) {
+			int i = index + URL_FUNCTION.length();
+			while (i < in.length() && in.charAt(i) != ')') {
+				char d = in.charAt(i);
+				i = d == '"' || d == '\'' ? skipString(in, i) : d == '\\' ? i + 2 : i + 1;
+			}
+			return Math.min(i + 1, in.length());
+		}
+		return index;
+	}
+
+
+	/**
+	 * Skips a string starting at the index.
+	 *
+	 * @param in    Input.
+	 * @param index Index of the opening quote.
+	 *
+	 * @return Index after the closing quote, or the end of the input if the string is not closed.
+	 */
+	private static int skipString(CharSequence in, int index)
+	{
+		char quote = in.charAt(index);
+		int i = index + 1;
+		while (i < in.length()) {
+			char c = in.charAt(i);
+			if (c == quote) {
+				return i + 1;
+			}
+			i += c == '\\' ? 2 : 1;
+		}
+		return in.length();
+	}
+
+
+	/**
+	 * Parses a single opaque color in any of the supported notations, ignoring surrounding white space.
+	 *
+	 * @param value Value to parse.
+	 *
+	 * @return Packed {@code 0xRRGGBB} color, or {@link RgbColor#INVALID} if the value is not a single opaque color.
+	 */
+	public static int parseColor(String value)
+	{
+		String color = value.trim();
+		int[] token = new int[2];
+		int end = color.isEmpty() ? NO_MATCH : match(color, 0, color.length(), token);
+		return end == color.length() && token[1] == 0 ? token[0] : RgbColor.INVALID;
+	}
+
+
+	/**
+	 * Returns {@code true} if the value contains a color.
+	 *
+	 * @param value Value.
+	 *
+	 * @return {@code true} if the value contains a color.
+	 */
+	private static boolean containsColor(String value)
+	{
+		int[] token = new int[2];
+		for (int i = 0; i < value.length(); i++) {
+			if (isColorStart(value, i) && match(value, i, value.length(), token) > i) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns {@code true} if a color might start at the index: a hash or an {@code r}, not preceded by a character
+	 * which can be part of a name.
+	 *
+	 * @param in    Input.
+	 * @param index Index.
+	 *
+	 * @return {@code true} if a color might start at the index.
+	 */
+	private static boolean isColorStart(CharSequence in, int index)
+	{
+		char c = in.charAt(index);
+		return (c == '#' || c == 'r' || c == 'R') && (index == 0 || !isNameChar(in.charAt(index - 1)));
+	}
+
+
+	/**
+	 * Matches a color starting at the index.
+	 *
+	 * @param in    Input.
+	 * @param start Index of the hash or the {@code r}.
+	 * @param limit End of the input.
+	 * @param token Receives the packed color at index {@code 0} and {@code 1} at index {@code 1} if the color has an
+	 *              alpha, else {@code 0}.
+	 *
+	 * @return Index after the color, or {@link #NO_MATCH}.
+	 */
+	private static int match(CharSequence in, int start, int limit, int[] token)
+	{
+		return in.charAt(start) == '#' ? matchHex(in, start, limit, token) : matchFunction(in, start, limit, token);
+	}
+
+
+	/**
+	 * Matches a hex color ({@code #rgb}, {@code #rgba}, {@code #rrggbb} or {@code #rrggbbaa}).
+	 *
+	 * @param in    Input.
+	 * @param start Index of the hash.
+	 * @param limit End of the input.
+	 * @param token Receives the color, see {@link #match(java.lang.CharSequence, int, int, int[])}.
+	 *
+	 * @return Index after the color, or {@link #NO_MATCH}.
+	 */
+	private static int matchHex(CharSequence in, int start, int limit, int[] token)
+	{
+		int end = start + 1;
+		while (end < limit && end - start <= 8 && RgbColor.hexDigit(in.charAt(end)) >= 0) {
+			end++;
+		}
+		int digits = end - start - 1;
+		if (digits != 3 && digits != 4 && digits != 6 && digits != 8 || end < limit && isNameChar(in.charAt(end))) {
+			return NO_MATCH;
+		}
+		int rgb = 0;
+		for (int i = 0; i < 3; i++) {
+			if (digits < 6) {
+				rgb = rgb << 8 | RgbColor.hexDigit(in.charAt(start + 1 + i)) * 0x11;
+			}
+			else {
+				rgb = rgb << 8 | RgbColor.hexDigit(in.charAt(start + 1 + 2 * i)) << 4
+							| RgbColor.hexDigit(in.charAt(start + 2 + 2 * i));
+			}
+		}
+		token[0] = rgb;
+		token[1] = digits == 4 || digits == 8 ? 1 : 0;
+		return end;
+	}
+
+
+	/**
+	 * Matches a color function ({@code rgb(...)} or {@code rgba(...)}) with integer components, separated by commas or
+	 * white space, and an optional alpha, separated by a comma or a slash.
+	 *
+	 * @param in    Input.
+	 * @param start Index of the {@code r}.
+	 * @param limit End of the input.
+	 * @param token Receives the color, see {@link #match(java.lang.CharSequence, int, int, int[])}.
+	 *
+	 * @return Index after the color, or {@link #NO_MATCH}.
+	 */
+	private static int matchFunction(CharSequence in, int start, int limit, int[] token)
+	{
+		int end = Math.min(limit, start + MAX_FUNCTION_LENGTH);
+		int i = start;
+		for (int n = 0; n < FUNCTION_NAME.length(); n++, i++) {
+			if (i == end) {
+				return NO_MATCH;
+			}
+			if (Character.toLowerCase(in.charAt(i)) != FUNCTION_NAME.charAt(n)) {
+				return NO_MATCH;
+			}
+		}
+		if (i < end && Character.toLowerCase(in.charAt(i)) == 'a') {
+			i++;
+		}
+		if (i == end) {
+			return NO_MATCH;
+		}
+		if (in.charAt(i++) != '(') {
+			return NO_MATCH;
+		}
+		int rgb = 0;
+		int afterComponent = -1;
+		for (int component = 0; component < 3; component++) {
+			i = skipWhiteSpace(in, i, end);
+			if (component > 0) {
+				if (i == end) {
+					return NO_MATCH;
+				}
+				if (in.charAt(i) == ',') {
+					i = skipWhiteSpace(in, i + 1, end);
+				}
+				else if (i == afterComponent) {
+					return NO_MATCH;
+				}
+			}
+			int value = 0;
+			int digits = 0;
+			while (i < end && digits <= 3 && isDigit(in.charAt(i))) {
+				value = value * 10 + in.charAt(i++) - '0';
+				digits++;
+			}
+			if (i == end) {
+				return NO_MATCH;
+			}
+			char c = in.charAt(i);
+			if (digits == 0 || digits > 3 || value > 255 || c == '.' || c == '%' || c == 'e' || c == 'E') {
+				return NO_MATCH;
+			}
+			rgb = rgb << 8 | value;
+			afterComponent = i;
+		}
+		i = skipWhiteSpace(in, i, end);
+		if (i == end) {
+			return NO_MATCH;
+		}
+		boolean alpha = in.charAt(i) == ',' || in.charAt(i) == '/';
+		if (alpha) {
+			i = skipWhiteSpace(in, i + 1, end);
+			int alphaStart = i;
+			while (i < end && isAlphaChar(in.charAt(i))) {
+				i++;
+			}
+			if (i == end) {
+				return NO_MATCH;
+			}
+			if (i == alphaStart) {
+				return NO_MATCH;
+			}
+			i = skipWhiteSpace(in, i, end);
+			if (i == end) {
+				return NO_MATCH;
+			}
+		}
+		if (in.charAt(i) != ')') {
+			return NO_MATCH;
+		}
+		token[0] = rgb;
+		token[1] = alpha ? 1 : 0;
+		return i + 1;
+	}
+
+
+	/**
+	 * Appends a replacement color in the notation of the original color.
+	 *
+	 * @param in    Input.
+	 * @param start Index of the original color.
+	 * @param end   Index after the original color.
+	 * @param rgb   Packed replacement color.
+	 * @param out   Output.
+	 */
+	private static void appendColor(CharSequence in, int start, int end, int rgb, StringBuilder out)
+	{
+		if (in.charAt(start) != '#') {
+			int component = 0;
+			int i = start;
+			while (i < end) {
+				if (component < 3 && isDigit(in.charAt(i))) {
+					out.append(rgb >> 16 - 8 * component++ & 0xFF);
+					while (i < end && isDigit(in.charAt(i))) {
+						i++;
+					}
+				}
+				else {
+					out.append(in.charAt(i++));
+				}
+			}
+			return;
+		}
+		int digits = end - start - 1;
+		char[] hexDigits = UPPER_HEX_DIGITS;
+		for (int i = start + 1; i < end; i++) {
+			if (in.charAt(i) >= 'a' && in.charAt(i) <= 'f') {
+				hexDigits = LOWER_HEX_DIGITS;
+			}
+		}
+		out.append('#');
+		if (digits < 6 && (rgb >> 4 & 0x0F0F0F) == (rgb & 0x0F0F0F)) {
+			out.append(hexDigits[rgb >> 16 & 0xF]).append(hexDigits[rgb >> 8 & 0xF]).append(hexDigits[rgb & 0xF]);
+			if (digits == 4) {
+				out.append(in.charAt(start + 4));
+			}
+			return;
+		}
+		for (int shift = 20; shift >= 0; shift -= 4) {
+			out.append(hexDigits[rgb >> shift & 0xF]);
+		}
+		if (digits == 4) {
+			out.append(in.charAt(start + 4)).append(in.charAt(start + 4));
+		}
+		else if (digits == 8) {
+			out.append(in, start + 7, end);
+		}
+	}
+
+
+	/**
+	 * Returns the index of the first character which is no white space.
+	 *
+	 * @param in    Input.
+	 * @param index Index to start at.
+	 * @param end   End of the input.
+	 *
+	 * @return Index of the first character which is no white space, or the end.
+	 */
+	private static int skipWhiteSpace(CharSequence in, int index, int end)
+	{
+		int i = index;
+		while (i < end && Character.isWhitespace(in.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+
+	/**
+	 * Returns {@code true} if the character is an ASCII digit.
+	 *
+	 * @param c Character.
+	 *
+	 * @return {@code true} if the character is an ASCII digit.
+	 */
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+
+	/**
+	 * Returns {@code true} if the character can be part of an alpha value (a number or a percentage).
+	 *
+	 * @param c Character.
+	 *
+	 * @return {@code true} if the character can be part of an alpha value.
+	 */
+	private static boolean isAlphaChar(char c)
+	{
+		return isDigit(c) || c == '.' || c == '%' || c == 'e' || c == 'E' || c == '+' || c == '-';
+	}
+
+
+	/**
+	 * Returns {@code true} if the character can be part of a CSS name.
+	 *
+	 * @param c Character.
+	 *
+	 * @return {@code true} if the character can be part of a CSS name.
+	 */
+	private static boolean isNameChar(char c)
+	{
+		return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '\\' || c > 0x7F;
+	}
+
+
+
+	/**
+	 * State of a single scan.
+	 */
+	private class Scan
+	{
+
+		/**
+		 * Output.
+		 */
+		private final StringBuilder out;
+
+		/**
+		 * Scan of the {@link #literals literal replacer} writing to the {@link #out output}, {@code null} if there are
+		 * no literal find values.
+		 */
+		private final StringReplacer.Scan literal;
+
+		/**
+		 * Color and alpha flag of the last match.
+		 */
+		private final int[] token = new int[2];
+
+		/**
+		 * Last processed character.
+		 */
+		private char previous;
+
+
+		/**
+		 * Creates a scan writing to the output.
+		 *
+		 * @param out Output.
+		 */
+		Scan(StringBuilder out)
+		{
+			this.out = out;
+			this.literal = literals == null ? null : literals.newScan(out);
+		}
+
+
+		/**
+		 * Processes a range of input characters.
+		 *
+		 * @param in          Input.
+		 * @param start       Start of the range.
+		 * @param limit       End of the range.
+		 * @param matchColors {@code true} to match colors in the range, else only the other find values are replaced.
+		 */
+		void process(CharSequence in, int start, int limit, boolean matchColors)
+		{
+			int i = start;
+			while (i < limit) {
+				char c = in.charAt(i);
+				if (matchColors && (c == '#' || c == 'r' || c == 'R') && !isNameChar(previous)) {
+					int end = match(in, i, limit, token);
+					if (end > i) {
+						replace(in, i, end);
+						previous = in.charAt(end - 1);
+						i = end;
+						continue;
+					}
+				}
+				if (literal == null) {
+					out.append(c);
+				}
+				else {
+					literal.next(c);
+				}
+				previous = c;
+				i++;
+			}
+		}
+
+
+		/**
+		 * Writes all remaining characters.
+		 */
+		void finish()
+		{
+			if (literal != null) {
+				literal.finish();
+			}
+		}
+
+
+		/**
+		 * Writes the replacement of the matched color, or the color itself if it is not replaced or if it has an alpha
+		 * and the replace value is not a color.
+		 *
+		 * @param in    Input.
+		 * @param start Index of the color.
+		 * @param end   Index after the color.
+		 */
+		private void replace(CharSequence in, int start, int end)
+		{
+			finish();
+			int index = colors.get(token[0]);
+			if (index == ColorMap.ABSENT || replaceColors[index] == RgbColor.INVALID && token[1] == 1) {
+				out.append(in, start, end);
+			}
+			else if (replaceColors[index] == RgbColor.INVALID) {
+				out.append(replaceValues[index]);
+			}
+			else {
+				appendColor(in, start, end, replaceColors[index], out);
+			}
+		}
+
+	}
+
+
+
+	/**
+	 * {@link CssFilter} matching colors in declaration values only.
+	 */
+	private class ReplacingFilter extends CssFilter
+	{
+
+		/**
+		 * Creates a filter.
+		 *
+		 * @param next Next listener.
+		 */
+		ReplacingFilter(CssListener next)
+		{
+			super(next);
+		}
+
+
+		@Override
+		public void blockStart(String prelude) throws IOException
+		{
+			super.blockStart(replaceLiterals(prelude));
+		}
+
+
+		@Override
+		public void declaration(String declaration, boolean terminated) throws IOException
+		{
+			super.declaration(replaceDeclaration(declaration), terminated);
+		}
+
+
+		@Override
+		public void statement(String statement) throws IOException
+		{
+			super.statement(replaceLiterals(statement));
+		}
+
+
+		@Override
+		public void blockEnd(String trailing) throws IOException
+		{
+			super.blockEnd(replaceLiterals(trailing));
+		}
+
+
+		@Override
+		public void end(String trailing) throws IOException
+		{
+			super.end(replaceLiterals(trailing));
+		}
+
+	}
+
+}
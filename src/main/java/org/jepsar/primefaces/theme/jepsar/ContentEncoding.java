@@ -0,0 +1,171 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * HTTP content encodings supported for {@link ThemeContent#getVariant(ContentEncoding) pre-compressed content}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public enum ContentEncoding
+{
+
+	/**
+	 * No encoding.
+	 */
+	IDENTITY("identity"),
+	/**
+	 * Gzip encoding.
+	 */
+	GZIP("gzip"),
+	/**
+	 * Deflate (zlib) encoding.
+	 */
+	DEFLATE("deflate");
+
+	/**
+	 * Name of the request header listing the accepted encodings.
+	 */
+	public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+	/**
+	 * Name of the response header naming the used encoding.
+	 */
+	public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+	/**
+	 * Name of the response header listing the request headers the response depends on.
+	 */
+	public static final String HEADER_VARY = "Vary";
+
+	/**
+	 * Token used in the {@link #HEADER_ACCEPT_ENCODING} header.
+	 */
+	private final String token;
+
+
+	/**
+	 * Creates an encoding.
+	 *
+	 * @param token Token used in the {@link #HEADER_ACCEPT_ENCODING} header.
+	 */
+	ContentEncoding(String token)
+	{
+		this.token = token;
+	}
+
+
+	/**
+	 * Returns the token used in the {@link #HEADER_ACCEPT_ENCODING} and {@link #HEADER_CONTENT_ENCODING} headers.
+	 *
+	 * @return Encoding token.
+	 */
+	public String getToken()
+	{
+		return token;
+	}
+
+
+	/**
+	 * Encodes the bytes.
+	 *
+	 * @param bytes Bytes to encode.
+	 *
+	 * @return Encoded bytes.
+	 */
+	byte[] encode(byte[] bytes)
+	{
+		if (this == IDENTITY) {
+			return bytes;
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4 + 64);
+		try (OutputStream out = wrap(baos)) {
+			out.write(bytes);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return baos.toByteArray();
+	}
+
+
+	/**
+	 * Wraps an output stream, so bytes written to the returned stream are encoded. Closing the returned stream finishes
+	 * the encoding and closes the wrapped stream.
+	 *
+	 * @param out Output stream to write the encoded bytes to.
+	 *
+	 * @return Encoding output stream, the given stream for {@link #IDENTITY}.
+	 *
+	 * @throws IOException
+	 */
+	OutputStream wrap(OutputStream out) throws IOException
+	{
+		switch (this) {
+			case GZIP:
+				return new GZIPOutputStream(out);
+			case DEFLATE:
+				return new DeflaterOutputStream(out);
+			default:
+				return out;
+		}
+	}
+
+
+	/**
+	 * Selects the preferred encoding from an {@link #HEADER_ACCEPT_ENCODING} header value. Gzip is preferred over
+	 * deflate if both have the same quality.
+	 *
+	 * @param acceptEncoding Header value, may be {@code null}.
+	 *
+	 * @return Preferred encoding, {@link #IDENTITY} if neither gzip nor deflate is accepted.
+	 */
+	public static ContentEncoding negotiate(String acceptEncoding)
+	{
+		if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+			return IDENTITY;
+		}
+		float gzip = -1;
+		float deflate = -1;
+		float any = -1;
+		for (String part : acceptEncoding.split(",")) {
+			String[] tokens = part.split(";");
+			String name = tokens[0].trim().toLowerCase(Locale.ROOT);
+			float quality = 1;
+			for (int i = 1; i < tokens.length; i++) {
+				String parameter = tokens[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Float.parseFloat(parameter.substring(2));
+					}
+					catch (NumberFormatException ex) {
+						quality = 0;
+					}
+				}
+			}
+			if (GZIP.token.equals(name) || "x-gzip".equals(name)) {
+				gzip = quality;
+			}
+			else if (DEFLATE.token.equals(name)) {
+				deflate = quality;
+			}
+			else if ("*".equals(name)) {
+				any = quality;
+			}
+		}
+		gzip = gzip < 0 ? any : gzip;
+		deflate = deflate < 0 ? any : deflate;
+		if (gzip > 0 && gzip >= deflate) {
+			return GZIP;
+		}
+		return deflate > 0 ? DEFLATE : IDENTITY;
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+
+
+/**
+ * {@link CssListener} which passes the structure of a style sheet on to a next listener unchanged. Subclasses can
+ * override the callbacks to transform or drop parts before they reach the next listener, so several transformations
+ * can be chained behind a single {@link CssScanner} and the style sheet is only scanned once.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class CssFilter implements CssListener
+{
+
+	/**
+	 * Next listener.
+	 */
+	private final CssListener next;
+
+
+	/**
+	 * Creates a filter.
+	 *
+	 * @param next Next listener.
+	 */
+	public CssFilter(CssListener next)
+	{
+		this.next = next;
+	}
+
+
+	@Override
+	public void blockStart(String prelude) throws IOException
+	{
+		next.blockStart(prelude);
+	}
+
+
+	@Override
+	public void declaration(String declaration, boolean terminated) throws IOException
+	{
+		next.declaration(declaration, terminated);
+	}
+
+
+	@Override
+	public void statement(String statement) throws IOException
+	{
+		next.statement(statement);
+	}
+
+
+	@Override
+	public void blockEnd(String trailing) throws IOException
+	{
+		next.blockEnd(trailing);
+	}
+
+
+	@Override
+	public void end(String trailing) throws IOException
+	{
+		next.end(trailing);
+	}
+
+
+	/**
+	 * Returns the next listener.
+	 *
+	 * @return Next listener.
+	 */
+	protected CssListener getNext()
+	{
+		return next;
+	}
+
+}
+
@@ -0,0 +1,66 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+
+
+/**
+ * Receives the structure of a style sheet from a {@link CssScanner}. All text is passed raw, including white space and
+ * comments, so a listener which writes every part followed by its terminator reproduces the input exactly.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public interface CssListener
+{
+
+	/**
+	 * Called when a block is opened. The prelude is a selector list or an at-rule like {@code @media screen}.
+	 *
+	 * @param prelude Raw text before the opening brace, excluding the brace.
+	 *
+	 * @throws IOException
+	 */
+	void blockStart(String prelude) throws IOException;
+
+
+	/**
+	 * Called for a declaration inside a declaration block, for example {@code color:red}.
+	 *
+	 * @param declaration Raw declaration text, excluding the semicolon.
+	 * @param terminated  {@code true} if the declaration was terminated by a semicolon.
+	 *
+	 * @throws IOException
+	 */
+	void declaration(String declaration, boolean terminated) throws IOException;
+
+
+	/**
+	 * Called for a statement outside a declaration block, for example {@code @import url(x.css)}.
+	 *
+	 * @param statement Raw statement text, excluding the semicolon.
+	 *
+	 * @throws IOException
+	 */
+	void statement(String statement) throws IOException;
+
+
+	/**
+	 * Called when a block is closed.
+	 *
+	 * @param trailing Raw text (white space or comments) before the closing brace, excluding the brace.
+	 *
+	 * @throws IOException
+	 */
+	void blockEnd(String trailing) throws IOException;
+
+
+	/**
+	 * Called when the style sheet has ended.
+	 *
+	 * @param trailing Raw text after the last structural character.
+	 *
+	 * @throws IOException
+	 */
+	void end(String trailing) throws IOException;
+
+}
@@ -0,0 +1,435 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * {@link CssWriter} which minifies a style sheet:
+ * <ul>
+ * <li>comments are removed, except for {@code /*!} comments (like licenses);</li>
+ * <li>white space is collapsed and removed where it is not needed;</li>
+ * <li>the last semicolon of a block is removed;</li>
+ * <li>empty rules (also the ones left after {@link IconStripper stripping icons}) and empty at-rule blocks are
+ * removed;</li>
+ * <li>colors like {@code #aabbcc} are shortened to {@code #abc} in declaration values.</li>
+ * </ul>
+ *
+ * <p>
+ * Strings and unquoted {@code url(...)} values are never changed. Only the preludes of the currently open blocks are
+ * held back, so the minifier can be used on a stream.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class CssMinifier extends CssWriter
+{
+
+	/**
+	 * Characters in a selector list around which white space is not needed.
+	 */
+	private static final String SELECTOR_TIGHT = ",>+~";
+
+	/**
+	 * Characters in an at-rule or statement around which white space is not needed.
+	 */
+	private static final String AT_RULE_TIGHT = ",";
+
+	/**
+	 * Characters in a declaration around which white space is not needed.
+	 */
+	private static final String DECLARATION_TIGHT = ":,!";
+
+	/**
+	 * Start of a comment which should be kept.
+	 */
+	private static final String IMPORTANT_COMMENT = "/*!";
+
+	/**
+	 * Start of an unquoted URL.
+	 */
+	private static final String URL_START = "url(";
+
+	/**
+	 * Legacy Internet Explorer filters, in which colors may not be shortened.
+	 */
+	private static final String PROGID = "progid:";
+
+	/**
+	 * Blocks which are open.
+	 */
+	private final List<Block> blocks = new ArrayList<>();
+
+
+	/**
+	 * Creates a minifier.
+	 *
+	 * @param out Output.
+	 */
+	public CssMinifier(Appendable out)
+	{
+		super(out);
+	}
+
+
+	/**
+	 * Minifies a style sheet.
+	 *
+	 * @param css Style sheet.
+	 *
+	 * @return Minified style sheet.
+	 */
+	public static String minify(String css)
+	{
+		StringBuilder sb = new StringBuilder(css.length());
+		try {
+			CssScanner.scan(css, new CssMinifier(sb));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns a writer which minifies the style sheet written to it. Only the preludes of the open blocks are held
+	 * back. Closing the writer writes the remaining text and closes the output.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Minifying writer.
+	 */
+	public static Writer newWriter(Writer out)
+	{
+		return new ScanningWriter(new CssMinifier(out), out);
+	}
+
+
+	@Override
+	public void blockStart(String prelude) throws IOException
+	{
+		int start = CssScanner.skipWhiteSpaceAndComments(prelude, 0);
+		boolean atRule = start < prelude.length() && prelude.charAt(start) == '@';
+		blocks.add(new Block(compact(prelude, atRule ? AT_RULE_TIGHT : SELECTOR_TIGHT, false)));
+	}
+
+
+	@Override
+	public void declaration(String declaration, boolean terminated) throws IOException
+	{
+		boolean shortenColors = !declaration.toLowerCase(Locale.ROOT).contains(PROGID);
+		String minified = compact(declaration, DECLARATION_TIGHT, shortenColors);
+		if (minified.isEmpty()) {
+			return;
+		}
+		writeBlocks();
+		getOut().append(minified);
+		blocks.get(blocks.size() - 1).separate = true;
+	}
+
+
+	@Override
+	public void statement(String statement) throws IOException
+	{
+		String minified = compact(statement, AT_RULE_TIGHT, false);
+		if (minified.isEmpty()) {
+			return;
+		}
+		writeBlocks();
+		getOut().append(minified).append(';');
+	}
+
+
+	@Override
+	public void blockEnd(String trailing) throws IOException
+	{
+		if (blocks.isEmpty()) {
+			getOut().append('}');
+			return;
+		}
+		Block block = blocks.remove(blocks.size() - 1);
+		if (block.written) {
+			getOut().append('}');
+		}
+	}
+
+
+	@Override
+	public void end(String trailing) throws IOException
+	{
+		getOut().append(compact(trailing, AT_RULE_TIGHT, false));
+	}
+
+
+	/**
+	 * Writes the preludes of the open blocks which were not written yet, because they had no content yet. Also writes
+	 * a pending semicolon of the innermost written block.
+	 *
+	 * @throws IOException
+	 */
+	private void writeBlocks() throws IOException
+	{
+		Block parent = null;
+		for (Block block : blocks) {
+			if (!block.written) {
+				separate(parent);
+				getOut().append(block.prelude).append('{');
+				block.written = true;
+			}
+			parent = block;
+		}
+		separate(parent);
+	}
+
+
+	/**
+	 * Writes a semicolon if the last content of the block was a declaration.
+	 *
+	 * @param block Block, {@code null} for the style sheet itself.
+	 *
+	 * @throws IOException
+	 */
+	private void separate(Block block) throws IOException
+	{
+		if (block != null && block.separate) {
+			getOut().append(';');
+			block.separate = false;
+		}
+	}
+
+
+	/**
+	 * Removes comments and collapses and removes white space. White space is removed at the start and the end, after an
+	 * opening parenthesis, before a closing parenthesis and around the tight characters.
+	 *
+	 * @param text          Text to compact.
+	 * @param tight         Characters around which white space is not needed.
+	 * @param shortenColors {@code true} to shorten colors.
+	 *
+	 * @return Compacted text.
+	 */
+	static String compact(String text, String tight, boolean shortenColors)
+	{
+		StringBuilder sb = new StringBuilder(text.length());
+		boolean space = false;
+		int i = 0;
+		while (i < text.length()) {
+			char c = text.charAt(i);
+			if (c == '/' && text.startsWith("/*", i)) {
+				int end = text.indexOf("*/", i + 2);
+				end = end < 0 ? text.length() : end + 2;
+				if (text.startsWith(IMPORTANT_COMMENT, i)) {
+					appendSpace(sb, space, tight, c);
+					sb.append(text, i, end);
+				}
+				space = !text.startsWith(IMPORTANT_COMMENT, i);
+				i = end;
+				continue;
+			}
+			if (Character.isWhitespace(c)) {
+				space = true;
+				i++;
+				continue;
+			}
+			appendSpace(sb, space, tight, c);
+			space = false;
+			int end;
+			if (c == '"' || c == '\'') {
+				end = skipString(text, i);
+			}
+			else if (c == '\\') {
+				end = skipEscape(text, i);
+			}
+			else if (isUnquotedUrl(text, i)) {
+				int close = text.indexOf(')', i);
+				end = close < 0 ? text.length() : close + 1;
+			}
+			else if (c == '#' && shortenColors) {
+				end = appendColor(sb, text, i);
+				i = end;
+				continue;
+			}
+			else {
+				end = i + 1;
+			}
+			sb.append(text, i, end);
+			i = end;
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Appends a space if there was white space which is needed before the character.
+	 *
+	 * @param sb    Output.
+	 * @param space {@code true} if there was white space.
+	 * @param tight Characters around which white space is not needed.
+	 * @param c     Character after the white space.
+	 */
+	private static void appendSpace(StringBuilder sb, boolean space, String tight, char c)
+	{
+		if (!space || sb.length() == 0 || c == ')' || tight.indexOf(c) >= 0) {
+			return;
+		}
+		char last = sb.charAt(sb.length() - 1);
+		if (last != '(' && tight.indexOf(last) < 0) {
+			sb.append(' ');
+		}
+	}
+
+
+	/**
+	 * Returns the index after a quoted string.
+	 *
+	 * @param text  Text.
+	 * @param index Index of the opening quote.
+	 *
+	 * @return Index after the closing quote.
+	 */
+	private static int skipString(String text, int index)
+	{
+		char quote = text.charAt(index);
+		for (int i = index + 1; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\\') {
+				i++;
+			}
+			else if (c == quote || c == '\n') {
+				return i + 1;
+			}
+		}
+		return text.length();
+	}
+
+
+	/**
+	 * Returns the index after an escape. The white space ending a hex escape is part of the escape.
+	 *
+	 * @param text  Text.
+	 * @param index Index of the backslash.
+	 *
+	 * @return Index after the escape.
+	 */
+	private static int skipEscape(String text, int index)
+	{
+		int end = index + 1;
+		while (end < text.length() && end - index <= 6 && Character.digit(text.charAt(end), 16) >= 0) {
+			end++;
+		}
+		if (end == index + 1) {
+			return Math.min(end + 1, text.length());
+		}
+		return end < text.length() && Character.isWhitespace(text.charAt(end)) ? end + 1 : end;
+	}
+
+
+	/**
+	 * Returns {@code true} if an unquoted {@code url(...)} starts at the index.
+	 *
+	 * @param text  Text.
+	 * @param index Index.
+	 *
+	 * @return {@code true} if an unquoted URL starts at the index.
+	 */
+	private static boolean isUnquotedUrl(String text, int index)
+	{
+		if (!text.regionMatches(true, index, URL_START, 0, URL_START.length())
+				|| index > 0 && isNameChar(text.charAt(index - 1))) {
+			return false;
+		}
+		int start = index + URL_START.length();
+		while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		return start < text.length() && text.charAt(start) != '"' && text.charAt(start) != '\'';
+	}
+
+
+	/**
+	 * Appends a hash token, shortening {@code #aabbcc} to {@code #abc} and {@code #aabbccdd} to {@code #abcd}.
+	 *
+	 * @param sb    Output.
+	 * @param text  Text.
+	 * @param index Index of the hash.
+	 *
+	 * @return Index after the hash token.
+	 */
+	private static int appendColor(StringBuilder sb, String text, int index)
+	{
+		int end = index + 1;
+		while (end < text.length() && Character.digit(text.charAt(end), 16) >= 0) {
+			end++;
+		}
+		int length = end - index - 1;
+		boolean shorten = (length == 6 || length == 8) && (end == text.length() || !isNameChar(text.charAt(end)));
+		for (int i = index + 1; shorten && i < end; i += 2) {
+			shorten = Character.toLowerCase(text.charAt(i)) == Character.toLowerCase(text.charAt(i + 1));
+		}
+		if (!shorten) {
+			sb.append(text, index, end);
+			return end;
+		}
+		sb.append('#');
+		for (int i = index + 1; i < end; i += 2) {
+			sb.append(text.charAt(i));
+		}
+		return end;
+	}
+
+
+	/**
+	 * Returns {@code true} if the character can be part of a CSS name.
+	 *
+	 * @param c Character.
+	 *
+	 * @return {@code true} if the character can be part of a CSS name.
+	 */
+	private static boolean isNameChar(char c)
+	{
+		return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '\\' || c > 0x7F;
+	}
+
+
+
+	/**
+	 * Open block.
+	 */
+	private static final class Block
+	{
+
+		/**
+		 * Minified prelude.
+		 */
+		private final String prelude;
+
+		/**
+		 * {@code true} if the prelude was written.
+		 */
+		private boolean written;
+
+		/**
+		 * {@code true} if a semicolon should be written before the next content.
+		 */
+		private boolean separate;
+
+
+		/**
+		 * Creates a block.
+		 *
+		 * @param prelude Minified prelude.
+		 */
+		Block(String prelude)
+		{
+			this.prelude = prelude;
+		}
+
+	}
+
+}
+
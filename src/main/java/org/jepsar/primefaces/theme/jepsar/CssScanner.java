@@ -0,0 +1,372 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+
+/**
+ * Streaming style sheet tokenizer. Characters are pushed into the scanner, which reports blocks, declarations and
+ * statements to a {@link CssListener}. Strings, comments, escapes and parentheses (for example unquoted data URLs) are
+ * respected, so structural characters inside them are ignored.
+ *
+ * <p>
+ * Each character is visited once and only the current declaration, statement or prelude is buffered, so scanning
+ * takes linear time and memory is bounded by the longest of those.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class CssScanner
+{
+
+	/**
+	 * At-rules which contain rules instead of declarations.
+	 */
+	private static final Set<String> RULE_LIST_AT_RULES = new HashSet<>(Arrays.asList(
+			"media", "supports", "document", "-moz-document", "layer", "container",
+			"keyframes", "-webkit-keyframes", "-moz-keyframes", "-o-keyframes"));
+
+	/**
+	 * Initial nesting depth capacity.
+	 */
+	private static final int INITIAL_DEPTH = 8;
+
+	/**
+	 * Listener receiving the structure.
+	 */
+	private final CssListener listener;
+
+	/**
+	 * Text of the current declaration, statement or prelude.
+	 */
+	private final StringBuilder buffer = new StringBuilder();
+
+	/**
+	 * For each open block, {@code true} if it contains declarations.
+	 */
+	private boolean[] declarationBlocks = new boolean[INITIAL_DEPTH];
+
+	/**
+	 * Number of open blocks.
+	 */
+	private int depth;
+
+	/**
+	 * Current mode.
+	 */
+	private Mode mode = Mode.NORMAL;
+
+	/**
+	 * Quote character of the current string.
+	 */
+	private char quote;
+
+	/**
+	 * {@code true} if the previous character was an escape.
+	 */
+	private boolean escape;
+
+	/**
+	 * {@code true} if the previous character was a slash outside a comment.
+	 */
+	private boolean slash;
+
+	/**
+	 * {@code true} if the previous character was an asterisk inside a comment.
+	 */
+	private boolean star;
+
+	/**
+	 * Number of open parentheses.
+	 */
+	private int parentheses;
+
+
+	/**
+	 * Creates a scanner reporting to the listener.
+	 *
+	 * @param listener Listener receiving the structure.
+	 */
+	public CssScanner(CssListener listener)
+	{
+		this.listener = listener;
+	}
+
+
+	/**
+	 * Scans the complete style sheet.
+	 *
+	 * @param css      Style sheet.
+	 * @param listener Listener receiving the structure.
+	 *
+	 * @throws IOException If the listener failed.
+	 */
+	public static void scan(CharSequence css, CssListener listener) throws IOException
+	{
+		CssScanner scanner = new CssScanner(listener);
+		scanner.write(css);
+		scanner.finish();
+	}
+
+
+	/**
+	 * Pushes characters into the scanner.
+	 *
+	 * @param chars Characters.
+	 *
+	 * @throws IOException If the listener failed.
+	 */
+	public void write(CharSequence chars) throws IOException
+	{
+		for (int i = 0; i < chars.length(); i++) {
+			write(chars.charAt(i));
+		}
+	}
+
+
+	/**
+	 * Pushes characters into the scanner.
+	 *
+	 * @param chars  Characters.
+	 * @param offset Offset of the first character.
+	 * @param length Number of characters.
+	 *
+	 * @throws IOException If the listener failed.
+	 */
+	public void write(char[] chars, int offset, int length) throws IOException
+	{
+		for (int i = offset; i < offset + length; i++) {
+			write(chars[i]);
+		}
+	}
+
+
+	/**
+	 * Pushes a character into the scanner.
+	 *
+	 * @param c Character.
+	 *
+	 * @throws IOException If the listener failed.
+	 */
+	public void write(char c) throws IOException
+	{
+		if (mode == Mode.COMMENT) {
+			buffer.append(c);
+			if (c == '/' && star) {
+				mode = Mode.NORMAL;
+			}
+			star = c == '*';
+			return;
+		}
+		if (mode == Mode.STRING) {
+			buffer.append(c);
+			if (escape) {
+				escape = false;
+			}
+			else if (c == '\\') {
+				escape = true;
+			}
+			else if (c == quote || c == '\n') {
+				mode = Mode.NORMAL;
+			}
+			return;
+		}
+		if (escape) {
+			buffer.append(c);
+			escape = false;
+			slash = false;
+			return;
+		}
+		switch (c) {
+			case '\\':
+				escape = true;
+				buffer.append(c);
+				break;
+			case '"':
+			case '\'':
+				quote = c;
+				mode = Mode.STRING;
+				buffer.append(c);
+				break;
+			case '*':
+				buffer.append(c);
+				if (slash) {
+					mode = Mode.COMMENT;
+					star = false;
+					slash = false;
+					return;
+				}
+				break;
+			case '(':
+				parentheses++;
+				buffer.append(c);
+				break;
+			case ')':
+				if (parentheses > 0) {
+					parentheses--;
+				}
+				buffer.append(c);
+				break;
+			case ';':
+				if (parentheses > 0) {
+					buffer.append(c);
+				}
+				else if (inDeclarationBlock()) {
+					listener.declaration(takeBuffer(), true);
+				}
+				else {
+					listener.statement(takeBuffer());
+				}
+				break;
+			case '{':
+				String prelude = takeBuffer();
+				push(inDeclarationBlock() || isDeclarationPrelude(prelude));
+				parentheses = 0;
+				listener.blockStart(prelude);
+				break;
+			case '}':
+				boolean declarations = inDeclarationBlock();
+				if (depth > 0) {
+					depth--;
+				}
+				parentheses = 0;
+				if (declarations && !isBlank(buffer)) {
+					listener.declaration(takeBuffer(), false);
+				}
+				listener.blockEnd(takeBuffer());
+				break;
+			default:
+				buffer.append(c);
+		}
+		slash = c == '/';
+	}
+
+
+	/**
+	 * Reports the remaining text to the listener. The scanner should not be used afterwards.
+	 *
+	 * @throws IOException If the listener failed.
+	 */
+	public void finish() throws IOException
+	{
+		listener.end(takeBuffer());
+	}
+
+
+	/**
+	 * Returns {@code true} if the innermost open block contains declarations.
+	 *
+	 * @return {@code true} if the innermost open block contains declarations.
+	 */
+	private boolean inDeclarationBlock()
+	{
+		return depth > 0 && declarationBlocks[depth - 1];
+	}
+
+
+	/**
+	 * Opens a block.
+	 *
+	 * @param declarations {@code true} if the block contains declarations.
+	 */
+	private void push(boolean declarations)
+	{
+		if (depth == declarationBlocks.length) {
+			declarationBlocks = Arrays.copyOf(declarationBlocks, depth * 2);
+		}
+		declarationBlocks[depth++] = declarations;
+	}
+
+
+	/**
+	 * Returns the buffered text and clears the buffer.
+	 *
+	 * @return Buffered text.
+	 */
+	private String takeBuffer()
+	{
+		String text = buffer.toString();
+		buffer.setLength(0);
+		return text;
+	}
+
+
+	/**
+	 * Returns {@code true} if a block with this prelude contains declarations. This is the case for style rules and for
+	 * at-rules which are not in {@link #RULE_LIST_AT_RULES}.
+	 *
+	 * @param prelude Block prelude.
+	 *
+	 * @return {@code true} if a block with this prelude contains declarations.
+	 */
+	static boolean isDeclarationPrelude(String prelude)
+	{
+		int start = skipWhiteSpaceAndComments(prelude, 0);
+		if (start >= prelude.length() || prelude.charAt(start) != '@') {
+			return true;
+		}
+		int end = start + 1;
+		while (end < prelude.length() && (Character.isLetterOrDigit(prelude.charAt(end)) || prelude.charAt(end) == '-')) {
+			end++;
+		}
+		return !RULE_LIST_AT_RULES.contains(prelude.substring(start + 1, end).toLowerCase(Locale.ROOT));
+	}
+
+
+	/**
+	 * Returns the index of the first character which is not white space or part of a comment.
+	 *
+	 * @param text  Text.
+	 * @param index Index to start at.
+	 *
+	 * @return Index of the first character which is not white space or part of a comment.
+	 */
+	static int skipWhiteSpaceAndComments(CharSequence text, int index)
+	{
+		while (index < text.length()) {
+			if (Character.isWhitespace(text.charAt(index))) {
+				index++;
+			}
+			else if (text.charAt(index) == '/' && index + 1 < text.length() && text.charAt(index + 1) == '*') {
+				int end = text.toString().indexOf("*/", index + 2);
+				index = end < 0 ? text.length() : end + 2;
+			}
+			else {
+				break;
+			}
+		}
+		return index;
+	}
+
+
+	/**
+	 * Returns {@code true} if the text only contains white space.
+	 *
+	 * @param text Text.
+	 *
+	 * @return {@code true} if the text only contains white space.
+	 */
+	static boolean isBlank(CharSequence text)
+	{
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Scanner mode.
+	 */
+	private enum Mode
+	{
+		NORMAL, STRING, COMMENT
+	}
+
+}
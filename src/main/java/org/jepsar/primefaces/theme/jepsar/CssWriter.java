@@ -0,0 +1,81 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+
+
+/**
+ * {@link CssListener} which writes the style sheet unchanged. Subclasses can override the callbacks to transform
+ * parts of the style sheet.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class CssWriter implements CssListener
+{
+
+	/**
+	 * Output.
+	 */
+	private final Appendable out;
+
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param out Output.
+	 */
+	public CssWriter(Appendable out)
+	{
+		this.out = out;
+	}
+
+
+	@Override
+	public void blockStart(String prelude) throws IOException
+	{
+		out.append(prelude).append('{');
+	}
+
+
+	@Override
+	public void declaration(String declaration, boolean terminated) throws IOException
+	{
+		out.append(declaration);
+		if (terminated) {
+			out.append(';');
+		}
+	}
+
+
+	@Override
+	public void statement(String statement) throws IOException
+	{
+		out.append(statement).append(';');
+	}
+
+
+	@Override
+	public void blockEnd(String trailing) throws IOException
+	{
+		out.append(trailing).append('}');
+	}
+
+
+	@Override
+	public void end(String trailing) throws IOException
+	{
+		out.append(trailing);
+	}
+
+
+	/**
+	 * Returns the output.
+	 *
+	 * @return Output.
+	 */
+	protected Appendable getOut()
+	{
+		return out;
+	}
+
+}
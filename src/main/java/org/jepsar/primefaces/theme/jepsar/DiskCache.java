@@ -0,0 +1,275 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Directory holding transformed themes, so they survive restarts and can be shared by nodes. Each theme is stored in
+ * its own file, named after a {@link #key(java.lang.String...) hash} of the versions of everything the theme is created
+ * from and the {@link #LIBRARY_VERSION version of this library}, so entries never have to be invalidated: a
+ * changed source, configuration or transformation simply results in another key. Stored themes are memory-mapped, so
+ * their content is kept outside the Java heap.
+ *
+ * <p>
+ * Superseded entries are removed by a sweep when the cache is created: themes which were not used for longer than the
+ * maximum age are deleted, as are temporary files left behind by interrupted writes.
+ * </p>
+ *
+ * <p>
+ * Files are written to a temporary file first and then moved in place, so readers (also on other nodes sharing the
+ * directory) never see a partially written theme. Errors are logged and otherwise ignored, the theme is then
+ * transformed in memory as usual.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class DiskCache
+{
+
+	/**
+	 * Algorithm used to compute the keys.
+	 */
+	private static final String KEY_ALGORITHM = "SHA-256";
+
+	/**
+	 * Suffix of the stored themes.
+	 */
+	private static final String SUFFIX = ".css";
+
+	/**
+	 * Suffix of files being written.
+	 */
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/**
+	 * Age in milliseconds after which temporary files are considered left behind.
+	 */
+	private static final long TEMP_MAX_AGE = 60L * 60 * 1000;
+
+	/**
+	 * Version of this library, included in each key, so themes stored by another version, which might transform them
+	 * differently, are not used.
+	 */
+	private static final String LIBRARY_VERSION = getLibraryVersion();
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(DiskCache.class.getName());
+
+	/**
+	 * Directory holding the stored themes.
+	 */
+	private final Path directory;
+
+	/**
+	 * Included in each key, so applications sharing the directory don't share themes containing their own URLs.
+	 */
+	private final String namespace;
+
+
+	/**
+	 * Creates the cache, creating the directory if it does not exist, and {@link #sweep(long) sweeps} it.
+	 *
+	 * @param directory Directory holding the stored themes.
+	 * @param namespace Included in each key, like the application context path.
+	 * @param maxAge    Maximum age in milliseconds of themes which are not used.
+	 *
+	 * @throws IOException If the directory cannot be created.
+	 */
+	DiskCache(Path directory, String namespace, long maxAge) throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+		this.namespace = namespace;
+		sweep(maxAge);
+	}
+
+
+	/**
+	 * Returns the version of this library: the implementation version from the manifest or, if not available, the
+	 * modification time of the JAR or directory holding this class.
+	 *
+	 * @return Library version, empty if unknown.
+	 */
+	private static String getLibraryVersion()
+	{
+		String version = DiskCache.class.getPackage().getImplementationVersion();
+		if (version != null) {
+			return version;
+		}
+		try {
+			URL location = DiskCache.class.getProtectionDomain().getCodeSource().getLocation();
+			return String.valueOf(location.openConnection().getLastModified());
+		}
+		catch (IOException | RuntimeException ex) {
+			LOGGER.log(Level.FINE, "Could not determine library version", ex);
+			return "";
+		}
+	}
+
+
+	/**
+	 * Deletes stored themes which were not {@link #get(java.lang.String) used} for longer than the maximum age and
+	 * temporary files left behind. Failures are logged.
+	 *
+	 * @param maxAge Maximum age in milliseconds of themes which are not used.
+	 */
+	private void sweep(long maxAge)
+	{
+		long now = System.currentTimeMillis();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				long age = now - Files.getLastModifiedTime(file).toMillis();
+				if (name.endsWith(SUFFIX) && age > maxAge || name.endsWith(TEMP_SUFFIX) && age > TEMP_MAX_AGE) {
+					deleteIfExists(file);
+				}
+			}
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Could not sweep " + directory, ex);
+		}
+	}
+
+
+	/**
+	 * Computes a key from the parts the theme is created with, like the versions of its sources and its configuration.
+	 *
+	 * @param parts Parts.
+	 *
+	 * @return Hex encoded hash.
+	 */
+	String key(String... parts)
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(KEY_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(LIBRARY_VERSION.getBytes(StandardCharsets.UTF_8));
+		for (String part : parts) {
+			digest.update((byte) 0);
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns the stored theme, memory-mapped. Its modification time is set to now, so it is not {@link #sweep(long)
+	 * swept} while in use.
+	 *
+	 * @param key Key.
+	 *
+	 * @return Stored theme, {@code null} if not stored or if it cannot be read.
+	 */
+	ThemeContent get(String key)
+	{
+		Path file = directory.resolve(key + SUFFIX);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ThemeContent content = new ThemeContent(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			touch(file);
+			return content;
+		}
+		catch (NoSuchFileException ex) {
+			return null;
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Could not read " + file, ex);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Stores a theme and returns it memory-mapped, so the given content can be garbage collected.
+	 *
+	 * @param key     Key.
+	 * @param content Theme.
+	 *
+	 * @return Stored theme, or the given theme if it could not be stored.
+	 */
+	ThemeContent put(String key, ThemeContent content)
+	{
+		Path file = directory.resolve(key + SUFFIX);
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = content.asByteBuffer();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Could not store " + file, ex);
+			deleteIfExists(temp);
+			return content;
+		}
+		ThemeContent stored = get(key);
+		return stored == null ? content : stored;
+	}
+
+
+	/**
+	 * Sets the modification time of a file to now, logging failures.
+	 *
+	 * @param file File.
+	 */
+	private static void touch(Path file)
+	{
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.FINE, "Could not touch " + file, ex);
+		}
+	}
+
+
+	/**
+	 * Deletes a file if it exists, logging failures.
+	 *
+	 * @param file File, may be {@code null}.
+	 */
+	private static void deleteIfExists(Path file)
+	{
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.FINE, "Could not delete " + file, ex);
+		}
+	}
+
+}
+
@@ -1,16 +1,19 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
 
 
 /**
- * Resource which reads the input stream from the wrapped resource, removes {@link #REGEX_BG_IMG background images} and
- * {@link #REGEX_ICON UI icons} and appends the patch loaded from {@link #FONT_AWESOME_CSS_RESOURCE}.
+ * Resource which reads the input stream from the wrapped resource, removes the jQuery UI icons using an
+ * {@link IconStripper} and appends the patch loaded from {@link #FONT_AWESOME_CSS_RESOURCE}. The result is
+ * cached, so the theme and the patch are only read and transformed once per theme and charset.
  *
  * @author Jasper de Vries <jepsar@gmail.com>
  */
@@ -20,18 +23,36 @@ public class FontAwesomeResource extends AbstractResource
 	/**
 	 * Resource location of the Font Awesome CSS patch.
 	 */
-	private static final String FONT_AWESOME_CSS_RESOURCE = "/primefaces-jepsar/fontawesome.css";
+	static final String FONT_AWESOME_CSS_RESOURCE = "/primefaces-jepsar/fontawesome.css";
+
 
 	/**
-	 * Expression for icon background image.
+	 * Calls super.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
 	 */
-	private static final String REGEX_BG_IMG =
-															"background-image:url\\(\"[^\"]*/ui-icons_[0-9a-f]{6}_[0-9]+x[0-9]+\\.png[^\"]+\"\\);";
+	public FontAwesomeResource(Resource wrapped, AbstractResourceHandler handler)
+	{
+		super(wrapped, handler);
+	}
+
 
 	/**
-	 * Expression for icon position.
+	 * Calls super, using the {@link AbstractResourceHandler} which is or is wrapped by the handler.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 *
+	 * @throws IllegalArgumentException If the handler is not and does not wrap an {@link AbstractResourceHandler}.
+	 *
+	 * @deprecated Use {@link #FontAwesomeResource(javax.faces.application.Resource, AbstractResourceHandler)}.
 	 */
-	private static final String REGEX_ICON = ".ui-icon-[^\\{]+\\{background-position:[^;]+;\\}";
+	@Deprecated
+	public FontAwesomeResource(Resource wrapped, ResourceHandler handler)
+	{
+		this(wrapped, toThemeHandler(handler));
+	}
 
 
 	/**
@@ -39,39 +60,78 @@ public class FontAwesomeResource extends AbstractResource
 	 *
 	 * @param wrapped Wrapped resource.
 	 * @param handler Handler that created this resource.
+	 * @param charset Response encoding charset.
 	 */
-	public FontAwesomeResource(Resource wrapped, ResourceHandler handler)
+	public FontAwesomeResource(Resource wrapped, AbstractResourceHandler handler, Charset charset)
 	{
-		super(wrapped, handler);
+		super(wrapped, handler, charset);
 	}
 
 
 	/**
-	 * Reads the input stream from the wrapped resource, removes {@link #REGEX_BG_IMG background images} and
-	 * {@link #REGEX_ICON UI icons} and appends the patch loaded from {@link #FONT_AWESOME_CSS_RESOURCE}. If the
+	 * Reads the wrapped theme from which the handler removed the icon background images and icon positions using an
+	 * {@link IconStripper} and appends the patch loaded from {@link #FONT_AWESOME_CSS_RESOURCE}. If the
 	 * {@link AbstractResource#PARAM_NAME_APPEND_CSS_RESOURCE} context parameter is set, the contents of that CSS resource
-	 * will be appended.
+	 * will be appended. The result is {@link #getContent() cached} per theme and charset.
 	 *
 	 * @return Cleaned and patched CSS.
 	 *
 	 * @throws IOException
 	 */
 	@Override
-	public InputStream getInputStream() throws IOException
+	protected String createCss() throws IOException
 	{
-		String css = readInputStream(getWrapped().getInputStream());
-		css = css.replaceAll(REGEX_BG_IMG, "");
-		css = css.replaceAll(REGEX_ICON, "");
-		StringBuilder sb = new StringBuilder(css);
+		StringBuilder sb = new StringBuilder(readTransformedTheme());
 
 		// Append FontAwesome CSS
-		Resource resource = getHandler().createResource(FONT_AWESOME_CSS_RESOURCE);
-		sb.append(readInputStream(resource.getInputStream()));
+		sb.append(getHandler().getCss(FONT_AWESOME_CSS_RESOURCE, getCharset()));
 
 		// Append custom CSS
 		appendCss(sb);
 
-		return new ByteArrayInputStream(sb.toString().getBytes(getCharset()));
+		return sb.toString();
+	}
+
+
+	/**
+	 * Adds the wrapped theme, from which the icons are removed while it is streamed, the patch loaded from
+	 * {@link #FONT_AWESOME_CSS_RESOURCE} and the appended CSS.
+	 *
+	 * @param css Stream to add the sources to.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	protected void addCss(TransformingInputStream css) throws IOException
+	{
+		addTransformedTheme(css);
+		css.add(new StringReader(getHandler().getCss(FONT_AWESOME_CSS_RESOURCE, getCharset())));
+		addAppendedCss(css);
+	}
+
+
+	/**
+	 * Returns the patch loaded from {@link #FONT_AWESOME_CSS_RESOURCE}.
+	 *
+	 * @return Font Awesome patch.
+	 */
+	@Override
+	protected List<Resource> getAdditionalSources()
+	{
+		return Collections.singletonList(getHandler().getCssResource(FONT_AWESOME_CSS_RESOURCE));
+	}
+
+
+	/**
+	 * Reads the appended CSS and the patch loaded from {@link #FONT_AWESOME_CSS_RESOURCE}.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	protected void readSources() throws IOException
+	{
+		super.readSources();
+		getHandler().getCss(FONT_AWESOME_CSS_RESOURCE, getCharset());
 	}
 
 }
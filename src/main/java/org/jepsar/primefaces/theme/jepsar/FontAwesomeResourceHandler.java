@@ -1,8 +1,11 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
+import java.io.Writer;
+import java.nio.charset.Charset;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
+import javax.faces.context.FacesContext;
 
 
 /**
@@ -14,6 +17,12 @@ import javax.faces.application.ResourceHandler;
 public class FontAwesomeResourceHandler extends AbstractResourceHandler
 {
 
+	/**
+	 * Fingerprint of the transformation.
+	 */
+	static final String FINGERPRINT = "font-awesome";
+
+
 	/**
 	 *
 	 * @param wrapped Wrapped resource handler.
@@ -27,7 +36,11 @@ public class FontAwesomeResourceHandler extends AbstractResourceHandler
 	/**
 	 * Returns a {@link FontAwesomeResource} if the resource
 	 * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme} else the
-	 * {@link #getWrapped() wrapped handler} will take care of creating a resource.
+	 * {@link #getWrapped() wrapped handler} will take care of creating a resource. If a
+	 * {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} is available, it is
+	 * returned instead. Theme resources are
+	 * {@link #createThemeResource(javax.faces.context.FacesContext, java.lang.String, java.lang.String,
+	 * java.lang.String, java.util.function.BiFunction) shared} by all requests.
 	 *
 	 * @param resourceName Resource name.
 	 * @param libraryName  Library name.
@@ -40,12 +53,68 @@ public class FontAwesomeResourceHandler extends AbstractResourceHandler
 	public Resource createResource(String resourceName, String libraryName)
 	{
 		if (isPrimeFacesTheme(resourceName, libraryName)) {
-			return new FontAwesomeResource(super.createResource(resourceName, libraryName), this);
+			return createThemeResource(FacesContext.getCurrentInstance(), resourceName, libraryName, getFingerprint(),
+																 this::wrapTheme);
 		}
 		else {
 			return getWrapped().createResource(resourceName, libraryName);
 		}
 	}
 
+
+	/**
+	 * Wraps a theme in a {@link FontAwesomeResource}.
+	 *
+	 * @param theme   Theme of the wrapped handler.
+	 * @param charset Response charset.
+	 *
+	 * @return Theme resource.
+	 */
+	@Override
+	protected AbstractResource wrapTheme(Resource theme, Charset charset)
+	{
+		return new FontAwesomeResource(theme, this, charset);
+	}
+
+
+	/**
+	 * Removes the icon background images and icon positions using an {@link IconStripper}.
+	 *
+	 * @param css Theme source.
+	 *
+	 * @return Theme source without icons.
+	 */
+	@Override
+	protected String transformTheme(String css)
+	{
+		return IconStripper.strip(css);
+	}
+
+
+	/**
+	 * Returns a writer which removes the icon background images and icon positions using an {@link IconStripper}.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Stripping writer.
+	 */
+	@Override
+	protected Writer newThemeWriter(Writer out)
+	{
+		return IconStripper.newWriter(out);
+	}
+
+
+	/**
+	 * Returns {@link #FINGERPRINT}.
+	 *
+	 * @return {@link #FINGERPRINT}.
+	 */
+	@Override
+	protected String getFingerprint()
+	{
+		return FINGERPRINT;
+	}
+
 }
 
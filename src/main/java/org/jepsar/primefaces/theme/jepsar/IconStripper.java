@@ -0,0 +1,322 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * {@link CssFilter} which removes the jQuery UI icons from a style sheet by structure:
+ * <ul>
+ * <li>rules of which every selector contains a {@link #ICON_CLASS} class and which only set
+ * {@link #BACKGROUND_POSITION} are removed;</li>
+ * <li>{@link #BACKGROUND_IMAGE} declarations pointing to an icon sprite ({@code ui-icons_xxxxxx_NNxNN.png}) are
+ * removed.</li>
+ * </ul>
+ *
+ * <p>
+ * Only a single icon rule is buffered at a time, so the stripper can be used on a stream.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class IconStripper extends CssFilter
+{
+
+	/**
+	 * Icon class selector prefix.
+	 */
+	private static final String ICON_CLASS = ".ui-icon-";
+
+	/**
+	 * Icon sprite file name prefix.
+	 */
+	private static final String ICON_SPRITE = "ui-icons_";
+
+	/**
+	 * Icon sprite file extension.
+	 */
+	private static final String ICON_SPRITE_EXTENSION = ".png";
+
+	/**
+	 * Icon position property.
+	 */
+	private static final String BACKGROUND_POSITION = "background-position";
+
+	/**
+	 * Icon image property.
+	 */
+	private static final String BACKGROUND_IMAGE = "background-image";
+
+	/**
+	 * Number of hex digits of the color in an icon sprite file name.
+	 */
+	private static final int SPRITE_COLOR_LENGTH = 6;
+
+	/**
+	 * Buffered declarations of the current icon rule.
+	 */
+	private final List<String> iconDeclarations = new ArrayList<>();
+
+	/**
+	 * For each buffered declaration, {@code true} if it was terminated by a semicolon.
+	 */
+	private final List<Boolean> iconTerminated = new ArrayList<>();
+
+	/**
+	 * Prelude of the current icon rule, {@code null} if no icon rule is buffered.
+	 */
+	private String iconPrelude;
+
+
+	/**
+	 * Creates a stripper writing to the output.
+	 *
+	 * @param out Output.
+	 */
+	public IconStripper(Appendable out)
+	{
+		this(new CssWriter(out));
+	}
+
+
+	/**
+	 * Creates a stripper passing the remaining structure on to the next listener.
+	 *
+	 * @param next Next listener.
+	 */
+	public IconStripper(CssListener next)
+	{
+		super(next);
+	}
+
+
+	/**
+	 * Removes the jQuery UI icons from a style sheet.
+	 *
+	 * @param css Style sheet.
+	 *
+	 * @return Style sheet without icons.
+	 */
+	public static String strip(String css)
+	{
+		StringBuilder sb = new StringBuilder(css.length());
+		try {
+			CssScanner.scan(css, new IconStripper(sb));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns a writer which removes the jQuery UI icons from the style sheet written to it. Only the current rule is
+	 * held back. Closing the writer writes the remaining text and closes the output.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Stripping writer.
+	 */
+	public static Writer newWriter(Writer out)
+	{
+		return new ScanningWriter(new IconStripper(out), out);
+	}
+
+
+	@Override
+	public void blockStart(String prelude) throws IOException
+	{
+		flush();
+		if (isIconSelector(prelude)) {
+			iconPrelude = prelude;
+		}
+		else {
+			super.blockStart(prelude);
+		}
+	}
+
+
+	@Override
+	public void declaration(String declaration, boolean terminated) throws IOException
+	{
+		if (isIconImage(declaration)) {
+			return;
+		}
+		if (iconPrelude != null) {
+			if (BACKGROUND_POSITION.equals(propertyName(declaration))) {
+				iconDeclarations.add(declaration);
+				iconTerminated.add(terminated);
+				return;
+			}
+			flush();
+		}
+		super.declaration(declaration, terminated);
+	}
+
+
+	@Override
+	public void statement(String statement) throws IOException
+	{
+		flush();
+		super.statement(statement);
+	}
+
+
+	@Override
+	public void blockEnd(String trailing) throws IOException
+	{
+		if (iconPrelude != null && !iconDeclarations.isEmpty()) {
+			iconPrelude = null;
+			iconDeclarations.clear();
+			iconTerminated.clear();
+			return;
+		}
+		flush();
+		super.blockEnd(trailing);
+	}
+
+
+	@Override
+	public void end(String trailing) throws IOException
+	{
+		flush();
+		super.end(trailing);
+	}
+
+
+	/**
+	 * Writes the buffered icon rule (if any) unchanged and stops buffering.
+	 *
+	 * @throws IOException
+	 */
+	private void flush() throws IOException
+	{
+		if (iconPrelude != null) {
+			super.blockStart(iconPrelude);
+			for (int i = 0; i < iconDeclarations.size(); i++) {
+				super.declaration(iconDeclarations.get(i), iconTerminated.get(i));
+			}
+			iconPrelude = null;
+			iconDeclarations.clear();
+			iconTerminated.clear();
+		}
+	}
+
+
+	/**
+	 * Returns {@code true} if every selector in the prelude contains an {@link #ICON_CLASS icon class}.
+	 *
+	 * @param prelude Block prelude.
+	 *
+	 * @return {@code true} if every selector in the prelude contains an icon class.
+	 */
+	static boolean isIconSelector(String prelude)
+	{
+		int start = CssScanner.skipWhiteSpaceAndComments(prelude, 0);
+		if (start >= prelude.length() || prelude.charAt(start) == '@') {
+			return false;
+		}
+		for (String selector : prelude.substring(start).split(",")) {
+			if (!selector.contains(ICON_CLASS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns {@code true} if the declaration sets a {@link #BACKGROUND_IMAGE background image} pointing to an icon
+	 * sprite.
+	 *
+	 * @param declaration Declaration.
+	 *
+	 * @return {@code true} if the declaration sets an icon sprite as background image.
+	 */
+	static boolean isIconImage(String declaration)
+	{
+		if (!BACKGROUND_IMAGE.equals(propertyName(declaration))) {
+			return false;
+		}
+		int index = declaration.indexOf(ICON_SPRITE);
+		while (index >= 0) {
+			if (index > 0 && "/(\"'".indexOf(declaration.charAt(index - 1)) >= 0
+					&& isSpriteName(declaration, index + ICON_SPRITE.length())) {
+				return true;
+			}
+			index = declaration.indexOf(ICON_SPRITE, index + 1);
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns {@code true} if the text at the index matches the rest of a sprite file name, for example
+	 * {@code 2e83ff_256x240.png}.
+	 *
+	 * @param text  Text.
+	 * @param index Index after {@link #ICON_SPRITE}.
+	 *
+	 * @return {@code true} if the text at the index matches the rest of a sprite file name.
+	 */
+	private static boolean isSpriteName(String text, int index)
+	{
+		for (int i = 0; i < SPRITE_COLOR_LENGTH; i++, index++) {
+			if (index >= text.length() || Character.digit(text.charAt(index), 16) < 0) {
+				return false;
+			}
+		}
+		if (index >= text.length() || text.charAt(index++) != '_') {
+			return false;
+		}
+		index = skipDigits(text, index);
+		if (index < 0 || index >= text.length() || text.charAt(index++) != 'x') {
+			return false;
+		}
+		index = skipDigits(text, index);
+		return index >= 0 && text.startsWith(ICON_SPRITE_EXTENSION, index);
+	}
+
+
+	/**
+	 * Skips one or more digits.
+	 *
+	 * @param text  Text.
+	 * @param index Index of the first digit.
+	 *
+	 * @return Index after the last digit, {@code -1} if there was no digit.
+	 */
+	private static int skipDigits(String text, int index)
+	{
+		int start = index;
+		while (index < text.length() && Character.isDigit(text.charAt(index))) {
+			index++;
+		}
+		return index == start ? -1 : index;
+	}
+
+
+	/**
+	 * Returns the lower case property name of a declaration.
+	 *
+	 * @param declaration Declaration.
+	 *
+	 * @return Lower case property name, or {@code null} if the declaration has no colon.
+	 */
+	static String propertyName(String declaration)
+	{
+		int colon = declaration.indexOf(':');
+		if (colon < 0) {
+			return null;
+		}
+		int start = CssScanner.skipWhiteSpaceAndComments(declaration, 0);
+		return start >= colon ? null : declaration.substring(start, colon).trim().toLowerCase(Locale.ROOT);
+	}
+
+}
+
@@ -0,0 +1,120 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * Binds {@link ThemeMetrics} to the global Micrometer registry. This is the only class referring to Micrometer, it is
+ * only loaded by the {@link ThemeMetricsRegistry} when Micrometer is on the class path.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class MicrometerBridge
+{
+
+	/**
+	 * Meter name prefix.
+	 */
+	private static final String PREFIX = "jepsar.theme.";
+
+	/**
+	 * Tag for the handler type.
+	 */
+	private static final String TAG_HANDLER = "handler";
+
+	/**
+	 * Tag for the theme library.
+	 */
+	private static final String TAG_LIBRARY = "library";
+
+	/**
+	 * Tag for the cache lookup result.
+	 */
+	private static final String TAG_RESULT = "result";
+
+	/**
+	 * Tag for the kind of bytes.
+	 */
+	private static final String TAG_KIND = "kind";
+
+	/**
+	 * Base unit of byte counters.
+	 */
+	private static final String BYTES = "bytes";
+
+	/**
+	 * Registry to bind to.
+	 */
+	private final MeterRegistry registry = Metrics.globalRegistry;
+
+	/**
+	 * Bound meters.
+	 */
+	private final List<Meter> meters = new CopyOnWriteArrayList<>();
+
+
+	/**
+	 * Binds the metrics of a library.
+	 *
+	 * @param metrics Metrics.
+	 */
+	void bind(ThemeMetrics metrics)
+	{
+		Tags tags = Tags.of(TAG_HANDLER, metrics.getHandler(), TAG_LIBRARY, metrics.getLibrary());
+		meters.add(FunctionTimer.builder(PREFIX + "transform", metrics, ThemeMetrics::getTransformCount,
+																		 ThemeMetrics::getTransformNanos, TimeUnit.NANOSECONDS)
+				.description("Theme transformations").tags(tags).register(registry));
+		counter(PREFIX + "cache", metrics, ThemeMetrics::getCacheHits, tags.and(TAG_RESULT, "hit"), null);
+		counter(PREFIX + "cache", metrics, ThemeMetrics::getCacheMisses, tags.and(TAG_RESULT, "miss"), null);
+		counter(PREFIX + "cache.evictions", metrics, ThemeMetrics::getCacheEvictions, tags, null);
+		counter(PREFIX + "bytes", metrics, ThemeMetrics::getSourceBytes, tags.and(TAG_KIND, "source"), BYTES);
+		counter(PREFIX + "bytes", metrics, ThemeMetrics::getTransformedBytes, tags.and(TAG_KIND, "transformed"), BYTES);
+		counter(PREFIX + "bytes", metrics, ThemeMetrics::getServedBytes, tags.and(TAG_KIND, "served"), BYTES);
+		counter(PREFIX + "bytes", metrics, ThemeMetrics::getServedUncompressedBytes,
+						tags.and(TAG_KIND, "served-uncompressed"), BYTES);
+		counter(PREFIX + "served", metrics, ThemeMetrics::getServedCount, tags, null);
+		meters.add(Gauge.builder(PREFIX + "compression.ratio", metrics, ThemeMetrics::getCompressionRatio)
+				.tags(tags).register(registry));
+	}
+
+
+	/**
+	 * Removes the bound meters from the registry.
+	 */
+	void close()
+	{
+		for (Meter meter : meters) {
+			registry.remove(meter);
+		}
+		meters.clear();
+	}
+
+
+	/**
+	 * Binds a counter.
+	 *
+	 * @param name     Meter name.
+	 * @param metrics  Metrics.
+	 * @param function Function returning the count.
+	 * @param tags     Tags.
+	 * @param unit     Base unit, may be {@code null}.
+	 */
+	private void counter(String name, ThemeMetrics metrics, ToDoubleFunction<ThemeMetrics> function, Tags tags,
+											 String unit)
+	{
+		meters.add(FunctionCounter.builder(name, metrics, function).tags(tags).baseUnit(unit).register(registry));
+	}
+
+}
+
@@ -1,9 +1,8 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.Charset;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
 
@@ -18,35 +17,75 @@ import javax.faces.application.ResourceHandler;
 public class NoThemeResource extends AbstractResource
 {
 
-
 	/**
 	 * Calls super.
 	 *
 	 * @param wrapped Wrapped resource.
 	 * @param handler Handler that created this resource.
 	 */
-	public NoThemeResource(Resource wrapped, ResourceHandler handler)
+	public NoThemeResource(Resource wrapped, AbstractResourceHandler handler)
 	{
 		super(wrapped, handler);
 	}
 
 
+	/**
+	 * Calls super, using the {@link AbstractResourceHandler} which is or is wrapped by the handler.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 *
+	 * @throws IllegalArgumentException If the handler is not and does not wrap an {@link AbstractResourceHandler}.
+	 *
+	 * @deprecated Use {@link #NoThemeResource(javax.faces.application.Resource, AbstractResourceHandler)}.
+	 */
+	@Deprecated
+	public NoThemeResource(Resource wrapped, ResourceHandler handler)
+	{
+		this(wrapped, toThemeHandler(handler));
+	}
+
+
+	/**
+	 * Calls super.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 * @param charset Response encoding charset.
+	 */
+	public NoThemeResource(Resource wrapped, AbstractResourceHandler handler, Charset charset)
+	{
+		super(wrapped, handler, charset);
+	}
+
+
 	/**
 	 * Creates empty CSS. If the
 	 * {@link AbstractResource#PARAM_NAME_APPEND_CSS_RESOURCE} context parameter is set, the contents of that CSS resource
 	 * will be appended.
 	 *
-	 * @return Cleaned and patched CSS.
+	 * @return Empty or custom CSS.
 	 *
 	 * @throws IOException
 	 */
 	@Override
-	public InputStream getInputStream() throws IOException
+	protected String createCss() throws IOException
 	{
-		StringBuilder sb = new StringBuilder("");
-		appendCss(sb);
-		return new ByteArrayInputStream(sb.toString().getBytes(getCharset()));
+		return appendCss(new StringBuilder()).toString();
 	}
 
-}
 
+	/**
+	 * Adds the appended CSS only.
+	 *
+	 * @param css Stream to add the sources to.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	protected void addCss(TransformingInputStream css) throws IOException
+	{
+		addAppendedCss(css);
+	}
+
+}
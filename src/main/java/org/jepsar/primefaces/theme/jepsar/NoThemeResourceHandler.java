@@ -1,8 +1,10 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
+import java.nio.charset.Charset;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
+import javax.faces.context.FacesContext;
 
 
 /**
@@ -14,6 +16,12 @@ import javax.faces.application.ResourceHandler;
 public class NoThemeResourceHandler extends AbstractResourceHandler
 {
 
+	/**
+	 * Fingerprint of the (empty) transformation.
+	 */
+	static final String FINGERPRINT = "no-theme";
+
+
 	/**
 	 *
 	 * @param wrapped Wrapped resource handler.
@@ -27,7 +35,11 @@ public class NoThemeResourceHandler extends AbstractResourceHandler
 	/**
 	 * Returns a {@link NoThemeResource} if the resource
 	 * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme} else the
-	 * {@link #getWrapped() wrapped handler} will take care of creating a resource.
+	 * {@link #getWrapped() wrapped handler} will take care of creating a resource. If a
+	 * {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} is available, it is
+	 * returned instead. Theme resources are
+	 * {@link #createThemeResource(javax.faces.context.FacesContext, java.lang.String, java.lang.String,
+	 * java.lang.String, java.util.function.BiFunction) shared} by all requests.
 	 *
 	 * @param resourceName Resource name.
 	 * @param libraryName  Library name.
@@ -40,12 +52,54 @@ public class NoThemeResourceHandler extends AbstractResourceHandler
 	public Resource createResource(String resourceName, String libraryName)
 	{
 		if (isPrimeFacesTheme(resourceName, libraryName)) {
-			return new NoThemeResource(super.createResource(resourceName, libraryName), this);
+			return createThemeResource(FacesContext.getCurrentInstance(), resourceName, libraryName, getFingerprint(),
+																 this::wrapTheme);
 		}
 		else {
 			return getWrapped().createResource(resourceName, libraryName);
 		}
 	}
 
+
+	/**
+	 * Wraps a theme in a {@link NoThemeResource}.
+	 *
+	 * @param theme   Theme of the wrapped handler.
+	 * @param charset Response charset.
+	 *
+	 * @return Theme resource.
+	 */
+	@Override
+	protected AbstractResource wrapTheme(Resource theme, Charset charset)
+	{
+		return new NoThemeResource(theme, this, charset);
+	}
+
+
+	/**
+	 * Returns empty CSS, as the theme is not used.
+	 *
+	 * @param css Theme source.
+	 *
+	 * @return Empty CSS.
+	 */
+	@Override
+	protected String transformTheme(String css)
+	{
+		return "";
+	}
+
+
+	/**
+	 * Returns {@link #FINGERPRINT}, as the CSS only depends on the appended CSS.
+	 *
+	 * @return {@link #FINGERPRINT}.
+	 */
+	@Override
+	protected String getFingerprint()
+	{
+		return FINGERPRINT;
+	}
+
 }
 
@@ -0,0 +1,339 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+/**
+ * Generates palettes of lighter and darker shades of packed {@link RgbColor colors}. Shades are computed by
+ * percentage, like {@link RgbColor#move(int)}, in one of the color {@link Space spaces}. Generating works on primitive
+ * arrays without allocating per color, so palettes for many tenants (see {@link PaletteProvider}) are cheap to
+ * compute. The space is also used to resolve {@link ReplaceResource#COLOR_MOVE relative colors} in replace values, see
+ * {@link ReplaceResource#PARAM_NAME_SHADE_SPACE}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public final class Palette
+{
+
+	/**
+	 * Invalid percentage argument exception.
+	 */
+	private static final String IAE_INVALID_PERCENTAGE = "Percentage should be between -100 and 100";
+
+	/**
+	 * Unknown color space argument exception.
+	 */
+	private static final String IAE_UNKNOWN_SPACE = "Unknown shade space %s";
+
+	/**
+	 * Output array too small argument exception.
+	 */
+	private static final String IAE_OUTPUT_TOO_SMALL = "Output should hold %d colors";
+
+	/**
+	 * Steps of the default find values: normal, lightest, lighter, darker, darkest. See
+	 * {@link ReplaceResource#VALUE_PRIMARY_COLOR}.
+	 */
+	private static final int[] DEFAULT_STEPS = {0, 67, 33, -33, -67};
+
+	/**
+	 * Linear light values of the sRGB components.
+	 */
+	private static final double[] SRGB_TO_LINEAR = new double[256];
+
+	static {
+		for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+			double c = i / 255.0;
+			SRGB_TO_LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+		}
+	}
+
+
+	/**
+	 * Utility class.
+	 */
+	private Palette()
+	{
+	}
+
+
+	/**
+	 * Returns a lighter (percentage &gt; 0) or darker (percentage &lt; 0) shade of a color.
+	 *
+	 * @param rgb        Packed {@code 0xRRGGBB} color.
+	 * @param percentage Percentage to move towards white or black. [-99..99]
+	 * @param space      Color space to move in.
+	 *
+	 * @return Packed shade.
+	 */
+	public static int shade(int rgb, int percentage, Space space)
+	{
+		if (percentage < -99 || percentage > 99) {
+			throw new IllegalArgumentException(IAE_INVALID_PERCENTAGE);
+		}
+		if (percentage == 0) {
+			return rgb;
+		}
+		switch (space) {
+			case HSL:
+				return shadeHsl(rgb, percentage / 100.0);
+			case OKLAB:
+				return shadeOklab(rgb, percentage / 100.0);
+			default:
+				return RgbColor.move(rgb, percentage);
+		}
+	}
+
+
+	/**
+	 * Generates the shades of a color for the default steps (normal, lightest, lighter, darker, darkest), matching
+	 * the colors of each color group of the {@link ReplaceResource#DEFAULT_FIND_VALUES default find values}.
+	 *
+	 * @param rgb   Packed {@code 0xRRGGBB} color.
+	 * @param space Color space to move in.
+	 *
+	 * @return Packed shades.
+	 */
+	public static int[] generate(int rgb, Space space)
+	{
+		return generate(rgb, DEFAULT_STEPS, space);
+	}
+
+
+	/**
+	 * Generates the shades of a color.
+	 *
+	 * @param rgb   Packed {@code 0xRRGGBB} color.
+	 * @param steps Percentages, see {@link #shade(int, int, org.jepsar.primefaces.theme.jepsar.Palette.Space)}.
+	 * @param space Color space to move in.
+	 *
+	 * @return Packed shades, one per step.
+	 */
+	public static int[] generate(int rgb, int[] steps, Space space)
+	{
+		int[] shades = new int[steps.length];
+		generate(new int[]{rgb}, steps, space, shades);
+		return shades;
+	}
+
+
+	/**
+	 * Generates the shades of a batch of colors into an existing array. The shade of color {@code i} for step
+	 * {@code j} is written to {@code out[i * steps.length + j]}.
+	 *
+	 * @param rgbs  Packed {@code 0xRRGGBB} colors.
+	 * @param steps Percentages, see {@link #shade(int, int, org.jepsar.primefaces.theme.jepsar.Palette.Space)}.
+	 * @param space Color space to move in.
+	 * @param out   Output, holding at least {@code rgbs.length * steps.length} colors.
+	 *
+	 * @throws IllegalArgumentException If the output is too small or a step is invalid.
+	 */
+	public static void generate(int[] rgbs, int[] steps, Space space, int[] out)
+	{
+		if (out.length < rgbs.length * steps.length) {
+			throw new IllegalArgumentException(String.format(IAE_OUTPUT_TOO_SMALL, rgbs.length * steps.length));
+		}
+		int index = 0;
+		for (int rgb : rgbs) {
+			for (int step : steps) {
+				out[index++] = shade(rgb, step, space);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns colors as replace values, separated by {@link ReplaceResource#SEPARATOR}, for example to return from a
+	 * {@link PaletteProvider}.
+	 *
+	 * @param rgbs Packed {@code 0xRRGGBB} colors.
+	 *
+	 * @return Replace values.
+	 */
+	public static String toReplaceValues(int... rgbs)
+	{
+		StringBuilder sb = new StringBuilder(rgbs.length * 8);
+		for (int rgb : rgbs) {
+			if (sb.length() > 0) {
+				sb.append(ReplaceResource.SEPARATOR);
+			}
+			RgbColor.appendHex(rgb, sb);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Moves the HSL lightness towards 1 (factor &gt; 0) or 0 (factor &lt; 0), keeping hue and saturation.
+	 *
+	 * @param rgb    Packed color.
+	 * @param factor Fraction of the distance to move. [-1..1]
+	 *
+	 * @return Packed shade.
+	 */
+	private static int shadeHsl(int rgb, double factor)
+	{
+		double r = (rgb >> 16 & 0xFF) / 255.0;
+		double g = (rgb >> 8 & 0xFF) / 255.0;
+		double b = (rgb & 0xFF) / 255.0;
+		double max = Math.max(r, Math.max(g, b));
+		double min = Math.min(r, Math.min(g, b));
+		double lightness = (max + min) / 2;
+		double hue = 0;
+		double saturation = 0;
+		if (max != min) {
+			double delta = max - min;
+			saturation = lightness > 0.5 ? delta / (2 - max - min) : delta / (max + min);
+			if (max == r) {
+				hue = (g - b) / delta + (g < b ? 6 : 0);
+			}
+			else if (max == g) {
+				hue = (b - r) / delta + 2;
+			}
+			else {
+				hue = (r - g) / delta + 4;
+			}
+			hue /= 6;
+		}
+		lightness = factor > 0 ? lightness + (1 - lightness) * factor : lightness * (1 + factor);
+		if (saturation == 0) {
+			int gray = toComponent(lightness);
+			return RgbColor.pack(gray, gray, gray);
+		}
+		double q = lightness < 0.5 ? lightness * (1 + saturation) : lightness + saturation - lightness * saturation;
+		double p = 2 * lightness - q;
+		return RgbColor.pack(toComponent(hueToRgb(p, q, hue + 1.0 / 3)), toComponent(hueToRgb(p, q, hue)),
+												 toComponent(hueToRgb(p, q, hue - 1.0 / 3)));
+	}
+
+
+	/**
+	 * Converts a hue to a RGB component.
+	 *
+	 * @param p   Lower bound.
+	 * @param q   Upper bound.
+	 * @param hue Hue. [-1/3..4/3]
+	 *
+	 * @return Component. [0..1]
+	 */
+	private static double hueToRgb(double p, double q, double hue)
+	{
+		double t = hue < 0 ? hue + 1 : hue > 1 ? hue - 1 : hue;
+		if (t < 1.0 / 6) {
+			return p + (q - p) * 6 * t;
+		}
+		if (t < 1.0 / 2) {
+			return q;
+		}
+		if (t < 2.0 / 3) {
+			return p + (q - p) * (2.0 / 3 - t) * 6;
+		}
+		return p;
+	}
+
+
+	/**
+	 * Mixes the color with white (factor &gt; 0) or black (factor &lt; 0) in the OKLab color space, so equal steps look
+	 * equally lighter or darker regardless of the hue.
+	 *
+	 * @param rgb    Packed color.
+	 * @param factor Fraction of the distance to move. [-1..1]
+	 *
+	 * @return Packed shade.
+	 */
+	private static int shadeOklab(int rgb, double factor)
+	{
+		double r = SRGB_TO_LINEAR[rgb >> 16 & 0xFF];
+		double g = SRGB_TO_LINEAR[rgb >> 8 & 0xFF];
+		double b = SRGB_TO_LINEAR[rgb & 0xFF];
+		double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+		double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+		double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+		double lightness = 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+		double labA = 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+		double labB = 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+		double chroma = 1 - Math.abs(factor);
+		lightness = factor > 0 ? lightness + (1 - lightness) * factor : lightness * (1 + factor);
+		labA *= chroma;
+		labB *= chroma;
+		l = lightness + 0.3963377774 * labA + 0.2158037573 * labB;
+		m = lightness - 0.1055613458 * labA - 0.0638541728 * labB;
+		s = lightness - 0.0894841775 * labA - 1.2914855480 * labB;
+		l = l * l * l;
+		m = m * m * m;
+		s = s * s * s;
+		return RgbColor.pack(fromLinear(4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s),
+												 fromLinear(-1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s),
+												 fromLinear(-0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s));
+	}
+
+
+	/**
+	 * Converts a linear light value to a sRGB component.
+	 *
+	 * @param linear Linear light value.
+	 *
+	 * @return Component. [0..255]
+	 */
+	private static int fromLinear(double linear)
+	{
+		double c = linear <= 0.0031308 ? 12.92 * linear : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+		return toComponent(c);
+	}
+
+
+	/**
+	 * Converts a component fraction to a rounded component.
+	 *
+	 * @param fraction Component fraction.
+	 *
+	 * @return Component. [0..255]
+	 */
+	private static int toComponent(double fraction)
+	{
+		return RgbColor.clamp((int) Math.round(fraction * 255));
+	}
+
+
+
+	/**
+	 * Color space in which shades are computed.
+	 */
+	public enum Space
+	{
+
+		/**
+		 * Moves each RGB component linearly, like {@link RgbColor#move(int)}.
+		 */
+		LINEAR,
+		/**
+		 * Moves the HSL lightness, keeping hue and saturation.
+		 */
+		HSL,
+		/**
+		 * Mixes with white or black in the perceptual OKLab space.
+		 */
+		OKLAB;
+
+
+		/**
+		 * Returns the space by name, in any case.
+		 *
+		 * @param name Name, for example {@code oklab}.
+		 *
+		 * @return Space.
+		 *
+		 * @throws IllegalArgumentException If there is no such space.
+		 */
+		public static Space fromName(String name)
+		{
+			for (Space space : values()) {
+				if (space.name().equalsIgnoreCase(name.trim())) {
+					return space;
+				}
+			}
+			throw new IllegalArgumentException(String.format(IAE_UNKNOWN_SPACE, name));
+		}
+
+	}
+
+}
+
@@ -0,0 +1,37 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import javax.faces.context.FacesContext;
+
+
+/**
+ * Provides the replace values for the {@link ReplaceResourceHandler} per request, for example based on the session, the
+ * host name or a tenant id. Set the implementing class using
+ * {@link ReplaceResourceHandler#PARAM_NAME_PALETTE_PROVIDER}. It needs a public no-argument constructor.
+ *
+ * <p>
+ * Implementations are called for each theme request and should be fast and thread-safe. Each distinct set of replace
+ * values is compiled only once, and palettes resolving to the same replacements share their transformed themes.
+ * </p>
+ *
+ * <p>
+ * To derive the lighter and darker shades from a single brand color, use {@link Palette}.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public interface PaletteProvider
+{
+
+	/**
+	 * Returns the replace values for the current request, in the same format as
+	 * {@link ReplaceResource#PARAM_NAME_REPLACE_VALUES}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Replace values, or {@code null} to use the values set using
+	 *         {@link ReplaceResource#PARAM_NAME_REPLACE_VALUES}.
+	 */
+	String getReplaceValues(FacesContext context);
+
+}
@@ -0,0 +1,138 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import javax.faces.application.Resource;
+import org.jepsar.primefaces.theme.jepsar.PipelineResourceHandler.Stage;
+
+
+/**
+ * Resource which creates its CSS using the {@link PipelineResourceHandler#getStages() stages} of its handler. The
+ * handler transforms the theme in a single scan, this resource adds the Font Awesome patch and the appended CSS. The
+ * result is minified (if enabled), encoded and cached once per theme and charset.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class PipelineResource extends AbstractResource
+{
+
+	/**
+	 * Enabled stages, in the order in which they are applied.
+	 */
+	private final List<Stage> stages;
+
+
+	/**
+	 * Calls super.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 */
+	public PipelineResource(Resource wrapped, PipelineResourceHandler handler)
+	{
+		super(wrapped, handler);
+		this.stages = handler.getStages();
+	}
+
+
+	/**
+	 * Calls super.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 * @param charset Response encoding charset.
+	 */
+	public PipelineResource(Resource wrapped, PipelineResourceHandler handler, Charset charset)
+	{
+		super(wrapped, handler, charset);
+		this.stages = handler.getStages();
+	}
+
+
+	/**
+	 * Reads the wrapped theme transformed by the handler, unless {@link Stage#NO_THEME} is enabled, and appends the
+	 * Font Awesome patch and the custom CSS if their stages are enabled, in the order of the stages.
+	 *
+	 * @return Transformed CSS.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	protected String createCss() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		if (!stages.contains(Stage.NO_THEME)) {
+			sb.append(readTransformedTheme());
+		}
+		for (Stage stage : stages) {
+			if (stage == Stage.FONT_AWESOME_PATCH) {
+				sb.append(getHandler().getCss(FontAwesomeResource.FONT_AWESOME_CSS_RESOURCE, getCharset()));
+			}
+			else if (stage == Stage.APPEND_CSS) {
+				appendCss(sb);
+			}
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Adds the wrapped theme, transformed while it is streamed, the Font Awesome patch and the appended CSS if their
+	 * stages are enabled, in the order of the stages.
+	 *
+	 * @param css Stream to add the sources to.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	protected void addCss(TransformingInputStream css) throws IOException
+	{
+		if (!stages.contains(Stage.NO_THEME)) {
+			addTransformedTheme(css);
+		}
+		for (Stage stage : stages) {
+			if (stage == Stage.FONT_AWESOME_PATCH) {
+				css.add(new StringReader(getHandler().getCss(FontAwesomeResource.FONT_AWESOME_CSS_RESOURCE, getCharset())));
+			}
+			else if (stage == Stage.APPEND_CSS) {
+				addAppendedCss(css);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the Font Awesome patch if its stage is enabled.
+	 *
+	 * @return Font Awesome patch, if enabled.
+	 */
+	@Override
+	protected List<Resource> getAdditionalSources()
+	{
+		if (stages.contains(Stage.FONT_AWESOME_PATCH)) {
+			return Collections.singletonList(getHandler().getCssResource(FontAwesomeResource.FONT_AWESOME_CSS_RESOURCE));
+		}
+		return Collections.emptyList();
+	}
+
+
+	/**
+	 * Reads the appended CSS and the Font Awesome patch if its stage is enabled.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	protected void readSources() throws IOException
+	{
+		super.readSources();
+		if (stages.contains(Stage.FONT_AWESOME_PATCH)) {
+			getHandler().getCss(FontAwesomeResource.FONT_AWESOME_CSS_RESOURCE, getCharset());
+		}
+	}
+
+}
+
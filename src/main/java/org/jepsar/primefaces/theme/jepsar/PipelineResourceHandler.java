@@ -0,0 +1,436 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.context.FacesContext;
+import static org.jepsar.primefaces.theme.jepsar.AbstractResource.getInitParameter;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.DEFAULT_FIND_VALUES;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.PARAM_NAME_FIND_VALUES;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.PARAM_NAME_MATCH_COLORS;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.PARAM_NAME_REPLACE_VALUES;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.getShadeSpace;
+
+
+/**
+ * Resource handler to detect and return a {@link PipelineResource} if a resource
+ * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme}. It combines the
+ * transformations of the other handlers into a chain of {@link Stage stages}, which are enabled using
+ * {@link #PARAM_NAME_STAGES}.
+ *
+ * <p>
+ * The stages are fused: the theme stages are {@link CssFilter filters} behind a single {@link CssScanner}, so the theme
+ * is decoded and scanned once, the patch and the appended CSS are added to the result and the complete CSS is minified
+ * and encoded once before it is cached. Stacking the other handlers instead would decode, transform and encode the
+ * theme again for each handler.
+ * </p>
+ *
+ * <p>
+ * The replace values of {@link Stage#REPLACE_COLORS} are the same for all requests. A
+ * {@link ReplaceResourceHandler#PARAM_NAME_PALETTE_PROVIDER palette provider} is not supported, a warning is logged if
+ * one is set. Use the {@link ReplaceResourceHandler} for palettes per request.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class PipelineResourceHandler extends AbstractResourceHandler
+{
+
+	/**
+	 * The context parameter name for a comma separated list of {@link Stage stages} to enable, for example
+	 * {@code strip-icons, replace-colors, font-awesome-patch, minify}. The stages are applied in the given order, but
+	 * the theme stages ({@link Stage#NO_THEME}, {@link Stage#STRIP_ICONS} and {@link Stage#REPLACE_COLORS}) should come
+	 * before the stages appending CSS ({@link Stage#FONT_AWESOME_PATCH} and {@link Stage#APPEND_CSS}), and
+	 * {@link Stage#MINIFY} should come last. Setting it is optional, if not set it will default to
+	 * {@link #DEFAULT_STAGES}.
+	 */
+	public static final String PARAM_NAME_STAGES = "org.jepsar.primefaces.theme.STAGES";
+
+	/**
+	 * Default stages, which transform the theme like the {@link FontAwesomeResourceHandler} does.
+	 */
+	public static final String DEFAULT_STAGES = "strip-icons, font-awesome-patch, append-css";
+
+	/**
+	 * Separator for {@link #PARAM_NAME_STAGES} values.
+	 */
+	private static final String SEPARATOR = ",";
+
+	/**
+	 * Exception thrown if no stages were set.
+	 */
+	private static final String ISE_NO_STAGES = "No stages were set using context parameter %s";
+
+	/**
+	 * Exception thrown if a stage is set more than once.
+	 */
+	private static final String ISE_DUPLICATE_STAGE = "Stage %s was set more than once using context parameter %s";
+
+	/**
+	 * Exception thrown if a stage is set after a stage of a later phase.
+	 */
+	private static final String ISE_INVALID_ORDER = "Stage %s can not be applied after stage %s, set using context"
+																									+ " parameter %s";
+
+	/**
+	 * Exception thrown if no replacement values were set for the {@link Stage#REPLACE_COLORS} stage.
+	 */
+	private static final String ISE_NO_STAGE_REPLACEMENTS = ReplaceResource.ISE_NO_REPLACEMENTS + ", which is required"
+																													+ " by stage %s";
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(PipelineResourceHandler.class.getName());
+
+	/**
+	 * Enabled stages, in the order in which they are applied.
+	 */
+	private final List<Stage> stages;
+
+	/**
+	 * Find and replace configuration, {@code null} if {@link Stage#REPLACE_COLORS} is not enabled.
+	 */
+	private final ReplacementPlan plan;
+
+	/**
+	 * Fingerprint of the enabled stages and their configuration.
+	 */
+	private final String fingerprint;
+
+
+	/**
+	 * Wraps the resource handler, reads the {@link #stages} and compiles the {@link #plan} if needed. A
+	 * {@link ReplaceResourceHandler#PARAM_NAME_PALETTE_PROVIDER palette provider} is ignored with a warning.
+	 *
+	 * @param wrapped Wrapped resource handler.
+	 *
+	 * @throws IllegalStateException If the stages are invalid, or if {@link Stage#REPLACE_COLORS} is enabled and no
+	 *                               replacement values were set or the configuration is invalid.
+	 */
+	public PipelineResourceHandler(ResourceHandler wrapped)
+	{
+		super(wrapped);
+		FacesContext context = FacesContext.getCurrentInstance();
+		this.stages = Collections.unmodifiableList(getStages(context));
+		this.plan = stages.contains(Stage.REPLACE_COLORS) ? createPlan(context) : null;
+		StringJoiner joiner = new StringJoiner(SEPARATOR);
+		for (Stage stage : stages) {
+			joiner.add(stage == Stage.REPLACE_COLORS ? stage.name + ':' + plan.getFingerprint() : stage.name);
+		}
+		this.fingerprint = joiner.toString();
+		if (getInitParameter(context, ReplaceResourceHandler.PARAM_NAME_PALETTE_PROVIDER) != null) {
+			LOGGER.log(Level.WARNING, "Palette providers are not supported by {0}, using the configured replace values",
+								 getClass().getSimpleName());
+		}
+	}
+
+
+	/**
+	 * Returns the stages set using {@link #PARAM_NAME_STAGES} or {@link #DEFAULT_STAGES}, in the given order.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Stages.
+	 *
+	 * @throws IllegalStateException If a stage is unknown or set more than once, if a stage is set after a stage of a
+	 *                               later phase or if no stages were set.
+	 */
+	private static List<Stage> getStages(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_STAGES);
+		List<Stage> stages = new ArrayList<>();
+		for (String name : (value == null ? DEFAULT_STAGES : value).split(SEPARATOR)) {
+			if (!name.trim().isEmpty()) {
+				Stage stage = Stage.fromName(name.trim());
+				if (stages.contains(stage)) {
+					throw new IllegalStateException(String.format(ISE_DUPLICATE_STAGE, stage.name, PARAM_NAME_STAGES));
+				}
+				Stage previous = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+				if (previous != null && previous.phase > stage.phase) {
+					String message = String.format(ISE_INVALID_ORDER, stage.name, previous.name, PARAM_NAME_STAGES);
+					throw new IllegalStateException(message);
+				}
+				stages.add(stage);
+			}
+		}
+		if (stages.isEmpty()) {
+			throw new IllegalStateException(String.format(ISE_NO_STAGES, PARAM_NAME_STAGES));
+		}
+		return stages;
+	}
+
+
+	/**
+	 * Compiles the find and replace values set using {@link ReplaceResource#PARAM_NAME_FIND_VALUES} and
+	 * {@link ReplaceResource#PARAM_NAME_REPLACE_VALUES}, matching colors in any notation if
+	 * {@link ReplaceResource#PARAM_NAME_MATCH_COLORS} is set, shading relative colors in the
+	 * {@link ReplaceResource#PARAM_NAME_SHADE_SPACE}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Plan.
+	 *
+	 * @throws IllegalStateException If no replacement values were set or the configuration is invalid.
+	 */
+	private static ReplacementPlan createPlan(FacesContext context)
+	{
+		String findValues = getInitParameter(context, PARAM_NAME_FIND_VALUES);
+		String replaceValues = getInitParameter(context, PARAM_NAME_REPLACE_VALUES);
+		if (replaceValues == null) {
+			String message = String.format(ISE_NO_STAGE_REPLACEMENTS, PARAM_NAME_REPLACE_VALUES, Stage.REPLACE_COLORS.name);
+			throw new IllegalStateException(message);
+		}
+		boolean matchColors = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_MATCH_COLORS));
+		return new ReplacementPlan(findValues == null ? DEFAULT_FIND_VALUES : findValues, replaceValues, matchColors,
+															 getShadeSpace(context));
+	}
+
+
+	/**
+	 * Returns a {@link PipelineResource} if the resource
+	 * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme} else the
+	 * {@link #getWrapped() wrapped handler} will take care of creating a resource. If a
+	 * {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} is available, it is
+	 * returned instead. Theme resources are
+	 * {@link #createThemeResource(javax.faces.context.FacesContext, java.lang.String, java.lang.String,
+	 * java.lang.String, java.util.function.BiFunction) shared} by all requests.
+	 *
+	 * @param resourceName Resource name.
+	 * @param libraryName  Library name.
+	 *
+	 * @return {@link PipelineResource} if the resource
+	 *         {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme} else the
+	 *         {@link #getWrapped() wrapped handler} will take care of creating a resource.
+	 */
+	@Override
+	public Resource createResource(String resourceName, String libraryName)
+	{
+		if (isPrimeFacesTheme(resourceName, libraryName)) {
+			return createThemeResource(FacesContext.getCurrentInstance(), resourceName, libraryName, getFingerprint(),
+																 this::wrapTheme);
+		}
+		else {
+			return getWrapped().createResource(resourceName, libraryName);
+		}
+	}
+
+
+	/**
+	 * Wraps a theme in a {@link PipelineResource}.
+	 *
+	 * @param theme   Theme of the wrapped handler.
+	 * @param charset Response charset.
+	 *
+	 * @return Theme resource.
+	 */
+	@Override
+	protected AbstractResource wrapTheme(Resource theme, Charset charset)
+	{
+		return new PipelineResource(theme, this, charset);
+	}
+
+
+	/**
+	 * Applies the theme stages ({@link Stage#NO_THEME}, {@link Stage#STRIP_ICONS} and {@link Stage#REPLACE_COLORS}) in a
+	 * single scan.
+	 *
+	 * @param css Theme source.
+	 *
+	 * @return Transformed theme source.
+	 */
+	@Override
+	protected String transformTheme(String css)
+	{
+		if (stages.contains(Stage.NO_THEME)) {
+			return "";
+		}
+		if (!hasThemeFilters()) {
+			return css;
+		}
+		StringBuilder sb = new StringBuilder(css.length());
+		try {
+			CssScanner.scan(css, newThemeListener(new CssWriter(sb), plan));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns a writer applying the theme stages in a single scan.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Transforming writer, or the output if there are no theme stages.
+	 */
+	@Override
+	protected Writer newThemeWriter(Writer out)
+	{
+		return hasThemeFilters() ? new ScanningWriter(newThemeListener(new CssWriter(out), plan), out) : out;
+	}
+
+
+	/**
+	 * Returns {@code true} if the {@link Stage#MINIFY} stage is enabled or
+	 * {@link AbstractResourceHandler#PARAM_NAME_MINIFY} is set.
+	 *
+	 * @return {@code true} if themes should be minified.
+	 */
+	@Override
+	public boolean isMinify()
+	{
+		return stages.contains(Stage.MINIFY) || super.isMinify();
+	}
+
+
+	/**
+	 * Returns the {@link #fingerprint}.
+	 *
+	 * @return {@link #fingerprint}.
+	 */
+	@Override
+	protected String getFingerprint()
+	{
+		return fingerprint;
+	}
+
+
+	/**
+	 * Returns the enabled {@link #stages}, in the order in which they are applied.
+	 *
+	 * @return Unmodifiable list of enabled stages.
+	 */
+	public List<Stage> getStages()
+	{
+		return stages;
+	}
+
+
+	/**
+	 * Returns {@code true} if {@link Stage#STRIP_ICONS} or {@link Stage#REPLACE_COLORS} is enabled.
+	 *
+	 * @return {@code true} if there are theme filters.
+	 */
+	private boolean hasThemeFilters()
+	{
+		return stages.contains(Stage.STRIP_ICONS) || plan != null;
+	}
+
+
+	/**
+	 * Creates the chain of theme filters, in the order of the stages: by default icons are stripped before the colors
+	 * are replaced.
+	 *
+	 * @param next Listener receiving the result.
+	 * @param plan Plan replacing the colors, {@code null} if colors are not replaced.
+	 *
+	 * @return First listener of the chain.
+	 */
+	private CssListener newThemeListener(CssListener next, ReplacementPlan plan)
+	{
+		CssListener listener = next;
+		for (int i = stages.size() - 1; i >= 0; i--) {
+			if (stages.get(i) == Stage.STRIP_ICONS) {
+				listener = new IconStripper(listener);
+			}
+			else if (stages.get(i) == Stage.REPLACE_COLORS && plan != null) {
+				listener = plan.newListener(listener);
+			}
+		}
+		return listener;
+	}
+
+
+
+	/**
+	 * Transformation stage. Stages are applied in the configured order, within the order of their phases: the theme
+	 * stages, then the stages appending CSS and finally minifying.
+	 */
+	public enum Stage
+	{
+
+		/**
+		 * Removes the theme, like the {@link NoThemeResourceHandler}.
+		 */
+		NO_THEME("no-theme", 0),
+		/**
+		 * Removes the jQuery UI icons from the theme using an {@link IconStripper}.
+		 */
+		STRIP_ICONS("strip-icons", 0),
+		/**
+		 * Replaces the values in the theme like the {@link ReplaceResourceHandler}.
+		 */
+		REPLACE_COLORS("replace-colors", 0),
+		/**
+		 * Appends the Font Awesome patch.
+		 */
+		FONT_AWESOME_PATCH("font-awesome-patch", 1),
+		/**
+		 * Appends the CSS resource set using {@link AbstractResource#PARAM_NAME_APPEND_CSS_RESOURCE}.
+		 */
+		APPEND_CSS("append-css", 1),
+		/**
+		 * Minifies the complete CSS using the {@link CssMinifier}.
+		 */
+		MINIFY("minify", 2);
+
+		/**
+		 * Name used in {@link #PARAM_NAME_STAGES}.
+		 */
+		private final String name;
+
+		/**
+		 * Phase of the stage, stages of a phase are applied before those of later phases.
+		 */
+		private final int phase;
+
+
+		/**
+		 * Creates a stage.
+		 *
+		 * @param name  Name used in {@link #PARAM_NAME_STAGES}.
+		 * @param phase Phase of the stage.
+		 */
+		Stage(String name, int phase)
+		{
+			this.name = name;
+			this.phase = phase;
+		}
+
+
+		/**
+		 * Returns the stage for a name used in {@link #PARAM_NAME_STAGES}.
+		 *
+		 * @param name Name.
+		 *
+		 * @return Stage.
+		 *
+		 * @throws IllegalStateException If there is no stage for the name.
+		 */
+		public static Stage fromName(String name)
+		{
+			for (Stage stage : values()) {
+				if (stage.name.equals(name.toLowerCase(Locale.ROOT))) {
+					return stage;
+				}
+			}
+			throw new IllegalStateException("Unknown stage " + name + " set using " + PARAM_NAME_STAGES);
+		}
+
+	}
+
+}
+
@@ -1,33 +1,28 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
 import javax.faces.context.FacesContext;
-import static org.jepsar.primefaces.theme.jepsar.AbstractResource.getInitParameter;
 
 
 /**
- * Resource which reads the input stream from the wrapped resource and
- * {@link #doReplacements(java.lang.String) replaces} the {@link #findValues} with {@link #replaceValues}.
- * The resulting CSS will be {@link #CACHE cached}. If the cache is not empty for {@link #getURL() }, the cached
- * value will be used.
+ * Resource which reads the input stream from the wrapped resource and {@link ReplacementPlan#apply(java.lang.String)
+ * replaces} the {@link #PARAM_NAME_FIND_VALUES find values} with the {@link #PARAM_NAME_REPLACE_VALUES replace values}.
+ * The resulting CSS will be cached in the {@link AbstractResourceHandler#getCache() handler cache}, keyed by the
+ * {@link #getSource() source}, the {@link ReplacementPlan#getFingerprint() plan fingerprint} and the charset.
  *
  * <p>
- * {@link #findValues} can be set using {@link #PARAM_NAME_FIND_VALUES}, but is optional. If not set it will default to
+ * Find values can be set using {@link #PARAM_NAME_FIND_VALUES}, but is optional. If not set it will default to
  * {@link #DEFAULT_FIND_VALUES}.
  * </p>
  *
  * <p>
- * {@link #replaceValues} should be set using {@link #PARAM_NAME_REPLACE_VALUES}.
+ * Replace values should be set using {@link #PARAM_NAME_REPLACE_VALUES}. The values are compiled into a
+ * {@link ReplacementPlan} once by the {@link ReplaceResourceHandler}.
  * </p>
  *
  * <p>
@@ -111,60 +106,141 @@ public class ReplaceResource extends AbstractResource
 	public static final String PARAM_NAME_REPLACE_VALUES = "org.jepsar.primefaces.theme.REPLACE_VALUES";
 
 	/**
-	 * Exception thrown if no replacement values were set.
+	 * The context parameter name to match find values which are colors in any notation ({@code #abc}, {@code #aabbcc},
+	 * {@code rgb(...)} or {@code rgba(...)}, in any case), see {@link ColorReplacer}. Setting it is optional, if not set
+	 * find values are matched literally.
+	 */
+	public static final String PARAM_NAME_MATCH_COLORS = "org.jepsar.primefaces.theme.MATCH_COLORS";
+
+	/**
+	 * The context parameter name for the {@link Palette.Space color space} in which the {@link #COLOR_MOVE relative
+	 * colors} of the replace values are computed: {@code linear}, {@code hsl} or {@code oklab}, see {@link Palette}.
+	 * Setting it is optional, it defaults to {@code linear}, moving each component like {@link RgbColor#move(int)}.
+	 * Relative colors in the find values are always computed linearly, as they have to match the theme.
 	 */
-	private static final String ISE_NO_REPLACEMENTS = "No replacements where set using context parameter %s";
+	public static final String PARAM_NAME_SHADE_SPACE = "org.jepsar.primefaces.theme.SHADE_SPACE";
 
 	/**
-	 * Exception thrown if find and replace list differ in size.
+	 * Exception thrown if no replacement values were set.
 	 */
-	private static final String ISE_SIZE_DIFFERS = "Find and replace list differ in length for resource %s";
+	static final String ISE_NO_REPLACEMENTS = "No replacements were set using context parameter %s";
 
 	/**
-	 * Exception thrown if a move operation was found and no previous color was set.
+	 * Exception thrown if the shade space is unknown.
 	 */
-	private static final String ISE_NO_PREVIOUS_COLOR = "No previous color was set";
+	private static final String ISE_INVALID_SHADE_SPACE = "Invalid shade space %s set using context parameter %s";
 
 	/**
-	 * Cached CSS after replacements have been made.
+	 * Precompiled find and replace configuration for this resource.
 	 */
-	private static final Map<URL, String> CACHE = new HashMap<>(1);
+	private final ReplacementPlan plan;
+
 
 	/**
-	 * Values to search for.
+	 * Calls super and sets {@link #plan}.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 * @param plan    Precompiled find and replace configuration.
 	 */
-	private final String findValues;
+	public ReplaceResource(Resource wrapped, AbstractResourceHandler handler, ReplacementPlan plan)
+	{
+		super(wrapped, handler);
+		this.plan = plan;
+	}
+
 
 	/**
-	 * Values to replace with.
+	 * Calls super and sets {@link #plan}.
+	 *
+	 * @param wrapped Wrapped resource.
+	 * @param handler Handler that created this resource.
+	 * @param plan    Precompiled find and replace configuration.
+	 * @param charset Response encoding charset.
 	 */
-	private final String replaceValues;
+	public ReplaceResource(Resource wrapped, AbstractResourceHandler handler, ReplacementPlan plan, Charset charset)
+	{
+		super(wrapped, handler, charset);
+		this.plan = plan;
+	}
 
 
 	/**
-	 * Calls super and set {@link #findValues} and {@link #replaceValues}.
+	 * Calls super, using the {@link AbstractResourceHandler} which is or is wrapped by the handler, and sets the
+	 * {@link #plan} to the {@link ReplaceResourceHandler#getPlan(javax.faces.context.FacesContext) plan of the current
+	 * request} if that is a {@link ReplaceResourceHandler}, else to the plan compiled from the context parameters.
 	 *
 	 * @param wrapped Wrapped resource.
 	 * @param handler Handler that created this resource.
 	 *
-	 * @throws IllegalStateException If no replacement values were set.
+	 * @throws IllegalArgumentException If the handler is not and does not wrap an {@link AbstractResourceHandler}.
+	 * @throws IllegalStateException    If no replacement values were set or the configuration is invalid.
+	 *
+	 * @deprecated Use
+	 * {@link #ReplaceResource(javax.faces.application.Resource, AbstractResourceHandler, ReplacementPlan)}.
 	 */
+	@Deprecated
 	public ReplaceResource(Resource wrapped, ResourceHandler handler)
 	{
-		super(wrapped, handler);
-		String findValuesParam = getInitParameter(FacesContext.getCurrentInstance(), PARAM_NAME_FIND_VALUES);
-		this.findValues = findValuesParam == null ? DEFAULT_FIND_VALUES : findValuesParam;
-		this.replaceValues = getInitParameter(FacesContext.getCurrentInstance(), PARAM_NAME_REPLACE_VALUES);
+		this(wrapped, toThemeHandler(handler), createPlan(toThemeHandler(handler)));
+	}
+
+
+	/**
+	 * Returns the plan of the handler for the current request if it is a {@link ReplaceResourceHandler}, else compiles
+	 * the values set using {@link #PARAM_NAME_FIND_VALUES} and {@link #PARAM_NAME_REPLACE_VALUES}.
+	 *
+	 * @param handler Handler that created the resource.
+	 *
+	 * @return Plan.
+	 *
+	 * @throws IllegalStateException If no replacement values were set or the configuration is invalid.
+	 */
+	private static ReplacementPlan createPlan(AbstractResourceHandler handler)
+	{
+		FacesContext context = FacesContext.getCurrentInstance();
+		if (handler instanceof ReplaceResourceHandler) {
+			return ((ReplaceResourceHandler) handler).getPlan(context);
+		}
+		String findValues = getInitParameter(context, PARAM_NAME_FIND_VALUES);
+		String replaceValues = getInitParameter(context, PARAM_NAME_REPLACE_VALUES);
 		if (replaceValues == null) {
 			throw new IllegalStateException(String.format(ISE_NO_REPLACEMENTS, PARAM_NAME_REPLACE_VALUES));
 		}
+		boolean matchColors = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_MATCH_COLORS));
+		return new ReplacementPlan(findValues == null ? DEFAULT_FIND_VALUES : findValues, replaceValues, matchColors,
+															 getShadeSpace(context));
 	}
 
 
 	/**
-	 * Reads the input stream from the wrapped resource and {@link #doReplacements(java.lang.String) replaces} the
-	 * {@link #findValues} with {@link #replaceValues}. The resulting CSS will be {@link #CACHE cached}. If the cache
-	 * is not empty for {@link #getURL() }, the cached value will be used.
+	 * Returns the space set using {@link #PARAM_NAME_SHADE_SPACE}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Shade space, {@link Palette.Space#LINEAR} if not set.
+	 *
+	 * @throws IllegalStateException If the space is unknown.
+	 */
+	static Palette.Space getShadeSpace(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_SHADE_SPACE);
+		if (value == null) {
+			return Palette.Space.LINEAR;
+		}
+		try {
+			return Palette.Space.fromName(value);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IllegalStateException(String.format(ISE_INVALID_SHADE_SPACE, value, PARAM_NAME_SHADE_SPACE), ex);
+		}
+	}
+
+
+	/**
+	 * Reads the wrapped theme in which the {@link #plan} {@link ReplacementPlan#apply(java.lang.String) replaced} the
+	 * find values with the replace values. The encoded result will be cached in the
+	 * {@link AbstractResourceHandler#getCache() handler cache}. Concurrent requests wait for a single transformation.
 	 *
 	 * <p>
 	 * If the {@link AbstractResource#PARAM_NAME_APPEND_CSS_RESOURCE} context parameter is set, the contents of that CSS
@@ -176,97 +252,72 @@ public class ReplaceResource extends AbstractResource
 	 * @throws IOException
 	 */
 	@Override
-	public InputStream getInputStream() throws IOException
+	protected String createCss() throws IOException
 	{
-		String css;
-		if (CACHE.containsKey(getURL())) {
-			css = CACHE.get(getURL());
-		}
-		else {
-			css = doReplacements(readInputStream(getWrapped().getInputStream()));
-			CACHE.put(getURL(), css);
-		}
-		StringBuilder sb = new StringBuilder(css);
+		StringBuilder sb = new StringBuilder(readTransformedTheme());
 
 		// Append custom CSS
 		appendCss(sb);
 
-		return new ByteArrayInputStream(sb.toString().getBytes(getCharset()));
+		return sb.toString();
 	}
 
 
 	/**
-	 * {@link #valuesToList(java.lang.String) Creates a list} for {@link #findValues} and {@link #replaceValues} and
-	 * replaces each entry in the find list with the entry at the same position in the replace list (if the lists are of
-	 * equal size.
+	 * Adds the wrapped theme, in which the find values are replaced while it is streamed, and the appended CSS.
 	 *
-	 * @param css Style sheet perform the replacements on.
+	 * @param css Stream to add the sources to.
 	 *
-	 * @return CSS with replaced values.
-	 *
-	 * @throws IllegalStateException If find and replace list differ in size.
+	 * @throws IOException
 	 */
-	private String doReplacements(String css)
+	@Override
+	protected void addCss(TransformingInputStream css) throws IOException
 	{
-		List<String> findList = valuesToList(findValues);
-		List<String> replaceList = valuesToList(replaceValues);
-		if (findList.size() != replaceList.size()) {
-			throw new RuntimeException(String.format(ISE_SIZE_DIFFERS, getURL()));
-		}
-		// Avoid overwriting, do a two step replacement
-		for (int i = 0; i < findList.size(); i++) {
-			css = css.replace(findList.get(i), SEPARATOR + i + SEPARATOR);
-		}
-		for (int i = 0; i < findList.size(); i++) {
-			css = css.replace(SEPARATOR + i + SEPARATOR, replaceList.get(i));
-		}
-		return css;
+		addTransformedTheme(css);
+		addAppendedCss(css);
 	}
 
 
+
 	/**
-	 * Split the string on {@link #SEPARATOR} and pas the list on to {@link #handleRelativeColors(java.util.List) }.
+	 * {@link ReplacementPlan#apply(java.lang.String) Replaces} the find values with the replace values of the
+	 * {@link #plan}.
 	 *
-	 * @param values String of values separated by {@link #SEPARATOR}.
+	 * @param css Theme source.
 	 *
-	 * @return Value list with absolute colors.
+	 * @return Theme source with replaced values.
 	 */
-	private List<String> valuesToList(String values)
+	@Override
+	protected String transformTheme(String css)
 	{
-		return handleRelativeColors(Arrays.asList(values.split(SEPARATOR)));
+		return plan.apply(css);
 	}
 
 
 	/**
-	 * If the list contains values starting with the {@link #COLOR_MOVE} indicator and a previous color was found,
-	 * substitute the value with the color resulting from the {@link RgbColor#move(int) move operation}.
+	 * Returns a writer which {@link ReplacementPlan#newWriter(java.io.Writer) replaces} the find values with the replace
+	 * values of the {@link #plan}.
 	 *
-	 * @param values List of values.
+	 * @param out Output.
 	 *
-	 * @return List with absolute colors.
+	 * @return Replacing writer.
+	 */
+	@Override
+	protected Writer newThemeWriter(Writer out)
+	{
+		return plan.newWriter(out);
+	}
+
+
+	/**
+	 * Returns the {@link ReplacementPlan#getFingerprint() plan fingerprint}.
 	 *
-	 * @throws IllegalStateException If a move operation was found and no previous color was set.
+	 * @return Plan fingerprint.
 	 */
-	private List<String> handleRelativeColors(List<String> values)
+	@Override
+	protected String getFingerprint()
 	{
-		RgbColor previousColor = null;
-		for (int i = 0; i < values.size(); i++) {
-			try {
-				RgbColor color = new RgbColor(values.get(i));
-				previousColor = color;
-			}
-			catch (IllegalArgumentException ex) {
-			}
-			if (values.get(i).startsWith(COLOR_MOVE)) {
-				if (previousColor == null) {
-					throw new IllegalStateException(ISE_NO_PREVIOUS_COLOR);
-				}
-				int move = Integer.valueOf(values.get(i).substring(1));
-				values.set(i, previousColor.move(move).toString());
-			}
-		}
-		return values;
+		return plan.getFingerprint();
 	}
 
 }
-
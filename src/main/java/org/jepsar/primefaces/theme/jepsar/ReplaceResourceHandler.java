@@ -1,13 +1,35 @@
 package org.jepsar.primefaces.theme.jepsar;
 
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
+import javax.faces.context.FacesContext;
+import static org.jepsar.primefaces.theme.jepsar.AbstractResource.getInitParameter;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.DEFAULT_FIND_VALUES;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.ISE_NO_REPLACEMENTS;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.PARAM_NAME_FIND_VALUES;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.PARAM_NAME_MATCH_COLORS;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.PARAM_NAME_REPLACE_VALUES;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.getShadeSpace;
 
 
 /**
  * Resource handler to detect and return a {@link ReplaceResource} if a resource
- * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme}.
+ * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme}. The find and replace values
+ * are compiled into a {@link ReplacementPlan} once when the handler is created, so invalid configuration fails at
+ * startup.
+ *
+ * <p>
+ * If a {@link PaletteProvider} is set using {@link #PARAM_NAME_PALETTE_PROVIDER}, the replace values can differ per
+ * request. Plans for provided values are compiled once and kept in a bounded cache. Transformed themes are cached by
+ * {@link ReplacementPlan#getFingerprint() plan fingerprint}, so palettes resolving to the same replacements share
+ * them.
+ * </p>
  *
  * @author Jasper de Vries <jepsar@gmail.com>
  * @since 1.0
@@ -16,19 +38,160 @@ public class ReplaceResourceHandler extends AbstractResourceHandler
 {
 
 	/**
+	 * The context parameter name for the class name of the {@link PaletteProvider}. Setting it is optional, if not set
+	 * the values set using {@link ReplaceResource#PARAM_NAME_REPLACE_VALUES} are used for all requests.
+	 */
+	public static final String PARAM_NAME_PALETTE_PROVIDER = "org.jepsar.primefaces.theme.PALETTE_PROVIDER";
+
+	/**
+	 * The context parameter name for the maximum number of compiled palettes to cache. Setting it is optional, if not
+	 * set it will default to {@link #DEFAULT_PALETTE_CACHE_SIZE}.
+	 */
+	public static final String PARAM_NAME_PALETTE_CACHE_SIZE = "org.jepsar.primefaces.theme.PALETTE_CACHE_SIZE";
+
+	/**
+	 * Default maximum number of compiled palettes to cache.
+	 */
+	public static final int DEFAULT_PALETTE_CACHE_SIZE = 256;
+
+	/**
+	 * Exception thrown if the palette provider could not be created.
+	 */
+	private static final String ISE_INVALID_PALETTE_PROVIDER = "Could not create palette provider %s set using %s";
+
+	/**
+	 * Exception thrown if the palette cache size is invalid.
+	 */
+	private static final String ISE_INVALID_PALETTE_CACHE_SIZE = "Invalid palette cache size %s set using %s";
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ReplaceResourceHandler.class.getName());
+
+	/**
+	 * Precompiled find and replace configuration, shared by all created resources.
+	 */
+	private final ReplacementPlan plan;
+
+	/**
+	 * Find values, used to compile the plans for provided palettes.
+	 */
+	private final String findValues;
+
+	/**
+	 * {@code true} if colors are matched in any notation, see {@link ReplaceResource#PARAM_NAME_MATCH_COLORS}.
+	 */
+	private final boolean matchColors;
+
+	/**
+	 * Color space of relative replace colors, see {@link ReplaceResource#PARAM_NAME_SHADE_SPACE}.
+	 */
+	private final Palette.Space shadeSpace;
+
+	/**
+	 * Provider of the replace values per request, {@code null} if not set.
+	 */
+	private final PaletteProvider paletteProvider;
+
+	/**
+	 * Compiled plans by provided replace values.
+	 */
+	private final TransformCache<String, ReplacementPlan> plans;
+
+
+	/**
+	 * Wraps the resource handler, compiles the {@link #plan} and creates the {@link #paletteProvider}.
 	 *
 	 * @param wrapped Wrapped resource handler.
+	 *
+	 * @throws IllegalStateException If no replacement values were set, the configuration is invalid or the palette
+	 *                               provider could not be created.
 	 */
 	public ReplaceResourceHandler(ResourceHandler wrapped)
 	{
 		super(wrapped);
+		FacesContext context = FacesContext.getCurrentInstance();
+		String findValues = getInitParameter(context, PARAM_NAME_FIND_VALUES);
+		String replaceValues = getInitParameter(context, PARAM_NAME_REPLACE_VALUES);
+		if (replaceValues == null) {
+			throw new IllegalStateException(String.format(ISE_NO_REPLACEMENTS, PARAM_NAME_REPLACE_VALUES));
+		}
+		this.findValues = findValues == null ? DEFAULT_FIND_VALUES : findValues;
+		this.matchColors = Boolean.parseBoolean(getInitParameter(context, PARAM_NAME_MATCH_COLORS));
+		this.shadeSpace = getShadeSpace(context);
+		this.plan = new ReplacementPlan(this.findValues, replaceValues, matchColors, shadeSpace);
+		this.paletteProvider = createPaletteProvider(getInitParameter(context, PARAM_NAME_PALETTE_PROVIDER));
+		this.plans = paletteProvider == null ? null : new TransformCache<>(getPaletteCacheSize(context));
+	}
+
+
+	/**
+	 * Creates the palette provider.
+	 *
+	 * @param className Class name of the provider, may be {@code null}.
+	 *
+	 * @return Palette provider, {@code null} if no class name was set.
+	 *
+	 * @throws IllegalStateException If the provider could not be created.
+	 */
+	private static PaletteProvider createPaletteProvider(String className)
+	{
+		if (className == null || className.trim().isEmpty()) {
+			return null;
+		}
+		try {
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			return Class.forName(className.trim(), true, classLoader).asSubclass(PaletteProvider.class)
+					.getConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | ClassCastException ex) {
+			String message = String.format(ISE_INVALID_PALETTE_PROVIDER, className, PARAM_NAME_PALETTE_PROVIDER);
+			throw new IllegalStateException(message, ex);
+		}
+	}
+
+
+	/**
+	 * Returns the palette cache size set using {@link #PARAM_NAME_PALETTE_CACHE_SIZE} or
+	 * {@link #DEFAULT_PALETTE_CACHE_SIZE}.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Palette cache size.
+	 *
+	 * @throws IllegalStateException If the palette cache size is invalid.
+	 */
+	private static int getPaletteCacheSize(FacesContext context)
+	{
+		String value = getInitParameter(context, PARAM_NAME_PALETTE_CACHE_SIZE);
+		if (value == null) {
+			return DEFAULT_PALETTE_CACHE_SIZE;
+		}
+		try {
+			int size = Integer.parseInt(value.trim());
+			if (size > 0) {
+				return size;
+			}
+		}
+		catch (NumberFormatException ex) {
+		}
+		String message = String.format(ISE_INVALID_PALETTE_CACHE_SIZE, value, PARAM_NAME_PALETTE_CACHE_SIZE);
+		throw new IllegalStateException(message);
 	}
 
 
 	/**
 	 * Returns a {@link ReplaceResource} if the resource
 	 * {@link #isPrimeFacesTheme(java.lang.String, java.lang.String) is a PrimeFaces theme} else the
-	 * {@link #getWrapped() wrapped handler} will take care of creating a resource.
+	 * {@link #getWrapped() wrapped handler} will take care of creating a resource. The resource uses the
+	 * {@link #getPlan(javax.faces.context.FacesContext) plan for the current request}. If that plan has the same
+	 * fingerprint as the configured plan and a
+	 * {@link #createPrecompiledResource(java.lang.String, java.lang.String) pre-generated theme} is available, it is
+	 * returned instead. Theme resources are
+	 * {@link #createThemeResource(javax.faces.context.FacesContext, java.lang.String, java.lang.String,
+	 * java.lang.String, java.util.function.BiFunction) shared} by all requests using the configured plan, resources
+	 * for other plans share their content with other requests using the same plan.
 	 *
 	 * @param resourceName Resource name.
 	 * @param libraryName  Library name.
@@ -41,7 +204,10 @@ public class ReplaceResourceHandler extends AbstractResourceHandler
 	public Resource createResource(String resourceName, String libraryName)
 	{
 		if (isPrimeFacesTheme(resourceName, libraryName)) {
-			return new ReplaceResource(super.createResource(resourceName, libraryName), this);
+			FacesContext context = FacesContext.getCurrentInstance();
+			ReplacementPlan requestPlan = getPlan(context);
+			return createThemeResource(context, resourceName, libraryName, requestPlan.getFingerprint(),
+																 (theme, charset) -> new ReplaceResource(theme, this, requestPlan, charset));
 		}
 		else {
 			return getWrapped().createResource(resourceName, libraryName);
@@ -49,5 +215,108 @@ public class ReplaceResourceHandler extends AbstractResourceHandler
 	}
 
 
+	/**
+	 * Wraps a theme in a {@link ReplaceResource} using the configured {@link #getPlan() plan}.
+	 *
+	 * @param theme   Theme of the wrapped handler.
+	 * @param charset Response charset.
+	 *
+	 * @return Theme resource.
+	 */
+	@Override
+	protected AbstractResource wrapTheme(Resource theme, Charset charset)
+	{
+		return new ReplaceResource(theme, this, plan, charset);
+	}
+
+
+	/**
+	 * {@link ReplacementPlan#apply(java.lang.String) Replaces} the find values with the replace values.
+	 *
+	 * @param css Theme source.
+	 *
+	 * @return Theme source with replaced values.
+	 */
+	@Override
+	protected String transformTheme(String css)
+	{
+		return plan.apply(css);
+	}
+
+
+	/**
+	 * Returns a writer which {@link ReplacementPlan#newWriter(java.io.Writer) replaces} the find values with the replace
+	 * values.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Replacing writer.
+	 */
+	@Override
+	protected Writer newThemeWriter(Writer out)
+	{
+		return plan.newWriter(out);
+	}
+
+
+	/**
+	 * Returns the {@link ReplacementPlan#getFingerprint() plan fingerprint}.
+	 *
+	 * @return Plan fingerprint.
+	 */
+	@Override
+	protected String getFingerprint()
+	{
+		return plan.getFingerprint();
+	}
+
+
+	/**
+	 * Returns the plan for the current request. This is the plan for the replace values of the {@link #paletteProvider}
+	 * if it provides values, else the configured {@link #plan}. If the provided values are invalid, a warning is logged
+	 * and the configured plan is used. Invalid values are cached like valid ones, so they are compiled and logged only
+	 * once.
+	 *
+	 * @param context Faces context.
+	 *
+	 * @return Plan for the current request.
+	 */
+	protected ReplacementPlan getPlan(FacesContext context)
+	{
+		if (paletteProvider == null || context == null) {
+			return plan;
+		}
+		String replaceValues = paletteProvider.getReplaceValues(context);
+		if (replaceValues == null) {
+			return plan;
+		}
+		try {
+			return plans.get(replaceValues, () -> {
+				try {
+					return new ReplacementPlan(findValues, replaceValues, matchColors, shadeSpace);
+				}
+				catch (IllegalStateException ex) {
+					LOGGER.log(Level.WARNING, "Invalid palette " + replaceValues + ", using configured replace values", ex);
+					return plan;
+				}
+			});
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Could not compile palette " + replaceValues + ", using configured replace values", ex);
+			return plan;
+		}
+	}
+
+
+	/**
+	 * Returns the {@link #plan precompiled find and replace configuration}.
+	 *
+	 * @return {@link #plan}.
+	 */
+	public ReplacementPlan getPlan()
+	{
+		return plan;
+	}
+
 }
 
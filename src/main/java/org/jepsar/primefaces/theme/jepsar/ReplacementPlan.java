@@ -0,0 +1,373 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.COLOR_MOVE;
+import static org.jepsar.primefaces.theme.jepsar.ReplaceResource.SEPARATOR;
+
+
+/**
+ * Precompiled find and replace configuration. The values are split, {@link #handleRelativeColors(java.util.List,
+ * org.jepsar.primefaces.theme.jepsar.Palette.Space) relative colors are resolved} and the {@link StringReplacer} (or
+ * the {@link ColorReplacer} if colors are matched regardless of their notation) is built only once, so the plan can be
+ * shared by all resources and threads.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public final class ReplacementPlan
+{
+
+	/**
+	 * Exception thrown if find and replace list differ in size.
+	 */
+	private static final String ISE_SIZE_DIFFERS = "Find and replace list differ in length (%d find values, %d replace"
+																								 + " values)";
+
+	/**
+	 * Exception thrown if a move operation was found and no previous color was set.
+	 */
+	private static final String ISE_NO_PREVIOUS_COLOR = "No previous color was set";
+
+	/**
+	 * Exception thrown if a move operation is invalid.
+	 */
+	private static final String ISE_INVALID_MOVE = "Invalid color move %s";
+
+	/**
+	 * Algorithm used to compute the {@link #fingerprint}.
+	 */
+	private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+	/**
+	 * Values to search for, with absolute colors.
+	 */
+	private final List<String> findList;
+
+	/**
+	 * Values to replace with, with absolute colors.
+	 */
+	private final List<String> replaceList;
+
+	/**
+	 * Replacer doing all replacements in a single scan, {@code null} if colors are matched in any notation.
+	 */
+	private final StringReplacer replacer;
+
+	/**
+	 * Replacer matching colors regardless of their notation, {@code null} if find values are matched literally.
+	 */
+	private final ColorReplacer colorReplacer;
+
+	/**
+	 * Hex encoded hash of the find and replace list. Equal plans have equal fingerprints.
+	 */
+	private final String fingerprint;
+
+
+	/**
+	 * Compiles the plan, matching find values literally.
+	 *
+	 * @param findValues    Values to search for, separated by {@link ReplaceResource#SEPARATOR}.
+	 * @param replaceValues Values to replace with, separated by {@link ReplaceResource#SEPARATOR}.
+	 *
+	 * @throws IllegalStateException If the find and replace list differ in size, contain invalid color moves or empty
+	 *                               find values.
+	 */
+	public ReplacementPlan(String findValues, String replaceValues)
+	{
+		this(findValues, replaceValues, false);
+	}
+
+
+	/**
+	 * Compiles the plan.
+	 *
+	 * @param findValues    Values to search for, separated by {@link ReplaceResource#SEPARATOR}.
+	 * @param replaceValues Values to replace with, separated by {@link ReplaceResource#SEPARATOR}.
+	 * @param matchColors   {@code true} to match find values which are colors in any notation, see
+	 *                      {@link ColorReplacer}.
+	 *
+	 * @throws IllegalStateException If the find and replace list differ in size, contain invalid color moves or empty
+	 *                               find values, or if colors are matched and a find value contains a color but is not
+	 *                               a single color.
+	 */
+	public ReplacementPlan(String findValues, String replaceValues, boolean matchColors)
+	{
+		this(findValues, replaceValues, matchColors, Palette.Space.LINEAR);
+	}
+
+
+	/**
+	 * Compiles the plan, computing the relative colors of the replace values in a {@link Palette.Space color space}.
+	 * Relative colors of the find values are always computed {@link Palette.Space#LINEAR linearly}, as they have to
+	 * match the theme.
+	 *
+	 * @param findValues    Values to search for, separated by {@link ReplaceResource#SEPARATOR}.
+	 * @param replaceValues Values to replace with, separated by {@link ReplaceResource#SEPARATOR}.
+	 * @param matchColors   {@code true} to match find values which are colors in any notation, see
+	 *                      {@link ColorReplacer}.
+	 * @param shadeSpace    Color space of the relative replace colors, see
+	 *                      {@link ReplaceResource#PARAM_NAME_SHADE_SPACE}.
+	 *
+	 * @throws IllegalStateException If the find and replace list differ in size, contain invalid color moves or empty
+	 *                               find values, or if colors are matched and a find value contains a color but is not
+	 *                               a single color.
+	 */
+	public ReplacementPlan(String findValues, String replaceValues, boolean matchColors, Palette.Space shadeSpace)
+	{
+		this.findList = Collections.unmodifiableList(valuesToList(findValues, Palette.Space.LINEAR));
+		this.replaceList = Collections.unmodifiableList(valuesToList(replaceValues, shadeSpace));
+		if (findList.size() != replaceList.size()) {
+			throw new IllegalStateException(String.format(ISE_SIZE_DIFFERS, findList.size(), replaceList.size()));
+		}
+		try {
+			this.replacer = matchColors ? null : new StringReplacer(findList, replaceList);
+			this.colorReplacer = matchColors ? new ColorReplacer(findList, replaceList) : null;
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IllegalStateException(ex.getMessage(), ex);
+		}
+		this.fingerprint = fingerprint(findList, replaceList, matchColors);
+	}
+
+
+	/**
+	 * Replaces each entry in the find list with the entry at the same position in the replace list.
+	 *
+	 * @param css Style sheet to perform the replacements on.
+	 *
+	 * @return CSS with replaced values.
+	 */
+	public String apply(String css)
+	{
+		return replacer != null ? replacer.replace(css) : colorReplacer.replace(css);
+	}
+
+
+	/**
+	 * Returns a writer which {@link #apply(java.lang.String) replaces} the values in the style sheet written to it.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Replacing writer, see {@link StringReplacer#newWriter(java.io.Writer)} and
+	 *         {@link ColorReplacer#newWriter(java.io.Writer)}.
+	 */
+	public Writer newWriter(Writer out)
+	{
+		return replacer != null ? replacer.newWriter(out) : colorReplacer.newWriter(out);
+	}
+
+
+	/**
+	 * Returns a {@link CssFilter} which {@link #apply(java.lang.String) replaces} the values in each part of the style
+	 * sheet before passing it on, so replacing can share a single scan with other filters. Values are not found across
+	 * structural characters like braces and semicolons.
+	 *
+	 * @param next Next listener.
+	 *
+	 * @return Replacing filter, see {@link ColorReplacer#newListener(org.jepsar.primefaces.theme.jepsar.CssListener)}
+	 *         if colors are matched.
+	 */
+	public CssListener newListener(CssListener next)
+	{
+		return replacer != null ? new ReplacingFilter(next) : colorReplacer.newListener(next);
+	}
+
+
+	/**
+	 * Returns the values to search for, with absolute colors.
+	 *
+	 * @return Values to search for.
+	 */
+	public List<String> getFindList()
+	{
+		return findList;
+	}
+
+
+	/**
+	 * Returns the values to replace with, with absolute colors.
+	 *
+	 * @return Values to replace with.
+	 */
+	public List<String> getReplaceList()
+	{
+		return replaceList;
+	}
+
+
+	/**
+	 * Returns {@code true} if find values which are colors are matched in any notation.
+	 *
+	 * @return {@code true} if colors are matched in any notation.
+	 */
+	public boolean isMatchColors()
+	{
+		return colorReplacer != null;
+	}
+
+
+	/**
+	 * Returns the {@link #fingerprint}.
+	 *
+	 * @return {@link #fingerprint}.
+	 */
+	public String getFingerprint()
+	{
+		return fingerprint;
+	}
+
+
+	/**
+	 * Computes a hex encoded hash of the find and replace list and the matching mode. Plans matching literally keep the
+	 * hash of the lists only.
+	 *
+	 * @param findList    Values to search for.
+	 * @param replaceList Values to replace with.
+	 * @param matchColors {@code true} if colors are matched in any notation.
+	 *
+	 * @return Hex encoded hash.
+	 */
+	private static String fingerprint(List<String> findList, List<String> replaceList, boolean matchColors)
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		for (int i = 0; i < findList.size(); i++) {
+			digest.update(findList.get(i).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(replaceList.get(i).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		if (matchColors) {
+			digest.update((byte) 1);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Split the string on {@link ReplaceResource#SEPARATOR} and pass the list on to
+	 * {@link #handleRelativeColors(java.util.List) }.
+	 *
+	 * @param values String of values separated by {@link ReplaceResource#SEPARATOR}.
+	 *
+	 * @return Value list with absolute colors.
+	 */
+	private static List<String> valuesToList(String values, Palette.Space space)
+	{
+		return handleRelativeColors(new ArrayList<>(Arrays.asList(values.split(SEPARATOR))), space);
+	}
+
+
+	/**
+	 * If the list contains values starting with the {@link ReplaceResource#COLOR_MOVE} indicator and a previous color was
+	 * found, substitute the value with the color resulting from the
+	 * {@link Palette#shade(int, int, org.jepsar.primefaces.theme.jepsar.Palette.Space) move operation} in the space.
+	 *
+	 * @param values List of values.
+	 * @param space  Color space to move in, {@link Palette.Space#LINEAR} for the {@link RgbColor#move(int) move
+	 *               operation}.
+	 *
+	 * @return List with absolute colors.
+	 *
+	 * @throws IllegalStateException If a move operation was found and no previous color was set, or if the move is
+	 *                               invalid.
+	 */
+	private static List<String> handleRelativeColors(List<String> values, Palette.Space space)
+	{
+		int previousColor = RgbColor.INVALID;
+		for (int i = 0; i < values.size(); i++) {
+			int color = RgbColor.tryParse(values.get(i));
+			if (color != RgbColor.INVALID) {
+				previousColor = color;
+			}
+			if (values.get(i).startsWith(COLOR_MOVE)) {
+				if (previousColor == RgbColor.INVALID) {
+					throw new IllegalStateException(ISE_NO_PREVIOUS_COLOR);
+				}
+				try {
+					int move = Integer.parseInt(values.get(i).substring(1));
+					values.set(i, RgbColor.toHex(Palette.shade(previousColor, move, space)));
+				}
+				catch (IllegalArgumentException ex) {
+					throw new IllegalStateException(String.format(ISE_INVALID_MOVE, values.get(i)), ex);
+				}
+			}
+		}
+		return values;
+	}
+
+
+
+	/**
+	 * {@link CssFilter} applying the {@link #replacer} to each part of the style sheet.
+	 */
+	private final class ReplacingFilter extends CssFilter
+	{
+
+		/**
+		 * Creates a filter.
+		 *
+		 * @param next Next listener.
+		 */
+		ReplacingFilter(CssListener next)
+		{
+			super(next);
+		}
+
+
+		@Override
+		public void blockStart(String prelude) throws IOException
+		{
+			super.blockStart(apply(prelude));
+		}
+
+
+		@Override
+		public void declaration(String declaration, boolean terminated) throws IOException
+		{
+			super.declaration(apply(declaration), terminated);
+		}
+
+
+		@Override
+		public void statement(String statement) throws IOException
+		{
+			super.statement(apply(statement));
+		}
+
+
+		@Override
+		public void blockEnd(String trailing) throws IOException
+		{
+			super.blockEnd(apply(trailing));
+		}
+
+
+		@Override
+		public void end(String trailing) throws IOException
+		{
+			super.end(apply(trailing));
+		}
+
+	}
+
+}
+
@@ -0,0 +1,212 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+
+/**
+ * Watches the files behind resource URLs using a {@link WatchService} and runs a callback when a file changes. Both
+ * {@code file:} URLs and {@code jar:file:} URLs (the JAR file is watched) are supported, other URLs are ignored.
+ * Events are handled on a single daemon thread, which stops when the watcher is {@link #close() closed}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ResourceWatcher implements Closeable
+{
+
+	/**
+	 * Name of the watching thread.
+	 */
+	private static final String THREAD_NAME = "jepsar-theme-watcher";
+
+	/**
+	 * JAR URL protocol.
+	 */
+	private static final String PROTOCOL_JAR = "jar";
+
+	/**
+	 * File URL protocol.
+	 */
+	private static final String PROTOCOL_FILE = "file";
+
+	/**
+	 * Separator between the JAR URL and the entry name in a JAR URL.
+	 */
+	private static final String JAR_SEPARATOR = "!/";
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ResourceWatcher.class.getName());
+
+	/**
+	 * Watch service.
+	 */
+	private final WatchService watchService;
+
+	/**
+	 * Watched directories.
+	 */
+	private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+
+	/**
+	 * Callbacks by watched file and URL.
+	 */
+	private final Map<Path, Map<String, Runnable>> callbacks = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Creates a watcher and starts the watching thread.
+	 *
+	 * @throws IOException If the watch service could not be created.
+	 */
+	public ResourceWatcher() throws IOException
+	{
+		this.watchService = FileSystems.getDefault().newWatchService();
+		Thread thread = new Thread(this::run, THREAD_NAME);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/**
+	 * Runs the callback whenever the file behind the URL changes. Watching the same URL again replaces its callback.
+	 *
+	 * @param url      Resource URL.
+	 * @param callback Callback to run on the watching thread.
+	 *
+	 * @return {@code true} if the URL is watched, {@code false} if it has no file behind it.
+	 */
+	public boolean watch(final URL url, final Runnable callback)
+	{
+		Path file = toPath(url);
+		if (file == null || file.getParent() == null || !Files.isRegularFile(file)) {
+			return false;
+		}
+		Path directory = file.getParent();
+		try {
+			if (!directories.containsKey(directory)) {
+				directories.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+			}
+		}
+		catch (IOException | ClosedWatchServiceException ex) {
+			LOGGER.log(Level.WARNING, "Could not watch " + directory, ex);
+			return false;
+		}
+		callbacks.computeIfAbsent(file, key -> new ConcurrentHashMap<>()).put(url.toExternalForm(), callback);
+		return true;
+	}
+
+
+	/**
+	 * Stops watching and ends the watching thread.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		watchService.close();
+	}
+
+
+	/**
+	 * Handles events until the watch service is closed.
+	 */
+	private void run()
+	{
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						for (Path file : callbacks.keySet()) {
+							if (directory.equals(file.getParent())) {
+								changed(file);
+							}
+						}
+					}
+					else {
+						changed(directory.resolve((Path) event.context()));
+					}
+				}
+				if (!key.reset()) {
+					directories.remove(directory);
+				}
+			}
+		}
+		catch (ClosedWatchServiceException | InterruptedException ex) {
+			// Stopped
+		}
+	}
+
+
+	/**
+	 * Runs the callbacks of a changed file.
+	 *
+	 * @param file Changed file.
+	 */
+	private void changed(Path file)
+	{
+		Map<String, Runnable> fileCallbacks = callbacks.get(file);
+		if (fileCallbacks == null) {
+			return;
+		}
+		LOGGER.log(Level.INFO, "{0} changed", file);
+		for (Runnable callback : fileCallbacks.values()) {
+			try {
+				callback.run();
+			}
+			catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Could not handle change of " + file, ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the file behind a URL.
+	 *
+	 * @param url Resource URL.
+	 *
+	 * @return File, or {@code null} if the URL has no file behind it.
+	 */
+	static Path toPath(URL url)
+	{
+		try {
+			if (PROTOCOL_JAR.equals(url.getProtocol())) {
+				String path = url.getPath();
+				int separator = path.indexOf(JAR_SEPARATOR);
+				return separator < 0 ? null : toPath(new URL(path.substring(0, separator)));
+			}
+			if (PROTOCOL_FILE.equals(url.getProtocol())) {
+				return Paths.get(url.toURI());
+			}
+		}
+		catch (IOException | URISyntaxException | IllegalArgumentException | FileSystemNotFoundException ex) {
+			LOGGER.log(Level.FINE, "No file behind " + url, ex);
+		}
+		return null;
+	}
+
+}
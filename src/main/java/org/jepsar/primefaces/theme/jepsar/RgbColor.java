@@ -7,6 +7,12 @@ import java.io.Serializable;
 /**
  * RGB color class used to {@link #move(int) darken or lighten} colors by a percentage.
  *
+ * <p>
+ * The static methods work on packed {@code 0xRRGGBB} ints, so hot paths like the
+ * {@link #tryParse(java.lang.CharSequence) parsing} of replace values and {@link Palette palette generation} don't
+ * allocate objects or use exceptions for control flow.
+ * </p>
+ *
  * @author Jasper de Vries <jepsar@gmail.com>
  * @since 1.0
  */
@@ -15,10 +21,21 @@ public class RgbColor implements Serializable
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Value returned by {@link #tryParse(java.lang.CharSequence)} for invalid colors. Valid packed colors are never
+	 * negative.
+	 */
+	public static final int INVALID = -1;
+
 	/**
 	 * Prefix for hex colors.
 	 */
-	private static final String HEX_COLOR_PREFIX = "#";
+	private static final char HEX_COLOR_PREFIX = '#';
+
+	/**
+	 * Number of hex digits of a color.
+	 */
+	private static final int HEX_COLOR_LENGTH = 6;
 
 	/**
 	 * Hex color string.
@@ -26,9 +43,9 @@ public class RgbColor implements Serializable
 	private static final String HEX_COLOR = "#%02X%02X%02X";
 
 	/**
-	 * Expression to match a hex color without the {@link #HEX_COLOR_PREFIX}.
+	 * Upper case hex digits.
 	 */
-	private static final String HEX_COLOR_REGEX = "^[0-9A-F]{6}$";
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
 	/**
 	 * Invalid color argument exception.
@@ -43,17 +60,17 @@ public class RgbColor implements Serializable
 	/**
 	 * Red.
 	 */
-	private int r;
+	private final int r;
 
 	/**
 	 * Green.
 	 */
-	private int g;
+	private final int g;
 
 	/**
 	 * Blue.
 	 */
-	private int b;
+	private final int b;
 
 
 	/**
@@ -61,19 +78,18 @@ public class RgbColor implements Serializable
 	 *
 	 * @param rgbColor Hex string with or without {@link #HEX_COLOR_PREFIX}. For example {@code FFFFFF} or
 	 *                 {@code #FFFFFF}.
+	 *
+	 * @throws IllegalArgumentException If the string is not a valid color.
 	 */
 	public RgbColor(final String rgbColor)
 	{
-		String hexString = rgbColor.toUpperCase();
-		if (hexString.startsWith(HEX_COLOR_PREFIX)) {
-			hexString = hexString.substring(1);
-		}
-		if (!hexString.matches(HEX_COLOR_REGEX)) {
+		int parsed = tryParse(rgbColor);
+		if (parsed == INVALID) {
 			throw new IllegalArgumentException(IAE_INVALID_COLOR);
 		}
-		r = hexToInt(hexString.substring(0, 2));
-		g = hexToInt(hexString.substring(2, 4));
-		b = hexToInt(hexString.substring(4, 6));
+		r = parsed >> 16 & 0xFF;
+		g = parsed >> 8 & 0xFF;
+		b = parsed & 0xFF;
 	}
 
 
@@ -92,6 +108,98 @@ public class RgbColor implements Serializable
 	}
 
 
+	/**
+	 * Returns a RGB color for a packed color.
+	 *
+	 * @param rgb Packed {@code 0xRRGGBB} color, higher bits are ignored.
+	 *
+	 * @return RGB color.
+	 */
+	public static RgbColor valueOf(final int rgb)
+	{
+		return new RgbColor(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+	}
+
+
+	/**
+	 * Parses a hex color without throwing exceptions or allocating.
+	 *
+	 * @param rgbColor Hex string with or without {@link #HEX_COLOR_PREFIX}, case insensitive. For example
+	 *                 {@code ffffff} or {@code #FFFFFF}.
+	 *
+	 * @return Packed {@code 0xRRGGBB} color, or {@link #INVALID} if the string is not a valid color.
+	 */
+	public static int tryParse(final CharSequence rgbColor)
+	{
+		if (rgbColor == null) {
+			return INVALID;
+		}
+		int start = rgbColor.length() > 0 && rgbColor.charAt(0) == HEX_COLOR_PREFIX ? 1 : 0;
+		if (rgbColor.length() - start != HEX_COLOR_LENGTH) {
+			return INVALID;
+		}
+		int rgb = 0;
+		for (int i = start; i < rgbColor.length(); i++) {
+			int digit = hexDigit(rgbColor.charAt(i));
+			if (digit < 0) {
+				return INVALID;
+			}
+			rgb = rgb << 4 | digit;
+		}
+		return rgb;
+	}
+
+
+	/**
+	 * Returns the value of an ASCII hex digit.
+	 *
+	 * @param c Character.
+	 *
+	 * @return Value [0..15], or {@code -1} if the character is not a hex digit.
+	 */
+	static int hexDigit(final char c)
+	{
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Packs color components, each clamped to [0..255].
+	 *
+	 * @param r Red component.
+	 * @param g Green component.
+	 * @param b Blue component.
+	 *
+	 * @return Packed {@code 0xRRGGBB} color.
+	 */
+	public static int pack(final int r, final int g, final int b)
+	{
+		return clamp(r) << 16 | clamp(g) << 8 | clamp(b);
+	}
+
+
+	/**
+	 * Clamps a component to [0..255].
+	 *
+	 * @param component Component.
+	 *
+	 * @return Clamped component.
+	 */
+	static int clamp(final int component)
+	{
+		return component < 0 ? 0 : component > 255 ? 255 : component;
+	}
+
+
 	/**
 	 * Create a new RGB color {@link #moveInt(int, int) moving each component} up (percentage &gt; 0) or down
 	 * (percentage &lt; 0).
@@ -101,11 +209,42 @@ public class RgbColor implements Serializable
 	 * @return New lighter or darker color based on the percentage.
 	 */
 	public RgbColor move(int percentage)
+	{
+		checkPercentage(percentage);
+		return new RgbColor(moveInt(r, percentage), moveInt(g, percentage), moveInt(b, percentage));
+	}
+
+
+	/**
+	 * Moves each component of a packed color up (percentage &gt; 0) or down (percentage &lt; 0), see
+	 * {@link #move(int)}.
+	 *
+	 * @param rgb        Packed {@code 0xRRGGBB} color.
+	 * @param percentage Percentage to {@link #moveInt(int, int) moving each component} up or down. [-99..99]
+	 *
+	 * @return Packed moved color.
+	 */
+	public static int move(final int rgb, final int percentage)
+	{
+		checkPercentage(percentage);
+		return moveInt(rgb >> 16 & 0xFF, percentage) << 16
+					 | moveInt(rgb >> 8 & 0xFF, percentage) << 8
+					 | moveInt(rgb & 0xFF, percentage);
+	}
+
+
+	/**
+	 * Checks a percentage to move by.
+	 *
+	 * @param percentage Percentage. [-99..99]
+	 *
+	 * @throws IllegalArgumentException If the percentage is out of range.
+	 */
+	private static void checkPercentage(final int percentage)
 	{
 		if (percentage < -99 || percentage > 99) {
 			throw new IllegalArgumentException(IAE_INVALID_PERCENTAGE);
 		}
-		return new RgbColor(moveInt(r, percentage), moveInt(g, percentage), moveInt(b, percentage));
 	}
 
 
@@ -122,7 +261,7 @@ public class RgbColor implements Serializable
 	 *
 	 * @return Moved integer.
 	 */
-	private int moveInt(int integer, int percentage)
+	private static int moveInt(int integer, int percentage)
 	{
 		if (percentage == 0) {
 			return integer;
@@ -133,15 +272,95 @@ public class RgbColor implements Serializable
 
 
 	/**
-	 * Convert hex string to integer,
+	 * Appends a packed color as upper case hex string starting with {@link #HEX_COLOR_PREFIX}.
+	 *
+	 * @param rgb Packed {@code 0xRRGGBB} color.
+	 * @param sb  String builder to append to.
+	 *
+	 * @return The string builder.
+	 */
+	public static StringBuilder appendHex(final int rgb, final StringBuilder sb)
+	{
+		sb.append(HEX_COLOR_PREFIX);
+		for (int shift = 20; shift >= 0; shift -= 4) {
+			sb.append(HEX_DIGITS[rgb >> shift & 0xF]);
+		}
+		return sb;
+	}
+
+
+	/**
+	 * Returns a packed color as upper case hex string starting with {@link #HEX_COLOR_PREFIX}.
+	 *
+	 * @param rgb Packed {@code 0xRRGGBB} color.
+	 *
+	 * @return Color as upper case hex string.
+	 */
+	public static String toHex(final int rgb)
+	{
+		return appendHex(rgb, new StringBuilder(HEX_COLOR_LENGTH + 1)).toString();
+	}
+
+
+	/**
+	 * Returns the packed {@code 0xRRGGBB} color, with each component {@link #pack(int, int, int) clamped}.
+	 *
+	 * @return Packed color.
+	 */
+	public int getRgb()
+	{
+		return pack(r, g, b);
+	}
+
+
+	/**
+	 * Returns the red component.
 	 *
-	 * @param hex Hex string.
+	 * @return Red component.
+	 */
+	public int getRed()
+	{
+		return r;
+	}
+
+
+	/**
+	 * Returns the green component.
 	 *
-	 * @return Integer value.
+	 * @return Green component.
 	 */
-	private int hexToInt(String hex)
+	public int getGreen()
 	{
-		return Integer.parseInt(hex, 16);
+		return g;
+	}
+
+
+	/**
+	 * Returns the blue component.
+	 *
+	 * @return Blue component.
+	 */
+	public int getBlue()
+	{
+		return b;
+	}
+
+
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof RgbColor)) {
+			return false;
+		}
+		RgbColor other = (RgbColor) object;
+		return other.r == r && other.g == g && other.b == b;
+	}
+
+
+	@Override
+	public int hashCode()
+	{
+		return (r * 31 + g) * 31 + b;
 	}
 
 
@@ -153,6 +372,9 @@ public class RgbColor implements Serializable
 	@Override
 	public String toString()
 	{
+		if (((r | g | b) >>> 8) == 0) {
+			return toHex(r << 16 | g << 8 | b);
+		}
 		return String.format(HEX_COLOR, r, g, b);
 	}
 
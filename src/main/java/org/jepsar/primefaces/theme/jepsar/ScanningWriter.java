@@ -0,0 +1,64 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Writer feeding a {@link CssScanner}, so a {@link CssListener} (chain) can transform a style sheet while it is
+ * streamed. The listener should write to the output. Closing the writer {@link CssScanner#finish() finishes} the
+ * scanner and closes the output.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ScanningWriter extends Writer
+{
+
+	/**
+	 * Output.
+	 */
+	private final Writer out;
+
+	/**
+	 * Scanner reporting to the listener.
+	 */
+	private final CssScanner scanner;
+
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param listener Listener writing to the output.
+	 * @param out      Output.
+	 */
+	public ScanningWriter(CssListener listener, Writer out)
+	{
+		this.out = out;
+		this.scanner = new CssScanner(listener);
+	}
+
+
+	@Override
+	public void write(char[] chars, int offset, int length) throws IOException
+	{
+		scanner.write(chars, offset, length);
+	}
+
+
+	@Override
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		scanner.finish();
+		out.close();
+	}
+
+}
+
@@ -0,0 +1,502 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+
+/**
+ * Off-heap storage for {@link ThemeContent}, so large caches (for example one theme per tenant palette) do not keep
+ * hundreds of megabytes of long-lived arrays on the Java heap. Contents and their compressed variants are copied into
+ * direct {@link ByteBuffer} slabs, one after the other. When a new slab would exceed the capacity, the least recently
+ * {@link #touch(java.lang.Object) used} contents are released and their keys are passed to the eviction listener,
+ * which should remove them from the cache holding them, until the slab fits.
+ *
+ * <p>
+ * A slab is dropped as soon as all contents in it are {@link #release(java.lang.Object) released}, also when the cache
+ * holding them evicted or replaced them. A dropped slab is never written again, so requests still reading an evicted
+ * theme are not affected. Its memory is released by the garbage collector once no content, stream or buffer view refers
+ * to it anymore, until then it is still counted against the capacity. Content which does not fit next to such
+ * {@link #retained() retained} slabs is not stored, so the store never holds more direct memory than its capacity.
+ * Contents which are larger than a slab get a slab of their own, contents which are larger than the capacity are not
+ * stored. Direct memory is limited by the JVM, see {@code -XX:MaxDirectMemorySize}.
+ * </p>
+ *
+ * @param <K> Type of the keys of the stored contents.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class SlabStore<K>
+{
+
+	/**
+	 * Exception thrown if the capacity is invalid.
+	 */
+	private static final String IAE_INVALID_CAPACITY = "Capacity should be at least 1";
+
+	/**
+	 * Maximum size of a slab in bytes.
+	 */
+	private static final int MAXIMUM_SLAB_SIZE = 4 << 20;
+
+	/**
+	 * Maximum total size of the slabs in bytes.
+	 */
+	private final long capacity;
+
+	/**
+	 * Size of the slabs in bytes.
+	 */
+	private final int slabSize;
+
+	/**
+	 * Called with the key of each content released to make room.
+	 */
+	private final Consumer<? super K> evictionListener;
+
+	/**
+	 * Copies of each stored content and its variants, least recently used first. Guarded by itself.
+	 */
+	private final Map<K, List<Copy>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Slab contents are added to, {@code null} if there is none. Guarded by {@link #entries}.
+	 */
+	private Slab current;
+
+	/**
+	 * Total size of the slabs holding live copies in bytes. Guarded by {@link #entries}.
+	 */
+	private long size;
+
+	/**
+	 * Total size of the dropped slabs which are still referenced in bytes. Guarded by {@link #entries}.
+	 */
+	private long retained;
+
+	/**
+	 * References to the buffers of dropped slabs, kept until they are enqueued. Guarded by {@link #entries}.
+	 */
+	private final Set<DroppedSlab> dropped = new HashSet<>();
+
+	/**
+	 * Queue receiving the references to the buffers of dropped slabs once they are no longer referenced.
+	 */
+	private final ReferenceQueue<ByteBuffer> droppedQueue = new ReferenceQueue<>();
+
+
+	/**
+	 * Creates a store.
+	 *
+	 * @param capacity         Maximum total size of the slabs in bytes.
+	 * @param evictionListener Called with the key of each content released to make room, without holding any locks.
+	 *
+	 * @throws IllegalArgumentException If the capacity is smaller than 1.
+	 */
+	SlabStore(long capacity, Consumer<? super K> evictionListener)
+	{
+		if (capacity < 1) {
+			throw new IllegalArgumentException(IAE_INVALID_CAPACITY);
+		}
+		this.capacity = capacity;
+		this.slabSize = (int) Math.min(capacity, MAXIMUM_SLAB_SIZE);
+		this.evictionListener = evictionListener;
+	}
+
+
+	/**
+	 * Stores content, releasing content stored before for the same key. Content on the heap is copied into a slab,
+	 * content which is already kept outside the heap (like memory-mapped content), which is empty or which is larger
+	 * than the capacity is not copied, nor is content which does not fit next to the {@link #retained() retained}
+	 * slabs. Compressed variants of the returned content are copied into slabs as well, as long as the content is
+	 * stored.
+	 *
+	 * @param key     Key of the content, passed to the eviction listener when it is released to make room.
+	 * @param content Content.
+	 *
+	 * @return Stored content.
+	 */
+	ThemeContent store(K key, ThemeContent content)
+	{
+		if (content.isDirect() || content.length() == 0 || content.length() > capacity) {
+			release(key);
+			return content;
+		}
+		List<K> evicted = new ArrayList<>();
+		ByteBuffer buffer;
+		synchronized (entries) {
+			remove(key);
+			entries.put(key, new ArrayList<>());
+			buffer = add(key, content.asByteBuffer(), evicted);
+			if (buffer == null) {
+				entries.remove(key);
+			}
+		}
+		evicted.forEach(evictionListener);
+		return buffer == null ? content : new ThemeContent(buffer, variant -> copy(key, variant));
+	}
+
+
+	/**
+	 * Marks the content stored for the key as recently used, so it is released last.
+	 *
+	 * @param key Key.
+	 */
+	void touch(K key)
+	{
+		synchronized (entries) {
+			entries.get(key);
+		}
+	}
+
+
+	/**
+	 * Releases the content stored for the key and its variants. Slabs of which all contents are released are dropped.
+	 *
+	 * @param key Key.
+	 */
+	void release(K key)
+	{
+		synchronized (entries) {
+			remove(key);
+		}
+	}
+
+
+	/**
+	 * Copies the remaining bytes of a buffer into a slab, if the content with the key is still stored and the bytes fit
+	 * the capacity next to the {@link #retained() retained} slabs.
+	 *
+	 * @param key    Key of the content the bytes belong to.
+	 * @param buffer Buffer.
+	 *
+	 * @return Copy, or the buffer itself if not copied.
+	 */
+	private ByteBuffer copy(K key, ByteBuffer buffer)
+	{
+		if (buffer.remaining() > capacity) {
+			return buffer;
+		}
+		List<K> evicted = new ArrayList<>();
+		ByteBuffer copy;
+		synchronized (entries) {
+			copy = entries.containsKey(key) ? add(key, buffer, evicted) : null;
+		}
+		evicted.forEach(evictionListener);
+		return copy == null ? buffer : copy;
+	}
+
+
+	/**
+	 * Adds the remaining bytes of a buffer to the current slab. If they don't fit, a new slab is started, first
+	 * releasing the least recently used contents (but not the content with the key) while the new slab would exceed the
+	 * capacity, or until the current slab is dropped. The new slab is only allocated if it fits next to the
+	 * {@link #retained() retained} slabs, nothing is released if it would not fit next to them anyway. Should be called
+	 * while holding the lock on {@link #entries}, with an entry for the key.
+	 *
+	 * @param key     Key of the content the bytes belong to.
+	 * @param buffer  Buffer, at most the capacity.
+	 * @param evicted Receives the keys of the released contents.
+	 *
+	 * @return Copy, or {@code null} if there is no room.
+	 */
+	private ByteBuffer add(K key, ByteBuffer buffer, List<K> evicted)
+	{
+		int length = buffer.remaining();
+		Slab slab = current;
+		if (!fits(length)) {
+			int allocation = Math.max(slabSize, length);
+			expungeDropped();
+			if (retained + allocation > capacity) {
+				return null;
+			}
+			for (Iterator<Map.Entry<K, List<Copy>>> eldest = entries.entrySet().iterator();
+					 !fits(length) && size + allocation > capacity && eldest.hasNext();) {
+				Map.Entry<K, List<Copy>> entry = eldest.next();
+				if (!entry.getKey().equals(key)) {
+					eldest.remove();
+					release(entry.getValue());
+					evicted.add(entry.getKey());
+				}
+			}
+			slab = current;
+			if (!fits(length)) {
+				if (size + retained + allocation > capacity) {
+					return null;
+				}
+				slab = new Slab(allocation);
+				size += allocation;
+				if (length <= slabSize) {
+					current = slab;
+				}
+			}
+		}
+		Copy copy = slab.add(buffer);
+		entries.get(key).add(copy);
+		return copy.buffer;
+	}
+
+
+	/**
+	 * Returns {@code true} if the bytes fit in the current slab. Should be called while holding the lock on
+	 * {@link #entries}.
+	 *
+	 * @param length Number of bytes.
+	 *
+	 * @return {@code true} if the bytes fit in the current slab.
+	 */
+	private boolean fits(int length)
+	{
+		return current != null && current.remaining() >= length;
+	}
+
+
+	/**
+	 * Removes the entry for the key and releases its copies. Should be called while holding the lock on
+	 * {@link #entries}.
+	 *
+	 * @param key Key.
+	 */
+	private void remove(K key)
+	{
+		List<Copy> copies = entries.remove(key);
+		if (copies != null) {
+			release(copies);
+		}
+	}
+
+
+	/**
+	 * Releases copies, dropping slabs which no longer hold any live copy, including the current slab. Should be called
+	 * while holding the lock on {@link #entries}.
+	 *
+	 * @param copies Copies.
+	 */
+	private void release(List<Copy> copies)
+	{
+		for (Copy copy : copies) {
+			Slab slab = copy.slab;
+			slab.live -= copy.buffer.capacity();
+			if (slab.live == 0) {
+				if (slab == current) {
+					current = null;
+				}
+				drop(slab);
+			}
+		}
+	}
+
+
+	/**
+	 * Drops a slab, which is {@link #retained() retained} until its buffer is no longer referenced. Should be called
+	 * while holding the lock on {@link #entries}.
+	 *
+	 * @param slab Slab without live copies.
+	 */
+	private void drop(Slab slab)
+	{
+		int capacity = slab.buffer.capacity();
+		size -= capacity;
+		retained += capacity;
+		dropped.add(new DroppedSlab(slab.buffer, capacity, droppedQueue));
+	}
+
+
+	/**
+	 * Stops counting dropped slabs of which the buffer is no longer referenced. Should be called while holding the lock
+	 * on {@link #entries}.
+	 */
+	private void expungeDropped()
+	{
+		for (Reference<? extends ByteBuffer> reference; (reference = droppedQueue.poll()) != null;) {
+			DroppedSlab slab = (DroppedSlab) reference;
+			if (dropped.remove(slab)) {
+				retained -= slab.capacity;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the total size of the slabs, including the {@link #retained() retained} slabs.
+	 *
+	 * @return Size in bytes.
+	 */
+	long size()
+	{
+		synchronized (entries) {
+			expungeDropped();
+			return size + retained;
+		}
+	}
+
+
+	/**
+	 * Returns the total size of the dropped slabs which are still referenced, for example by requests still reading an
+	 * evicted theme.
+	 *
+	 * @return Size in bytes.
+	 */
+	long retained()
+	{
+		synchronized (entries) {
+			expungeDropped();
+			return retained;
+		}
+	}
+
+
+	/**
+	 * Returns the number of stored contents.
+	 *
+	 * @return Number of stored contents.
+	 */
+	int count()
+	{
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+
+
+	/**
+	 * Direct buffer holding contents one after the other.
+	 */
+	private static final class Slab
+	{
+
+		/**
+		 * Direct buffer.
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Position at which the next content is added.
+		 */
+		private int position;
+
+		/**
+		 * Number of bytes of the copies in this slab which are not released.
+		 */
+		private long live;
+
+
+		/**
+		 * Allocates a slab.
+		 *
+		 * @param size Size in bytes.
+		 */
+		Slab(int size)
+		{
+			this.buffer = ByteBuffer.allocateDirect(size);
+		}
+
+
+		/**
+		 * Returns the number of bytes which can still be added.
+		 *
+		 * @return Number of bytes.
+		 */
+		int remaining()
+		{
+			return buffer.capacity() - position;
+		}
+
+
+		/**
+		 * Copies the remaining bytes of a buffer into this slab.
+		 *
+		 * @param source Buffer, which is not changed.
+		 *
+		 * @return Copy.
+		 */
+		Copy add(ByteBuffer source)
+		{
+			int length = source.remaining();
+			ByteBuffer copy = buffer.duplicate();
+			copy.position(position);
+			copy.limit(position + length);
+			copy.put(source.duplicate());
+			copy.position(position);
+			position += length;
+			live += length;
+			return new Copy(this, copy.slice());
+		}
+
+	}
+
+
+
+	/**
+	 * Copy of a content or variant in a slab.
+	 */
+	private static final class Copy
+	{
+
+		/**
+		 * Slab holding the copy.
+		 */
+		private final Slab slab;
+
+		/**
+		 * Copied bytes.
+		 */
+		private final ByteBuffer buffer;
+
+
+		/**
+		 * Creates a copy.
+		 *
+		 * @param slab   Slab holding the copy.
+		 * @param buffer Copied bytes.
+		 */
+		Copy(Slab slab, ByteBuffer buffer)
+		{
+			this.slab = slab;
+			this.buffer = buffer;
+		}
+
+	}
+
+
+
+	/**
+	 * Reference to the buffer of a dropped slab, enqueued once the buffer is no longer referenced.
+	 */
+	private static final class DroppedSlab extends PhantomReference<ByteBuffer>
+	{
+
+		/**
+		 * Size of the buffer in bytes.
+		 */
+		private final int capacity;
+
+
+		/**
+		 * Creates a reference.
+		 *
+		 * @param buffer   Buffer of the dropped slab.
+		 * @param capacity Size of the buffer in bytes.
+		 * @param queue    Queue to enqueue the reference to.
+		 */
+		DroppedSlab(ByteBuffer buffer, int capacity, ReferenceQueue<? super ByteBuffer> queue)
+		{
+			super(buffer, queue);
+			this.capacity = capacity;
+		}
+
+	}
+
+}
+
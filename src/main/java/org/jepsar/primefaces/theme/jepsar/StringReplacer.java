@@ -0,0 +1,477 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+
+/**
+ * Replaces multiple find values in a single linear scan using an Aho-Corasick automaton.
+ *
+ * <p>
+ * The automaton is built once from the find list and is compiled into a deterministic transition table, so each input
+ * character costs a single table lookup no matter how many find values there are. Replacements are written to the
+ * output as soon as no other match can start at the same position, so replaced text is never scanned again (no
+ * overwriting).
+ * </p>
+ *
+ * <p>
+ * If multiple find values match, the leftmost match wins. If multiple find values match at the same position, the
+ * value which comes first in the find list wins.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class StringReplacer
+{
+
+	/**
+	 * Number of ASCII characters, which are mapped using a lookup table.
+	 */
+	private static final int ASCII_SIZE = 128;
+
+	/**
+	 * Extra room reserved in the output buffer for replacements which are longer than the text they replace.
+	 */
+	private static final int OUTPUT_SLACK = 1024;
+
+	/**
+	 * Exception thrown if find and replace list differ in size.
+	 */
+	private static final String IAE_SIZE_DIFFERS = "Find and replace list differ in length";
+
+	/**
+	 * Exception thrown if an empty find value is set.
+	 */
+	private static final String IAE_EMPTY_FIND_VALUE = "Find values should not be empty";
+
+	/**
+	 * Values to search for.
+	 */
+	private final String[] findValues;
+
+	/**
+	 * Values to replace with.
+	 */
+	private final String[] replaceValues;
+
+	/**
+	 * Character class for each ASCII character. Class {@code 0} is used for characters not part of any find value.
+	 */
+	private final int[] asciiClasses = new int[ASCII_SIZE];
+
+	/**
+	 * Character class for non ASCII characters which are part of a find value.
+	 */
+	private final Map<Character, Integer> otherClasses = new HashMap<>();
+
+	/**
+	 * Number of character classes.
+	 */
+	private final int classCount;
+
+	/**
+	 * Transition table. The next state is found at {@code state * classCount + class}.
+	 */
+	private final int[] transitions;
+
+	/**
+	 * Depth (length of the matched prefix) for each state.
+	 */
+	private final int[] depths;
+
+	/**
+	 * Indices of the find values which end in each state, ordered by find list position. {@code null} if none.
+	 */
+	private final int[][] outputs;
+
+	/**
+	 * Length of the longest find value.
+	 */
+	private final int maxLength;
+
+
+	/**
+	 * Builds the automaton for the find values.
+	 *
+	 * @param findValues    Values to search for.
+	 * @param replaceValues Values to replace with, at the same position as the find value.
+	 *
+	 * @throws IllegalArgumentException If find and replace list differ in size or if a find value is empty.
+	 */
+	public StringReplacer(List<String> findValues, List<String> replaceValues)
+	{
+		if (findValues.size() != replaceValues.size()) {
+			throw new IllegalArgumentException(IAE_SIZE_DIFFERS);
+		}
+		this.findValues = findValues.toArray(new String[findValues.size()]);
+		this.replaceValues = replaceValues.toArray(new String[replaceValues.size()]);
+
+		int classes = 1;
+		int length = 0;
+		for (String findValue : this.findValues) {
+			if (findValue.isEmpty()) {
+				throw new IllegalArgumentException(IAE_EMPTY_FIND_VALUE);
+			}
+			length = Math.max(length, findValue.length());
+			for (char c : findValue.toCharArray()) {
+				if (classOf(c) == 0) {
+					if (c < ASCII_SIZE) {
+						asciiClasses[c] = classes++;
+					}
+					else {
+						otherClasses.put(c, classes++);
+					}
+				}
+			}
+		}
+		this.classCount = classes;
+		this.maxLength = length;
+
+		// Build the trie
+		List<int[]> trie = new ArrayList<>();
+		List<Integer> trieDepths = new ArrayList<>();
+		List<List<Integer>> trieOutputs = new ArrayList<>();
+		trie.add(newRow());
+		trieDepths.add(0);
+		trieOutputs.add(new ArrayList<Integer>());
+		for (int i = 0; i < this.findValues.length; i++) {
+			int state = 0;
+			for (char c : this.findValues[i].toCharArray()) {
+				int cls = classOf(c);
+				if (trie.get(state)[cls] < 0) {
+					trie.get(state)[cls] = trie.size();
+					trie.add(newRow());
+					trieDepths.add(trieDepths.get(state) + 1);
+					trieOutputs.add(new ArrayList<Integer>());
+				}
+				state = trie.get(state)[cls];
+			}
+			trieOutputs.get(state).add(i);
+		}
+
+		// Compute failure links breadth first and turn the trie into a deterministic automaton
+		int states = trie.size();
+		int[] fail = new int[states];
+		this.transitions = new int[states * classCount];
+		this.depths = new int[states];
+		this.outputs = new int[states][];
+		Queue<Integer> queue = new LinkedList<>();
+		for (int cls = 0; cls < classCount; cls++) {
+			int next = trie.get(0)[cls];
+			if (next < 0) {
+				transitions[cls] = 0;
+			}
+			else {
+				transitions[cls] = next;
+				fail[next] = 0;
+				queue.add(next);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			List<Integer> stateOutputs = trieOutputs.get(state);
+			stateOutputs.addAll(trieOutputs.get(fail[state]));
+			for (int cls = 0; cls < classCount; cls++) {
+				int next = trie.get(state)[cls];
+				if (next < 0) {
+					transitions[state * classCount + cls] = transitions[fail[state] * classCount + cls];
+				}
+				else {
+					transitions[state * classCount + cls] = next;
+					fail[next] = transitions[fail[state] * classCount + cls];
+					queue.add(next);
+				}
+			}
+		}
+		for (int state = 0; state < states; state++) {
+			depths[state] = trieDepths.get(state);
+			List<Integer> stateOutputs = trieOutputs.get(state);
+			if (!stateOutputs.isEmpty()) {
+				int[] indices = new int[stateOutputs.size()];
+				for (int i = 0; i < indices.length; i++) {
+					indices[i] = stateOutputs.get(i);
+				}
+				Arrays.sort(indices);
+				outputs[state] = indices;
+			}
+		}
+	}
+
+
+	/**
+	 * Replaces each find value in the input with the replace value at the same position in a single scan.
+	 *
+	 * @param input Input to perform the replacements on.
+	 *
+	 * @return Input with replaced values.
+	 */
+	public String replace(String input)
+	{
+		StringBuilder sb = new StringBuilder(input.length() + OUTPUT_SLACK);
+		Scan scan = new Scan(sb);
+		for (int i = 0; i < input.length(); i++) {
+			scan.next(input.charAt(i));
+		}
+		scan.finish();
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns a writer which performs the replacements on the characters written to it and writes the result to the
+	 * output. At most the length of the longest find value is held back. Closing the writer writes the remaining
+	 * characters and closes the output.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Replacing writer.
+	 */
+	public Writer newWriter(Writer out)
+	{
+		return new ReplacingWriter(out);
+	}
+
+
+	/**
+	 * Starts a scan writing the replaced characters to the output, for replacers driving the scan themselves.
+	 *
+	 * @param out Output.
+	 *
+	 * @return Scan.
+	 */
+	Scan newScan(StringBuilder out)
+	{
+		return new Scan(out);
+	}
+
+
+	/**
+	 * Returns the character class for a character.
+	 *
+	 * @param c Character.
+	 *
+	 * @return Character class, {@code 0} if the character is not part of any find value.
+	 */
+	private int classOf(char c)
+	{
+		if (c < ASCII_SIZE) {
+			return asciiClasses[c];
+		}
+		Integer cls = otherClasses.get(c);
+		return cls == null ? 0 : cls;
+	}
+
+
+	/**
+	 * Creates a new trie row without transitions.
+	 *
+	 * @return Trie row filled with {@code -1}.
+	 */
+	private int[] newRow()
+	{
+		int[] row = new int[classCount];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+
+	/**
+	 * State of a single scan. Keeps the characters which might still be part of a match in a ring buffer.
+	 */
+	class Scan
+	{
+
+		/**
+		 * Output.
+		 */
+		private final StringBuilder out;
+
+		/**
+		 * Characters which are not written yet, indexed by position modulo the buffer length.
+		 */
+		private final char[] pending = new char[maxLength + 1];
+
+		/**
+		 * Index of the best find value starting at a pending position, {@code -1} if none.
+		 */
+		private final int[] matches = new int[maxLength + 1];
+
+		/**
+		 * Current automaton state.
+		 */
+		private int state;
+
+		/**
+		 * Position of the next input character.
+		 */
+		private long position;
+
+		/**
+		 * Position of the next character to write.
+		 */
+		private long written;
+
+
+		/**
+		 * Creates a scan writing to the output.
+		 *
+		 * @param out Output.
+		 */
+		Scan(StringBuilder out)
+		{
+			this.out = out;
+			Arrays.fill(matches, -1);
+		}
+
+
+		/**
+		 * Processes the next input character.
+		 *
+		 * @param c Input character.
+		 */
+		void next(char c)
+		{
+			pending[(int) (position % pending.length)] = c;
+			state = transitions[state * classCount + classOf(c)];
+			int[] found = outputs[state];
+			if (found != null) {
+				for (int index : found) {
+					long start = position - findValues[index].length() + 1;
+					if (start >= written) {
+						int slot = (int) (start % matches.length);
+						if (matches[slot] < 0 || index < matches[slot]) {
+							matches[slot] = index;
+						}
+					}
+				}
+			}
+			position++;
+			write(position - depths[state]);
+		}
+
+
+		/**
+		 * Writes all remaining characters. The scan can be continued, but no match spans the characters processed before
+		 * and after finishing.
+		 */
+		void finish()
+		{
+			write(position);
+			state = 0;
+		}
+
+
+		/**
+		 * Writes characters and replacements for all positions before the limit. No match can start before the limit
+		 * anymore.
+		 *
+		 * @param limit Position up to which characters can be written.
+		 */
+		private void write(long limit)
+		{
+			while (written < limit) {
+				int slot = (int) (written % matches.length);
+				int index = matches[slot];
+				if (index < 0) {
+					out.append(pending[slot]);
+					written++;
+				}
+				else {
+					out.append(replaceValues[index]);
+					long end = written + findValues[index].length();
+					while (written < end) {
+						matches[(int) (written++ % matches.length)] = -1;
+					}
+				}
+			}
+		}
+
+	}
+
+
+
+	/**
+	 * Writer performing the replacements using a {@link Scan}.
+	 */
+	private class ReplacingWriter extends Writer
+	{
+
+		/**
+		 * Output.
+		 */
+		private final Writer out;
+
+		/**
+		 * Replaced characters which are not written to the {@link #out output} yet.
+		 */
+		private final StringBuilder buffer = new StringBuilder(OUTPUT_SLACK);
+
+		/**
+		 * Scan writing to the {@link #buffer}.
+		 */
+		private final Scan scan = new Scan(buffer);
+
+
+		/**
+		 * Creates a writer writing to the output.
+		 *
+		 * @param out Output.
+		 */
+		ReplacingWriter(Writer out)
+		{
+			this.out = out;
+		}
+
+
+		@Override
+		public void write(char[] chars, int offset, int length) throws IOException
+		{
+			for (int i = offset; i < offset + length; i++) {
+				scan.next(chars[i]);
+			}
+			drain();
+		}
+
+
+		@Override
+		public void flush() throws IOException
+		{
+			out.flush();
+		}
+
+
+		@Override
+		public void close() throws IOException
+		{
+			scan.finish();
+			drain();
+			out.close();
+		}
+
+
+		/**
+		 * Writes the {@link #buffer} to the {@link #out output}.
+		 *
+		 * @throws IOException
+		 */
+		private void drain() throws IOException
+		{
+			out.append(buffer);
+			buffer.setLength(0);
+		}
+
+	}
+
+}
@@ -0,0 +1,301 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * Immutable, charset encoded content of a transformed resource. The content is kept in a read-only
+ * {@link ByteBuffer} and can be read by any number of threads through {@link #newInputStream() input stream views}
+ * which do not copy the content. {@link #getVariant(ContentEncoding) Compressed variants} are created once on first
+ * use and kept next to the content. The {@link #getHash() content hash} can be used to version URLs and as ETag.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public final class ThemeContent
+{
+
+	/**
+	 * Algorithm used to compute the {@link #hash}.
+	 */
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	/**
+	 * Number of hash bytes used in the {@link #hash}.
+	 */
+	private static final int HASH_LENGTH = 10;
+
+	/**
+	 * Read-only content, positioned at the start of the content.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Content array, {@code null} if the content was not created from an array.
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * Copies the content of {@link #getVariant(ContentEncoding) variants} into their storage, {@code null} to keep them
+	 * on the heap.
+	 */
+	private final UnaryOperator<ByteBuffer> storage;
+
+	/**
+	 * Compressed variants by {@link ContentEncoding#ordinal() encoding ordinal}.
+	 */
+	private final AtomicReferenceArray<ThemeContent> variants =
+			new AtomicReferenceArray<>(ContentEncoding.values().length);
+
+	/**
+	 * Hex encoded hash of the content, computed on first use.
+	 */
+	private volatile String hash;
+
+
+	/**
+	 * Creates content from a byte array. The array should not be modified afterwards.
+	 *
+	 * @param bytes Content.
+	 */
+	public ThemeContent(byte[] bytes)
+	{
+		this.buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+		this.bytes = bytes;
+		this.storage = null;
+	}
+
+
+	/**
+	 * Creates content from the remaining bytes of a buffer. The buffer content should not be modified afterwards.
+	 *
+	 * @param buffer Content.
+	 */
+	public ThemeContent(ByteBuffer buffer)
+	{
+		this(buffer, null);
+	}
+
+
+	/**
+	 * Creates content from the remaining bytes of a buffer, storing its variants using the storage. The buffer content
+	 * should not be modified afterwards.
+	 *
+	 * @param buffer  Content.
+	 * @param storage Copies the remaining bytes of a buffer into storage and returns the copy, {@code null} to keep
+	 *                variants on the heap.
+	 */
+	ThemeContent(ByteBuffer buffer, UnaryOperator<ByteBuffer> storage)
+	{
+		this.buffer = buffer.slice().asReadOnlyBuffer();
+		this.bytes = null;
+		this.storage = storage;
+	}
+
+
+	/**
+	 * Returns the content length in bytes.
+	 *
+	 * @return Content length in bytes.
+	 */
+	public int length()
+	{
+		return buffer.remaining();
+	}
+
+
+	/**
+	 * Returns {@code true} if the content is kept outside the Java heap, like memory-mapped or off-heap content.
+	 *
+	 * @return {@code true} if the content is kept outside the Java heap.
+	 */
+	public boolean isDirect()
+	{
+		return buffer.isDirect();
+	}
+
+
+	/**
+	 * Returns a read-only view of the content with its own position and limit.
+	 *
+	 * @return Read-only view of the content.
+	 */
+	public ByteBuffer asByteBuffer()
+	{
+		return buffer.duplicate();
+	}
+
+
+	/**
+	 * Returns a hex encoded hash of the content. Equal content has equal hashes.
+	 *
+	 * @return Hex encoded hash of the content.
+	 */
+	public String getHash()
+	{
+		String result = hash;
+		if (result == null) {
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance(HASH_ALGORITHM);
+			}
+			catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException(ex);
+			}
+			digest.update(asByteBuffer());
+			byte[] bytes = digest.digest();
+			StringBuilder sb = new StringBuilder(HASH_LENGTH * 2);
+			for (int i = 0; i < HASH_LENGTH; i++) {
+				sb.append(String.format("%02x", bytes[i]));
+			}
+			result = sb.toString();
+			hash = result;
+		}
+		return result;
+	}
+
+
+	/**
+	 * Returns a copy of the content as a byte array.
+	 *
+	 * @return Copy of the content.
+	 */
+	public byte[] toByteArray()
+	{
+		byte[] bytes = new byte[length()];
+		asByteBuffer().get(bytes);
+		return bytes;
+	}
+
+
+	/**
+	 * Returns the content encoded with the encoding. The encoded variant is created on first use and kept, so each
+	 * encoding is applied only once. Variants of content with a storage are kept in that storage.
+	 *
+	 * @param encoding Content encoding.
+	 *
+	 * @return Encoded content, this content for {@link ContentEncoding#IDENTITY}.
+	 */
+	public ThemeContent getVariant(ContentEncoding encoding)
+	{
+		if (encoding == ContentEncoding.IDENTITY) {
+			return this;
+		}
+		ThemeContent variant = variants.get(encoding.ordinal());
+		if (variant == null) {
+			synchronized (variants) {
+				variant = variants.get(encoding.ordinal());
+				if (variant == null) {
+					byte[] encoded = encoding.encode(toByteArray());
+					variant = storage == null
+							? new ThemeContent(encoded)
+							: new ThemeContent(storage.apply(ByteBuffer.wrap(encoded)), storage);
+					variants.set(encoding.ordinal(), variant);
+				}
+			}
+		}
+		return variant;
+	}
+
+
+	/**
+	 * Writes the content to an output stream. Content created from an array is written in a single call without copying
+	 * it.
+	 *
+	 * @param out Output stream, not closed.
+	 *
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		if (bytes != null) {
+			out.write(bytes);
+		}
+		else {
+			Channels.newChannel(out).write(asByteBuffer());
+		}
+	}
+
+
+	/**
+	 * Returns a new input stream reading the content without copying it.
+	 *
+	 * @return Input stream reading the content.
+	 */
+	public InputStream newInputStream()
+	{
+		return new ByteBufferInputStream(asByteBuffer());
+	}
+
+
+	/**
+	 * Input stream reading from a byte buffer.
+	 */
+	private static final class ByteBufferInputStream extends InputStream
+	{
+
+		/**
+		 * Buffer to read from.
+		 */
+		private final ByteBuffer buffer;
+
+
+		/**
+		 * Creates a stream reading the remaining bytes of the buffer.
+		 *
+		 * @param buffer Buffer to read from.
+		 */
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+		{
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, read);
+			return read;
+		}
+
+
+		@Override
+		public long skip(long n)
+		{
+			int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+
+		@Override
+		public int available()
+		{
+			return buffer.remaining();
+		}
+
+	}
+
+}
@@ -0,0 +1,533 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Build-time generator applying the same transformation as one of the resource handlers to PrimeFaces themes. The
+ * results are written as static resources in the {@link AbstractResourceHandler#PRECOMPILED_LIBRARY}, which the
+ * handlers serve directly when {@link AbstractResourceHandler#PARAM_NAME_PRECOMPILED} is enabled.
+ *
+ * <p>
+ * Usage:
+ * </p>
+ * <pre>
+ * java org.jepsar.primefaces.theme.jepsar.ThemeGenerator --mode replace|font-awesome|no-theme --output DIR
+ *   [--find VALUES] [--replace VALUES] [--append FILE] [--charset CHARSET] [--match-colors]
+ *   [--shade-space linear|hsl|oklab] [--minify] THEME_JAR_OR_DIR...
+ * </pre>
+ *
+ * <p>
+ * Themes are read from {@code META-INF/resources/primefaces-*}{@code /theme.css} entries of the given JARs or
+ * directories. Expression language in the themes (like {@code #{resource[...]}}) is kept, so it is still evaluated when
+ * the theme is served. The appended CSS may not contain expression language, as the handlers evaluate it before
+ * appending it.
+ * </p>
+ *
+ * <p>
+ * Each generated theme starts with a comment holding a {@link #getFingerprint(java.lang.String, byte[],
+ * java.lang.String, boolean, java.nio.charset.Charset) fingerprint} of all its inputs. The handlers only serve a
+ * generated theme if its fingerprint matches the theme and configuration at runtime.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ThemeGenerator
+{
+
+	/**
+	 * Resource base path inside JARs and directories.
+	 */
+	private static final String RESOURCES_PATH = "META-INF/resources/";
+
+	/**
+	 * Theme entry inside JARs.
+	 */
+	private static final Pattern THEME_ENTRY = Pattern.compile("META-INF/resources/(primefaces-[^/]+)/theme\\.css");
+
+	/**
+	 * Class path location of the compiled Font Awesome CSS patch.
+	 */
+	private static final String FONT_AWESOME_CSS = "META-INF/resources/primefaces-jepsar/fontawesome.css";
+
+	/**
+	 * Usage message.
+	 */
+	private static final String USAGE = "Usage: ThemeGenerator --mode replace|font-awesome|no-theme --output DIR"
+																			+ " [--find VALUES] [--replace VALUES] [--append FILE] [--charset CHARSET]"
+																			+ " [--match-colors] [--shade-space linear|hsl|oklab] [--minify]"
+																			+ " THEME_JAR_OR_DIR...";
+
+	/**
+	 * Exception thrown if no replacement values were set in replace mode.
+	 */
+	private static final String IAE_NO_REPLACEMENTS = "--replace is required in replace mode";
+
+	/**
+	 * Exception thrown if the appended CSS contains expression language.
+	 */
+	private static final String IAE_APPEND_EXPRESSION = "--append CSS should not contain expression language (#{...})";
+
+	/**
+	 * Exception thrown if the Font Awesome patch could not be found.
+	 */
+	private static final String ISE_NO_FONT_AWESOME_CSS = "Font Awesome patch %s not found on class path";
+
+	/**
+	 * Start of the comment holding the fingerprint, at the start of each generated theme.
+	 */
+	private static final String FINGERPRINT_COMMENT_START = "/*! jepsar-fingerprint ";
+
+	/**
+	 * End of the comment holding the fingerprint.
+	 */
+	private static final String FINGERPRINT_COMMENT_END = " */";
+
+	/**
+	 * Maximum length in bytes of the line holding the fingerprint comment.
+	 */
+	private static final int FINGERPRINT_COMMENT_LENGTH = 128;
+
+	/**
+	 * Algorithm used to compute fingerprints.
+	 */
+	private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+	/**
+	 * Transformation mode.
+	 */
+	private final Mode mode;
+
+	/**
+	 * Find and replace configuration, only used in {@link Mode#REPLACE}.
+	 */
+	private final ReplacementPlan plan;
+
+	/**
+	 * Font Awesome CSS patch, only used in {@link Mode#FONT_AWESOME}.
+	 */
+	private final String fontAwesomeCss;
+
+	/**
+	 * Custom CSS to append, may be empty.
+	 */
+	private final String appendCss;
+
+	/**
+	 * {@code true} to minify the transformed themes, like {@link AbstractResourceHandler#PARAM_NAME_MINIFY}.
+	 */
+	private final boolean minify;
+
+
+	/**
+	 * Creates a generator.
+	 *
+	 * @param mode      Transformation mode.
+	 * @param plan      Find and replace configuration, required in {@link Mode#REPLACE}.
+	 * @param appendCss Custom CSS to append, may be {@code null}.
+	 *
+	 * @throws IOException If the Font Awesome patch could not be read.
+	 */
+	public ThemeGenerator(Mode mode, ReplacementPlan plan, String appendCss) throws IOException
+	{
+		this(mode, plan, appendCss, false);
+	}
+
+
+	/**
+	 * Creates a generator.
+	 *
+	 * @param mode      Transformation mode.
+	 * @param plan      Find and replace configuration, required in {@link Mode#REPLACE}.
+	 * @param appendCss Custom CSS to append, may be {@code null}.
+	 * @param minify    {@code true} to minify the transformed themes.
+	 *
+	 * @throws IOException If the Font Awesome patch could not be read.
+	 * @throws IllegalArgumentException If no plan is set in {@link Mode#REPLACE} or if the appended CSS contains
+	 *                                  expression language.
+	 */
+	public ThemeGenerator(Mode mode, ReplacementPlan plan, String appendCss, boolean minify) throws IOException
+	{
+		if (mode == Mode.REPLACE && plan == null) {
+			throw new IllegalArgumentException(IAE_NO_REPLACEMENTS);
+		}
+		if (appendCss != null && appendCss.contains("#{")) {
+			throw new IllegalArgumentException(IAE_APPEND_EXPRESSION);
+		}
+		this.mode = mode;
+		this.plan = plan;
+		this.fontAwesomeCss = mode == Mode.FONT_AWESOME ? readFontAwesomeCss() : null;
+		this.appendCss = appendCss == null ? "" : appendCss;
+		this.minify = minify;
+	}
+
+
+	/**
+	 * Transforms a theme in the same way as the resource for the {@link #mode} does, and {@link #minify minifies} it if
+	 * enabled.
+	 *
+	 * @param css Theme CSS.
+	 *
+	 * @return Transformed CSS.
+	 */
+	public String transform(String css)
+	{
+		StringBuilder sb;
+		switch (mode) {
+			case REPLACE:
+				sb = new StringBuilder(plan.apply(css));
+				break;
+			case FONT_AWESOME:
+				sb = new StringBuilder(IconStripper.strip(css)).append(fontAwesomeCss);
+				break;
+			default:
+				sb = new StringBuilder();
+		}
+		String transformed = sb.append(appendCss).toString();
+		return minify ? CssMinifier.minify(transformed) : transformed;
+	}
+
+
+	/**
+	 * Returns the fingerprint of the configuration of the handler matching the {@link #mode}.
+	 *
+	 * @return Fingerprint of the configuration.
+	 */
+	private String getConfigurationFingerprint()
+	{
+		switch (mode) {
+			case REPLACE:
+				return plan.getFingerprint();
+			case FONT_AWESOME:
+				return FontAwesomeResourceHandler.FINGERPRINT;
+			default:
+				return NoThemeResourceHandler.FINGERPRINT;
+		}
+	}
+
+
+	/**
+	 * Transforms all themes found in the inputs and writes them to the output directory, each starting with a comment
+	 * holding its fingerprint.
+	 *
+	 * @param inputs  JARs or directories containing themes.
+	 * @param output  Output directory.
+	 * @param charset Charset to write the themes in.
+	 *
+	 * @return Number of generated themes.
+	 *
+	 * @throws IOException
+	 */
+	public int generate(List<Path> inputs, Path output, Charset charset) throws IOException
+	{
+		Map<String, String> themes = new LinkedHashMap<>();
+		for (Path input : inputs) {
+			readThemes(input, themes);
+		}
+		Path base = output.resolve(RESOURCES_PATH + AbstractResourceHandler.PRECOMPILED_LIBRARY);
+		for (Map.Entry<String, String> theme : themes.entrySet()) {
+			Path file = base.resolve(theme.getKey()).resolve(AbstractResourceHandler.PRIMEFACES_THEME);
+			Files.createDirectories(file.getParent());
+			byte[] source = theme.getValue().getBytes(StandardCharsets.UTF_8);
+			String fingerprint = getFingerprint(getConfigurationFingerprint(), source, appendCss, minify, charset);
+			String css = FINGERPRINT_COMMENT_START + fingerprint + FINGERPRINT_COMMENT_END + '\n'
+									 + transform(theme.getValue());
+			Files.write(file, css.getBytes(charset));
+		}
+		return themes.size();
+	}
+
+
+	/**
+	 * Returns a fingerprint of all inputs of a generated theme. The Font Awesome patch of this library is always
+	 * included, so themes generated by another version of this library do not match.
+	 *
+	 * @param configuration Fingerprint of the handler configuration.
+	 * @param theme         Theme source as read from its JAR, before evaluating its expression language.
+	 * @param appendCss     Appended CSS, empty if none.
+	 * @param minify        {@code true} if the theme is minified.
+	 * @param charset       Charset the theme is encoded in.
+	 *
+	 * @return Hex encoded fingerprint.
+	 *
+	 * @throws IOException If the Font Awesome patch could not be read.
+	 */
+	static String getFingerprint(String configuration, byte[] theme, String appendCss, boolean minify, Charset charset)
+			throws IOException
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		String[] parts = {configuration, appendCss, String.valueOf(minify), charset.name(), readFontAwesomeCss()};
+		for (String part : parts) {
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		digest.update(theme);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Reads the fingerprint from the comment at the start of a generated theme.
+	 *
+	 * @param in Generated theme, not closed.
+	 *
+	 * @return Fingerprint, {@code null} if the theme does not start with a fingerprint comment.
+	 *
+	 * @throws IOException
+	 */
+	static String readFingerprint(InputStream in) throws IOException
+	{
+		StringBuilder line = new StringBuilder();
+		int b;
+		while ((b = in.read()) > -1 && b != '\n' && line.length() < FINGERPRINT_COMMENT_LENGTH) {
+			line.append((char) b);
+		}
+		String comment = line.toString();
+		if (!comment.startsWith(FINGERPRINT_COMMENT_START) || !comment.endsWith(FINGERPRINT_COMMENT_END)) {
+			return null;
+		}
+		return comment.substring(FINGERPRINT_COMMENT_START.length(),
+														 comment.length() - FINGERPRINT_COMMENT_END.length());
+	}
+
+
+	/**
+	 * Runs the generator.
+	 *
+	 * @param args Command line arguments, see {@link ThemeGenerator usage}.
+	 *
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Mode mode = null;
+		Path output = null;
+		String findValues = ReplaceResource.DEFAULT_FIND_VALUES;
+		String replaceValues = null;
+		String appendCss = null;
+		boolean minify = false;
+		boolean matchColors = false;
+		Palette.Space shadeSpace = Palette.Space.LINEAR;
+		Charset charset = StandardCharsets.UTF_8;
+		List<Path> inputs = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--mode":
+						mode = Mode.fromName(args[++i]);
+						break;
+					case "--output":
+						output = Paths.get(args[++i]);
+						break;
+					case "--find":
+						findValues = args[++i];
+						break;
+					case "--replace":
+						replaceValues = args[++i];
+						break;
+					case "--append":
+						appendCss = new String(Files.readAllBytes(Paths.get(args[++i])), StandardCharsets.UTF_8);
+						break;
+					case "--match-colors":
+						matchColors = true;
+						break;
+					case "--shade-space":
+						shadeSpace = Palette.Space.fromName(args[++i]);
+						break;
+					case "--minify":
+						minify = true;
+						break;
+					case "--charset":
+						charset = Charset.forName(args[++i]);
+						break;
+					default:
+						inputs.add(Paths.get(args[i]));
+				}
+			}
+			if (mode == null || output == null || inputs.isEmpty()) {
+				throw new IllegalArgumentException("Missing arguments");
+			}
+			ReplacementPlan plan = replaceValues == null
+					? null
+					: new ReplacementPlan(findValues, replaceValues, matchColors, shadeSpace);
+			int count = new ThemeGenerator(mode, plan, appendCss, minify).generate(inputs, output, charset);
+			System.out.println("Generated " + count + " themes in " + output.toAbsolutePath());
+		}
+		catch (IllegalArgumentException | IllegalStateException | ArrayIndexOutOfBoundsException ex) {
+			System.err.println(ex.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+	}
+
+
+	/**
+	 * Reads all themes from a JAR or directory.
+	 *
+	 * @param input  JAR or directory.
+	 * @param themes Map to add the themes to, by library name.
+	 *
+	 * @throws IOException
+	 */
+	private static void readThemes(Path input, Map<String, String> themes) throws IOException
+	{
+		if (Files.isDirectory(input)) {
+			Path resources = input.resolve(RESOURCES_PATH);
+			if (!Files.isDirectory(resources)) {
+				return;
+			}
+			String glob = AbstractResourceHandler.PRIMEFACES_LIBRARY_PREFIX + "*";
+			try (DirectoryStream<Path> libraries = Files.newDirectoryStream(resources, glob)) {
+				for (Path library : libraries) {
+					Path theme = library.resolve(AbstractResourceHandler.PRIMEFACES_THEME);
+					if (Files.isRegularFile(theme)) {
+						themes.put(library.getFileName().toString(),
+											 new String(Files.readAllBytes(theme), StandardCharsets.UTF_8));
+					}
+				}
+			}
+		}
+		else {
+			try (JarFile jar = new JarFile(input.toFile())) {
+				Enumeration<JarEntry> entries = jar.entries();
+				while (entries.hasMoreElements()) {
+					JarEntry entry = entries.nextElement();
+					Matcher matcher = THEME_ENTRY.matcher(entry.getName());
+					if (matcher.matches()) {
+						try (InputStream in = jar.getInputStream(entry)) {
+							themes.put(matcher.group(1), new String(readFully(in), StandardCharsets.UTF_8));
+						}
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Reads the compiled Font Awesome CSS patch from the class path.
+	 *
+	 * @return Font Awesome CSS patch.
+	 *
+	 * @throws IOException
+	 */
+	private static String readFontAwesomeCss() throws IOException
+	{
+		try (InputStream in = ThemeGenerator.class.getClassLoader().getResourceAsStream(FONT_AWESOME_CSS)) {
+			if (in == null) {
+				throw new IllegalStateException(String.format(ISE_NO_FONT_AWESOME_CSS, FONT_AWESOME_CSS));
+			}
+			return new String(readFully(in), StandardCharsets.UTF_8);
+		}
+	}
+
+
+	/**
+	 * Reads an input stream completely.
+	 *
+	 * @param in Input stream.
+	 *
+	 * @return Bytes read.
+	 *
+	 * @throws IOException
+	 */
+	static byte[] readFully(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) > -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+
+	/**
+	 * Transformation mode, matching one of the resource handlers.
+	 */
+	public enum Mode
+	{
+
+		/**
+		 * {@link ReplaceResourceHandler}.
+		 */
+		REPLACE("replace"),
+		/**
+		 * {@link FontAwesomeResourceHandler}.
+		 */
+		FONT_AWESOME("font-awesome"),
+		/**
+		 * {@link NoThemeResourceHandler}.
+		 */
+		NO_THEME("no-theme");
+
+		/**
+		 * Command line name.
+		 */
+		private final String name;
+
+
+		/**
+		 * Creates a mode.
+		 *
+		 * @param name Command line name.
+		 */
+		Mode(String name)
+		{
+			this.name = name;
+		}
+
+
+		/**
+		 * Returns the mode for a command line name.
+		 *
+		 * @param name Command line name.
+		 *
+		 * @return Mode.
+		 *
+		 * @throws IllegalArgumentException If there is no mode for the name.
+		 */
+		public static Mode fromName(String name)
+		{
+			for (Mode mode : values()) {
+				if (mode.name.equals(name)) {
+					return mode;
+				}
+			}
+			throw new IllegalArgumentException("Unknown mode " + name);
+		}
+
+	}
+
+}
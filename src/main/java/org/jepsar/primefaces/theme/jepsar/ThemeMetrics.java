@@ -0,0 +1,247 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counters and timers of a theme library served by a resource handler. Recording is lock free and cheap, so metrics
+ * are always recorded and only published when enabled, see {@link ThemeMetricsRegistry}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ThemeMetrics implements ThemeMetricsMXBean
+{
+
+	/**
+	 * Simple class name of the resource handler.
+	 */
+	private final String handler;
+
+	/**
+	 * Theme library name.
+	 */
+	private final String library;
+
+	/**
+	 * Number of cache lookups.
+	 */
+	private final LongAdder lookups = new LongAdder();
+
+	/**
+	 * Number of transformations.
+	 */
+	private final LongAdder transforms = new LongAdder();
+
+	/**
+	 * Total transformation time in nanoseconds.
+	 */
+	private final LongAdder transformNanos = new LongAdder();
+
+	/**
+	 * Number of evictions.
+	 */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Total source size in bytes.
+	 */
+	private final LongAdder sourceBytes = new LongAdder();
+
+	/**
+	 * Total transformed size in bytes.
+	 */
+	private final LongAdder transformedBytes = new LongAdder();
+
+	/**
+	 * Number of served responses.
+	 */
+	private final LongAdder served = new LongAdder();
+
+	/**
+	 * Total served size in bytes.
+	 */
+	private final LongAdder servedBytes = new LongAdder();
+
+	/**
+	 * Total uncompressed served size in bytes.
+	 */
+	private final LongAdder servedUncompressedBytes = new LongAdder();
+
+
+	/**
+	 * Creates metrics.
+	 *
+	 * @param handler Simple class name of the resource handler.
+	 * @param library Theme library name.
+	 */
+	public ThemeMetrics(String handler, String library)
+	{
+		this.handler = handler;
+		this.library = library;
+	}
+
+
+	/**
+	 * Records a cache lookup.
+	 */
+	public void recordLookup()
+	{
+		lookups.increment();
+	}
+
+
+	/**
+	 * Records a transformation, which is a cache miss.
+	 *
+	 * @param nanos             Transformation time in nanoseconds.
+	 * @param sourceLength      Source size in bytes, negative if unknown.
+	 * @param transformedLength Transformed size in bytes.
+	 */
+	public void recordTransform(long nanos, long sourceLength, long transformedLength)
+	{
+		transforms.increment();
+		transformNanos.add(nanos);
+		if (sourceLength > 0) {
+			sourceBytes.add(sourceLength);
+		}
+		transformedBytes.add(transformedLength);
+	}
+
+
+	/**
+	 * Records the eviction of a transformed theme.
+	 */
+	public void recordEviction()
+	{
+		evictions.increment();
+	}
+
+
+	/**
+	 * Records a served response.
+	 *
+	 * @param length             Served size in bytes, after content encoding.
+	 * @param uncompressedLength Served size in bytes, before content encoding.
+	 */
+	public void recordServed(long length, long uncompressedLength)
+	{
+		served.increment();
+		servedBytes.add(length);
+		servedUncompressedBytes.add(uncompressedLength);
+	}
+
+
+	@Override
+	public String getHandler()
+	{
+		return handler;
+	}
+
+
+	@Override
+	public String getLibrary()
+	{
+		return library;
+	}
+
+
+	@Override
+	public long getTransformCount()
+	{
+		return transforms.sum();
+	}
+
+
+	/**
+	 * Returns the total time spent transforming the theme.
+	 *
+	 * @return Total transformation time in nanoseconds.
+	 */
+	long getTransformNanos()
+	{
+		return transformNanos.sum();
+	}
+
+
+	@Override
+	public double getTransformTime()
+	{
+		return (double) getTransformNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+
+	@Override
+	public double getAverageTransformTime()
+	{
+		long count = getTransformCount();
+		return count == 0 ? 0 : getTransformTime() / count;
+	}
+
+
+	@Override
+	public long getCacheHits()
+	{
+		return Math.max(0, lookups.sum() - getCacheMisses());
+	}
+
+
+	@Override
+	public long getCacheMisses()
+	{
+		return transforms.sum();
+	}
+
+
+	@Override
+	public long getCacheEvictions()
+	{
+		return evictions.sum();
+	}
+
+
+	@Override
+	public long getSourceBytes()
+	{
+		return sourceBytes.sum();
+	}
+
+
+	@Override
+	public long getTransformedBytes()
+	{
+		return transformedBytes.sum();
+	}
+
+
+	@Override
+	public long getServedCount()
+	{
+		return served.sum();
+	}
+
+
+	@Override
+	public long getServedBytes()
+	{
+		return servedBytes.sum();
+	}
+
+
+	@Override
+	public long getServedUncompressedBytes()
+	{
+		return servedUncompressedBytes.sum();
+	}
+
+
+	@Override
+	public double getCompressionRatio()
+	{
+		long uncompressed = getServedUncompressedBytes();
+		return uncompressed == 0 ? 1 : (double) getServedBytes() / uncompressed;
+	}
+
+}
+
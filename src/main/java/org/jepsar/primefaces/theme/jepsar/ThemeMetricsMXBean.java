@@ -0,0 +1,127 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+/**
+ * Management interface of the {@link ThemeMetrics} of a theme library served by a resource handler. Instances are
+ * registered by the {@link ThemeMetricsRegistry} as
+ * {@code org.jepsar.primefaces.theme:type=ThemeMetrics,application=...,handler=...,library=...}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public interface ThemeMetricsMXBean
+{
+
+	/**
+	 * Returns the simple class name of the resource handler.
+	 *
+	 * @return Handler type.
+	 */
+	String getHandler();
+
+
+	/**
+	 * Returns the theme library name.
+	 *
+	 * @return Library name.
+	 */
+	String getLibrary();
+
+
+	/**
+	 * Returns the number of times the theme was transformed, which is the number of cache misses.
+	 *
+	 * @return Number of transformations.
+	 */
+	long getTransformCount();
+
+
+	/**
+	 * Returns the total time spent transforming the theme.
+	 *
+	 * @return Total transformation time in milliseconds.
+	 */
+	double getTransformTime();
+
+
+	/**
+	 * Returns the average time spent transforming the theme.
+	 *
+	 * @return Average transformation time in milliseconds, {@code 0} if the theme was not transformed.
+	 */
+	double getAverageTransformTime();
+
+
+	/**
+	 * Returns the number of cache lookups which found a transformed (or transforming) theme.
+	 *
+	 * @return Number of cache hits.
+	 */
+	long getCacheHits();
+
+
+	/**
+	 * Returns the number of cache lookups which had to transform the theme.
+	 *
+	 * @return Number of cache misses.
+	 */
+	long getCacheMisses();
+
+
+	/**
+	 * Returns the number of transformed themes which were evicted from the cache.
+	 *
+	 * @return Number of evictions.
+	 */
+	long getCacheEvictions();
+
+
+	/**
+	 * Returns the total size of the theme sources before transformation, for all transformations.
+	 *
+	 * @return Source size in bytes.
+	 */
+	long getSourceBytes();
+
+
+	/**
+	 * Returns the total size of the transformed themes, for all transformations.
+	 *
+	 * @return Transformed size in bytes.
+	 */
+	long getTransformedBytes();
+
+
+	/**
+	 * Returns the number of times the transformed theme was served.
+	 *
+	 * @return Number of served responses.
+	 */
+	long getServedCount();
+
+
+	/**
+	 * Returns the total number of bytes served, after content encoding.
+	 *
+	 * @return Served size in bytes.
+	 */
+	long getServedBytes();
+
+
+	/**
+	 * Returns the total number of bytes served, before content encoding.
+	 *
+	 * @return Uncompressed served size in bytes.
+	 */
+	long getServedUncompressedBytes();
+
+
+	/**
+	 * Returns the ratio of the {@link #getServedBytes() served bytes} to the
+	 * {@link #getServedUncompressedBytes() uncompressed served bytes}.
+	 *
+	 * @return Compression ratio, {@code 1} if nothing was served.
+	 */
+	double getCompressionRatio();
+
+}
+
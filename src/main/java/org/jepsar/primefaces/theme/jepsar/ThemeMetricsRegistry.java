@@ -0,0 +1,237 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * {@link ThemeMetrics} of a resource handler, by theme library. If publishing is enabled, the metrics of each library
+ * are registered as a {@link ThemeMetricsMXBean} in the platform MBean server and, if Micrometer is on the class path,
+ * bound to its global registry. Micrometer is optional, it is only loaded when it is present.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ThemeMetricsRegistry implements Closeable
+{
+
+	/**
+	 * JMX domain.
+	 */
+	public static final String DOMAIN = "org.jepsar.primefaces.theme";
+
+	/**
+	 * JMX type of the {@link ThemeMetricsMXBean}.
+	 */
+	private static final String TYPE = "ThemeMetrics";
+
+	/**
+	 * Micrometer class which should be loadable to bind the metrics to Micrometer.
+	 */
+	private static final String MICROMETER_CLASS = "io.micrometer.core.instrument.Metrics";
+
+	/**
+	 * Library name used for resources without library.
+	 */
+	private static final String NO_LIBRARY = "-";
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ThemeMetricsRegistry.class.getName());
+
+	/**
+	 * Simple class name of the resource handler.
+	 */
+	private final String handler;
+
+	/**
+	 * Application name, used to register the MBeans of multiple applications in the same server.
+	 */
+	private final String application;
+
+	/**
+	 * {@code true} if the metrics are published.
+	 */
+	private final boolean publish;
+
+	/**
+	 * Metrics by library name.
+	 */
+	private final Map<String, ThemeMetrics> metrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Metrics by cache key source, to attribute evictions.
+	 */
+	private final Map<String, ThemeMetrics> sources = new ConcurrentHashMap<>();
+
+	/**
+	 * Registered MBeans.
+	 */
+	private final List<ObjectName> objectNames = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Micrometer bridge, {@code null} if not publishing or Micrometer is not on the class path.
+	 */
+	private final MicrometerBridge micrometer;
+
+
+	/**
+	 * Creates a registry.
+	 *
+	 * @param handler     Simple class name of the resource handler.
+	 * @param application Application name.
+	 * @param publish     {@code true} to publish the metrics.
+	 */
+	public ThemeMetricsRegistry(String handler, String application, boolean publish)
+	{
+		this.handler = handler;
+		this.application = application;
+		this.publish = publish;
+		this.micrometer = publish && isMicrometerAvailable() ? new MicrometerBridge() : null;
+	}
+
+
+	/**
+	 * Returns {@code true} if Micrometer can be loaded.
+	 *
+	 * @return {@code true} if Micrometer is on the class path.
+	 */
+	private static boolean isMicrometerAvailable()
+	{
+		try {
+			Class.forName(MICROMETER_CLASS, false, ThemeMetricsRegistry.class.getClassLoader());
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError ex) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Returns the metrics of a library, creating and publishing them when first requested.
+	 *
+	 * @param library Library name, may be {@code null}.
+	 *
+	 * @return Metrics.
+	 */
+	public ThemeMetrics get(String library)
+	{
+		return metrics.computeIfAbsent(library == null ? NO_LIBRARY : library, this::create);
+	}
+
+
+	/**
+	 * Remembers the metrics a cache key source belongs to, so its eviction can be attributed.
+	 *
+	 * @param source         Cache key source.
+	 * @param libraryMetrics Metrics of the library of the source.
+	 */
+	public void putSource(String source, ThemeMetrics libraryMetrics)
+	{
+		sources.putIfAbsent(source, libraryMetrics);
+	}
+
+
+	/**
+	 * Records the eviction of a transformed theme.
+	 *
+	 * @param key Evicted cache key.
+	 */
+	public void evicted(CacheKey key)
+	{
+		ThemeMetrics libraryMetrics = sources.get(key.getSource());
+		if (libraryMetrics != null) {
+			libraryMetrics.recordEviction();
+		}
+	}
+
+
+	/**
+	 * Returns the metrics of all libraries.
+	 *
+	 * @return Unmodifiable collection of metrics.
+	 */
+	public Collection<ThemeMetrics> getAll()
+	{
+		return Collections.unmodifiableCollection(metrics.values());
+	}
+
+
+	/**
+	 * Unregisters the published metrics.
+	 */
+	@Override
+	public void close()
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName objectName : objectNames) {
+			try {
+				server.unregisterMBean(objectName);
+			}
+			catch (JMException ex) {
+				LOGGER.log(Level.FINE, "Could not unregister " + objectName, ex);
+			}
+		}
+		objectNames.clear();
+		if (micrometer != null) {
+			micrometer.close();
+		}
+	}
+
+
+	/**
+	 * Creates and publishes the metrics of a library.
+	 *
+	 * @param library Library name.
+	 *
+	 * @return Metrics.
+	 */
+	private ThemeMetrics create(String library)
+	{
+		ThemeMetrics libraryMetrics = new ThemeMetrics(handler, library);
+		if (publish) {
+			register(libraryMetrics);
+			if (micrometer != null) {
+				micrometer.bind(libraryMetrics);
+			}
+		}
+		return libraryMetrics;
+	}
+
+
+	/**
+	 * Registers the metrics in the platform MBean server. Failures are logged, as metrics should never break serving
+	 * themes.
+	 *
+	 * @param libraryMetrics Metrics.
+	 */
+	private void register(ThemeMetrics libraryMetrics)
+	{
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + TYPE
+																						 + ",application=" + ObjectName.quote(application)
+																						 + ",handler=" + ObjectName.quote(handler)
+																						 + ",library=" + ObjectName.quote(libraryMetrics.getLibrary()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(libraryMetrics, objectName);
+			objectNames.add(objectName);
+		}
+		catch (JMException ex) {
+			LOGGER.log(Level.WARNING, "Could not register theme metrics", ex);
+		}
+	}
+
+}
+
@@ -0,0 +1,586 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+
+/**
+ * Thread-safe, size bounded cache for transformation results.
+ *
+ * <p>
+ * Loading is single-flight: if multiple threads request the same missing key, only the first one runs the loader and
+ * all others wait for its result. Failed loads are not cached. When the cache exceeds its maximum size, the least
+ * recently used entry is evicted. Optionally, the cache is also bounded by the total weight (for example the size in
+ * bytes) of its values, in which case least recently used entries are evicted until the total weight fits.
+ * </p>
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class TransformCache<K, V>
+{
+
+	/**
+	 * Exception thrown if the maximum size is invalid.
+	 */
+	private static final String IAE_INVALID_SIZE = "Maximum size should be at least 1";
+
+	/**
+	 * Exception thrown if the maximum weight is invalid.
+	 */
+	private static final String IAE_INVALID_WEIGHT = "Maximum weight should be at least 1";
+
+	/**
+	 * Maximum number of entries.
+	 */
+	private final int maximumSize;
+
+	/**
+	 * Maximum total weight of the values, {@link Long#MAX_VALUE} if not bounded by weight.
+	 */
+	private final long maximumWeight;
+
+	/**
+	 * Function returning the weight of a value, {@code null} if not bounded by weight.
+	 */
+	private final ToLongFunction<? super V> weigher;
+
+	/**
+	 * Entries in access order. Guarded by itself.
+	 */
+	private final Map<K, Future<V>> entries;
+
+	/**
+	 * Weights of the loaded values. Guarded by {@link #entries}.
+	 */
+	private final Map<K, Long> weights = new HashMap<>();
+
+	/**
+	 * Total weight of the loaded values. Guarded by {@link #entries}.
+	 */
+	private long totalWeight;
+
+	/**
+	 * Number of lookups which found an entry (loaded or being loaded).
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * Number of lookups which had to load the entry.
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Number of failed loads.
+	 */
+	private final AtomicLong loadFailureCount = new AtomicLong();
+
+	/**
+	 * Number of evicted entries.
+	 */
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Total time spent loading in nanoseconds.
+	 */
+	private final AtomicLong totalLoadTime = new AtomicLong();
+
+	/**
+	 * Listener called with the keys of evicted entries, {@code null} if not set.
+	 */
+	private volatile Consumer<? super K> evictionListener;
+
+	/**
+	 * Listener called with the keys of evicted and invalidated entries, {@code null} if not set.
+	 */
+	private volatile Consumer<? super K> removalListener;
+
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maximumSize Maximum number of entries.
+	 *
+	 * @throws IllegalArgumentException If the maximum size is smaller than 1.
+	 */
+	public TransformCache(final int maximumSize)
+	{
+		this(maximumSize, Long.MAX_VALUE, null);
+	}
+
+
+	/**
+	 * Creates a cache which is bounded by the number of entries and the total weight of the values. A single value
+	 * which is heavier than the maximum weight is still cached, on its own.
+	 *
+	 * @param maximumSize   Maximum number of entries.
+	 * @param maximumWeight Maximum total weight of the values.
+	 * @param weigher       Function returning the weight of a value, {@code null} to only bound the number of entries.
+	 *
+	 * @throws IllegalArgumentException If the maximum size or weight is smaller than 1.
+	 */
+	public TransformCache(final int maximumSize, final long maximumWeight, final ToLongFunction<? super V> weigher)
+	{
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException(IAE_INVALID_SIZE);
+		}
+		if (maximumWeight < 1) {
+			throw new IllegalArgumentException(IAE_INVALID_WEIGHT);
+		}
+		this.maximumSize = maximumSize;
+		this.maximumWeight = weigher == null ? Long.MAX_VALUE : maximumWeight;
+		this.weigher = weigher;
+		this.entries = new LinkedHashMap<K, Future<V>>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Future<V>> eldest)
+			{
+				if (size() > TransformCache.this.maximumSize) {
+					removeWeight(eldest.getKey());
+					evicted(eldest.getKey());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+
+	/**
+	 * Returns the cached value for the key. If there is no value, it will be loaded using the loader. Concurrent calls
+	 * for the same key will wait for a single load.
+	 *
+	 * @param key    Key.
+	 * @param loader Loader to create the value if it is not cached.
+	 *
+	 * @return Cached or loaded value.
+	 *
+	 * @throws IOException If the loader failed with an {@link IOException} or the thread was interrupted.
+	 */
+	public V get(final K key, final Callable<V> loader) throws IOException
+	{
+		Future<V> future;
+		FutureTask<V> task = null;
+		synchronized (entries) {
+			future = entries.get(key);
+			if (future == null) {
+				task = new FutureTask<>(loader);
+				future = task;
+				entries.put(key, task);
+			}
+		}
+		if (task == null) {
+			hitCount.incrementAndGet();
+		}
+		else {
+			missCount.incrementAndGet();
+			long start = System.nanoTime();
+			task.run();
+			totalLoadTime.addAndGet(System.nanoTime() - start);
+		}
+		try {
+			V value = future.get();
+			if (task != null && weigher != null) {
+				addWeight(key, task, weigher.applyAsLong(value));
+			}
+			return value;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException ex) {
+			if (task != null) {
+				loadFailureCount.incrementAndGet();
+				synchronized (entries) {
+					if (entries.get(key) == task) {
+						entries.remove(key);
+						removeWeight(key);
+					}
+				}
+			}
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+
+	/**
+	 * Returns the cached value for the key if it is loaded, without loading it or waiting for a load in progress. The
+	 * lookup is not counted in the {@link #getStatistics() statistics}.
+	 *
+	 * @param key Key.
+	 *
+	 * @return Cached value, {@code null} if not loaded.
+	 */
+	public V getIfPresent(final K key)
+	{
+		Future<V> future;
+		synchronized (entries) {
+			future = entries.get(key);
+		}
+		if (future == null || !future.isDone()) {
+			return null;
+		}
+		try {
+			return future.get();
+		}
+		catch (InterruptedException | ExecutionException ex) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Removes the entry for the key.
+	 *
+	 * @param key Key.
+	 */
+	public void invalidate(final K key)
+	{
+		synchronized (entries) {
+			if (entries.remove(key) != null) {
+				removed(key);
+			}
+			removeWeight(key);
+		}
+	}
+
+
+	/**
+	 * Removes the entries for all keys matching the predicate.
+	 *
+	 * @param predicate Predicate matching the keys to remove.
+	 */
+	public void invalidateIf(final Predicate<? super K> predicate)
+	{
+		synchronized (entries) {
+			for (Iterator<K> keys = entries.keySet().iterator(); keys.hasNext();) {
+				K key = keys.next();
+				if (predicate.test(key)) {
+					keys.remove();
+					removeWeight(key);
+					removed(key);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Removes all entries.
+	 */
+	public void invalidateAll()
+	{
+		synchronized (entries) {
+			List<K> keys = new ArrayList<>(entries.keySet());
+			entries.clear();
+			weights.clear();
+			totalWeight = 0;
+			keys.forEach(this::removed);
+		}
+	}
+
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return Number of entries.
+	 */
+	public int size()
+	{
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+
+	/**
+	 * Returns the total weight of the loaded values, {@code 0} if the cache is not bounded by weight.
+	 *
+	 * @return Total weight.
+	 */
+	public long getWeight()
+	{
+		synchronized (entries) {
+			return totalWeight;
+		}
+	}
+
+
+	/**
+	 * Records the weight of a loaded value and evicts least recently used entries until the total weight fits. The
+	 * loaded entry itself and entries which are still loading are not evicted.
+	 *
+	 * @param key    Key.
+	 * @param task   Task which loaded the value.
+	 * @param weight Weight of the value.
+	 */
+	private void addWeight(K key, Future<V> task, long weight)
+	{
+		synchronized (entries) {
+			if (entries.get(key) != task || weights.containsKey(key)) {
+				return;
+			}
+			weights.put(key, weight);
+			totalWeight += weight;
+			for (Iterator<K> keys = entries.keySet().iterator(); totalWeight > maximumWeight && keys.hasNext();) {
+				K eldest = keys.next();
+				if (!eldest.equals(key) && weights.containsKey(eldest)) {
+					keys.remove();
+					removeWeight(eldest);
+					evicted(eldest);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Counts an evicted entry and notifies the {@link #evictionListener}. Should be called while holding the lock on
+	 * {@link #entries}.
+	 *
+	 * @param key Key of the evicted entry.
+	 */
+	private void evicted(K key)
+	{
+		evictionCount.incrementAndGet();
+		Consumer<? super K> listener = evictionListener;
+		if (listener != null) {
+			listener.accept(key);
+		}
+		removed(key);
+	}
+
+
+	/**
+	 * Notifies the {@link #removalListener} of an evicted or invalidated entry. Should be called while holding the lock
+	 * on {@link #entries}.
+	 *
+	 * @param key Key of the removed entry.
+	 */
+	private void removed(K key)
+	{
+		Consumer<? super K> listener = removalListener;
+		if (listener != null) {
+			listener.accept(key);
+		}
+	}
+
+
+	/**
+	 * Forgets the weight of a removed entry. Should be called while holding the lock on {@link #entries}.
+	 *
+	 * @param key Key.
+	 */
+	private void removeWeight(K key)
+	{
+		Long weight = weights.remove(key);
+		if (weight != null) {
+			totalWeight -= weight;
+		}
+	}
+
+
+	/**
+	 * Sets the listener called with the keys of evicted entries. It is called while holding the cache lock, so it
+	 * should be fast and not use the cache. Invalidated entries are not reported.
+	 *
+	 * @param evictionListener Listener, {@code null} to remove it.
+	 */
+	public void setEvictionListener(Consumer<? super K> evictionListener)
+	{
+		this.evictionListener = evictionListener;
+	}
+
+
+	/**
+	 * Sets the listener called with the keys of evicted and invalidated entries, for example to release resources held
+	 * by their values. It is called while holding the cache lock, so it should be fast and not use the cache.
+	 *
+	 * @param removalListener Listener, {@code null} to remove it.
+	 */
+	public void setRemovalListener(Consumer<? super K> removalListener)
+	{
+		this.removalListener = removalListener;
+	}
+
+
+	/**
+	 * Returns the maximum number of entries.
+	 *
+	 * @return Maximum number of entries.
+	 */
+	public int getMaximumSize()
+	{
+		return maximumSize;
+	}
+
+
+	/**
+	 * Returns a snapshot of the cache statistics.
+	 *
+	 * @return Cache statistics.
+	 */
+	public Statistics getStatistics()
+	{
+		return new Statistics(hitCount.get(), missCount.get(), loadFailureCount.get(), evictionCount.get(),
+													totalLoadTime.get());
+	}
+
+
+	/**
+	 * Immutable snapshot of the cache statistics.
+	 */
+	public static final class Statistics
+	{
+
+		/**
+		 * Number of lookups which found an entry.
+		 */
+		private final long hitCount;
+
+		/**
+		 * Number of lookups which had to load the entry.
+		 */
+		private final long missCount;
+
+		/**
+		 * Number of failed loads.
+		 */
+		private final long loadFailureCount;
+
+		/**
+		 * Number of evicted entries.
+		 */
+		private final long evictionCount;
+
+		/**
+		 * Total time spent loading in nanoseconds.
+		 */
+		private final long totalLoadTime;
+
+
+		/**
+		 * Creates a snapshot.
+		 *
+		 * @param hitCount         Number of lookups which found an entry.
+		 * @param missCount        Number of lookups which had to load the entry.
+		 * @param loadFailureCount Number of failed loads.
+		 * @param evictionCount    Number of evicted entries.
+		 * @param totalLoadTime    Total time spent loading in nanoseconds.
+		 */
+		Statistics(long hitCount, long missCount, long loadFailureCount, long evictionCount, long totalLoadTime)
+		{
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.loadFailureCount = loadFailureCount;
+			this.evictionCount = evictionCount;
+			this.totalLoadTime = totalLoadTime;
+		}
+
+
+		/**
+		 * Returns the number of lookups which found an entry.
+		 *
+		 * @return Hit count.
+		 */
+		public long getHitCount()
+		{
+			return hitCount;
+		}
+
+
+		/**
+		 * Returns the number of lookups which had to load the entry.
+		 *
+		 * @return Miss count.
+		 */
+		public long getMissCount()
+		{
+			return missCount;
+		}
+
+
+		/**
+		 * Returns the number of failed loads.
+		 *
+		 * @return Load failure count.
+		 */
+		public long getLoadFailureCount()
+		{
+			return loadFailureCount;
+		}
+
+
+		/**
+		 * Returns the number of evicted entries.
+		 *
+		 * @return Eviction count.
+		 */
+		public long getEvictionCount()
+		{
+			return evictionCount;
+		}
+
+
+		/**
+		 * Returns the total time spent loading in nanoseconds.
+		 *
+		 * @return Total load time in nanoseconds.
+		 */
+		public long getTotalLoadTime()
+		{
+			return totalLoadTime;
+		}
+
+
+		/**
+		 * Returns the average time spent per load in nanoseconds.
+		 *
+		 * @return Average load time in nanoseconds, {@code 0} if nothing was loaded.
+		 */
+		public long getAverageLoadTime()
+		{
+			return missCount == 0 ? 0 : totalLoadTime / missCount;
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return "hits=" + hitCount + ", misses=" + missCount + ", loadFailures=" + loadFailureCount +
+						 ", evictions=" + evictionCount + ", averageLoadTime=" + getAverageLoadTime() + "ns";
+		}
+
+	}
+
+}
@@ -0,0 +1,343 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * Input stream which reads a sequence of character sources, passes each through its own chain of writer filters and
+ * returns the charset and content encoded result. Sources are read one buffer at a time and only when the encoded
+ * bytes of the previous buffer have been read, so memory use is bounded by the buffer size and the look-ahead of the
+ * filters instead of the size of the sources.
+ *
+ * <p>
+ * A filter wraps the writer it writes to. Filters should only hold back characters that might still change, pass
+ * {@link Writer#flush()} on and, when closed, write what they held back and close the writer they wrap.
+ * </p>
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class TransformingInputStream extends InputStream
+{
+
+	/**
+	 * Source reader buffer size.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Sources which are not read completely yet.
+	 */
+	private final Deque<Source> sources = new ArrayDeque<>();
+
+	/**
+	 * Encoded bytes which are not read yet, starting at {@link #position}.
+	 */
+	private final Bytes bytes = new Bytes();
+
+	/**
+	 * Shared filter chain writing and encoding to {@link #bytes}.
+	 */
+	private final Writer sink;
+
+	/**
+	 * Source reader buffer.
+	 */
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	/**
+	 * Filter chain of the current source, {@code null} if the current source was not read yet.
+	 */
+	private Writer filter;
+
+	/**
+	 * Position of the next byte to read in {@link #bytes}.
+	 */
+	private int position;
+
+	/**
+	 * {@code true} if all sources are read and the {@link #sink} is closed.
+	 */
+	private boolean finished;
+
+
+	/**
+	 * Creates an empty stream.
+	 *
+	 * @param charset  Charset to encode the characters with.
+	 * @param encoding Content encoding to apply to the encoded characters.
+	 *
+	 * @throws IOException
+	 */
+	public TransformingInputStream(Charset charset, ContentEncoding encoding) throws IOException
+	{
+		this(charset, encoding, UnaryOperator.identity());
+	}
+
+
+	/**
+	 * Creates an empty stream passing all sources through a shared filter chain, after their own filter chains.
+	 *
+	 * @param charset  Charset to encode the characters with.
+	 * @param encoding Content encoding to apply to the encoded characters.
+	 * @param filter   Function creating the shared filter chain writing to the given writer.
+	 *
+	 * @throws IOException
+	 */
+	public TransformingInputStream(Charset charset, ContentEncoding encoding, UnaryOperator<Writer> filter)
+			throws IOException
+	{
+		this.sink = filter.apply(new OutputStreamWriter(encoding.wrap(bytes), charset));
+	}
+
+
+	/**
+	 * Adds a source which is read without filters.
+	 *
+	 * @param source Source.
+	 *
+	 * @return This stream.
+	 */
+	public TransformingInputStream add(Reader source)
+	{
+		return add(source, UnaryOperator.identity());
+	}
+
+
+	/**
+	 * Adds a source and the filter chain it is passed through. The chain is created when the source is first read.
+	 *
+	 * @param source Source.
+	 * @param filter Function creating the filter chain writing to the given writer.
+	 *
+	 * @return This stream.
+	 */
+	public TransformingInputStream add(Reader source, UnaryOperator<Writer> filter)
+	{
+		sources.add(new Source(source, filter));
+		return this;
+	}
+
+
+	@Override
+	public int read() throws IOException
+	{
+		if (!ensureAvailable()) {
+			return -1;
+		}
+		return bytes.get(position++) & 0xFF;
+	}
+
+
+	@Override
+	public int read(byte[] b, int offset, int length) throws IOException
+	{
+		if (length == 0) {
+			return 0;
+		}
+		if (!ensureAvailable()) {
+			return -1;
+		}
+		int read = Math.min(length, bytes.size() - position);
+		bytes.copy(position, b, offset, read);
+		position += read;
+		return read;
+	}
+
+
+	@Override
+	public int available()
+	{
+		return bytes.size() - position;
+	}
+
+
+	/**
+	 * Closes all sources which are not read completely.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		finished = true;
+		IOException exception = null;
+		for (Source source : sources) {
+			try {
+				source.reader.close();
+			}
+			catch (IOException ex) {
+				exception = ex;
+			}
+		}
+		sources.clear();
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+
+	/**
+	 * Reads sources until encoded bytes are available or all sources are read.
+	 *
+	 * @return {@code true} if bytes are available.
+	 *
+	 * @throws IOException
+	 */
+	private boolean ensureAvailable() throws IOException
+	{
+		while (position == bytes.size()) {
+			if (finished) {
+				return false;
+			}
+			bytes.reset();
+			position = 0;
+			fill();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Reads one buffer from the current source and writes it through its filter chain. Completed sources are closed,
+	 * the {@link #sink} is closed after the last source.
+	 *
+	 * @throws IOException
+	 */
+	private void fill() throws IOException
+	{
+		Source source = sources.peek();
+		if (source == null) {
+			sink.close();
+			finished = true;
+			return;
+		}
+		if (filter == null) {
+			filter = source.filter.apply(new SinkWriter());
+		}
+		int read = source.reader.read(buffer, 0, buffer.length);
+		if (read < 0) {
+			filter.close();
+			filter = null;
+			sources.remove();
+			source.reader.close();
+		}
+		else {
+			filter.write(buffer, 0, read);
+			filter.flush();
+		}
+	}
+
+
+	/**
+	 * Source and its filter chain.
+	 */
+	private static final class Source
+	{
+
+		/**
+		 * Source reader.
+		 */
+		private final Reader reader;
+
+		/**
+		 * Function creating the filter chain.
+		 */
+		private final UnaryOperator<Writer> filter;
+
+
+		/**
+		 * Creates a source.
+		 *
+		 * @param reader Source reader.
+		 * @param filter Function creating the filter chain.
+		 */
+		Source(Reader reader, UnaryOperator<Writer> filter)
+		{
+			this.reader = reader;
+			this.filter = filter;
+		}
+
+	}
+
+
+	/**
+	 * Writer passing characters to the {@link #sink}, which is not closed when a filter chain is closed.
+	 */
+	private final class SinkWriter extends Writer
+	{
+
+		@Override
+		public void write(char[] chars, int offset, int length) throws IOException
+		{
+			sink.write(chars, offset, length);
+		}
+
+
+		@Override
+		public void write(String string, int offset, int length) throws IOException
+		{
+			sink.write(string, offset, length);
+		}
+
+
+		@Override
+		public void flush() throws IOException
+		{
+			sink.flush();
+		}
+
+
+		@Override
+		public void close() throws IOException
+		{
+			sink.flush();
+		}
+
+	}
+
+
+	/**
+	 * Byte array output stream giving access to its bytes without copying them.
+	 */
+	private static final class Bytes extends ByteArrayOutputStream
+	{
+
+		/**
+		 * Returns a byte.
+		 *
+		 * @param index Index of the byte.
+		 *
+		 * @return Byte.
+		 */
+		byte get(int index)
+		{
+			return buf[index];
+		}
+
+
+		/**
+		 * Copies bytes.
+		 *
+		 * @param index       Index of the first byte.
+		 * @param destination Array to copy to.
+		 * @param offset      Offset in the destination.
+		 * @param length      Number of bytes to copy.
+		 */
+		void copy(int index, byte[] destination, int offset, int length)
+		{
+			System.arraycopy(buf, index, destination, offset, length);
+		}
+
+	}
+
+}
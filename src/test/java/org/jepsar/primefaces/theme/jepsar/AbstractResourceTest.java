@@ -0,0 +1,175 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the versioned request path, the ETag and the conditional requests of the theme resources.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class AbstractResourceTest
+{
+
+	/**
+	 * Faces context.
+	 */
+	private TestFacesContext context;
+
+	/**
+	 * Theme library.
+	 */
+	private String library;
+
+
+	/**
+	 * Installs the faces context.
+	 */
+	@Before
+	public void setUp()
+	{
+		context = TestFacesContext.install();
+		library = TestThemes.getLibraries().get(0);
+	}
+
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * Before the content is cached the request path carries the source version, which depends on the configuration,
+	 * afterwards the content hash.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testRequestPath() throws IOException
+	{
+		AbstractResource resource = createResource();
+		String sourceVersion = resource.getSourceVersion();
+		String path = "/app/javax.faces.resource/theme.css.xhtml?ln=" + library + "&hash=";
+		assertEquals(path + sourceVersion, resource.getRequestPath());
+		assertEquals(sourceVersion, createResource().getSourceVersion());
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_MINIFY, "true");
+		assertNotEquals(sourceVersion, createResource().getSourceVersion());
+		assertEquals(path + resource.getContent().getHash(), resource.getRequestPath());
+	}
+
+
+	/**
+	 * When streaming, the request path is not versioned and the wrapped resource decides on updates.
+	 */
+	@Test
+	public void testRequestPathStreaming()
+	{
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_STREAMING, "true");
+		AbstractResource resource = createResource();
+		assertEquals("/app/javax.faces.resource/theme.css.xhtml?ln=" + library, resource.getRequestPath());
+		context.setRequestHeader("If-None-Match", "*");
+		assertTrue(resource.userAgentNeedsUpdate(context));
+	}
+
+
+	/**
+	 * The ETag is the quoted content hash. Requests with the content hash may be cached forever, others must
+	 * revalidate.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testResponseHeaders() throws IOException
+	{
+		AbstractResource resource = createResource();
+		String hash = resource.getContent().getHash();
+		Map<String, String> headers = resource.getResponseHeaders();
+		assertEquals('"' + hash + '"', headers.get("ETag"));
+		assertEquals("public, no-cache", headers.get("Cache-Control"));
+		context.setRequestParameter(AbstractResource.HASH_PARAMETER, "other");
+		assertEquals("public, no-cache", resource.getResponseHeaders().get("Cache-Control"));
+		context.setRequestParameter(AbstractResource.HASH_PARAMETER, hash);
+		assertEquals("public, max-age=31536000, immutable", resource.getResponseHeaders().get("Cache-Control"));
+	}
+
+
+	/**
+	 * A request with a matching If-None-Match header gets a "not modified" response without content.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testNotModified() throws IOException
+	{
+		AbstractResource resource = createResource();
+		context.setRequestHeader("If-None-Match", "\"other\", W/\"" + resource.getContent().getHash() + '"');
+		assertFalse(resource.userAgentNeedsUpdate(context));
+		resource.handleResourceRequest(context);
+		assertEquals(304, context.getResponseStatus());
+		assertEquals(0, context.getResponseBody().length);
+		assertEquals('"' + resource.getContent().getHash() + '"', context.getResponseHeaders().get("ETag"));
+	}
+
+
+	/**
+	 * A request without a matching If-None-Match header gets the content with its length and type.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testModified() throws IOException
+	{
+		AbstractResource resource = createResource();
+		context.setRequestHeader("If-None-Match", "\"other\"");
+		assertTrue(resource.userAgentNeedsUpdate(context));
+		resource.handleResourceRequest(context);
+		byte[] expected = resource.getContent().toByteArray();
+		assertEquals(200, context.getResponseStatus());
+		assertEquals("text/css", context.getResponseContentType());
+		assertEquals(expected.length, context.getResponseContentLength());
+		assertArrayEquals(expected, context.getResponseBody());
+	}
+
+
+	/**
+	 * If-None-Match values match strong and weak ETags in a list, and any ETag for {@code *}.
+	 */
+	@Test
+	public void testMatchesETag()
+	{
+		assertTrue(AbstractResource.matchesETag("\"a\"", "\"a\""));
+		assertTrue(AbstractResource.matchesETag("\"b\" , W/\"a\"", "\"a\""));
+		assertTrue(AbstractResource.matchesETag("*", "\"a\""));
+		assertFalse(AbstractResource.matchesETag("\"b\"", "\"a\""));
+		assertFalse(AbstractResource.matchesETag("a", "\"a\""));
+	}
+
+
+	/**
+	 * Creates the theme resource of a new handler using the current context parameters.
+	 *
+	 * @return Theme resource.
+	 */
+	private AbstractResource createResource()
+	{
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		return (AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+	}
+
+}
+
@@ -0,0 +1,96 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.List;
+
+
+/**
+ * The transformations as the first versions of the resources applied them, with sequential {@link String#replace}
+ * calls and regular expressions. Used as a reference for the single scan implementations.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class Baseline
+{
+
+	/**
+	 * Expression for icon background images.
+	 */
+	private static final String REGEX_BG_IMG =
+			"background-image:url\\(\"[^\"]*/ui-icons_[0-9a-f]{6}_[0-9]+x[0-9]+\\.png[^\"]+\"\\);";
+
+	/**
+	 * Expression for icon positions.
+	 */
+	private static final String REGEX_ICON = ".ui-icon-[^\\{]+\\{background-position:[^;]+;\\}";
+
+	/**
+	 * Expression for comments.
+	 */
+	private static final String REGEX_COMMENT = "(?s)/\\*.*?\\*/";
+
+	/**
+	 * Expression for the last declaration of a block without a semicolon.
+	 */
+	private static final String REGEX_UNTERMINATED = "([^;{}\\s])\\s*\\}";
+
+
+	/**
+	 * Utility class.
+	 */
+	private Baseline()
+	{
+	}
+
+
+	/**
+	 * Replaces the find values with a two step replacement, so replaced values are not replaced again.
+	 *
+	 * @param css         CSS.
+	 * @param findList    Values to search for.
+	 * @param replaceList Values to replace with.
+	 *
+	 * @return CSS with replaced values.
+	 */
+	static String replace(String css, List<String> findList, List<String> replaceList)
+	{
+		String result = css;
+		for (int i = 0; i < findList.size(); i++) {
+			result = result.replace(findList.get(i), "\u0000" + i + "\u0000");
+		}
+		for (int i = 0; i < findList.size(); i++) {
+			result = result.replace("\u0000" + i + "\u0000", replaceList.get(i));
+		}
+		return result;
+	}
+
+
+	/**
+	 * Removes the icon background images and icon positions. The expressions only match declarations terminated by a
+	 * semicolon, so the CSS should be {@link #normalize(java.lang.String) normalized} first.
+	 *
+	 * @param css CSS.
+	 *
+	 * @return CSS without icons.
+	 */
+	static String stripIcons(String css)
+	{
+		return css.replaceAll(REGEX_BG_IMG, "").replaceAll(REGEX_ICON, "");
+	}
+
+
+	/**
+	 * Removes comments and terminates the last declaration of each block with a semicolon, so CSS can be compared
+	 * regardless of those differences.
+	 *
+	 * @param css CSS.
+	 *
+	 * @return Normalized CSS.
+	 */
+	static String normalize(String css)
+	{
+		return css.replaceAll(REGEX_COMMENT, "").replaceAll(REGEX_UNTERMINATED, "$1;}");
+	}
+
+}
+
@@ -0,0 +1,146 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests for {@link ColorReplacer}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ColorReplacerTest
+{
+
+	/**
+	 * Replacer for red to green and a font.
+	 */
+	private final ColorReplacer replacer =
+			new ColorReplacer(Arrays.asList("#FF0000", "Arial"), Arrays.asList("#00ff00", "Verdana"));
+
+
+	/**
+	 * Colors are matched in any notation and replaced in the notation of the original.
+	 */
+	@Test
+	public void testNotations()
+	{
+		assertEquals("a{color:#0f0}", replacer.replace("a{color:#f00}"));
+		assertEquals("a{color:#0F0}", replacer.replace("a{color:#F00}"));
+		assertEquals("a{color:#00ff00}", replacer.replace("a{color:#ff0000}"));
+		assertEquals("a{color:#00FF00}", replacer.replace("a{color:#FF0000}"));
+		assertEquals("a{color:rgb(0,255,0)}", replacer.replace("a{color:rgb(255,0,0)}"));
+		assertEquals("a{color:rgb(0, 255, 0)}", replacer.replace("a{color:rgb(255, 0, 0)}"));
+		assertEquals("a{border:1px solid #0f0;color:#0f0}", replacer.replace("a{border:1px solid #f00;color:#f00}"));
+	}
+
+
+	/**
+	 * A replacement which can not be shortened is written with six digits.
+	 */
+	@Test
+	public void testNoShortening()
+	{
+		ColorReplacer replacer = new ColorReplacer(Arrays.asList("#FF0000"), Arrays.asList("#123456"));
+		assertEquals("a{color:#123456}", replacer.replace("a{color:#f00}"));
+	}
+
+
+	/**
+	 * The alpha of the original color is kept.
+	 */
+	@Test
+	public void testAlpha()
+	{
+		assertEquals("a{color:#00ff0080}", replacer.replace("a{color:#ff000080}"));
+		assertEquals("a{color:rgba(0,255,0,0.5)}", replacer.replace("a{color:rgba(255,0,0,0.5)}"));
+	}
+
+
+	/**
+	 * Colors with alpha are not replaced by a value which is not a color.
+	 */
+	@Test
+	public void testAlphaWithoutColorReplacement()
+	{
+		ColorReplacer replacer = new ColorReplacer(Arrays.asList("#FF0000"), Arrays.asList("red"));
+		assertEquals("a{color:red}", replacer.replace("a{color:#ff0000}"));
+		assertEquals("a{color:#ff000080}", replacer.replace("a{color:#ff000080}"));
+	}
+
+
+	/**
+	 * Colors outside declaration values are not replaced, other find values are replaced everywhere.
+	 */
+	@Test
+	public void testDeclarationValuesOnly()
+	{
+		assertEquals("#f00 a{color:#0f0}", replacer.replace("#f00 a{color:#f00}"));
+		assertEquals("a{/* #f00 */color:#0f0}", replacer.replace("a{/* #f00 */color:#f00}"));
+		assertEquals("a{content:\"#f00\"}", replacer.replace("a{content:\"#f00\"}"));
+		assertEquals("a{fill:url(#f00)}", replacer.replace("a{fill:url(#f00)}"));
+		assertEquals(".Verdana{font-family:Verdana}/* Verdana */",
+								 replacer.replace(".Arial{font-family:Arial}/* Arial */"));
+	}
+
+
+	/**
+	 * Partial colors are not replaced.
+	 */
+	@Test
+	public void testNoPartialColors()
+	{
+		assertEquals("a{color:#ff00}", replacer.replace("a{color:#ff00}"));
+		assertEquals("a{color:#ff00001}", replacer.replace("a{color:#ff00001}"));
+	}
+
+
+	/**
+	 * A find value which contains a color, but is not a single color, is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindValueWithColor()
+	{
+		new ColorReplacer(Arrays.asList("1px solid #f00"), Arrays.asList("none"));
+	}
+
+
+	/**
+	 * The writer replaces colors which are split over multiple writes.
+	 */
+	@Test
+	public void testChunkBoundaries()
+	{
+		String css = "/* #f00 */#f00 a{color:#F00;background:rgba(255, 0, 0, .5) url(#f00);font-family:Arial}"
+								 + "b{border-color:#ff0000 #ff000080}";
+		for (int chunkSize : TestThemes.CHUNK_SIZES) {
+			assertEquals("chunk size " + chunkSize, replacer.replace(css),
+									 TestThemes.writeInChunks(replacer::newWriter, css, chunkSize));
+		}
+	}
+
+
+	/**
+	 * The writer gives the same result as replacing all themes at once.
+	 */
+	@Test
+	public void testThemes()
+	{
+		String replaceValues = "#FF0000;=67;=33;=-33;=-67;#00FF00;=67;=33;=-33;=-67;#0000FF;=67;=33;=-33;=-67;"
+													 + "#EEEEEE;3px;@import url(x);Arial";
+		ReplacementPlan plan = new ReplacementPlan(ReplaceResource.DEFAULT_FIND_VALUES, replaceValues);
+		ColorReplacer replacer = new ColorReplacer(plan.getFindList(), plan.getReplaceList());
+		for (String library : TestThemes.getLibraries()) {
+			String css = TestThemes.read(library);
+			String expected = replacer.replace(css);
+			for (int chunkSize : TestThemes.CHUNK_SIZES) {
+				assertEquals(library + ", chunk size " + chunkSize, expected,
+										 TestThemes.writeInChunks(replacer::newWriter, css, chunkSize));
+			}
+		}
+	}
+
+}
+
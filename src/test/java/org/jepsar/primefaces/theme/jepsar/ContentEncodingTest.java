@@ -0,0 +1,170 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+
+/**
+ * Tests the negotiation and encoding of {@link ContentEncoding content encodings}, and the compressed responses of the
+ * theme resources.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ContentEncodingTest
+{
+
+	/**
+	 * Bytes to encode.
+	 */
+	private static final byte[] CSS = ".ui-widget{color:#fff}.ui-widget{color:#fff}".getBytes(StandardCharsets.UTF_8);
+
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * The accepted encoding with the highest quality is selected, gzip if gzip and deflate have the same quality.
+	 */
+	@Test
+	public void testNegotiate()
+	{
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(""));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("br, identity"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate, br"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("deflate, GZIP"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("x-gzip"));
+		assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0.5, deflate"));
+		assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("deflate;q=0.1"));
+	}
+
+
+	/**
+	 * Encodings with a zero or invalid quality are not accepted, {@code *} accepts encodings not listed.
+	 */
+	@Test
+	public void testQuality()
+	{
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=0"));
+		assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, deflate"));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=x"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+		assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, *"));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("*;q=0"));
+	}
+
+
+	/**
+	 * Encoded bytes decode to the original bytes.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testEncode() throws IOException
+	{
+		assertArrayEquals(CSS, ContentEncoding.IDENTITY.encode(CSS));
+		assertArrayEquals(CSS, read(new GZIPInputStream(new ByteArrayInputStream(ContentEncoding.GZIP.encode(CSS)))));
+		byte[] deflated = ContentEncoding.DEFLATE.encode(CSS);
+		assertArrayEquals(CSS, read(new InflaterInputStream(new ByteArrayInputStream(deflated))));
+	}
+
+
+	/**
+	 * With compression enabled, the theme is served in the negotiated encoding with matching headers and ETag.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testCompressedResponse() throws IOException
+	{
+		TestFacesContext context = TestFacesContext.install()
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_COMPRESSION, "true")
+				.setRequestHeader(ContentEncoding.HEADER_ACCEPT_ENCODING, "gzip, deflate");
+		AbstractResource resource = createResource();
+		ThemeContent content = resource.getContent();
+		Map<String, String> headers = resource.getResponseHeaders();
+		assertEquals("gzip", headers.get(ContentEncoding.HEADER_CONTENT_ENCODING));
+		assertEquals(ContentEncoding.HEADER_ACCEPT_ENCODING, headers.get(ContentEncoding.HEADER_VARY));
+		assertEquals('"' + content.getHash() + "-gzip\"", headers.get("ETag"));
+
+		resource.handleResourceRequest(context);
+		byte[] body = context.getResponseBody();
+		assertEquals(body.length, context.getResponseContentLength());
+		assertArrayEquals(content.toByteArray(), read(new GZIPInputStream(new ByteArrayInputStream(body))));
+		assertArrayEquals(content.toByteArray(), read(new GZIPInputStream(resource.getInputStream())));
+	}
+
+
+	/**
+	 * Without compression, the theme is served as is, whatever the client accepts.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testUncompressedResponse() throws IOException
+	{
+		TestFacesContext.install().setRequestHeader(ContentEncoding.HEADER_ACCEPT_ENCODING, "gzip");
+		AbstractResource resource = createResource();
+		Map<String, String> headers = resource.getResponseHeaders();
+		assertNull(headers.get(ContentEncoding.HEADER_CONTENT_ENCODING));
+		assertFalse(headers.containsKey(ContentEncoding.HEADER_VARY));
+		assertArrayEquals(resource.getContent().toByteArray(), read(resource.getInputStream()));
+	}
+
+
+	/**
+	 * Creates the theme resource of a new handler.
+	 *
+	 * @return Theme resource.
+	 */
+	private static AbstractResource createResource()
+	{
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		String library = TestThemes.getLibraries().get(0);
+		return (AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+	}
+
+
+	/**
+	 * Reads and closes a stream.
+	 *
+	 * @param in Input stream.
+	 *
+	 * @return Bytes read.
+	 *
+	 * @throws IOException
+	 */
+	private static byte[] read(InputStream in) throws IOException
+	{
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int length; (length = stream.read(buffer)) != -1;) {
+				out.write(buffer, 0, length);
+			}
+			return out.toByteArray();
+		}
+	}
+
+}
+
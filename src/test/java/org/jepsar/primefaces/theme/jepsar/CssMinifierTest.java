@@ -0,0 +1,94 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests for {@link CssMinifier}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class CssMinifierTest
+{
+
+	/**
+	 * Comments are removed, except for important comments.
+	 */
+	@Test
+	public void testComments()
+	{
+		assertEquals("a{color:red}", CssMinifier.minify("/* comment */ a { /* comment */ color: red; }"));
+		assertEquals("/*! license */ a{color:red}", CssMinifier.minify("/*! license */\na {\n\tcolor: red;\n}\n"));
+	}
+
+
+	/**
+	 * White space is collapsed and removed where it is not needed, the last semicolon of a block is removed.
+	 */
+	@Test
+	public void testWhiteSpace()
+	{
+		assertEquals("a>b,c d{margin:0 auto;color:red!important}",
+								 CssMinifier.minify("a > b ,\n c   d {\n  margin : 0  auto ;\n  color : red !important ;\n}"));
+		assertEquals("@media screen and (max-width:640px){a{color:red}}",
+								 CssMinifier.minify("@media  screen  and ( max-width:640px ) {\n a { color: red; }\n}"));
+	}
+
+
+	/**
+	 * Colors are shortened in declaration values only, not in strings, URLs, selectors or legacy filters.
+	 */
+	@Test
+	public void testColors()
+	{
+		assertEquals("a{color:#abc;background:#aabbcd}", CssMinifier.minify("a{color:#aabbcc;background:#aabbcd}"));
+		assertEquals("#aabbcc{content:\"#aabbcc\";background:url(#aabbcc)}",
+								 CssMinifier.minify("#aabbcc{content:\"#aabbcc\";background:url(#aabbcc)}"));
+		String filter = "a{filter:progid:DXImageTransform.Microsoft.gradient(startColorstr='#aabbcc')}";
+		assertEquals(filter, CssMinifier.minify(filter));
+	}
+
+
+	/**
+	 * Empty rules and empty at-rule blocks are removed.
+	 */
+	@Test
+	public void testEmptyRules()
+	{
+		assertEquals("b{color:red}", CssMinifier.minify("a{}@media print{c{ }}b{color:red}d{/* empty */}"));
+	}
+
+
+	/**
+	 * Strings are kept as they are.
+	 */
+	@Test
+	public void testStrings()
+	{
+		assertEquals("a{content:\"  a ,  b  \";font-family:'My  Font'}",
+								 CssMinifier.minify("a { content: \"  a ,  b  \"; font-family: 'My  Font' }"));
+	}
+
+
+	/**
+	 * The writer minifies style sheets which are split over multiple writes, and minifying a theme twice does not
+	 * change it.
+	 */
+	@Test
+	public void testThemes()
+	{
+		for (String library : TestThemes.getLibraries()) {
+			String css = TestThemes.read(library);
+			String expected = CssMinifier.minify(css);
+			assertEquals(library, expected, CssMinifier.minify(expected));
+			for (int chunkSize : TestThemes.CHUNK_SIZES) {
+				assertEquals(library + ", chunk size " + chunkSize, expected,
+										 TestThemes.writeInChunks(CssMinifier::newWriter, css, chunkSize));
+			}
+		}
+	}
+
+}
+
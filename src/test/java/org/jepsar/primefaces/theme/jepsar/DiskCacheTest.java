@@ -0,0 +1,240 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link DiskCache}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class DiskCacheTest
+{
+
+	/**
+	 * Maximum age of unused themes.
+	 */
+	private static final long MAX_AGE = 24L * 60 * 60 * 1000;
+
+	/**
+	 * Theme bytes.
+	 */
+	private static final byte[] CSS = ".ui-widget{color:#fff}".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Cache directory.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Cache directory path.
+	 */
+	private Path directory;
+
+
+	/**
+	 * Resolves the cache directory.
+	 */
+	@Before
+	public void setUp()
+	{
+		directory = folder.getRoot().toPath().resolve("cache");
+	}
+
+
+	/**
+	 * Keys depend on the namespace, each part and the boundaries between parts.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testKey() throws IOException
+	{
+		DiskCache cache = new DiskCache(directory, "/app", MAX_AGE);
+		String key = cache.key("a", "b");
+		assertEquals(key, cache.key("a", "b"));
+		assertEquals(64, key.length());
+		assertNotEquals(key, cache.key("a", "c"));
+		assertNotEquals(key, cache.key("ab"));
+		assertNotEquals(key, new DiskCache(directory, "/other", MAX_AGE).key("a", "b"));
+	}
+
+
+	/**
+	 * A theme is written to a temporary file which is renamed, and returned memory-mapped.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testPut() throws IOException
+	{
+		DiskCache cache = new DiskCache(directory, "/app", MAX_AGE);
+		String key = cache.key("theme");
+		ThemeContent stored = cache.put(key, new ThemeContent(CSS));
+		assertTrue(stored.isDirect());
+		assertArrayEquals(CSS, stored.toByteArray());
+		assertEquals(1, list().size());
+		assertArrayEquals(CSS, Files.readAllBytes(directory.resolve(key + ".css")));
+		ThemeContent replaced = cache.put(key, new ThemeContent(CSS));
+		assertArrayEquals(CSS, replaced.toByteArray());
+		assertEquals(1, list().size());
+	}
+
+
+	/**
+	 * A stored theme is read memory-mapped, also by another cache on the same directory, and a missing theme is
+	 * {@code null}.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testGet() throws IOException
+	{
+		DiskCache cache = new DiskCache(directory, "/app", MAX_AGE);
+		String key = cache.key("theme");
+		assertNull(cache.get(key));
+		cache.put(key, new ThemeContent(CSS));
+		ThemeContent content = new DiskCache(directory, "/app", MAX_AGE).get(key);
+		assertTrue(content.isDirect());
+		assertArrayEquals(CSS, content.toByteArray());
+	}
+
+
+	/**
+	 * Reading a stored theme sets its modification time to now.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testTouch() throws IOException
+	{
+		DiskCache cache = new DiskCache(directory, "/app", MAX_AGE);
+		String key = cache.key("theme");
+		cache.put(key, new ThemeContent(CSS));
+		Path file = directory.resolve(key + ".css");
+		setAge(file, MAX_AGE);
+		cache.get(key);
+		assertTrue(System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() < MAX_AGE / 2);
+	}
+
+
+	/**
+	 * Creating the cache deletes themes unused for longer than the maximum age and temporary files older than an hour.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSweep() throws IOException
+	{
+		Files.createDirectories(directory);
+		Path unused = Files.write(directory.resolve("unused.css"), CSS);
+		setAge(unused, MAX_AGE + 60_000);
+		Path used = Files.write(directory.resolve("used.css"), CSS);
+		setAge(used, MAX_AGE - 60_000);
+		Path abandoned = Files.write(directory.resolve("abandoned.tmp"), CSS);
+		setAge(abandoned, 2L * 60 * 60 * 1000);
+		Path writing = Files.write(directory.resolve("writing.tmp"), CSS);
+		new DiskCache(directory, "/app", MAX_AGE);
+		assertFalse(Files.exists(unused));
+		assertTrue(Files.exists(used));
+		assertFalse(Files.exists(abandoned));
+		assertTrue(Files.exists(writing));
+	}
+
+
+	/**
+	 * Handlers store a theme once and map it for later handlers with the same configuration, another configuration is
+	 * stored separately.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testHandlers() throws IOException
+	{
+		TestFacesContext context = TestFacesContext.install()
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_CACHE_DIRECTORY, directory.toString());
+		try {
+			String library = TestThemes.getLibraries().get(0);
+			byte[] content = getContent(library).toByteArray();
+			assertEquals(1, list().size());
+			ThemeContent stored = getContent(library);
+			assertTrue(stored.isDirect());
+			assertArrayEquals(content, stored.toByteArray());
+			assertEquals(1, list().size());
+			context.setInitParameter(AbstractResourceHandler.PARAM_NAME_MINIFY, "true");
+			getContent(library);
+			assertEquals(2, list().size());
+		}
+		finally {
+			TestFacesContext.uninstall();
+		}
+	}
+
+
+	/**
+	 * Returns the content of a theme from a new handler.
+	 *
+	 * @param library Library name.
+	 *
+	 * @return Content.
+	 *
+	 * @throws IOException
+	 */
+	private static ThemeContent getContent(String library) throws IOException
+	{
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		return ((AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library)).getContent();
+	}
+
+
+	/**
+	 * Sets the modification time of a file to the past.
+	 *
+	 * @param file File.
+	 * @param age  Age in milliseconds.
+	 *
+	 * @throws IOException
+	 */
+	private static void setAge(Path file, long age) throws IOException
+	{
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - age));
+	}
+
+
+	/**
+	 * Lists the files in the cache directory.
+	 *
+	 * @return Files.
+	 *
+	 * @throws IOException
+	 */
+	private List<Path> list() throws IOException
+	{
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			stream.forEach(files::add);
+		}
+		return files;
+	}
+
+}
+
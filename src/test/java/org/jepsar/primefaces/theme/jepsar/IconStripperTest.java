@@ -0,0 +1,104 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests for {@link IconStripper}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class IconStripperTest
+{
+
+	/**
+	 * Icon position rules are removed.
+	 */
+	@Test
+	public void testIconRules()
+	{
+		assertEquals("a{color:red}", IconStripper.strip(".ui-icon-gear{background-position:0 0;}a{color:red}"));
+		assertEquals("a{color:red}", IconStripper.strip(".ui-icon-gear { background-position: 0 0 }a{color:red}"));
+		assertEquals("", IconStripper.strip(".ui-icon-a,.ui-icon-b{background-position:-16px 0}"));
+	}
+
+
+	/**
+	 * Rules which also select other elements or set other properties are kept.
+	 */
+	@Test
+	public void testOtherRulesKept()
+	{
+		String mixedSelectors = ".ui-icon-gear,.gear{background-position:0 0;}";
+		assertEquals(mixedSelectors, IconStripper.strip(mixedSelectors));
+		String otherProperties = ".ui-icon-gear{background-position:0 0;width:16px;}";
+		assertEquals(otherProperties, IconStripper.strip(otherProperties));
+		String media = "@media print{.ui-icon-gear{background-position:0 0;}}";
+		assertEquals("@media print{}", IconStripper.strip(media));
+	}
+
+
+	/**
+	 * Icon sprite background images are removed, other background images are kept.
+	 */
+	@Test
+	public void testIconImages()
+	{
+		String sprite = "background-image:url(\"images/ui-icons_222222_256x240.png\");";
+		assertEquals(".ui-icon{width:16px;}", IconStripper.strip(".ui-icon{" + sprite + "width:16px;}"));
+		assertEquals(".ui-icon{width:16px;}",
+								 IconStripper.strip(".ui-icon{width:16px;background-image:url(/ui-icons_222222_256x240.png?v=1)}"));
+		String other = ".ui-icon{background-image:url(\"images/my-icons_222222_256x240.png\");}";
+		assertEquals(other, IconStripper.strip(other));
+		String data = "a{background-image:url(\"data:image/png;base64,AAAA;\");color:red;}";
+		assertEquals(data, IconStripper.strip(data));
+	}
+
+
+	/**
+	 * Comments and strings containing icon rules are kept.
+	 */
+	@Test
+	public void testCommentsAndStrings()
+	{
+		String comment = "/* .ui-icon-gear{background-position:0 0;} */a{color:red}";
+		assertEquals(comment, IconStripper.strip(comment));
+		String string = "a{content:\".ui-icon-gear{background-position:0 0;}\"}";
+		assertEquals(string, IconStripper.strip(string));
+	}
+
+
+	/**
+	 * All themes are stripped like the regular expressions of the first version do.
+	 */
+	@Test
+	public void testThemes()
+	{
+		for (String library : TestThemes.getLibraries()) {
+			String css = TestThemes.read(library);
+			assertEquals(library, Baseline.stripIcons(Baseline.normalize(css)),
+									 Baseline.normalize(IconStripper.strip(css)));
+		}
+	}
+
+
+	/**
+	 * The writer removes icons which are split over multiple writes.
+	 */
+	@Test
+	public void testChunkBoundaries()
+	{
+		for (String library : TestThemes.getLibraries()) {
+			String css = TestThemes.read(library);
+			String expected = IconStripper.strip(css);
+			for (int chunkSize : TestThemes.CHUNK_SIZES) {
+				assertEquals(library + ", chunk size " + chunkSize, expected,
+										 TestThemes.writeInChunks(IconStripper::newWriter, css, chunkSize));
+			}
+		}
+	}
+
+}
+
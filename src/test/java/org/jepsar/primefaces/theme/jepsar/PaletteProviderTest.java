@@ -0,0 +1,241 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import javax.faces.context.FacesContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Tests the {@link PaletteProvider} support of the {@link ReplaceResourceHandler}, and that the
+ * {@link PipelineResourceHandler} warns it does not support it.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class PaletteProviderTest
+{
+
+	/**
+	 * Request parameter holding the palette of the {@link RequestPaletteProvider}.
+	 */
+	private static final String PALETTE_PARAMETER = "palette";
+
+	/**
+	 * Configured replace values for the {@link ReplaceResource#DEFAULT_FIND_VALUES}.
+	 */
+	private static final String REPLACE_VALUES = "#FF0000;=67;=33;=-33;=-67;#00FF00;=67;=33;=-33;=-67;#0000FF;=67;=33;"
+																							 + "=-33;=-67;#EEEEEE;3px;@import url(x);Arial";
+
+	/**
+	 * Provided replace values, differing from the configured values in the primary color.
+	 */
+	private static final String PALETTE = REPLACE_VALUES.replace("#FF0000", "#00FFFF");
+
+	/**
+	 * Faces context.
+	 */
+	private TestFacesContext context;
+
+	/**
+	 * Warnings logged by the handlers.
+	 */
+	private final List<LogRecord> warnings = new ArrayList<>();
+
+	/**
+	 * Log handler collecting the {@link #warnings}.
+	 */
+	private final Handler logHandler = new Handler()
+	{
+
+		@Override
+		public void publish(LogRecord record)
+		{
+			if (record.getLevel() == Level.WARNING) {
+				warnings.add(record);
+			}
+		}
+
+
+		@Override
+		public void flush()
+		{
+		}
+
+
+		@Override
+		public void close()
+		{
+		}
+
+	};
+
+
+	/**
+	 * Installs the faces context with the configured replace values and the {@link RequestPaletteProvider}, and
+	 * collects the warnings.
+	 */
+	@Before
+	public void setUp()
+	{
+		context = TestFacesContext.install()
+				.setInitParameter(ReplaceResource.PARAM_NAME_REPLACE_VALUES, REPLACE_VALUES)
+				.setInitParameter(ReplaceResourceHandler.PARAM_NAME_PALETTE_PROVIDER, RequestPaletteProvider.class.getName());
+		getLogger(ReplaceResourceHandler.class).addHandler(logHandler);
+		getLogger(PipelineResourceHandler.class).addHandler(logHandler);
+	}
+
+
+	/**
+	 * Removes the faces context and the log handler.
+	 */
+	@After
+	public void tearDown()
+	{
+		getLogger(ReplaceResourceHandler.class).removeHandler(logHandler);
+		getLogger(PipelineResourceHandler.class).removeHandler(logHandler);
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * Without provided values the configured plan is used, and the theme resource is shared.
+	 */
+	@Test
+	public void testConfiguredPalette()
+	{
+		ReplaceResourceHandler handler = new ReplaceResourceHandler(new TestResourceHandler());
+		assertSame(handler.getPlan(), handler.getPlan(context));
+		String library = TestThemes.getLibraries().get(0);
+		AbstractResource resource = createResource(handler, library);
+		assertEquals(handler.getPlan().getFingerprint(), resource.getFingerprint());
+		assertSame(resource, createResource(handler, library));
+	}
+
+
+	/**
+	 * Provided values are compiled once into a plan of their own, which transforms the theme.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testProvidedPalette() throws IOException
+	{
+		ReplaceResourceHandler handler = new ReplaceResourceHandler(new TestResourceHandler());
+		context.setRequestParameter(PALETTE_PARAMETER, PALETTE);
+		ReplacementPlan plan = handler.getPlan(context);
+		assertNotEquals(handler.getPlan().getFingerprint(), plan.getFingerprint());
+		assertSame(plan, handler.getPlan(context));
+
+		String library = TestThemes.getLibraries().get(0);
+		AbstractResource resource = createResource(handler, library);
+		assertEquals(plan.getFingerprint(), resource.getFingerprint());
+		String css = new String(resource.getContent().toByteArray(), resource.getCharset());
+		assertEquals(plan.apply(TestResourceHandler.evaluate(TestThemes.read(library))), css);
+		assertTrue(warnings.isEmpty());
+	}
+
+
+	/**
+	 * Invalid provided values use the configured plan and are logged once.
+	 */
+	@Test
+	public void testInvalidPalette()
+	{
+		ReplaceResourceHandler handler = new ReplaceResourceHandler(new TestResourceHandler());
+		context.setRequestParameter(PALETTE_PARAMETER, "#00FFFF");
+		assertSame(handler.getPlan(), handler.getPlan(context));
+		assertSame(handler.getPlan(), handler.getPlan(context));
+		assertEquals(1, warnings.size());
+	}
+
+
+	/**
+	 * A handler without replace values fails.
+	 */
+	@Test
+	public void testNoReplacements()
+	{
+		context.setInitParameter(ReplaceResource.PARAM_NAME_REPLACE_VALUES, null);
+		try {
+			new ReplaceResourceHandler(new TestResourceHandler());
+			fail("Handler without replace values created");
+		}
+		catch (IllegalStateException ex) {
+			assertEquals("No replacements were set using context parameter " + ReplaceResource.PARAM_NAME_REPLACE_VALUES,
+									 ex.getMessage());
+		}
+	}
+
+
+	/**
+	 * The pipeline handler logs a warning and uses the configured values.
+	 */
+	@Test
+	public void testPipeline()
+	{
+		context.setInitParameter(PipelineResourceHandler.PARAM_NAME_STAGES, "replace-colors");
+		PipelineResourceHandler handler = new PipelineResourceHandler(new TestResourceHandler());
+		assertEquals(1, warnings.size());
+		context.setRequestParameter(PALETTE_PARAMETER, PALETTE);
+		String library = TestThemes.getLibraries().get(0);
+		assertEquals(handler.getFingerprint(), createResource(handler, library).getFingerprint());
+	}
+
+
+	/**
+	 * Returns the logger of a handler.
+	 *
+	 * @param handlerClass Handler class.
+	 *
+	 * @return Logger.
+	 */
+	private static Logger getLogger(Class<?> handlerClass)
+	{
+		return Logger.getLogger(handlerClass.getName());
+	}
+
+
+	/**
+	 * Creates the theme resource of a library.
+	 *
+	 * @param handler Handler.
+	 * @param library Library name.
+	 *
+	 * @return Theme resource.
+	 */
+	private static AbstractResource createResource(AbstractResourceHandler handler, String library)
+	{
+		return (AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+	}
+
+
+
+	/**
+	 * Provides the palette set using the {@link #PALETTE_PARAMETER} request parameter.
+	 */
+	public static final class RequestPaletteProvider implements PaletteProvider
+	{
+
+		@Override
+		public String getReplaceValues(FacesContext context)
+		{
+			return context.getExternalContext().getRequestParameterMap().get(PALETTE_PARAMETER);
+		}
+
+	}
+
+}
+
@@ -0,0 +1,184 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link Palette} and the relative colors of the {@link ReplacementPlan}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class PaletteTest
+{
+
+	/**
+	 * Brand color.
+	 */
+	private static final int COLOR = 0x2A6EBB;
+
+
+	/**
+	 * Linear shades are the {@link RgbColor#move(int, int) moved} colors.
+	 */
+	@Test
+	public void testShadeLinear()
+	{
+		for (int percentage : new int[]{-99, -67, -33, 0, 33, 67, 99}) {
+			assertEquals(RgbColor.move(COLOR, percentage), Palette.shade(COLOR, percentage, Palette.Space.LINEAR));
+		}
+	}
+
+
+	/**
+	 * In every space, a zero percentage keeps the color and shades get lighter or darker with the percentage.
+	 */
+	@Test
+	public void testShade()
+	{
+		for (Palette.Space space : Palette.Space.values()) {
+			assertEquals(COLOR, Palette.shade(COLOR, 0, space));
+			int previous = -1;
+			for (int percentage = -99; percentage <= 99; percentage += 33) {
+				int brightness = getBrightness(Palette.shade(COLOR, percentage, space));
+				assertTrue(space + " " + percentage, brightness > previous);
+				previous = brightness;
+			}
+		}
+	}
+
+
+	/**
+	 * HSL shades of a gray stay gray, white and black can't get any lighter or darker.
+	 */
+	@Test
+	public void testShadeHsl()
+	{
+		int shade = Palette.shade(0x808080, 50, Palette.Space.HSL);
+		assertEquals(shade >> 16 & 0xFF, shade & 0xFF);
+		assertEquals(shade >> 8 & 0xFF, shade & 0xFF);
+		assertEquals(0xFFFFFF, Palette.shade(0xFFFFFF, 50, Palette.Space.HSL));
+		assertEquals(0, Palette.shade(0, -50, Palette.Space.HSL));
+	}
+
+
+	/**
+	 * OKLab shades move towards white and black.
+	 */
+	@Test
+	public void testShadeOklab()
+	{
+		assertEquals(0xFFFFFF, Palette.shade(0xFFFFFF, 50, Palette.Space.OKLAB));
+		assertEquals(0, Palette.shade(0, -50, Palette.Space.OKLAB));
+		assertTrue(getBrightness(Palette.shade(COLOR, 99, Palette.Space.OKLAB)) > 3 * 250);
+		assertTrue(getBrightness(Palette.shade(COLOR, -99, Palette.Space.OKLAB)) < 3 * 5);
+		assertNotEquals(Palette.shade(COLOR, 33, Palette.Space.LINEAR), Palette.shade(COLOR, 33, Palette.Space.OKLAB));
+	}
+
+
+	/**
+	 * Percentages outside [-99..99] are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidShade()
+	{
+		Palette.shade(COLOR, 100, Palette.Space.OKLAB);
+	}
+
+
+	/**
+	 * The default steps match the colors of a group of default find values, batches are written per color.
+	 */
+	@Test
+	public void testGenerate()
+	{
+		assertArrayEquals(new int[]{COLOR, RgbColor.move(COLOR, 67), RgbColor.move(COLOR, 33), RgbColor.move(COLOR, -33),
+																RgbColor.move(COLOR, -67)},
+											Palette.generate(COLOR, Palette.Space.LINEAR));
+		int[] steps = {0, 50};
+		int[] out = new int[4];
+		Palette.generate(new int[]{COLOR, 0x808080}, steps, Palette.Space.LINEAR, out);
+		assertArrayEquals(new int[]{COLOR, RgbColor.move(COLOR, 50), 0x808080, 0xBFBFBF}, out);
+	}
+
+
+	/**
+	 * An output array too small for all shades is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testGenerateOutputTooSmall()
+	{
+		Palette.generate(new int[]{COLOR, COLOR}, new int[]{0, 50}, Palette.Space.HSL, new int[3]);
+	}
+
+
+	/**
+	 * Colors are written as replace values.
+	 */
+	@Test
+	public void testToReplaceValues()
+	{
+		assertEquals("#2A6EBB;#808080", Palette.toReplaceValues(COLOR, 0x808080));
+		assertEquals("", Palette.toReplaceValues());
+	}
+
+
+	/**
+	 * Spaces are found by name in any case.
+	 */
+	@Test
+	public void testFromName()
+	{
+		assertEquals(Palette.Space.OKLAB, Palette.Space.fromName("oklab"));
+		assertEquals(Palette.Space.HSL, Palette.Space.fromName(" HSL "));
+		assertEquals(Palette.Space.LINEAR, Palette.Space.fromName("Linear"));
+	}
+
+
+	/**
+	 * Unknown spaces are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownSpace()
+	{
+		Palette.Space.fromName("lab");
+	}
+
+
+	/**
+	 * Relative replace colors are shaded in the space of the plan, relative find colors always linearly.
+	 */
+	@Test
+	public void testReplacementPlan()
+	{
+		String values = "#2A6EBB;=33;=-33";
+		ReplacementPlan linear = new ReplacementPlan(values, values, false);
+		ReplacementPlan oklab = new ReplacementPlan(values, values, false, Palette.Space.OKLAB);
+		assertEquals(linear.getFindList(), oklab.getFindList());
+		List<String> replaceList = oklab.getReplaceList();
+		assertEquals(Palette.toReplaceValues(Palette.generate(COLOR, new int[]{0, 33, -33}, Palette.Space.OKLAB)),
+								 String.join(ReplaceResource.SEPARATOR, replaceList));
+		assertNotEquals(linear.getReplaceList(), replaceList);
+		assertNotEquals(linear.getFingerprint(), oklab.getFingerprint());
+	}
+
+
+	/**
+	 * Returns the sum of the components of a color.
+	 *
+	 * @param rgb Packed color.
+	 *
+	 * @return Brightness. [0..765]
+	 */
+	private static int getBrightness(int rgb)
+	{
+		return (rgb >> 16 & 0xFF) + (rgb >> 8 & 0xFF) + (rgb & 0xFF);
+	}
+
+}
+
@@ -0,0 +1,308 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+
+/**
+ * Runs every community theme through each resource handler and compares the result with the {@link Baseline}
+ * transformations, for cached and streamed themes and for UTF-8 and ISO-8859-1 responses.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+@RunWith(Parameterized.class)
+public class ResourceHandlerTest
+{
+
+	/**
+	 * Replace values for the {@link ReplaceResource#DEFAULT_FIND_VALUES}, including relative colors.
+	 */
+	private static final String REPLACE_VALUES = "#FF0000;=67;=33;=-33;=-67;#00FF00;=67;=33;=-33;=-67;#0000FF;=67;=33;"
+																							 + "=-33;=-67;#EEEEEE;3px;@import url(x);Arial";
+
+	/**
+	 * CSS resource to append.
+	 */
+	private static final String APPEND_CSS_RESOURCE = "custom.css";
+
+	/**
+	 * Response charset.
+	 */
+	private final Charset charset;
+
+	/**
+	 * {@code true} to stream the themes, see {@link AbstractResourceHandler#PARAM_NAME_STREAMING}.
+	 */
+	private final boolean streaming;
+
+	/**
+	 * Faces context.
+	 */
+	private TestFacesContext context;
+
+	/**
+	 * Find and replace configuration matching the context parameters.
+	 */
+	private ReplacementPlan plan;
+
+
+	/**
+	 * Creates a test.
+	 *
+	 * @param charset   Response charset name.
+	 * @param streaming {@code true} to stream the themes.
+	 */
+	public ResourceHandlerTest(String charset, boolean streaming)
+	{
+		this.charset = Charset.forName(charset);
+		this.streaming = streaming;
+	}
+
+
+	/**
+	 * Returns the response charsets and streaming modes to test.
+	 *
+	 * @return Parameters.
+	 */
+	@Parameters(name = "{0}, streaming {1}")
+	public static Collection<Object[]> parameters()
+	{
+		return Arrays.asList(new Object[][]{
+			{"UTF-8", false}, {"UTF-8", true}, {"ISO-8859-1", false}, {"ISO-8859-1", true}
+		});
+	}
+
+
+	/**
+	 * Installs the faces context.
+	 */
+	@Before
+	public void setUp()
+	{
+		context = TestFacesContext.install()
+				.setResponseCharacterEncoding(charset.name())
+				.setInitParameter(ReplaceResource.PARAM_NAME_REPLACE_VALUES, REPLACE_VALUES)
+				.setInitParameter(AbstractResource.PARAM_NAME_APPEND_CSS_RESOURCE, APPEND_CSS_RESOURCE)
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_STREAMING, String.valueOf(streaming));
+		plan = new ReplacementPlan(ReplaceResource.DEFAULT_FIND_VALUES, REPLACE_VALUES);
+	}
+
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * The replace handler replaces the find values like sequential replacements do and appends the CSS.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testReplaceResourceHandler() throws IOException
+	{
+		ResourceHandler handler = new ReplaceResourceHandler(new TestResourceHandler());
+		for (String library : TestThemes.getLibraries()) {
+			String expected = replace(theme(library)) + appendedCss();
+			assertEquals(library, expected, read(handler, library));
+		}
+	}
+
+
+	/**
+	 * The Font Awesome handler removes the icons like the regular expressions do and appends the patch and the CSS.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testFontAwesomeResourceHandler() throws IOException
+	{
+		ResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		for (String library : TestThemes.getLibraries()) {
+			String expected = Baseline.stripIcons(Baseline.normalize(theme(library)))
+												+ Baseline.normalize(patch() + appendedCss());
+			assertEquals(library, expected, Baseline.normalize(read(handler, library)));
+		}
+	}
+
+
+	/**
+	 * The no theme handler only serves the appended CSS.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testNoThemeResourceHandler() throws IOException
+	{
+		ResourceHandler handler = new NoThemeResourceHandler(new TestResourceHandler());
+		for (String library : TestThemes.getLibraries()) {
+			assertEquals(library, appendedCss(), read(handler, library));
+		}
+	}
+
+
+	/**
+	 * The pipeline handler applies the stages like the other handlers do one after the other.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testPipelineResourceHandler() throws IOException
+	{
+		context.setInitParameter(PipelineResourceHandler.PARAM_NAME_STAGES,
+														 "strip-icons, replace-colors, font-awesome-patch, append-css");
+		ResourceHandler handler = new PipelineResourceHandler(new TestResourceHandler());
+		for (String library : TestThemes.getLibraries()) {
+			String expected = replace(Baseline.stripIcons(Baseline.normalize(theme(library))))
+												+ Baseline.normalize(patch() + appendedCss());
+			assertEquals(library, expected, Baseline.normalize(read(handler, library)));
+		}
+	}
+
+
+	/**
+	 * A minifying handler serves the minified result of the handler without minifying.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMinify() throws IOException
+	{
+		ResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_MINIFY, "true");
+		ResourceHandler minifyingHandler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		for (String library : TestThemes.getLibraries()) {
+			assertEquals(library, CssMinifier.minify(read(handler, library)), read(minifyingHandler, library));
+		}
+	}
+
+
+	/**
+	 * Theme resources are shared by all requests with the same response charset, unless resource library contracts
+	 * are active.
+	 */
+	@Test
+	public void testSharedThemeResources()
+	{
+		ResourceHandler handler = new ReplaceResourceHandler(new TestResourceHandler());
+		String library = TestThemes.getLibraries().get(0);
+		Resource resource = handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+		assertSame(resource, handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library));
+		context.setResponseCharacterEncoding(charset.equals(StandardCharsets.UTF_8) ? "ISO-8859-1" : "UTF-8");
+		assertNotSame(resource, handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library));
+		context.setResponseCharacterEncoding(charset.name()).setResourceLibraryContracts("contract");
+		assertNotSame(resource, handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library));
+	}
+
+
+	/**
+	 * Replaces the find values in CSS using the {@link Baseline}.
+	 *
+	 * @param css CSS.
+	 *
+	 * @return CSS with replaced values.
+	 */
+	private String replace(String css)
+	{
+		return Baseline.replace(css, plan.getFindList(), plan.getReplaceList());
+	}
+
+
+	/**
+	 * Returns a theme with its expressions evaluated, as the wrapped handler serves it.
+	 *
+	 * @param library Library name.
+	 *
+	 * @return Theme CSS.
+	 */
+	private static String theme(String library)
+	{
+		return TestResourceHandler.evaluate(TestThemes.read(library));
+	}
+
+
+	/**
+	 * Returns the Font Awesome patch as the wrapped handler serves it.
+	 *
+	 * @return Font Awesome patch.
+	 *
+	 * @throws IOException
+	 */
+	private static String patch() throws IOException
+	{
+		return resource(FontAwesomeResource.FONT_AWESOME_CSS_RESOURCE, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Returns the CSS resource to append, decoded with the response charset like the handlers do.
+	 *
+	 * @return CSS to append.
+	 *
+	 * @throws IOException
+	 */
+	private String appendedCss() throws IOException
+	{
+		return resource(APPEND_CSS_RESOURCE, charset);
+	}
+
+
+	/**
+	 * Returns a resource without library as the wrapped handler serves it.
+	 *
+	 * @param name    Resource name.
+	 * @param charset Charset to decode the resource with.
+	 *
+	 * @return Resource contents.
+	 *
+	 * @throws IOException
+	 */
+	private static String resource(String name, Charset charset) throws IOException
+	{
+		try (InputStream in = new TestResourceHandler().createResource(name).getInputStream()) {
+			return new String(ThemeGenerator.readFully(in), charset);
+		}
+	}
+
+
+	/**
+	 * Reads the theme served by a handler.
+	 *
+	 * @param handler Handler.
+	 * @param library Library name.
+	 *
+	 * @return Served CSS.
+	 *
+	 * @throws IOException
+	 */
+	private String read(ResourceHandler handler, String library) throws IOException
+	{
+		Resource resource = handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+		try (InputStream in = resource.getInputStream()) {
+			return new String(ThemeGenerator.readFully(in), charset);
+		}
+	}
+
+}
+
@@ -0,0 +1,204 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import javax.faces.application.ResourceHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests which resource requests the handlers serve themselves, see
+ * {@link AbstractResourceHandler#handleResourceRequest(javax.faces.context.FacesContext)}, and which fall through to
+ * the wrapped handler.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ResourceRequestTest
+{
+
+	/**
+	 * Request path of the theme without the mapping.
+	 */
+	private static final String THEME_PATH = ResourceHandler.RESOURCE_IDENTIFIER + '/'
+																						+ AbstractResourceHandler.PRIMEFACES_THEME;
+
+	/**
+	 * Faces context.
+	 */
+	private TestFacesContext context;
+
+	/**
+	 * Wrapped handler.
+	 */
+	private TestResourceHandler wrapped;
+
+	/**
+	 * Theme library.
+	 */
+	private String library;
+
+
+	/**
+	 * Installs the faces context and requests the theme.
+	 */
+	@Before
+	public void setUp()
+	{
+		wrapped = new TestResourceHandler();
+		library = TestThemes.getLibraries().get(0);
+		context = TestFacesContext.install().setRequestParameter("ln", library);
+	}
+
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * The theme is served from the cached content if the faces servlet is prefix mapped.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testPrefixMapping() throws IOException
+	{
+		context.setRequestPath("/faces", THEME_PATH);
+		assertServed();
+	}
+
+
+	/**
+	 * The theme is served from the cached content if the faces servlet is extension mapped.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testExtensionMapping() throws IOException
+	{
+		context.setRequestPath(THEME_PATH + ".xhtml", null);
+		assertServed();
+	}
+
+
+	/**
+	 * A request with the current ETag gets a "not modified" response from the handler.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testNotModified() throws IOException
+	{
+		context.setRequestPath(THEME_PATH + ".xhtml", null);
+		AbstractResourceHandler handler = new FontAwesomeResourceHandler(wrapped);
+		context.setRequestHeader("If-None-Match", '"' + createResource(handler).getContent().getHash() + '"');
+		handler.handleResourceRequest(context);
+		assertEquals(304, context.getResponseStatus());
+		assertEquals(0, context.getResponseBody().length);
+		assertEquals(0, wrapped.getHandledRequests());
+	}
+
+
+	/**
+	 * Requests for other resources fall through, also when the path only starts like the theme.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testOtherResource() throws IOException
+	{
+		context.setRequestPath("/faces", ResourceHandler.RESOURCE_IDENTIFIER + "/other.css");
+		assertFallsThrough();
+		context.setRequestPath(ResourceHandler.RESOURCE_IDENTIFIER + "/other.css.xhtml", null);
+		assertFallsThrough();
+		context.setRequestPath(THEME_PATH + "x.xhtml", null);
+		assertFallsThrough();
+		context.setRequestPath(THEME_PATH, null);
+		assertFallsThrough();
+	}
+
+
+	/**
+	 * Requests without a library or with a library other than a PrimeFaces theme fall through.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testLibrary() throws IOException
+	{
+		context.setRequestPath(THEME_PATH + ".xhtml", null);
+		context.setRequestParameter("ln", null);
+		assertFallsThrough();
+		context.setRequestParameter("ln", "other");
+		assertFallsThrough();
+	}
+
+
+	/**
+	 * When streaming, all requests fall through, as there is no cached content to serve.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testStreaming() throws IOException
+	{
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_STREAMING, "true");
+		context.setRequestPath(THEME_PATH + ".xhtml", null);
+		assertFallsThrough();
+	}
+
+
+	/**
+	 * Asserts that a new handler serves the requested theme itself.
+	 *
+	 * @throws IOException
+	 */
+	private void assertServed() throws IOException
+	{
+		AbstractResourceHandler handler = new FontAwesomeResourceHandler(wrapped);
+		handler.handleResourceRequest(context);
+		byte[] expected = createResource(handler).getContent().toByteArray();
+		assertEquals(0, wrapped.getHandledRequests());
+		assertEquals(200, context.getResponseStatus());
+		assertEquals(expected.length, context.getResponseContentLength());
+		assertArrayEquals(expected, context.getResponseBody());
+	}
+
+
+	/**
+	 * Asserts that a new handler passes the request to the wrapped handler.
+	 *
+	 * @throws IOException
+	 */
+	private void assertFallsThrough() throws IOException
+	{
+		int handledRequests = wrapped.getHandledRequests();
+		new FontAwesomeResourceHandler(wrapped).handleResourceRequest(context);
+		assertEquals(handledRequests + 1, wrapped.getHandledRequests());
+		assertEquals(0, context.getResponseBody().length);
+	}
+
+
+	/**
+	 * Creates the theme resource.
+	 *
+	 * @param handler Handler.
+	 *
+	 * @return Theme resource.
+	 */
+	private AbstractResource createResource(AbstractResourceHandler handler)
+	{
+		return (AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+	}
+
+}
+
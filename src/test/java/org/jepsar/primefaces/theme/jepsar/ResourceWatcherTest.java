@@ -0,0 +1,160 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link ResourceWatcher}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ResourceWatcherTest
+{
+
+	/**
+	 * Maximum time to wait for a change to be noticed in seconds.
+	 */
+	private static final long TIMEOUT = 30;
+
+	/**
+	 * Directory holding the watched files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Watcher.
+	 */
+	private ResourceWatcher watcher;
+
+
+	/**
+	 * Creates the watcher.
+	 *
+	 * @throws IOException
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		watcher = new ResourceWatcher();
+	}
+
+
+	/**
+	 * Closes the watcher.
+	 *
+	 * @throws IOException
+	 */
+	@After
+	public void tearDown() throws IOException
+	{
+		watcher.close();
+	}
+
+
+	/**
+	 * File URLs resolve to their file, JAR URLs to the JAR file, other URLs to nothing.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testToPath() throws IOException
+	{
+		Path file = folder.newFile("theme.css").toPath();
+		Path jar = folder.newFile("theme.jar").toPath();
+		assertEquals(file, ResourceWatcher.toPath(file.toUri().toURL()));
+		assertEquals(jar, ResourceWatcher.toPath(toJarUrl(jar)));
+		assertNull(ResourceWatcher.toPath(new URL("jar:http://localhost/theme.jar!/theme.css")));
+		assertNull(ResourceWatcher.toPath(new URL("http://localhost/theme.css")));
+	}
+
+
+	/**
+	 * Changing a watched file runs the callbacks of all URLs behind it, also when another callback fails.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWatch() throws Exception
+	{
+		Path jar = folder.newFile("theme.jar").toPath();
+		CountDownLatch changed = new CountDownLatch(1);
+		assertTrue(watcher.watch(jar.toUri().toURL(), () -> {
+			throw new IllegalStateException("Failed callback");
+		}));
+		assertTrue(watcher.watch(toJarUrl(jar), changed::countDown));
+		Files.write(jar, "changed".getBytes(StandardCharsets.UTF_8));
+		assertTrue("Change was not noticed", changed.await(TIMEOUT, TimeUnit.SECONDS));
+	}
+
+
+	/**
+	 * Watching a URL again replaces its callback.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReplaceCallback() throws Exception
+	{
+		Path file = folder.newFile("theme.css").toPath();
+		CountDownLatch replaced = new CountDownLatch(1);
+		CountDownLatch changed = new CountDownLatch(1);
+		assertTrue(watcher.watch(file.toUri().toURL(), replaced::countDown));
+		assertTrue(watcher.watch(file.toUri().toURL(), changed::countDown));
+		Files.write(file, ".a{}".getBytes(StandardCharsets.UTF_8));
+		assertTrue("Change was not noticed", changed.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(1, replaced.getCount());
+	}
+
+
+	/**
+	 * URLs without a regular file behind them are not watched, and nothing is watched once closed.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testNotWatched() throws IOException
+	{
+		Runnable callback = () -> {
+		};
+		assertFalse(watcher.watch(new URL("http://localhost/theme.css"), callback));
+		assertFalse(watcher.watch(folder.getRoot().toPath().resolve("missing.css").toUri().toURL(), callback));
+		assertFalse(watcher.watch(folder.newFolder("theme").toURI().toURL(), callback));
+		Path file = folder.newFile("theme.css").toPath();
+		watcher.close();
+		assertFalse(watcher.watch(file.toUri().toURL(), callback));
+	}
+
+
+	/**
+	 * Returns the URL of an entry in a JAR file.
+	 *
+	 * @param jar JAR file.
+	 *
+	 * @return JAR URL.
+	 *
+	 * @throws IOException
+	 */
+	private static URL toJarUrl(Path jar) throws IOException
+	{
+		return new URL("jar:" + jar.toUri() + "!/META-INF/resources/theme.css");
+	}
+
+}
+
@@ -0,0 +1,145 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Tests the {@link RgbColor}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class RgbColorTest
+{
+
+	/**
+	 * Hex colors are parsed in any case, with or without prefix, invalid colors are {@link RgbColor#INVALID}.
+	 */
+	@Test
+	public void testTryParse()
+	{
+		assertEquals(0x2A6EBB, RgbColor.tryParse("#2A6EBB"));
+		assertEquals(0x2A6EBB, RgbColor.tryParse("#2a6ebb"));
+		assertEquals(0x2A6EBB, RgbColor.tryParse("2A6EBB"));
+		assertEquals(0xFFFFFF, RgbColor.tryParse("#FFFFFF"));
+		assertEquals(0, RgbColor.tryParse("#000000"));
+		assertEquals(RgbColor.INVALID, RgbColor.tryParse("#FFF"));
+		assertEquals(RgbColor.INVALID, RgbColor.tryParse("#2A6EBBFF"));
+		assertEquals(RgbColor.INVALID, RgbColor.tryParse("#2A6EBG"));
+		assertEquals(RgbColor.INVALID, RgbColor.tryParse("##2A6EB"));
+		assertEquals(RgbColor.INVALID, RgbColor.tryParse(""));
+		assertEquals(RgbColor.INVALID, RgbColor.tryParse(null));
+	}
+
+
+	/**
+	 * Invalid hex strings are rejected by the constructor.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidColor()
+	{
+		new RgbColor("#2A6EBG");
+	}
+
+
+	/**
+	 * Packed colors are written as upper case hex strings with prefix.
+	 */
+	@Test
+	public void testToHex()
+	{
+		assertEquals("#2A6EBB", RgbColor.toHex(0x2A6EBB));
+		assertEquals("#000000", RgbColor.toHex(0));
+		assertEquals("#0A0B0C", RgbColor.toHex(0x0A0B0C));
+		assertEquals("#2A6EBB", new RgbColor("#2a6ebb").toString());
+		assertEquals("#2A6EBB", RgbColor.valueOf(0xFF2A6EBB).toString());
+		assertEquals("#2A6EBB", RgbColor.appendHex(0x2A6EBB, new StringBuilder()).toString());
+	}
+
+
+	/**
+	 * Components are moved by a percentage of their distance to 255 or 0.
+	 */
+	@Test
+	public void testMove()
+	{
+		assertEquals(0xBFBFBF, RgbColor.move(0x808080, 50));
+		assertEquals(0x404040, RgbColor.move(0x808080, -50));
+		assertEquals(0x808080, RgbColor.move(0x808080, 0));
+		assertEquals(0xFFFFFF, RgbColor.move(0xFFFFFF, 99));
+		assertEquals(new RgbColor("#BFBFBF"), new RgbColor("#808080").move(50));
+		assertEquals(RgbColor.toHex(RgbColor.move(0x2A6EBB, -33)), new RgbColor("#2A6EBB").move(-33).toString());
+	}
+
+
+	/**
+	 * Percentages outside [-99..99] are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMove()
+	{
+		RgbColor.move(0x808080, 100);
+	}
+
+
+	/**
+	 * Percentages outside [-99..99] are rejected by instances as well.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInstanceMove()
+	{
+		new RgbColor("#808080").move(-100);
+	}
+
+
+	/**
+	 * The component constructor keeps the components as is, packing clamps them.
+	 */
+	@Test
+	public void testComponents()
+	{
+		RgbColor color = new RgbColor(300, 128, -1);
+		assertEquals(300, color.getRed());
+		assertEquals(128, color.getGreen());
+		assertEquals(-1, color.getBlue());
+		assertEquals(0xFF8000, color.getRgb());
+		assertEquals(0xFF8000, RgbColor.pack(300, 128, -1));
+		assertEquals("#12C80FFFFFFFF", color.toString());
+	}
+
+
+	/**
+	 * The serialized form of earlier releases is kept.
+	 *
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException
+	{
+		ObjectStreamClass streamClass = ObjectStreamClass.lookup(RgbColor.class);
+		assertEquals(1L, streamClass.getSerialVersionUID());
+		assertEquals(3, streamClass.getFields().length);
+		for (String field : new String[]{"r", "g", "b"}) {
+			assertNotNull(streamClass.getField(field));
+		}
+		RgbColor color = new RgbColor("#2A6EBB");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(color);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertEquals(color, in.readObject());
+		}
+	}
+
+}
+
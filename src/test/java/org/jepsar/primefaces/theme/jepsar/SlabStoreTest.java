@@ -0,0 +1,210 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link SlabStore}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class SlabStoreTest
+{
+
+	/**
+	 * Size of a slab in bytes.
+	 */
+	private static final int SLAB = 4 << 20;
+
+	/**
+	 * Size of a content in bytes, two contents fill a slab.
+	 */
+	private static final int CONTENT = SLAB / 2;
+
+	/**
+	 * Capacity of two slabs.
+	 */
+	private static final long CAPACITY = 2L * SLAB;
+
+	/**
+	 * Maximum time to wait for the garbage collector in milliseconds.
+	 */
+	private static final long TIMEOUT = 30_000;
+
+	/**
+	 * Keys passed to the eviction listener.
+	 */
+	private final List<String> evicted = new ArrayList<>();
+
+	/**
+	 * Runs the lock checks of the eviction listener.
+	 */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+
+	/**
+	 * Stops the {@link #executor}.
+	 */
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * Content is copied into a slab, content which is direct, empty or larger than the capacity is returned as is.
+	 */
+	@Test
+	public void testStore()
+	{
+		SlabStore<String> store = new SlabStore<>(CAPACITY, evicted::add);
+		byte[] bytes = createBytes('a', CONTENT);
+		ThemeContent stored = store.store("a", new ThemeContent(bytes));
+		assertTrue(stored.isDirect());
+		assertArrayEquals(bytes, stored.toByteArray());
+		assertSame(stored, store.store("b", stored));
+		ThemeContent empty = new ThemeContent(new byte[0]);
+		assertSame(empty, store.store("c", empty));
+		ThemeContent large = new ThemeContent(new byte[(int) CAPACITY + 1]);
+		assertSame(large, store.store("d", large));
+		assertEquals(1, store.count());
+		assertEquals(SLAB, store.size());
+	}
+
+
+	/**
+	 * Compressed variants of stored content are copied into the slabs as well.
+	 */
+	@Test
+	public void testVariants()
+	{
+		SlabStore<String> store = new SlabStore<>(CAPACITY, evicted::add);
+		byte[] bytes = createBytes('a', 1024);
+		ThemeContent variant = store.store("a", new ThemeContent(bytes)).getVariant(ContentEncoding.GZIP);
+		assertTrue(variant.isDirect());
+		assertArrayEquals(ContentEncoding.GZIP.encode(bytes), variant.toByteArray());
+		assertEquals(SLAB, store.size());
+	}
+
+
+	/**
+	 * The least recently used contents are released until a new slab would fit, their keys are passed to the listener
+	 * without holding the lock of the store. As the dropped slab is still referenced, the new content is not stored.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testEviction() throws Exception
+	{
+		List<SlabStore<String>> stores = new ArrayList<>();
+		SlabStore<String> store = new SlabStore<>(CAPACITY, key -> {
+			try {
+				executor.submit(stores.get(0)::count).get(10, TimeUnit.SECONDS);
+			}
+			catch (Exception ex) {
+				throw new IllegalStateException("Eviction listener called holding the lock", ex);
+			}
+			evicted.add(key);
+		});
+		stores.add(store);
+		List<ThemeContent> contents = new ArrayList<>();
+		for (String key : Arrays.asList("a", "b", "c", "d")) {
+			contents.add(store.store(key, new ThemeContent(createBytes(key.charAt(0), CONTENT))));
+		}
+		assertEquals(CAPACITY, store.size());
+		store.touch("a");
+		store.touch("c");
+		assertFalse(store.store("e", new ThemeContent(createBytes('e', CONTENT))).isDirect());
+		assertEquals(Arrays.asList("b", "d", "a"), evicted);
+		assertEquals(1, store.count());
+		assertEquals(CAPACITY, store.size());
+		assertEquals(SLAB, store.retained());
+		assertArrayEquals(createBytes('a', CONTENT), contents.get(0).toByteArray());
+	}
+
+
+	/**
+	 * Releasing all contents of a slab drops it. While the dropped slab is still referenced it is counted against the
+	 * capacity and content which does not fit next to it is returned as is. Once collected, there is room again.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testRetained() throws InterruptedException
+	{
+		SlabStore<String> store = new SlabStore<>(CAPACITY, evicted::add);
+		List<ThemeContent> contents = new ArrayList<>();
+		for (String key : Arrays.asList("a", "b", "c", "d")) {
+			contents.add(store.store(key, new ThemeContent(createBytes(key.charAt(0), CONTENT))));
+		}
+		store.release("c");
+		store.release("d");
+		assertEquals(CAPACITY, store.size());
+		assertEquals(SLAB, store.retained());
+		assertArrayEquals(createBytes('d', CONTENT), contents.get(3).toByteArray());
+
+		store.release("a");
+		ThemeContent heap = new ThemeContent(createBytes('e', SLAB + 1));
+		assertSame(heap, store.store("e", heap));
+		assertFalse(store.store("f", new ThemeContent(createBytes('f', CONTENT))).isDirect());
+		assertTrue(evicted.isEmpty());
+		assertEquals(1, store.count());
+
+		contents.clear();
+		awaitCollected(store);
+		assertEquals(SLAB, store.size());
+		ThemeContent stored = store.store("f", new ThemeContent(createBytes('f', CONTENT)));
+		assertTrue(stored.isDirect());
+		assertEquals(CAPACITY, store.size());
+	}
+
+
+	/**
+	 * Waits until the dropped slabs of the store are collected.
+	 *
+	 * @param store Store.
+	 *
+	 * @throws InterruptedException
+	 */
+	private static void awaitCollected(SlabStore<?> store) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (store.retained() > 0) {
+			assertTrue("Dropped slabs were not collected", System.currentTimeMillis() < deadline);
+			System.gc();
+			Thread.sleep(10);
+		}
+	}
+
+
+	/**
+	 * Creates bytes.
+	 *
+	 * @param value  Value of each byte.
+	 * @param length Number of bytes.
+	 *
+	 * @return Bytes.
+	 */
+	private static byte[] createBytes(char value, int length)
+	{
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte) value);
+		return bytes;
+	}
+
+}
+
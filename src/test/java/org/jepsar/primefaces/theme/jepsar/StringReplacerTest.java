@@ -0,0 +1,168 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests for {@link StringReplacer}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class StringReplacerTest
+{
+
+	/**
+	 * Replace values for the {@link ReplaceResource#DEFAULT_FIND_VALUES}.
+	 */
+	private static final String REPLACE_VALUES = "#FF0000;#FF5555;#FFAAAA;#AA0000;#550000;#00FF00;#55FF55;#AAFFAA;"
+																							 + "#00AA00;#005500;#0000FF;#5555FF;#AAAAFF;#0000AA;#000055;"
+																							 + "#EEEEEE;3px;@import url(x);Arial";
+
+
+	/**
+	 * If find values overlap, the leftmost match wins, where sequential replacements would replace the first find value.
+	 */
+	@Test
+	public void testLeftmostMatch()
+	{
+		StringReplacer replacer = replacer(Arrays.asList("bc", "ab"), Arrays.asList("1", "2"));
+		assertEquals("2c", replacer.replace("abc"));
+		assertEquals("a1", Baseline.replace("abc", Arrays.asList("bc", "ab"), Arrays.asList("1", "2")));
+	}
+
+
+	/**
+	 * If find values match at the same position, the value which comes first in the find list wins.
+	 */
+	@Test
+	public void testFirstFindValueWins()
+	{
+		assertEquals("1b", replacer(Arrays.asList("a", "ab"), Arrays.asList("1", "2")).replace("ab"));
+		assertEquals("2", replacer(Arrays.asList("ab", "a"), Arrays.asList("2", "1")).replace("ab"));
+	}
+
+
+	/**
+	 * Replaced text is not replaced again.
+	 */
+	@Test
+	public void testNoOverwriting()
+	{
+		StringReplacer replacer = replacer(Arrays.asList("a", "b"), Arrays.asList("b", "c"));
+		assertEquals("bc", replacer.replace("ab"));
+		assertEquals("bc", Baseline.replace("ab", Arrays.asList("a", "b"), Arrays.asList("b", "c")));
+	}
+
+
+	/**
+	 * A shorter find value is matched inside a longer find value which does not match completely.
+	 */
+	@Test
+	public void testPartialMatch()
+	{
+		StringReplacer replacer = replacer(Arrays.asList("abcd", "bc"), Arrays.asList("1", "2"));
+		assertEquals("a2e", replacer.replace("abce"));
+		assertEquals("1e", replacer.replace("abcde"));
+		assertEquals("a2a2", replacer(Arrays.asList("abac", "b"), Arrays.asList("1", "2")).replace("abab"));
+	}
+
+
+	/**
+	 * Find and replace values may contain characters outside the ASCII range.
+	 */
+	@Test
+	public void testNonAscii()
+	{
+		StringReplacer replacer = replacer(Arrays.asList("✓", "Ärial"), Arrays.asList("✔", "Arial"));
+		assertEquals("content:\"✔\";font-family:Arial;ü", replacer.replace("content:\"✓\";font-family:Ärial;ü"));
+	}
+
+
+	/**
+	 * Text without matches and empty text are not changed.
+	 */
+	@Test
+	public void testNoMatch()
+	{
+		StringReplacer replacer = replacer(Arrays.asList("#ff0000"), Arrays.asList("red"));
+		assertEquals("color:#ff000", replacer.replace("color:#ff000"));
+		assertEquals("", replacer.replace(""));
+		assertEquals("abc", replacer(Collections.emptyList(), Collections.emptyList()).replace("abc"));
+	}
+
+
+	/**
+	 * An empty find value is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyFindValue()
+	{
+		replacer(Arrays.asList("a", ""), Arrays.asList("b", "c"));
+	}
+
+
+	/**
+	 * Find and replace lists of different sizes are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeDiffers()
+	{
+		replacer(Arrays.asList("a", "b"), Arrays.asList("c"));
+	}
+
+
+	/**
+	 * The writer replaces find values which are split over multiple writes.
+	 */
+	@Test
+	public void testChunkBoundaries()
+	{
+		StringReplacer replacer = replacer(Arrays.asList("abcd", "bc", "cde", "✓"), Arrays.asList("1", "2", "3", "4"));
+		String text = "abcdabce✓abcdexabcbcdeabc";
+		for (int chunkSize : TestThemes.CHUNK_SIZES) {
+			assertEquals("chunk size " + chunkSize, replacer.replace(text),
+									 TestThemes.writeInChunks(replacer::newWriter, text, chunkSize));
+		}
+	}
+
+
+	/**
+	 * The default find values are replaced in all themes like sequential replacements do, also when written in chunks.
+	 */
+	@Test
+	public void testThemes()
+	{
+		ReplacementPlan plan = new ReplacementPlan(ReplaceResource.DEFAULT_FIND_VALUES, REPLACE_VALUES);
+		StringReplacer replacer = new StringReplacer(plan.getFindList(), plan.getReplaceList());
+		for (String library : TestThemes.getLibraries()) {
+			String css = TestThemes.read(library);
+			String expected = Baseline.replace(css, plan.getFindList(), plan.getReplaceList());
+			assertEquals(library, expected, replacer.replace(css));
+			for (int chunkSize : TestThemes.CHUNK_SIZES) {
+				assertEquals(library + ", chunk size " + chunkSize, expected,
+										 TestThemes.writeInChunks(replacer::newWriter, css, chunkSize));
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a replacer.
+	 *
+	 * @param findValues    Values to search for.
+	 * @param replaceValues Values to replace with.
+	 *
+	 * @return Replacer.
+	 */
+	private static StringReplacer replacer(List<String> findValues, List<String> replaceValues)
+	{
+		return new StringReplacer(findValues, replaceValues);
+	}
+
+}
+
@@ -0,0 +1,482 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.faces.application.Application;
+import javax.faces.application.ApplicationWrapper;
+import javax.faces.application.ProjectStage;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.ExternalContextWrapper;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextWrapper;
+import javax.faces.event.SystemEvent;
+import javax.faces.event.SystemEventListener;
+
+
+/**
+ * Faces context for tests, holding the context parameters, the request headers and parameters, the active contracts and
+ * the response. Only the methods used by the resource handlers are implemented, others fail as there is no wrapped
+ * context.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class TestFacesContext extends FacesContextWrapper
+{
+
+	/**
+	 * Context parameters.
+	 */
+	private final Map<String, String> initParameters = new HashMap<>();
+
+	/**
+	 * Request headers.
+	 */
+	private final Map<String, String> requestHeaders = new HashMap<>();
+
+	/**
+	 * Request parameters.
+	 */
+	private final Map<String, String> requestParameters = new HashMap<>();
+
+	/**
+	 * Response headers.
+	 */
+	private final Map<String, String> responseHeaders = new HashMap<>();
+
+	/**
+	 * Response body.
+	 */
+	private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+
+	/**
+	 * Application attributes.
+	 */
+	private final Map<String, Object> applicationMap = new HashMap<>();
+
+	/**
+	 * External context.
+	 */
+	private final ExternalContext externalContext = new TestExternalContext();
+
+	/**
+	 * Application.
+	 */
+	private final TestApplication application = new TestApplication();
+
+	/**
+	 * Response character encoding.
+	 */
+	private String responseCharacterEncoding = "UTF-8";
+
+	/**
+	 * Active resource library contracts.
+	 */
+	private List<String> resourceLibraryContracts = Collections.emptyList();
+
+	/**
+	 * Response status.
+	 */
+	private int responseStatus = 200;
+
+	/**
+	 * Response content type, {@code null} if not set.
+	 */
+	private String responseContentType;
+
+	/**
+	 * Response content length, {@code -1} if not set.
+	 */
+	private int responseContentLength = -1;
+
+	/**
+	 * Servlet path of the request, {@code null} if not set.
+	 */
+	private String requestServletPath;
+
+	/**
+	 * Path info of the request, {@code null} if not set.
+	 */
+	private String requestPathInfo;
+
+
+	/**
+	 * Creates a context and sets it as the current instance.
+	 *
+	 * @return Context.
+	 */
+	static TestFacesContext install()
+	{
+		TestFacesContext context = new TestFacesContext();
+		setCurrentInstance(context);
+		return context;
+	}
+
+
+	/**
+	 * Removes the current instance.
+	 */
+	static void uninstall()
+	{
+		setCurrentInstance(null);
+	}
+
+
+	/**
+	 * Sets a context parameter.
+	 *
+	 * @param name  Name.
+	 * @param value Value.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext setInitParameter(String name, String value)
+	{
+		initParameters.put(name, value);
+		return this;
+	}
+
+
+	/**
+	 * Sets the response character encoding.
+	 *
+	 * @param encoding Encoding.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext setResponseCharacterEncoding(String encoding)
+	{
+		this.responseCharacterEncoding = encoding;
+		return this;
+	}
+
+
+	/**
+	 * Sets a request header.
+	 *
+	 * @param name  Name.
+	 * @param value Value.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext setRequestHeader(String name, String value)
+	{
+		requestHeaders.put(name, value);
+		return this;
+	}
+
+
+	/**
+	 * Sets a request parameter.
+	 *
+	 * @param name  Name.
+	 * @param value Value.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext setRequestParameter(String name, String value)
+	{
+		requestParameters.put(name, value);
+		return this;
+	}
+
+
+	/**
+	 * Sets the request path, split like the servlet container does.
+	 *
+	 * @param servletPath Servlet path.
+	 * @param pathInfo    Path info, {@code null} if the faces servlet is extension mapped.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext setRequestPath(String servletPath, String pathInfo)
+	{
+		this.requestServletPath = servletPath;
+		this.requestPathInfo = pathInfo;
+		return this;
+	}
+
+
+	/**
+	 * Returns the response headers set.
+	 *
+	 * @return Response headers.
+	 */
+	Map<String, String> getResponseHeaders()
+	{
+		return responseHeaders;
+	}
+
+
+	/**
+	 * Returns the response status.
+	 *
+	 * @return Response status.
+	 */
+	int getResponseStatus()
+	{
+		return responseStatus;
+	}
+
+
+	/**
+	 * Returns the response content type.
+	 *
+	 * @return Response content type, {@code null} if not set.
+	 */
+	String getResponseContentType()
+	{
+		return responseContentType;
+	}
+
+
+	/**
+	 * Returns the response content length.
+	 *
+	 * @return Response content length, {@code -1} if not set.
+	 */
+	int getResponseContentLength()
+	{
+		return responseContentLength;
+	}
+
+
+	/**
+	 * Returns the bytes written to the response.
+	 *
+	 * @return Response body.
+	 */
+	byte[] getResponseBody()
+	{
+		return responseBody.toByteArray();
+	}
+
+
+	/**
+	 * Publishes a system event to the listeners subscribed to its type.
+	 *
+	 * @param event Event.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext publishEvent(SystemEvent event)
+	{
+		for (SystemEventListener listener : application.getListeners(event.getClass())) {
+			listener.processEvent(event);
+		}
+		return this;
+	}
+
+
+	/**
+	 * Sets the active resource library contracts.
+	 *
+	 * @param contracts Contract names.
+	 *
+	 * @return This context.
+	 */
+	TestFacesContext setResourceLibraryContracts(String... contracts)
+	{
+		this.resourceLibraryContracts = Arrays.asList(contracts);
+		return this;
+	}
+
+
+	@Override
+	public FacesContext getWrapped()
+	{
+		return null;
+	}
+
+
+	@Override
+	public ExternalContext getExternalContext()
+	{
+		return externalContext;
+	}
+
+
+	@Override
+	public Application getApplication()
+	{
+		return application;
+	}
+
+
+	@Override
+	public boolean isProjectStage(ProjectStage stage)
+	{
+		return application.getProjectStage() == stage;
+	}
+
+
+	@Override
+	public List<String> getResourceLibraryContracts()
+	{
+		return resourceLibraryContracts;
+	}
+
+
+
+	/**
+	 * External context backed by the fields of the faces context.
+	 */
+	private final class TestExternalContext extends ExternalContextWrapper
+	{
+
+		@Override
+		public ExternalContext getWrapped()
+		{
+			return null;
+		}
+
+
+		@Override
+		public String getInitParameter(String name)
+		{
+			return initParameters.get(name);
+		}
+
+
+		@Override
+		public Map<String, String> getRequestHeaderMap()
+		{
+			return requestHeaders;
+		}
+
+
+		@Override
+		public Map<String, String> getRequestParameterMap()
+		{
+			return requestParameters;
+		}
+
+
+		@Override
+		public Map<String, Object> getApplicationMap()
+		{
+			return applicationMap;
+		}
+
+
+		@Override
+		public String getApplicationContextPath()
+		{
+			return TestResourceHandler.CONTEXT_PATH;
+		}
+
+
+		@Override
+		public String getRequestServletPath()
+		{
+			return requestServletPath;
+		}
+
+
+		@Override
+		public String getRequestPathInfo()
+		{
+			return requestPathInfo;
+		}
+
+
+		@Override
+		public String getResponseCharacterEncoding()
+		{
+			return responseCharacterEncoding;
+		}
+
+
+		@Override
+		public void setResponseHeader(String name, String value)
+		{
+			responseHeaders.put(name, value);
+		}
+
+
+		@Override
+		public void setResponseStatus(int statusCode)
+		{
+			responseStatus = statusCode;
+		}
+
+
+		@Override
+		public void setResponseContentType(String contentType)
+		{
+			responseContentType = contentType;
+		}
+
+
+		@Override
+		public void setResponseContentLength(int length)
+		{
+			responseContentLength = length;
+		}
+
+
+		@Override
+		public OutputStream getResponseOutputStream()
+		{
+			return responseBody;
+		}
+
+	}
+
+
+
+	/**
+	 * Application in the production stage, holding the event subscriptions.
+	 */
+	private static final class TestApplication extends ApplicationWrapper
+	{
+
+		/**
+		 * Subscribed listeners by event type.
+		 */
+		private final Map<Class<? extends SystemEvent>, List<SystemEventListener>> listeners = new HashMap<>();
+
+
+		/**
+		 * Returns the listeners subscribed to an event type.
+		 *
+		 * @param systemEventClass Event type.
+		 *
+		 * @return Listeners.
+		 */
+		List<SystemEventListener> getListeners(Class<? extends SystemEvent> systemEventClass)
+		{
+			return listeners.getOrDefault(systemEventClass, Collections.emptyList());
+		}
+
+
+		@Override
+		public Application getWrapped()
+		{
+			return null;
+		}
+
+
+		@Override
+		public ProjectStage getProjectStage()
+		{
+			return ProjectStage.Production;
+		}
+
+
+		@Override
+		public void subscribeToEvent(Class<? extends SystemEvent> systemEventClass, SystemEventListener listener)
+		{
+			listeners.computeIfAbsent(systemEventClass, key -> new ArrayList<>()).add(listener);
+		}
+
+	}
+
+}
+
@@ -0,0 +1,258 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.context.FacesContext;
+
+
+/**
+ * Resource handler for tests, serving resources from {@code META-INF/resources} on the class path, or optionally in a
+ * directory, like a JSF implementation does: {@code #{resource[...]}} expressions in their contents are evaluated.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class TestResourceHandler extends ResourceHandler
+{
+
+	/**
+	 * Context path of the test application.
+	 */
+	static final String CONTEXT_PATH = "/app";
+
+	/**
+	 * Resource base path on the class path.
+	 */
+	private static final String RESOURCES_PATH = "META-INF/resources/";
+
+	/**
+	 * Resource expression, with an optional library.
+	 */
+	private static final Pattern RESOURCE_EXPRESSION = Pattern.compile("#\\{resource\\['(?:([^:']+):)?([^']+)'\\]\\}");
+
+	/**
+	 * Number of resource requests handled by this handler.
+	 */
+	private int handledRequests;
+
+	/**
+	 * Directory holding {@code META-INF/resources} looked up before the class path, {@code null} if not set.
+	 */
+	private final Path directory;
+
+
+	/**
+	 * Creates a handler serving resources from the class path.
+	 */
+	TestResourceHandler()
+	{
+		this(null);
+	}
+
+
+	/**
+	 * Creates a handler serving resources from a directory and the class path.
+	 *
+	 * @param directory Directory holding {@code META-INF/resources}, looked up first.
+	 */
+	TestResourceHandler(Path directory)
+	{
+		this.directory = directory;
+	}
+
+
+	/**
+	 * Evaluates the resource expressions in CSS, like a JSF implementation does when serving a resource.
+	 *
+	 * @param css CSS.
+	 *
+	 * @return CSS with evaluated expressions.
+	 */
+	static String evaluate(String css)
+	{
+		Matcher matcher = RESOURCE_EXPRESSION.matcher(css);
+		StringBuffer sb = new StringBuffer(css.length());
+		while (matcher.find()) {
+			matcher.appendReplacement(sb, Matcher.quoteReplacement(toRequestPath(matcher.group(2), matcher.group(1))));
+		}
+		return matcher.appendTail(sb).toString();
+	}
+
+
+	/**
+	 * Returns the request path of a resource.
+	 *
+	 * @param resourceName Resource name.
+	 * @param libraryName  Library name, may be {@code null}.
+	 *
+	 * @return Request path.
+	 */
+	private static String toRequestPath(String resourceName, String libraryName)
+	{
+		String path = CONTEXT_PATH + RESOURCE_IDENTIFIER + "/" + resourceName + ".xhtml";
+		return libraryName == null ? path : path + "?ln=" + libraryName;
+	}
+
+
+	@Override
+	public Resource createResource(String resourceName)
+	{
+		return createResource(resourceName, null);
+	}
+
+
+	@Override
+	public Resource createResource(String resourceName, String libraryName)
+	{
+		String name = resourceName.startsWith("/") ? resourceName.substring(1) : resourceName;
+		String path = RESOURCES_PATH + (libraryName == null ? "" : libraryName + "/") + name;
+		URL url;
+		if (directory != null && Files.isRegularFile(directory.resolve(path))) {
+			try {
+				url = directory.resolve(path).toUri().toURL();
+			}
+			catch (MalformedURLException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+		else {
+			url = TestResourceHandler.class.getClassLoader().getResource(path);
+		}
+		return url == null ? null : new TestResource(name, libraryName, url);
+	}
+
+
+	@Override
+	public Resource createResource(String resourceName, String libraryName, String contentType)
+	{
+		return createResource(resourceName, libraryName);
+	}
+
+
+	/**
+	 * Counts the resource request, so tests can check which requests fall through to this handler.
+	 *
+	 * @param context Faces context.
+	 */
+	@Override
+	public void handleResourceRequest(FacesContext context)
+	{
+		handledRequests++;
+	}
+
+
+	/**
+	 * Returns the number of resource requests handled by this handler.
+	 *
+	 * @return Number of requests.
+	 */
+	int getHandledRequests()
+	{
+		return handledRequests;
+	}
+
+
+	@Override
+	public boolean isResourceRequest(FacesContext context)
+	{
+		return false;
+	}
+
+
+	@Override
+	public boolean libraryExists(String libraryName)
+	{
+		return true;
+	}
+
+
+	@Override
+	public String getRendererTypeForResourceName(String resourceName)
+	{
+		return null;
+	}
+
+
+
+	/**
+	 * Class path resource.
+	 */
+	private static final class TestResource extends Resource
+	{
+
+		/**
+		 * Resource URL.
+		 */
+		private final URL url;
+
+
+		/**
+		 * Creates a resource.
+		 *
+		 * @param resourceName Resource name.
+		 * @param libraryName  Library name, may be {@code null}.
+		 * @param url          Resource URL.
+		 */
+		TestResource(String resourceName, String libraryName, URL url)
+		{
+			setResourceName(resourceName);
+			setLibraryName(libraryName);
+			setContentType("text/css");
+			this.url = url;
+		}
+
+
+		@Override
+		public InputStream getInputStream() throws IOException
+		{
+			try (InputStream in = url.openStream()) {
+				String css = evaluate(new String(ThemeGenerator.readFully(in), StandardCharsets.UTF_8));
+				return new ByteArrayInputStream(css.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+
+		@Override
+		public Map<String, String> getResponseHeaders()
+		{
+			return Collections.emptyMap();
+		}
+
+
+		@Override
+		public String getRequestPath()
+		{
+			return toRequestPath(getResourceName(), getLibraryName());
+		}
+
+
+		@Override
+		public URL getURL()
+		{
+			return url;
+		}
+
+
+		@Override
+		public boolean userAgentNeedsUpdate(FacesContext context)
+		{
+			return true;
+		}
+
+	}
+
+}
+
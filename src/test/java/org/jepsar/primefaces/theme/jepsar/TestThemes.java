@@ -0,0 +1,129 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Access to the community themes of the {@code all-themes} JAR on the test class path, and helpers to feed CSS to
+ * transforming writers in chunks.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+final class TestThemes
+{
+
+	/**
+	 * Chunk sizes to write CSS in, so every chunk boundary falls inside tokens, comments, colors and find values.
+	 */
+	static final int[] CHUNK_SIZES = {1, 2, 3, 7, 64, 1000};
+
+	/**
+	 * Theme used to locate the JAR.
+	 */
+	private static final String KNOWN_THEME = "META-INF/resources/primefaces-afterdark/theme.css";
+
+	/**
+	 * Theme entry inside the JAR.
+	 */
+	private static final Pattern THEME_ENTRY = Pattern.compile("META-INF/resources/(primefaces-[^/]+)/theme\\.css");
+
+
+	/**
+	 * Utility class.
+	 */
+	private TestThemes()
+	{
+	}
+
+
+	/**
+	 * Returns the library names of all themes in the {@code all-themes} JAR.
+	 *
+	 * @return Sorted library names.
+	 */
+	static List<String> getLibraries()
+	{
+		URL url = TestThemes.class.getClassLoader().getResource(KNOWN_THEME);
+		List<String> libraries = new ArrayList<>();
+		try {
+			JarURLConnection connection = (JarURLConnection) url.openConnection();
+			connection.setUseCaches(false);
+			try (JarFile jar = connection.getJarFile()) {
+				Enumeration<JarEntry> entries = jar.entries();
+				while (entries.hasMoreElements()) {
+					Matcher matcher = THEME_ENTRY.matcher(entries.nextElement().getName());
+					if (matcher.matches()) {
+						libraries.add(matcher.group(1));
+					}
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		Collections.sort(libraries);
+		return libraries;
+	}
+
+
+	/**
+	 * Reads a theme as stored in the JAR, with unevaluated expressions.
+	 *
+	 * @param library Library name.
+	 *
+	 * @return Theme CSS.
+	 */
+	static String read(String library)
+	{
+		String path = "META-INF/resources/" + library + "/" + AbstractResourceHandler.PRIMEFACES_THEME;
+		try (InputStream in = TestThemes.class.getClassLoader().getResourceAsStream(path)) {
+			return new String(ThemeGenerator.readFully(in), StandardCharsets.UTF_8);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+
+	/**
+	 * Writes CSS to a transforming writer in chunks and returns the result.
+	 *
+	 * @param factory   Creates the transforming writer writing to the given output.
+	 * @param css       CSS.
+	 * @param chunkSize Number of characters per write.
+	 *
+	 * @return Output of the writer after closing it.
+	 */
+	static String writeInChunks(UnaryOperator<Writer> factory, String css, int chunkSize)
+	{
+		StringWriter out = new StringWriter();
+		try (Writer writer = factory.apply(out)) {
+			for (int i = 0; i < css.length(); i += chunkSize) {
+				writer.write(css, i, Math.min(chunkSize, css.length() - i));
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toString();
+	}
+
+}
+
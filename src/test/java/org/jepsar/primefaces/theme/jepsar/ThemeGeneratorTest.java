@@ -0,0 +1,251 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import javax.faces.application.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link ThemeGenerator} and serving its themes using {@link AbstractResourceHandler#PARAM_NAME_PRECOMPILED}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ThemeGeneratorTest
+{
+
+	/**
+	 * Replace values for the {@link ReplaceResource#DEFAULT_FIND_VALUES}.
+	 */
+	private static final String REPLACE_VALUES = "#FF0000;=67;=33;=-33;=-67;#00FF00;=67;=33;=-33;=-67;#0000FF;=67;=33;"
+																							 + "=-33;=-67;#EEEEEE;3px;@import url(x);Arial";
+
+	/**
+	 * Input and output directories.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Faces context.
+	 */
+	private TestFacesContext context;
+
+	/**
+	 * Theme library.
+	 */
+	private String library;
+
+	/**
+	 * Directory holding the theme to generate from.
+	 */
+	private Path input;
+
+	/**
+	 * Directory the theme is generated in.
+	 */
+	private Path output;
+
+
+	/**
+	 * Installs the faces context and writes the theme to the input directory.
+	 *
+	 * @throws IOException
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		context = TestFacesContext.install();
+		library = TestThemes.getLibraries().get(0);
+		input = folder.newFolder("input").toPath();
+		output = folder.newFolder("output").toPath();
+		Path theme = input.resolve("META-INF/resources/" + library + "/" + AbstractResourceHandler.PRIMEFACES_THEME);
+		Files.createDirectories(theme.getParent());
+		Files.write(theme, TestThemes.read(library).getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * The generator transforms a theme like the handler does at runtime, keeping its expression language.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testTransform() throws IOException
+	{
+		ThemeGenerator generator = new ThemeGenerator(ThemeGenerator.Mode.FONT_AWESOME, null, null);
+		String generated = generator.transform(TestThemes.read(library));
+		assertTrue(generated.contains("#{resource["));
+		assertEquals(getContent(new FontAwesomeResourceHandler(new TestResourceHandler())),
+								 TestResourceHandler.evaluate(generated));
+	}
+
+
+	/**
+	 * Generated themes start with a comment holding their fingerprint.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testGenerate() throws IOException
+	{
+		assertEquals(1, generate(new ThemeGenerator(ThemeGenerator.Mode.NO_THEME, null, ".a{}")));
+		Path file = output.resolve("META-INF/resources/" + AbstractResourceHandler.PRECOMPILED_LIBRARY + "/" + library
+															 + "/" + AbstractResourceHandler.PRIMEFACES_THEME);
+		try (InputStream in = Files.newInputStream(file)) {
+			assertTrue(ThemeGenerator.readFingerprint(in).matches("[0-9a-f]{64}"));
+			assertEquals(".a{}", new String(ThemeGenerator.readFully(in), StandardCharsets.UTF_8));
+		}
+	}
+
+
+	/**
+	 * A generated theme matching the configuration is served as is.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testPrecompiled() throws IOException
+	{
+		generate(new ThemeGenerator(ThemeGenerator.Mode.FONT_AWESOME, null, null));
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_PRECOMPILED, "true");
+		Resource resource = createResource(new FontAwesomeResourceHandler(new TestResourceHandler(output)));
+		assertFalse(resource instanceof AbstractResource);
+		assertEquals(AbstractResourceHandler.PRECOMPILED_LIBRARY, resource.getLibraryName());
+		try (InputStream in = resource.getInputStream()) {
+			ThemeGenerator.readFingerprint(in);
+			assertEquals(getContent(new FontAwesomeResourceHandler(new TestResourceHandler())),
+									 new String(ThemeGenerator.readFully(in), StandardCharsets.UTF_8));
+		}
+	}
+
+
+	/**
+	 * A generated theme compiled with the same replace values is served, the plan fingerprint covers them.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testPrecompiledReplace() throws IOException
+	{
+		ReplacementPlan plan = new ReplacementPlan(ReplaceResource.DEFAULT_FIND_VALUES, REPLACE_VALUES, false);
+		generate(new ThemeGenerator(ThemeGenerator.Mode.REPLACE, plan, null));
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_PRECOMPILED, "true")
+				.setInitParameter(ReplaceResource.PARAM_NAME_REPLACE_VALUES, REPLACE_VALUES);
+		Resource resource = createResource(new ReplaceResourceHandler(new TestResourceHandler(output)));
+		assertFalse(resource instanceof AbstractResource);
+		context.setInitParameter(ReplaceResource.PARAM_NAME_REPLACE_VALUES, REPLACE_VALUES.replace("#FF0000", "#00FFFF"));
+		resource = createResource(new ReplaceResourceHandler(new TestResourceHandler(output)));
+		assertTrue(resource instanceof AbstractResource);
+	}
+
+
+	/**
+	 * A generated theme not matching the configuration is ignored, and so are generated themes when not enabled.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMismatch() throws IOException
+	{
+		generate(new ThemeGenerator(ThemeGenerator.Mode.FONT_AWESOME, null, null));
+		assertTrue(createResource(new FontAwesomeResourceHandler(new TestResourceHandler(output)))
+				instanceof AbstractResource);
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_PRECOMPILED, "true")
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_MINIFY, "true");
+		assertTrue(createResource(new FontAwesomeResourceHandler(new TestResourceHandler(output)))
+				instanceof AbstractResource);
+	}
+
+
+	/**
+	 * Appended CSS with expression language is rejected, as it would not be evaluated.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testAppendExpression() throws IOException
+	{
+		new ThemeGenerator(ThemeGenerator.Mode.NO_THEME, null, ".a{background:url(#{resource['a.png']})}");
+	}
+
+
+	/**
+	 * The replace mode requires a plan.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testReplaceWithoutPlan() throws IOException
+	{
+		new ThemeGenerator(ThemeGenerator.Mode.REPLACE, null, null);
+	}
+
+
+	/**
+	 * Generates the themes of the input directory into the output directory.
+	 *
+	 * @param generator Generator.
+	 *
+	 * @return Number of generated themes.
+	 *
+	 * @throws IOException
+	 */
+	private int generate(ThemeGenerator generator) throws IOException
+	{
+		return generator.generate(Collections.singletonList(input), output, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Creates the theme resource.
+	 *
+	 * @param handler Handler.
+	 *
+	 * @return Theme resource.
+	 */
+	private Resource createResource(AbstractResourceHandler handler)
+	{
+		return handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+	}
+
+
+	/**
+	 * Returns the content transformed at runtime.
+	 *
+	 * @param handler Handler.
+	 *
+	 * @return Content.
+	 *
+	 * @throws IOException
+	 */
+	private String getContent(AbstractResourceHandler handler) throws IOException
+	{
+		AbstractResource resource = (AbstractResource) createResource(handler);
+		return new String(resource.getContent().toByteArray(), resource.getCharset());
+	}
+
+}
+
@@ -0,0 +1,170 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.faces.event.PreDestroyApplicationEvent;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link ThemeMetrics}, the {@link ThemeMetricsRegistry} and the metrics recorded by the handlers.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class ThemeMetricsTest
+{
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * Recorded values are summed, hits are the lookups which did not transform.
+	 */
+	@Test
+	public void testRecord()
+	{
+		ThemeMetrics metrics = new ThemeMetrics("handler", "library");
+		assertEquals(0, metrics.getAverageTransformTime(), 0);
+		assertEquals(1, metrics.getCompressionRatio(), 0);
+		for (int i = 0; i < 3; i++) {
+			metrics.recordLookup();
+		}
+		metrics.recordTransform(TimeUnit.MILLISECONDS.toNanos(4), 100, 80);
+		metrics.recordTransform(TimeUnit.MILLISECONDS.toNanos(2), -1, 80);
+		metrics.recordEviction();
+		metrics.recordServed(20, 80);
+		metrics.recordServed(80, 80);
+		assertEquals(2, metrics.getTransformCount());
+		assertEquals(6, metrics.getTransformTime(), 0);
+		assertEquals(3, metrics.getAverageTransformTime(), 0);
+		assertEquals(1, metrics.getCacheHits());
+		assertEquals(2, metrics.getCacheMisses());
+		assertEquals(1, metrics.getCacheEvictions());
+		assertEquals(100, metrics.getSourceBytes());
+		assertEquals(160, metrics.getTransformedBytes());
+		assertEquals(2, metrics.getServedCount());
+		assertEquals(100, metrics.getServedBytes());
+		assertEquals(160, metrics.getServedUncompressedBytes());
+		assertEquals(0.625, metrics.getCompressionRatio(), 0);
+	}
+
+
+	/**
+	 * The registry keeps one set of metrics per library and attributes evictions by the source of the cache key.
+	 */
+	@Test
+	public void testRegistry()
+	{
+		ThemeMetricsRegistry registry = new ThemeMetricsRegistry("handler", "/", false);
+		ThemeMetrics metrics = registry.get("library");
+		assertSame(metrics, registry.get("library"));
+		assertEquals("-", registry.get(null).getLibrary());
+		assertEquals(2, registry.getAll().size());
+		registry.putSource("source", metrics);
+		registry.evicted(new CacheKey("source", "", StandardCharsets.UTF_8));
+		registry.evicted(new CacheKey("other", "", StandardCharsets.UTF_8));
+		assertEquals(1, metrics.getCacheEvictions());
+		assertEquals(0, registry.get(null).getCacheEvictions());
+	}
+
+
+	/**
+	 * Serving a theme records a single transformation, the cache hits after it and the compressed response.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testHandler() throws IOException
+	{
+		TestFacesContext context = TestFacesContext.install()
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_COMPRESSION, "true")
+				.setRequestHeader(ContentEncoding.HEADER_ACCEPT_ENCODING, "gzip");
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		String library = TestThemes.getLibraries().get(0);
+		AbstractResource resource = createResource(handler, library);
+		ThemeContent content = resource.getContent();
+		createResource(handler, library).getContent();
+		resource.handleResourceRequest(context);
+
+		ThemeMetrics metrics = handler.getMetrics().get(library);
+		assertEquals(FontAwesomeResourceHandler.class.getSimpleName(), metrics.getHandler());
+		assertEquals(1, metrics.getTransformCount());
+		assertEquals(1, metrics.getCacheMisses());
+		assertTrue(metrics.getCacheHits() > 0);
+		assertTrue(metrics.getSourceBytes() > 0);
+		assertEquals(content.length(), metrics.getTransformedBytes());
+		assertEquals(1, metrics.getServedCount());
+		assertEquals(context.getResponseContentLength(), metrics.getServedBytes());
+		assertEquals(content.length(), metrics.getServedUncompressedBytes());
+		assertTrue(metrics.getCompressionRatio() < 1);
+	}
+
+
+	/**
+	 * Published metrics are registered as MBean and Micrometer meters until the application is destroyed.
+	 *
+	 * @throws JMException
+	 */
+	@Test
+	public void testPublish() throws JMException
+	{
+		TestFacesContext context = TestFacesContext.install()
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_METRICS, "true");
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		String library = TestThemes.getLibraries().get(0);
+		handler.getMetrics().get(library).recordLookup();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(ThemeMetricsRegistry.DOMAIN + ":type=ThemeMetrics"
+																					 + ",application=" + ObjectName.quote(TestResourceHandler.CONTEXT_PATH)
+																					 + ",handler=" + ObjectName.quote(handler.getClass().getSimpleName())
+																					 + ",library=" + ObjectName.quote(library));
+		try {
+			assertEquals(1L, server.getAttribute(objectName, "CacheHits"));
+			assertNotNull(Metrics.globalRegistry.find("jepsar.theme.cache").tag("library", library).functionCounter());
+
+			context.publishEvent(new PreDestroyApplicationEvent(context.getApplication()));
+			assertFalse(server.isRegistered(objectName));
+			assertNull(Metrics.globalRegistry.find("jepsar.theme.cache").tag("library", library).functionCounter());
+		}
+		finally {
+			handler.getMetrics().close();
+		}
+	}
+
+
+	/**
+	 * Creates the theme resource.
+	 *
+	 * @param handler Handler.
+	 * @param library Theme library.
+	 *
+	 * @return Theme resource.
+	 */
+	private static AbstractResource createResource(AbstractResourceHandler handler, String library)
+	{
+		return (AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library);
+	}
+
+}
+
@@ -0,0 +1,194 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Tests the {@link TransformCache}.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class TransformCacheTest
+{
+
+	/**
+	 * A value is loaded once and then served from the cache.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testGet() throws IOException
+	{
+		TransformCache<String, String> cache = new TransformCache<>(2);
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals("A1", cache.get("a", () -> "A" + loads.incrementAndGet()));
+		assertEquals("A1", cache.get("a", () -> "A" + loads.incrementAndGet()));
+		assertEquals(1, loads.get());
+		assertEquals("A1", cache.getIfPresent("a"));
+		assertNull(cache.getIfPresent("b"));
+		TransformCache.Statistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.getHitCount());
+		assertEquals(1, statistics.getMissCount());
+	}
+
+
+	/**
+	 * Concurrent requests for a missing key wait for a single load.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSingleFlight() throws Exception
+	{
+		TransformCache<String, String> cache = new TransformCache<>(2);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<String> first = executor.submit(() -> cache.get("a", () -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				release.await();
+				return "A";
+			}));
+			loading.await();
+			List<Future<String>> others = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				others.add(executor.submit(() -> cache.get("a", () -> "other" + loads.incrementAndGet())));
+			}
+			release.countDown();
+			assertEquals("A", first.get(10, TimeUnit.SECONDS));
+			for (Future<String> other : others) {
+				assertEquals("A", other.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(1, loads.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Failed loads are rethrown and not cached.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testFailedLoad() throws IOException
+	{
+		TransformCache<String, String> cache = new TransformCache<>(2);
+		IOException failure = new IOException("failed");
+		try {
+			cache.get("a", () -> {
+				throw failure;
+			});
+			fail("Failed load returned a value");
+		}
+		catch (IOException ex) {
+			assertSame(failure, ex);
+		}
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getStatistics().getLoadFailureCount());
+		assertEquals("A", cache.get("a", () -> "A"));
+	}
+
+
+	/**
+	 * The least recently used entry is evicted when the cache exceeds its maximum size, and passed to the listeners.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testEviction() throws IOException
+	{
+		TransformCache<String, String> cache = new TransformCache<>(2);
+		List<String> evicted = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		cache.setEvictionListener(evicted::add);
+		cache.setRemovalListener(removed::add);
+		cache.get("a", () -> "A");
+		cache.get("b", () -> "B");
+		cache.get("a", () -> "A");
+		cache.get("c", () -> "C");
+		assertEquals(Arrays.asList("b"), evicted);
+		assertNull(cache.getIfPresent("b"));
+		assertEquals("A", cache.getIfPresent("a"));
+		cache.invalidate("a");
+		assertEquals(Arrays.asList("b"), evicted);
+		assertEquals(Arrays.asList("b", "a"), removed);
+		assertEquals(1, cache.getStatistics().getEvictionCount());
+	}
+
+
+	/**
+	 * Least recently used entries are evicted until the total weight fits, a value heavier than the maximum is still
+	 * cached on its own.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWeight() throws IOException
+	{
+		TransformCache<String, String> cache = new TransformCache<>(10, 5, String::length);
+		cache.get("a", () -> "aa");
+		cache.get("b", () -> "bb");
+		assertEquals(4, cache.getWeight());
+		cache.get("c", () -> "cc");
+		assertEquals(4, cache.getWeight());
+		assertNull(cache.getIfPresent("a"));
+		cache.get("d", () -> "dddddd");
+		assertEquals(1, cache.size());
+		assertEquals(6, cache.getWeight());
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+
+	/**
+	 * Entries matching a predicate are invalidated.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testInvalidateIf() throws IOException
+	{
+		TransformCache<String, String> cache = new TransformCache<>(10, 100, String::length);
+		cache.get("a1", () -> "x");
+		cache.get("a2", () -> "x");
+		cache.get("b1", () -> "x");
+		cache.invalidateIf(key -> key.startsWith("a"));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getWeight());
+		assertEquals("x", cache.getIfPresent("b1"));
+	}
+
+
+	/**
+	 * Invalid bounds are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize()
+	{
+		new TransformCache<>(0);
+	}
+
+}
+
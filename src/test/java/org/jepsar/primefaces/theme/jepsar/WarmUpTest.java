@@ -0,0 +1,193 @@
+package org.jepsar.primefaces.theme.jepsar;
+
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import javax.faces.event.PostConstructApplicationEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link AbstractResourceHandler#PARAM_NAME_WARM_UP warm-up}, which runs when the application has started
+ * without any request.
+ *
+ * @author Jasper de Vries <jepsar@gmail.com>
+ */
+public class WarmUpTest
+{
+
+	/**
+	 * Maximum time to wait for the warm-up in milliseconds.
+	 */
+	private static final long TIMEOUT = 60_000;
+
+	/**
+	 * Faces context.
+	 */
+	private TestFacesContext context;
+
+	/**
+	 * Theme library.
+	 */
+	private String library;
+
+
+	/**
+	 * Installs the faces context.
+	 */
+	@Before
+	public void setUp()
+	{
+		context = TestFacesContext.install();
+		library = TestThemes.getLibraries().get(0);
+	}
+
+
+	/**
+	 * Removes the faces context.
+	 */
+	@After
+	public void tearDown()
+	{
+		TestFacesContext.uninstall();
+	}
+
+
+	/**
+	 * Without themes to warm up the handler is warmed up right away.
+	 */
+	@Test
+	public void testNothingToWarmUp()
+	{
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		assertTrue(handler.isWarmedUp());
+		assertEquals(Boolean.TRUE, getWarmedUpAttribute());
+	}
+
+
+	/**
+	 * Starting the application creates the content of the theme for each warm-up charset in the background, including
+	 * its compressed variants. Later requests are served the warmed up resources without transforming again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWarmUp() throws Exception
+	{
+		String theme = library.substring(AbstractResourceHandler.PRIMEFACES_LIBRARY_PREFIX.length());
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_WARM_UP, theme)
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_WARM_UP_CHARSETS, "UTF-8, ISO-8859-1")
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_COMPRESSION, "true");
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		assertFalse(handler.isWarmedUp());
+		assertEquals(Boolean.FALSE, getWarmedUpAttribute());
+
+		context.publishEvent(new PostConstructApplicationEvent(context.getApplication()));
+		awaitWarmUp(handler);
+		assertEquals(Boolean.TRUE, getWarmedUpAttribute());
+		assertEquals(2, handler.getCache().size());
+		ThemeMetrics metrics = handler.getMetrics().get(library);
+		assertEquals(2, metrics.getTransformCount());
+
+		for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1}) {
+			byte[] expected = getContent(charset);
+			AbstractResource resource = (AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME,
+																																						 library);
+			assertSame(resource, handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library));
+			ThemeContent content = resource.getContent();
+			assertArrayEquals(expected, content.toByteArray());
+			for (ContentEncoding encoding : ContentEncoding.values()) {
+				assertNotNull(content.getVariant(encoding));
+			}
+		}
+		assertEquals(2, metrics.getTransformCount());
+	}
+
+
+	/**
+	 * Handlers which do not wrap themes warm up the theme transformation only.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWarmUpTransformation() throws Exception
+	{
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_WARM_UP, library);
+		AbstractResourceHandler handler = new AbstractResourceHandler(new TestResourceHandler())
+		{
+		};
+		context.publishEvent(new PostConstructApplicationEvent(context.getApplication()));
+		awaitWarmUp(handler);
+		assertEquals(Boolean.TRUE, getWarmedUpAttribute());
+		assertEquals(0, handler.getCache().size());
+	}
+
+
+	/**
+	 * An unsupported warm-up charset fails the handler.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testInvalidCharset()
+	{
+		context.setInitParameter(AbstractResourceHandler.PARAM_NAME_WARM_UP, library)
+				.setInitParameter(AbstractResourceHandler.PARAM_NAME_WARM_UP_CHARSETS, "UTF-8, no-such-charset");
+		new FontAwesomeResourceHandler(new TestResourceHandler());
+	}
+
+
+	/**
+	 * Waits until the handler is warmed up.
+	 *
+	 * @param handler Handler.
+	 *
+	 * @throws InterruptedException
+	 */
+	private static void awaitWarmUp(AbstractResourceHandler handler) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!handler.isWarmedUp()) {
+			assertTrue("Warm-up did not finish", System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+
+	/**
+	 * Returns the content of the theme from a new handler without warm-up, setting the response charset.
+	 *
+	 * @param charset Response charset.
+	 *
+	 * @return Content.
+	 *
+	 * @throws IOException
+	 */
+	private byte[] getContent(Charset charset) throws IOException
+	{
+		context.setResponseCharacterEncoding(charset.name());
+		FontAwesomeResourceHandler handler = new FontAwesomeResourceHandler(new TestResourceHandler());
+		return ((AbstractResource) handler.createResource(AbstractResourceHandler.PRIMEFACES_THEME, library))
+				.getContent().toByteArray();
+	}
+
+
+	/**
+	 * Returns the {@link AbstractResourceHandler#ATTRIBUTE_WARMED_UP} application attribute.
+	 *
+	 * @return Attribute value.
+	 */
+	private Object getWarmedUpAttribute()
+	{
+		return context.getExternalContext().getApplicationMap().get(AbstractResourceHandler.ATTRIBUTE_WARMED_UP);
+	}
+
+}
+